@@ -0,0 +1,140 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * An explained authorization decision: whether a user may carry out an operation in a project, the role assignments
+ * that grant the operation, and, if it is not allowed, the reasons why not
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface AuthorizationDecision {
+
+    /**
+     * Get the identifier of the user whose access was checked
+     *
+     * @return User identifier
+     */
+    @Nonnull
+    UserId getUserId();
+
+    /**
+     * Get the identifier of the project where access was checked
+     *
+     * @return Project identifier
+     */
+    @Nonnull
+    ProjectId getProjectId();
+
+    /**
+     * Get the identifier of the checked operation
+     *
+     * @return Operation identifier
+     */
+    @Nonnull
+    OperationId getOperationId();
+
+    /**
+     * Check whether the operation is allowed. This is the same outcome as that of
+     * {@link ConfigurationBrowser#isOperationAllowed(OperationId, ProjectId, UserId)}
+     *
+     * @return true if the operation is allowed, false otherwise
+     */
+    boolean isAllowed();
+
+    /**
+     * Get the role assignments that grant the operation in the project, whether or not a deny rule overrides them
+     *
+     * @return List of grants
+     */
+    @Nonnull
+    ImmutableList<Grant> getGrants();
+
+    /**
+     * Get the deny rules that forbid the operation to the user in the project
+     *
+     * @return List of deny rules
+     */
+    @Nonnull
+    ImmutableList<DenyRule> getDenyRules();
+
+    /**
+     * Get the identifiers of the roles assigned to the user in the project that do not exist in the configuration
+     *
+     * @return Set of role identifiers
+     */
+    @Nonnull
+    ImmutableSet<RoleId> getUnknownRoles();
+
+    /**
+     * Get the reasons why the operation is not allowed
+     *
+     * @return Set of denial reasons, which is empty if the operation is allowed
+     */
+    @Nonnull
+    ImmutableSet<DenialReason> getDenialReasons();
+
+    /**
+     * A role assignment that grants an operation
+     */
+    interface Grant {
+
+        /**
+         * Get the identifier of the assigned role, which allows the operation itself or through a role it includes
+         *
+         * @return Role identifier
+         */
+        @Nonnull
+        RoleId getRoleId();
+
+        /**
+         * Get the scope of the assignment: the checked project, a project group that contains it, or the universal
+         * project
+         *
+         * @return Project or project group identifier
+         */
+        @Nonnull
+        ProjectId getScope();
+
+        /**
+         * Get the identifier of the user group through which the role is assigned
+         *
+         * @return User group identifier, or an empty optional if the role is assigned to the user directly
+         */
+        @Nonnull
+        Optional<UserGroupId> getUserGroupId();
+
+    }
+
+    /**
+     * The reasons why an operation is not allowed
+     */
+    enum DenialReason {
+        /** The user does not exist in the configuration */
+        UNKNOWN_USER,
+
+        /** No role of the configuration allows the operation */
+        UNKNOWN_OPERATION,
+
+        /** The user has no role in the project, in a project group that contains it, or in all projects */
+        NO_ROLE_ASSIGNED,
+
+        /** Some role assigned to the user in the project does not exist in the configuration */
+        UNKNOWN_ROLE,
+
+        /** None of the roles assigned to the user in the project allows the operation */
+        NO_ROLE_ALLOWS_OPERATION,
+
+        /** The operation is granted to the user in other projects, but neither in this project nor in all projects */
+        NO_UNIVERSAL_GRANT,
+
+        /** A deny rule forbids the operation */
+        DENIED_BY_RULE
+    }
+}
@@ -1,12 +1,15 @@
 package edu.stanford.protege.metaproject.api;
 
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import edu.stanford.protege.metaproject.api.exception.*;
 
 import javax.annotation.Nonnull;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Stream;
 
 /**
  * @author Rafael Gonçalves <br>
@@ -27,6 +30,15 @@ public interface ConfigurationBrowser {
     @Nonnull
     User getUser(@Nonnull UserId userId) throws UnknownUserIdException;
 
+    /**
+     * Find the user with the specified user identifier, without throwing an exception if there is no such user
+     *
+     * @param userId    User identifier
+     * @return User instance, or an empty optional if the user identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<User> findUser(@Nonnull UserId userId);
+
     /**
      * Get the set of user in the configuration
      *
@@ -35,6 +47,19 @@ public interface ConfigurationBrowser {
     @Nonnull
     ImmutableSet<User> getUsers();
 
+    /**
+     * Get a page of the users in the configuration in the given order. The users are sorted once per configuration,
+     * so each page costs a binary search for the cursor plus the size of the page
+     *
+     * @param order Sort order
+     * @param cursor    Cursor of the page, as returned with the previous page, or an empty optional for the first page
+     * @param limit Maximum number of users in the page
+     * @return Page of users
+     * @throws IllegalArgumentException The limit is not positive, or the cursor is malformed
+     */
+    @Nonnull
+    Page<User> getUsers(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit);
+
     /**
      * Get the user(s) registered with the specified name
      *
@@ -44,6 +69,15 @@ public interface ConfigurationBrowser {
     @Nonnull
     Set<User> getUsers(@Nonnull Name userName);
 
+    /**
+     * Stream the user(s) registered with the specified name. The stream is lazy, and is not backed by a collection
+     *
+     * @param userName  User name instance
+     * @return Stream of users with given name
+     */
+    @Nonnull
+    Stream<User> streamUsers(@Nonnull Name userName);
+
     /**
      * Get the user(s) registered with the specified email address
      *
@@ -54,7 +88,31 @@ public interface ConfigurationBrowser {
     Set<User> getUsers(@Nonnull EmailAddress emailAddress);
 
     /**
-     * Get the set of user identifiers that have some role in the specified project
+     * Stream the user(s) registered with the specified email address. The stream is lazy, and is not backed by a
+     * collection
+     *
+     * @param emailAddress  Email address
+     * @return Stream of users
+     */
+    @Nonnull
+    Stream<User> streamUsers(@Nonnull EmailAddress emailAddress);
+
+    /**
+     * Search for the users whose name, email address or identifier, or a word within them, starts with the given
+     * text, ignoring case and accents. Searches are answered from an index built once per configuration
+     *
+     * @param prefix    Text to search for
+     * @param limit Maximum number of users to return
+     * @return List of matching users, closest completions first
+     * @throws IllegalArgumentException The limit is not positive
+     */
+    @Nonnull
+    ImmutableList<User> searchUsers(@Nonnull String prefix, int limit);
+
+    /**
+     * Get the set of user identifiers that have some role in the specified project or in a project group that
+     * contains it, either directly or through the user groups they belong to. Roles assigned in all projects are not
+     * taken into account, unless the specified project is the universal project itself
      *
      * @param projectId    Project identifier
      * @return Set of user identifiers
@@ -88,6 +146,104 @@ public interface ConfigurationBrowser {
 
 
 
+    /* user groups */
+
+    /**
+     * Get the user group with the specified identifier
+     *
+     * @param groupId   User group identifier
+     * @return User group
+     * @throws UnknownUserGroupIdException  User group identifier does not exist in the configuration
+     */
+    @Nonnull
+    UserGroup getUserGroup(@Nonnull UserGroupId groupId) throws UnknownUserGroupIdException;
+
+    /**
+     * Find the user group with the specified identifier, without throwing an exception if there is no such group
+     *
+     * @param groupId   User group identifier
+     * @return User group, or an empty optional if the user group identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<UserGroup> findUserGroup(@Nonnull UserGroupId groupId);
+
+    /**
+     * Get the set of user groups in the configuration
+     *
+     * @return Set of user groups
+     */
+    @Nonnull
+    ImmutableSet<UserGroup> getUserGroups();
+
+    /**
+     * Get the set of user groups that the user with the given identifier belongs to, either directly or through
+     * the subgroups of a group
+     *
+     * @param userId    User identifier
+     * @return Set of user groups
+     */
+    @Nonnull
+    Set<UserGroup> getUserGroups(@Nonnull UserId userId);
+
+    /**
+     * Check whether the configuration contains a user group with the given identifier
+     *
+     * @param groupId   User group identifier
+     * @return true if configuration contains the user group, false otherwise
+     */
+    boolean containsUserGroup(@Nonnull UserGroupId groupId);
+
+
+
+    /* project groups */
+
+    /**
+     * Get the project group with the specified identifier
+     *
+     * @param groupId   Project group identifier
+     * @return Project group
+     * @throws UnknownProjectIdException    Project group identifier does not exist in the configuration
+     */
+    @Nonnull
+    ProjectGroup getProjectGroup(@Nonnull ProjectId groupId) throws UnknownProjectIdException;
+
+    /**
+     * Find the project group with the specified identifier, without throwing an exception if there is no such group
+     *
+     * @param groupId   Project group identifier
+     * @return Project group, or an empty optional if the project group identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<ProjectGroup> findProjectGroup(@Nonnull ProjectId groupId);
+
+    /**
+     * Get the set of project groups in the configuration
+     *
+     * @return Set of project groups
+     */
+    @Nonnull
+    ImmutableSet<ProjectGroup> getProjectGroups();
+
+    /**
+     * Get the set of project groups that contain the project with the given identifier, either by listing it or
+     * through a prefix of its identifier
+     *
+     * @param projectId Project identifier
+     * @return Set of project groups
+     */
+    @Nonnull
+    Set<ProjectGroup> getProjectGroups(@Nonnull ProjectId projectId);
+
+    /**
+     * Check whether the configuration contains a project group with the given identifier
+     *
+     * @param groupId   Project group identifier
+     * @return true if configuration contains the project group, false otherwise
+     */
+    boolean containsProjectGroup(@Nonnull ProjectId groupId);
+
+
+
     /* projects */
 
     /**
@@ -100,6 +256,15 @@ public interface ConfigurationBrowser {
     @Nonnull
     Project getProject(@Nonnull ProjectId projectId) throws UnknownProjectIdException;
 
+    /**
+     * Find the project with the given identifier, without throwing an exception if there is no such project
+     *
+     * @param projectId Project identifier
+     * @return Project, or an empty optional if the project identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<Project> findProject(@Nonnull ProjectId projectId);
+
     /**
      * Get the set of projects in the configuration
      *
@@ -108,6 +273,19 @@ public interface ConfigurationBrowser {
     @Nonnull
     ImmutableSet<Project> getProjects();
 
+    /**
+     * Get a page of the projects in the configuration in the given order. The projects are sorted once per configuration,
+     * so each page costs a binary search for the cursor plus the size of the page
+     *
+     * @param order Sort order
+     * @param cursor    Cursor of the page, as returned with the previous page, or an empty optional for the first page
+     * @param limit Maximum number of projects in the page
+     * @return Page of projects
+     * @throws IllegalArgumentException The limit is not positive, or the cursor is malformed
+     */
+    @Nonnull
+    Page<Project> getProjects(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit);
+
     /**
      * Get the set of projects with the specified project name
      *
@@ -118,7 +296,20 @@ public interface ConfigurationBrowser {
     Set<Project> getProjects(@Nonnull Name projectName);
 
     /**
-     * Get the set of projects that the user with the given identifier has some role assignments
+     * Search for the projects whose name or identifier, or a word within them, starts with the given text, ignoring
+     * case and accents. Searches are answered from an index built once per configuration
+     *
+     * @param prefix    Text to search for
+     * @param limit Maximum number of projects to return
+     * @return List of matching projects, closest completions first
+     * @throws IllegalArgumentException The limit is not positive
+     */
+    @Nonnull
+    ImmutableList<Project> searchProjects(@Nonnull String prefix, int limit);
+
+    /**
+     * Get the set of projects that the user with the given identifier has some role assignments in, as for
+     * {@link #getProjectIds(UserId)}
      *
      * @param userId    User identifier
      * @return Set of projects
@@ -127,7 +318,19 @@ public interface ConfigurationBrowser {
     Set<Project> getProjects(@Nonnull UserId userId);
 
     /**
-     * Get the set of project identifiers that the given user is assigned to
+     * Stream the projects that the user with the given identifier has some role assignments in, as for
+     * {@link #getProjectIds(UserId)}. The stream is lazy, and is not backed by a collection
+     *
+     * @param userId    User identifier
+     * @return Stream of projects
+     */
+    @Nonnull
+    Stream<Project> streamProjects(@Nonnull UserId userId);
+
+    /**
+     * Get the set of project identifiers that the given user is assigned to, either directly or through the user
+     * groups it belongs to. Assignments to a project group count as assignments to each project it contains, and
+     * assignments to all projects are reported as assignments to the universal project
      *
      * @param userId    User identifier
      * @return Set of project identifiers the user works on
@@ -165,6 +368,15 @@ public interface ConfigurationBrowser {
     @Nonnull
     Role getRole(@Nonnull RoleId roleId) throws UnknownRoleIdException;
 
+    /**
+     * Find the role with the given identifier, without throwing an exception if there is no such role
+     *
+     * @param roleId    Role identifier
+     * @return Role instance, or an empty optional if the role identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<Role> findRole(@Nonnull RoleId roleId);
+
     /**
      * Get the set of roles in the configuration
      *
@@ -173,6 +385,19 @@ public interface ConfigurationBrowser {
     @Nonnull
     ImmutableSet<Role> getRoles();
 
+    /**
+     * Get a page of the roles in the configuration in the given order. The roles are sorted once per configuration,
+     * so each page costs a binary search for the cursor plus the size of the page
+     *
+     * @param order Sort order
+     * @param cursor    Cursor of the page, as returned with the previous page, or an empty optional for the first page
+     * @param limit Maximum number of roles in the page
+     * @return Page of roles
+     * @throws IllegalArgumentException The limit is not positive, or the cursor is malformed
+     */
+    @Nonnull
+    Page<Role> getRoles(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit);
+
     /**
      * Get the set roles for the user with the given user identifier, considering global permissions depending on the specified enumeration value
      *
@@ -183,6 +408,17 @@ public interface ConfigurationBrowser {
     @Nonnull
     Set<Role> getRoles(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions);
 
+    /**
+     * Stream the distinct roles assigned to the given user, directly or through user groups. The stream is lazy, so
+     * a caller that only needs the first role or a count does not collect the roles into a set
+     *
+     * @param userId    User identifier
+     * @param globalPermissions Whether to include roles assigned in all projects
+     * @return Stream of roles
+     */
+    @Nonnull
+    Stream<Role> streamRoles(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions);
+
     /**
      * Get the set roles for the user with the given user identifier within the given project, considering global permissions depending on the
      * specified enumeration value
@@ -196,7 +432,20 @@ public interface ConfigurationBrowser {
     Set<Role> getRoles(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions);
 
     /**
-     * Get the set of role identifiers that a given user has assigned within the specified project
+     * Stream the distinct roles assigned to the given user in the specified project, directly or through user groups
+     * and project groups. The stream is lazy, and is not backed by a collection
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param globalPermissions Whether to include roles assigned in all projects
+     * @return Stream of roles
+     */
+    @Nonnull
+    Stream<Role> streamRoles(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions);
+
+    /**
+     * Get the set of role identifiers that a given user has assigned within the specified project or a project group
+     * that contains it, either directly or through the user groups the user belongs to
      *
      * @param userId    User identifier
      * @param projectId Project identifier
@@ -207,7 +456,8 @@ public interface ConfigurationBrowser {
     Set<RoleId> getRoleIds(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions);
 
     /**
-     * Get the set of role identifiers that a given user has assigned
+     * Get the set of role identifiers that a given user has assigned, either directly or through the user groups
+     * the user belongs to
      *
      * @param userId    User identifier
      * @param globalPermissions Whether global permissions should be taken into account
@@ -246,6 +496,15 @@ public interface ConfigurationBrowser {
     @Nonnull
     Operation getOperation(@Nonnull OperationId operationId) throws UnknownOperationIdException;
 
+    /**
+     * Find the operation with the specified operation identifier, without throwing an exception if there is no such operation
+     *
+     * @param operationId   Operation identifier
+     * @return Operation instance, or an empty optional if the operation identifier does not exist in the configuration
+     */
+    @Nonnull
+    Optional<Operation> findOperation(@Nonnull OperationId operationId);
+
     /**
      * Get the set of operations in the configuration
      *
@@ -255,7 +514,8 @@ public interface ConfigurationBrowser {
     ImmutableSet<Operation> getOperations();
 
     /**
-     * Get the set of operations that the user with the given identifier can perform
+     * Get the set of operations that the user with the given identifier can perform in some project, leaving out
+     * operations denied to the user everywhere
      *
      * @param userId    User identifier
      * @param globalPermissions Whether global permissions should be taken into account
@@ -265,7 +525,19 @@ public interface ConfigurationBrowser {
     Set<Operation> getOperations(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions);
 
     /**
-     * Get the set of operations that the user with the given identifier can perform in the project with the given identifier
+     * Stream the distinct operations that the given user may carry out in some project. The stream is lazy, and is
+     * not backed by a collection
+     *
+     * @param userId    User identifier
+     * @param globalPermissions Whether to include operations granted in all projects
+     * @return Stream of operations
+     */
+    @Nonnull
+    Stream<Operation> streamOperations(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions);
+
+    /**
+     * Get the set of operations that the user with the given identifier can perform in the project with the given identifier,
+     * leaving out operations denied to the user in that project
      *
      * @param userId    User identifier
      * @param projectId Project identifier
@@ -275,6 +547,18 @@ public interface ConfigurationBrowser {
     @Nonnull
     Set<Operation> getOperations(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions);
 
+    /**
+     * Stream the distinct operations that the given user may carry out in the specified project. The stream is lazy,
+     * and is not backed by a collection
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param globalPermissions Whether to include operations granted in all projects
+     * @return Stream of operations
+     */
+    @Nonnull
+    Stream<Operation> streamOperations(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions);
+
     /**
      * Get the set of operations allowed by the given role set
      *
@@ -285,7 +569,17 @@ public interface ConfigurationBrowser {
     Set<Operation> getOperations(@Nonnull Set<Role> roles);
 
     /**
-     * Get the set of operations allowed by the given role
+     * Stream the distinct operations allowed by the given roles, including those inherited from the roles they
+     * include. The stream is lazy, and is not backed by a collection
+     *
+     * @param roles Set of roles
+     * @return Stream of operations
+     */
+    @Nonnull
+    Stream<Operation> streamOperations(@Nonnull Set<Role> roles);
+
+    /**
+     * Get the set of operations allowed by the given role, including those inherited from the roles it includes
      *
      * @param role  Role
      * @return Set of operations
@@ -293,6 +587,16 @@ public interface ConfigurationBrowser {
     @Nonnull
     Set<Operation> getOperations(@Nonnull Role role);
 
+    /**
+     * Stream the distinct operations allowed by the given role, including those inherited from the roles it includes.
+     * The stream is lazy, and is not backed by a collection
+     *
+     * @param role  Role
+     * @return Stream of operations
+     */
+    @Nonnull
+    Stream<Operation> streamOperations(@Nonnull Role role);
+
     /**
      * Check whether the configuration contains the given operation
      *
@@ -330,6 +634,16 @@ public interface ConfigurationBrowser {
     @Nonnull
     AuthenticationDetails getAuthenticationDetails(@Nonnull UserId userId) throws UserNotRegisteredException;
 
+    /**
+     * Find the authentication details for a user with the given identifier, without throwing an exception if the user
+     * is not registered
+     *
+     * @param userId    User identifier
+     * @return Authentication details, or an empty optional if the user is not registered
+     */
+    @Nonnull
+    Optional<AuthenticationDetails> findAuthenticationDetails(@Nonnull UserId userId);
+
     /**
      * Get the cryptographic salt used for hashing the given user's password
      *
@@ -362,7 +676,8 @@ public interface ConfigurationBrowser {
     /* access control policy */
 
     /**
-     * Check whether the specified operation is allowed for the given user within the project
+     * Check whether the specified operation is allowed for the given user within the project, considering the roles
+     * assigned to the user directly and through user groups, and the deny rules that apply to the user
      *
      * @param operationId Operation identifier
      * @param projectId   Project identifier
@@ -372,7 +687,22 @@ public interface ConfigurationBrowser {
     boolean isOperationAllowed(@Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId);
 
     /**
-     * Check whether the specified operation is allowed for the given user
+     * Explain whether the specified operation is allowed for the given user within the project: the role assignments
+     * that grant it, directly or through user groups and project groups, and, if it is not allowed, the reasons why
+     * not. The outcome is that of {@link #isOperationAllowed(OperationId, ProjectId, UserId)}, which should be used
+     * when no explanation is needed, since the explanation is worked out anew on every call
+     *
+     * @param operationId Operation identifier
+     * @param projectId   Project identifier
+     * @param userId  User identifier
+     * @return Authorization decision
+     */
+    @Nonnull
+    AuthorizationDecision explainOperation(@Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId);
+
+    /**
+     * Check whether the specified operation is allowed for the given user in some project, considering the roles
+     * assigned to the user directly and through user groups, and the deny rules that apply to the user
      *
      * @param operationId Operation identifier
      * @param userId  User identifier
@@ -381,7 +711,46 @@ public interface ConfigurationBrowser {
     boolean isOperationAllowed(@Nonnull OperationId operationId, @Nonnull UserId userId);
 
     /**
-     * Check if a given user has the specified role
+     * Get the identifiers of the users that are allowed to carry out the specified operation within the given
+     * project, i.e., those for which {@link #isOperationAllowed(OperationId, ProjectId, UserId)} holds
+     *
+     * @param operationId Operation identifier
+     * @param projectId   Project identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getAllowedUserIds(@Nonnull OperationId operationId, @Nonnull ProjectId projectId);
+
+    /**
+     * Get the identifiers of the users that are allowed to carry out the specified operation in some project, i.e.,
+     * those for which {@link #isOperationAllowed(OperationId, UserId)} holds
+     *
+     * @param operationId Operation identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getAllowedUserIds(@Nonnull OperationId operationId);
+
+    /**
+     * Get the set of deny rules, which override the operations allowed by role assignments
+     *
+     * @return Set of deny rules
+     */
+    @Nonnull
+    ImmutableSet<DenyRule> getDenyRules();
+
+    /**
+     * Get the set of role assignments that are only valid within a window of time. Assignments whose window is open
+     * are also part of the policy map, while those whose window has yet to open are not
+     *
+     * @return Set of timed assignments
+     */
+    @Nonnull
+    ImmutableSet<TimedAssignment> getTimedAssignments();
+
+    /**
+     * Check if a given user has the specified role in the given project or a project group that contains it, either
+     * directly or through the user groups the user belongs to
      *
      * @param userId  User unique identifier as used to login
      * @param roleId  Role identifier
@@ -391,8 +760,8 @@ public interface ConfigurationBrowser {
     boolean hasRole(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull RoleId roleId);
 
     /**
-     * Check whether the policy manager contains any role assignments for
-     * the user with the given identifier in the specified project
+     * Check whether the user with the given identifier has some role in the specified project, in the same way as
+     * {@link #getUserIds(ProjectId)}
      *
      * @param userId    User identifier
      * @param projectId Project identifier
@@ -401,7 +770,8 @@ public interface ConfigurationBrowser {
     boolean hasRole(@Nonnull UserId userId, @Nonnull ProjectId projectId);
 
     /**
-     * Check whether the policy contains role assignments for the user with the given identifier in some project
+     * Check whether the policy contains role assignments for the user with the given identifier in some project,
+     * either directly or through the user groups it belongs to
      *
      * @param userId    User identifier
      * @return true if policy has role assignments for the user with the specified identifier, false otherwise
@@ -417,7 +787,9 @@ public interface ConfigurationBrowser {
     ImmutableMap<UserId,Map<ProjectId,Set<RoleId>>> getPolicyMap();
 
     /**
-     * Get a map of project identifiers to the roles that a specified user can play
+     * Get a map of project identifiers to the roles that a specified user can play, where the projects are those of
+     * {@link #getProjectIds(UserId)} and the roles are those assigned to the user or its user groups in the project,
+     * or in a project group that contains it
      *
      * @param userId    User identifier
      * @return Map of projects to roles
@@ -425,4 +797,38 @@ public interface ConfigurationBrowser {
     @Nonnull
     Map<ProjectId, Set<RoleId>> getUserRoleMap(@Nonnull UserId userId);
 
+    /**
+     * Get the identifiers of the users that satisfy the given query condition. A condition combines predicates such
+     * as {@code has role R on projects owned by U}, {@code has any role globally}, {@code can O on project P} and
+     * {@code in group G} with {@code and}, {@code or}, {@code not} and parentheses, for example
+     * {@code has role editor on projects owned by alice and not has any role globally}
+     *
+     * @param condition Query condition on users
+     * @return Set of user identifiers, in identifier order
+     * @throws IllegalArgumentException The condition is malformed or refers to an unknown policy object
+     */
+    @Nonnull
+    ImmutableSet<UserId> queryUsers(@Nonnull String condition);
+
+    /**
+     * Get the identifiers of the projects that satisfy the given query condition. A condition combines the
+     * predicates {@code owned by U}, {@code has member U}, {@code in group G} and {@code is P} with {@code and},
+     * {@code or}, {@code not} and parentheses
+     *
+     * @param condition Query condition on projects
+     * @return Set of project identifiers, in identifier order
+     * @throws IllegalArgumentException The condition is malformed or refers to an unknown policy object
+     */
+    @Nonnull
+    ImmutableSet<ProjectId> queryProjects(@Nonnull String condition);
+
+    /**
+     * Get aggregate statistics about the access control policy, such as the number of users per role and of members
+     * per project
+     *
+     * @return Policy statistics
+     */
+    @Nonnull
+    PolicyStatistics getStatistics();
+
 }
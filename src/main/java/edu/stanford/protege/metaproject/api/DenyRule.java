@@ -0,0 +1,51 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * A representation of a deny rule, which forbids a set of operations in a project regardless of the roles that would
+ * otherwise allow them. A rule applies either to a single user, to the members of a user group (including members of
+ * its subgroups), or, if it names neither, to every user. Rules stated for the universal project apply in all projects
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface DenyRule extends Comparable<DenyRule> {
+
+    /**
+     * Get the identifier of the user that the rule applies to
+     *
+     * @return User identifier, or an empty optional if the rule does not apply to a single user
+     */
+    @Nonnull
+    Optional<UserId> getUserId();
+
+    /**
+     * Get the identifier of the user group whose members the rule applies to
+     *
+     * @return User group identifier, or an empty optional if the rule does not apply to a user group
+     */
+    @Nonnull
+    Optional<UserGroupId> getUserGroupId();
+
+    /**
+     * Get the identifier of the project where the operations are denied
+     *
+     * @return Project identifier
+     */
+    @Nonnull
+    ProjectId getProjectId();
+
+    /**
+     * Get the identifiers of the denied operations
+     *
+     * @return Set of operation identifiers
+     */
+    @Nonnull
+    ImmutableSet<OperationId> getOperations();
+
+}
@@ -0,0 +1,35 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import java.util.Optional;
+
+/**
+ * A page of policy objects in some {@link SortOrder}, along with a cursor that continues after its last object
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface Page<T> {
+
+    /**
+     * Get the objects in this page, in sort order
+     *
+     * @return List of objects
+     */
+    @Nonnull
+    ImmutableList<T> getItems();
+
+    /**
+     * Get the cursor from which to fetch the next page. Cursors identify the position after the last object of the
+     * page by its sort key, so they stay valid for later snapshots of the configuration, where paging continues with
+     * the first object that sorts after that position
+     *
+     * @return Cursor of the next page, or an empty optional if this is the last page
+     */
+    @Nonnull
+    Optional<String> getNextCursor();
+
+}
@@ -40,6 +40,94 @@ public interface PolicyFactory {
     @Nonnull
     Role getRole(@Nonnull RoleId roleId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<OperationId> operations);
 
+    /**
+     * Create a new role that includes other roles
+     *
+     * @param roleId    Role identifier
+     * @param name  Role name
+     * @param description   Role description
+     * @param operations    Set of operations
+     * @param includedRoles Set of identifiers of the roles whose operations the role inherits
+     * @return New role instance
+     */
+    @Nonnull
+    Role getRole(@Nonnull RoleId roleId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<OperationId> operations,
+                 @Nonnull Set<RoleId> includedRoles);
+
+    /**
+     * Create a new user group
+     *
+     * @param groupId   User group identifier
+     * @param name  User group name
+     * @param description   User group description
+     * @param members   Set of identifiers of the users in the group
+     * @param subgroups Set of identifiers of the groups contained in the group
+     * @param assignments   Map of project identifiers to the roles assigned to the group in those projects
+     * @return New user group instance
+     */
+    @Nonnull
+    UserGroup getUserGroup(@Nonnull UserGroupId groupId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<UserId> members,
+                           @Nonnull Set<UserGroupId> subgroups, @Nonnull Map<ProjectId, ? extends Set<RoleId>> assignments);
+
+    /**
+     * Create a new project group
+     *
+     * @param groupId   Project group identifier, which must not be the identifier of a project
+     * @param name  Project group name
+     * @param description   Project group description
+     * @param projects  Set of identifiers of the projects in the group
+     * @param prefixes  Set of project identifier prefixes that select further projects in the group
+     * @return New project group instance
+     */
+    @Nonnull
+    ProjectGroup getProjectGroup(@Nonnull ProjectId groupId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<ProjectId> projects,
+                                 @Nonnull Set<String> prefixes);
+
+    /**
+     * Create a new deny rule that forbids the given operations to a user in the specified project
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier, or the universal project identifier to deny the operations in all projects
+     * @param operations    Set of identifiers of the denied operations
+     * @return New deny rule instance
+     */
+    @Nonnull
+    DenyRule getUserDenyRule(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations);
+
+    /**
+     * Create a new deny rule that forbids the given operations to the members of a user group in the specified project
+     *
+     * @param groupId   User group identifier
+     * @param projectId Project identifier, or the universal project identifier to deny the operations in all projects
+     * @param operations    Set of identifiers of the denied operations
+     * @return New deny rule instance
+     */
+    @Nonnull
+    DenyRule getUserGroupDenyRule(@Nonnull UserGroupId groupId, @Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations);
+
+    /**
+     * Create a new deny rule that forbids the given operations to every user in the specified project
+     *
+     * @param projectId Project identifier, or the universal project identifier to deny the operations in all projects
+     * @param operations    Set of identifiers of the denied operations
+     * @return New deny rule instance
+     */
+    @Nonnull
+    DenyRule getProjectDenyRule(@Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations);
+
+    /**
+     * Create a new role assignment that is only valid within the given window of time
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param roleId    Role identifier
+     * @param validFrom Start time of the validity window, in milliseconds since the epoch
+     * @param validUntil    End time of the validity window, in milliseconds since the epoch
+     * @return New timed assignment instance
+     */
+    @Nonnull
+    TimedAssignment getTimedAssignment(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull RoleId roleId, long validFrom, long validUntil);
+
     /**
      * Create a new custom operation
      *
@@ -151,6 +239,15 @@ public interface PolicyFactory {
     @Nonnull
     RoleId getRoleId(@Nonnull String roleId);
 
+    /**
+     * Create a new identifier for a user group
+     *
+     * @param groupId   User group identifier
+     * @return User group identifier instance
+     */
+    @Nonnull
+    UserGroupId getUserGroupId(@Nonnull String groupId);
+
     /**
      * Create a new identifier for a user
      *
@@ -0,0 +1,91 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Aggregate figures about the access control policy of a server configuration, such as the number of users that
+ * have each role and the number of members of each project. Counts of users take into account the roles that users
+ * have through (nested) user groups, and count the members of a project group as members of each project it contains,
+ * so that they agree with {@link ConfigurationBrowser#getUserIds(ProjectId)}. The counts of the role assignments
+ * stated in the policy map alone are available separately
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface PolicyStatistics {
+
+    /**
+     * Get the number of users that have the given role in some project, either directly or through user groups
+     *
+     * @param roleId    Role identifier
+     * @return Number of users
+     */
+    int getUserCount(@Nonnull RoleId roleId);
+
+    /**
+     * Get the number of users that have the given role in some project, either directly or through user groups, for
+     * each role that some user has
+     *
+     * @return Map of role identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<RoleId, Integer> getUserCounts();
+
+    /**
+     * Get the number of users that are assigned each role in some project by the policy map, for each role that some
+     * user is assigned there
+     *
+     * @return Map of role identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<RoleId, Integer> getDirectUserCounts();
+
+    /**
+     * Get the number of users that have some role in the given project, or in a project group that contains it,
+     * either directly or through user groups
+     *
+     * @param projectId Project identifier
+     * @return Number of users
+     */
+    int getMemberCount(@Nonnull ProjectId projectId);
+
+    /**
+     * Get the number of users that have some role in each project, or in a project group that contains it, either
+     * directly or through user groups, for each project that has some member
+     *
+     * @return Map of project identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<ProjectId, Integer> getMemberCounts();
+
+    /**
+     * Get the number of users that are assigned some role in each project or project group by the policy map, for
+     * each project or project group that some user is assigned a role in there
+     *
+     * @return Map of project and project group identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<ProjectId, Integer> getDirectMemberCounts();
+
+    /**
+     * Get the roles of the configuration that are assigned to no user and to no user group, and are not included by
+     * a role that is
+     *
+     * @return Set of role identifiers
+     */
+    @Nonnull
+    ImmutableSet<RoleId> getUnusedRoles();
+
+    /**
+     * Get the operations of the configuration that no user may carry out in any project
+     *
+     * @return Set of operation identifiers
+     */
+    @Nonnull
+    ImmutableSet<OperationId> getUnperformableOperations();
+
+}
@@ -0,0 +1,37 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A project group is a named scope for role assignments and deny rules that lies between a single project and the
+ * universal project: roles assigned in a project group apply in every project of the group. A project belongs to a
+ * group if it is listed as a member, or if its identifier starts with one of the group's prefixes. Project groups
+ * are identified by project identifiers, which must not be used by any project, so they can be used wherever the
+ * policy refers to a project
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface ProjectGroup extends PolicyObject<ProjectId>, HasDescription, Comparable<ProjectGroup> {
+
+    /**
+     * Get the identifiers of the projects listed as members of this group
+     *
+     * @return Set of project identifiers
+     */
+    @Nonnull
+    ImmutableSet<ProjectId> getProjects();
+
+    /**
+     * Get the project identifier prefixes of this group. Every project whose identifier starts with one of these
+     * prefixes belongs to the group
+     *
+     * @return Set of project identifier prefixes
+     */
+    @Nonnull
+    ImmutableSet<String> getPrefixes();
+
+}
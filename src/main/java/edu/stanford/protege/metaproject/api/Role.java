@@ -6,7 +6,8 @@ import javax.annotation.Nonnull;
 
 /**
  * A role defines a set of allowed operations. It essentially represents a permission set
- * that can be reused for different users in different projects.
+ * that can be reused for different users in different projects. A role may include other
+ * roles, in which case it also allows all operations allowed by the included roles.
  *
  * @author Rafael Gonçalves <br>
  * Center for Biomedical Informatics Research <br>
@@ -22,4 +23,12 @@ public interface Role extends PolicyObject<RoleId>, HasDescription, Comparable<R
     @Nonnull
     ImmutableSet<OperationId> getOperations();
 
+    /**
+     * Get the set of roles included by this role, whose operations are inherited by this role
+     *
+     * @return Set of role identifiers
+     */
+    @Nonnull
+    ImmutableSet<RoleId> getIncludedRoles();
+
 }
@@ -0,0 +1,21 @@
+package edu.stanford.protege.metaproject.api;
+
+/**
+ * Orders in which policy objects can be paged through
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public enum SortOrder {
+
+    /**
+     * By identifier
+     */
+    ID,
+
+    /**
+     * By name, and by identifier among objects with the same name
+     */
+    NAME
+}
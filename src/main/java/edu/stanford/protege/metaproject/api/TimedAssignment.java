@@ -0,0 +1,62 @@
+package edu.stanford.protege.metaproject.api;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A representation of a role assignment that is only valid within a window of time. While the window is open the
+ * role is part of the access control policy like any other assignment; once the window closes the assignment is
+ * removed from the policy. Times are given in milliseconds since the epoch, and the window excludes its end time
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface TimedAssignment extends Comparable<TimedAssignment> {
+
+    /**
+     * Get the identifier of the user that the role is assigned to
+     *
+     * @return User identifier
+     */
+    @Nonnull
+    UserId getUserId();
+
+    /**
+     * Get the identifier of the project where the role is assigned
+     *
+     * @return Project identifier
+     */
+    @Nonnull
+    ProjectId getProjectId();
+
+    /**
+     * Get the identifier of the assigned role
+     *
+     * @return Role identifier
+     */
+    @Nonnull
+    RoleId getRoleId();
+
+    /**
+     * Get the time at which the assignment becomes valid
+     *
+     * @return Start time of the validity window, in milliseconds since the epoch
+     */
+    long getValidFrom();
+
+    /**
+     * Get the time at which the assignment lapses
+     *
+     * @return End time of the validity window, in milliseconds since the epoch
+     */
+    long getValidUntil();
+
+    /**
+     * Check whether the assignment is valid at the given time
+     *
+     * @param time  Time in milliseconds since the epoch
+     * @return true if the given time is within the validity window, false otherwise
+     */
+    boolean isValidAt(long time);
+
+}
@@ -0,0 +1,43 @@
+package edu.stanford.protege.metaproject.api;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A user group is a named set of users that receives role assignments per project, in the same way as a single
+ * user does. Every member of a group is granted the roles assigned to the group. A group may contain other groups
+ * (subgroups), whose members are then also members of the containing group.
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface UserGroup extends PolicyObject<UserGroupId>, HasDescription, Comparable<UserGroup> {
+
+    /**
+     * Get the identifiers of the users that are direct members of this group
+     *
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getMembers();
+
+    /**
+     * Get the identifiers of the groups contained in this group
+     *
+     * @return Set of user group identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserGroupId> getSubgroups();
+
+    /**
+     * Get the roles assigned to this group, per project
+     *
+     * @return Map of project identifiers to role identifiers
+     */
+    @Nonnull
+    ImmutableMap<ProjectId, ImmutableSet<RoleId>> getAssignments();
+
+}
@@ -0,0 +1,12 @@
+package edu.stanford.protege.metaproject.api;
+
+/**
+ * A representation of a user group identifier
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface UserGroupId extends PolicyObjectId<UserGroupId> {
+
+}
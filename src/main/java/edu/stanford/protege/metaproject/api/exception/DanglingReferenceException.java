@@ -0,0 +1,31 @@
+package edu.stanford.protege.metaproject.api.exception;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class DanglingReferenceException extends RuntimeException {
+    private static final long serialVersionUID = -3380925736126484187L;
+
+    public DanglingReferenceException() {
+        super();
+    }
+
+    public DanglingReferenceException(String message) {
+        super(message);
+    }
+
+    public DanglingReferenceException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public DanglingReferenceException(Throwable cause) {
+        super(cause);
+    }
+
+    protected DanglingReferenceException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
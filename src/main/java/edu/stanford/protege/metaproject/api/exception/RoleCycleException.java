@@ -0,0 +1,31 @@
+package edu.stanford.protege.metaproject.api.exception;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class RoleCycleException extends ConfigurationException {
+    private static final long serialVersionUID = 4218733694251607862L;
+
+    public RoleCycleException() {
+        super();
+    }
+
+    public RoleCycleException(String message) {
+        super(message);
+    }
+
+    public RoleCycleException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public RoleCycleException(Throwable cause) {
+        super(cause);
+    }
+
+    protected RoleCycleException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
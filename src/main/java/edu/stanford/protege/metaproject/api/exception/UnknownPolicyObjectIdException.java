@@ -1,6 +1,8 @@
 package edu.stanford.protege.metaproject.api.exception;
 
 /**
+ * Instances created without a cause do not record a stack trace, since lookups may miss frequently
+ *
  * @author Rafael Gonçalves <br>
  * Center for Biomedical Informatics Research <br>
  * Stanford University
@@ -9,11 +11,11 @@ public class UnknownPolicyObjectIdException extends ConfigurationException {
     private static final long serialVersionUID = -3371031224832939317L;
 
     public UnknownPolicyObjectIdException() {
-        super();
+        super(null, null, true, false);
     }
 
     public UnknownPolicyObjectIdException(String message) {
-        super(message);
+        super(message, null, true, false);
     }
 
     public UnknownPolicyObjectIdException(String message, Throwable cause) {
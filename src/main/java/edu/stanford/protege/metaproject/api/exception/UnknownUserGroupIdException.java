@@ -0,0 +1,31 @@
+package edu.stanford.protege.metaproject.api.exception;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class UnknownUserGroupIdException extends UnknownPolicyObjectIdException {
+    private static final long serialVersionUID = -6014335772849160571L;
+
+    public UnknownUserGroupIdException() {
+        super();
+    }
+
+    public UnknownUserGroupIdException(String message) {
+        super(message);
+    }
+
+    public UnknownUserGroupIdException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnknownUserGroupIdException(Throwable cause) {
+        super(cause);
+    }
+
+    protected UnknownUserGroupIdException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
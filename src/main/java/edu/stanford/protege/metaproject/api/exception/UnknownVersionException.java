@@ -0,0 +1,31 @@
+package edu.stanford.protege.metaproject.api.exception;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class UnknownVersionException extends ConfigurationException {
+    private static final long serialVersionUID = 2675405126407836175L;
+
+    public UnknownVersionException() {
+        super();
+    }
+
+    public UnknownVersionException(String message) {
+        super(message);
+    }
+
+    public UnknownVersionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+
+    public UnknownVersionException(Throwable cause) {
+        super(cause);
+    }
+
+    protected UnknownVersionException(String message, Throwable cause, boolean enableSuppression, boolean writableStackTrace) {
+        super(message, cause, enableSuppression, writableStackTrace);
+    }
+
+}
@@ -1,6 +1,8 @@
 package edu.stanford.protege.metaproject.api.exception;
 
 /**
+ * Instances created without a cause do not record a stack trace, since lookups may miss frequently
+ *
  * @author Rafael Gonçalves <br>
  * Center for Biomedical Informatics Research <br>
  * Stanford University
@@ -9,11 +11,11 @@ public class UserNotRegisteredException extends ConfigurationException {
     private static final long serialVersionUID = -5990668314311315326L;
 
     public UserNotRegisteredException() {
-        super();
+        super(null, null, true, false);
     }
 
     public UserNotRegisteredException(String message) {
-        super(message);
+        super(message, null, true, false);
     }
 
     public UserNotRegisteredException(String message, Throwable cause) {
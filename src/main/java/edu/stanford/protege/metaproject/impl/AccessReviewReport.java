@@ -0,0 +1,255 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.*;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An access review report of a server configuration snapshot, with one (user, project, role, operation) row for each
+ * operation that a user may carry out in a project of the configuration and each role, assigned to the user directly
+ * or through a user group, in the project, in a project group that contains it or in all projects, that grants the
+ * operation. Operations forbidden by deny rules are left out, so the rows agree with
+ * {@link ConfigurationBrowser#isOperationAllowed(OperationId, ProjectId, UserId)}. Rows are worked out one user at a
+ * time from the snapshot's permission index and written out a project at a time, so the memory used does not grow
+ * with the number of rows. Only users with a role in all projects are checked against every project; the others are
+ * checked against the projects and project groups of their own assignments. Users may be reported in parallel, in
+ * which case the rows of each user and project are kept together, but are written in the order they are finished
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class AccessReviewReport {
+    @Nonnull private final ServerConfigurationImpl config;
+
+    /**
+     * Report output formats
+     */
+    public enum Format {
+        /**
+         * Comma-separated values, with a header line
+         */
+        CSV("user,project,role,operation\n", "", "") {
+            @Override
+            void appendRow(StringBuilder builder, UserId userId, ProjectId projectId, RoleId roleId, OperationId operationId) {
+                appendCsv(builder, userId.get()).append(',');
+                appendCsv(builder, projectId.get()).append(',');
+                appendCsv(builder, roleId.get()).append(',');
+                appendCsv(builder, operationId.get()).append('\n');
+            }
+        },
+
+        /**
+         * A JSON array of objects with user, project, role and operation members
+         */
+        JSON("[", ",", "\n]\n") {
+            @Override
+            void appendRow(StringBuilder builder, UserId userId, ProjectId projectId, RoleId roleId, OperationId operationId) {
+                builder.append("\n  {\"user\":");
+                appendJson(builder, userId.get()).append(",\"project\":");
+                appendJson(builder, projectId.get()).append(",\"role\":");
+                appendJson(builder, roleId.get()).append(",\"operation\":");
+                appendJson(builder, operationId.get()).append('}');
+            }
+        };
+
+        private final String header, separator, footer;
+
+        Format(String header, String separator, String footer) {
+            this.header = header;
+            this.separator = separator;
+            this.footer = footer;
+        }
+
+        abstract void appendRow(StringBuilder builder, UserId userId, ProjectId projectId, RoleId roleId, OperationId operationId);
+
+        private static StringBuilder appendCsv(StringBuilder builder, String value) {
+            if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+                return builder.append(value);
+            }
+            return builder.append('"').append(value.replace("\"", "\"\"")).append('"');
+        }
+
+        private static StringBuilder appendJson(StringBuilder builder, String value) {
+            builder.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"' || c == '\\') {
+                    builder.append('\\').append(c);
+                } else if (c < 0x20) {
+                    builder.append(String.format("\\u%04x", (int) c));
+                } else {
+                    builder.append(c);
+                }
+            }
+            return builder.append('"');
+        }
+    }
+
+    /**
+     * Constructor
+     *
+     * @param config    Server configuration
+     */
+    public AccessReviewReport(@Nonnull ServerConfiguration config) {
+        this.config = ServerConfigurationImpl.from(checkNotNull(config));
+    }
+
+    /**
+     * Write the report to the given writer, one user at a time in user identifier order
+     *
+     * @param writer    Writer
+     * @param format    Output format
+     * @throws IOException  Writing failed
+     */
+    public void write(@Nonnull Writer writer, @Nonnull Format format) throws IOException {
+        write(writer, format, false);
+    }
+
+    /**
+     * Write the report to the given writer. The writer is not flushed or closed
+     *
+     * @param writer    Writer
+     * @param format    Output format
+     * @param parallel  true if users should be reported in parallel, false if one at a time in user identifier order
+     * @throws IOException  Writing failed
+     */
+    public void write(@Nonnull Writer writer, @Nonnull Format format, boolean parallel) throws IOException {
+        checkNotNull(writer);
+        checkNotNull(format);
+        List<UserId> userIds = sorted(config.persistentUsers().keySet());
+        List<ProjectId> projectIds = sorted(config.persistentProjects().keySet());
+        Output output = new Output(writer, format);
+        writer.write(format.header);
+        Stream<UserId> users = parallel ? userIds.parallelStream() : userIds.stream();
+        try {
+            users.forEach(userId -> writeRows(userId, projectIds, output));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        writer.write(format.footer);
+    }
+
+    /**
+     * Write the rows of the given user, one project at a time
+     */
+    private void writeRows(UserId userId, List<ProjectId> projectIds, Output output) {
+        PolicyIndex index = config.policyIndex();
+        List<Map<ProjectId, ? extends Set<RoleId>>> assignments = new ArrayList<>();
+        Map<ProjectId, Set<RoleId>> direct = config.persistentPolicyMap().get(userId);
+        if (direct != null) {
+            assignments.add(direct);
+        }
+        for (UserGroupId groupId : index.getUserGroups(userId)) {
+            UserGroup group = config.persistentUserGroups().get(groupId);
+            if (group != null && !group.getAssignments().isEmpty()) {
+                assignments.add(group.getAssignments());
+            }
+        }
+        if (assignments.isEmpty()) {
+            return;
+        }
+        ProjectId universal = ConfigurationUtils.getUniversalProjectId();
+        StringBuilder rows = new StringBuilder();
+        Set<RoleId> roleIds = new TreeSet<>();
+        for (ProjectId projectId : getProjectIds(assignments, projectIds, index)) {
+            roleIds.clear();
+            rows.setLength(0);
+            for (Map<ProjectId, ? extends Set<RoleId>> scopes : assignments) {
+                addAll(roleIds, scopes.get(projectId));
+                addAll(roleIds, scopes.get(universal));
+                for (ProjectId groupId : index.getProjectGroups(projectId)) {
+                    addAll(roleIds, scopes.get(groupId));
+                }
+            }
+            for (RoleId roleId : roleIds) {
+                index.forEachOperation(roleId, operationId -> {
+                    if (index.isOperationAllowed(userId, projectId, operationId)) {
+                        if (rows.length() > 0) {
+                            rows.append(output.format.separator);
+                        }
+                        output.format.appendRow(rows, userId, projectId, roleId, operationId);
+                    }
+                });
+            }
+            output.write(rows);
+        }
+    }
+
+    /**
+     * Get the projects that the given assignments may grant a user roles in, in project identifier order: all the
+     * given projects if some role is assigned in all projects, otherwise the projects of the configuration that are
+     * assignment scopes or are contained in project groups that are
+     */
+    private Collection<ProjectId> getProjectIds(List<Map<ProjectId, ? extends Set<RoleId>>> assignments, List<ProjectId> projectIds,
+                                                PolicyIndex index) {
+        ProjectId universal = ConfigurationUtils.getUniversalProjectId();
+        Set<ProjectId> scoped = new TreeSet<>();
+        for (Map<ProjectId, ? extends Set<RoleId>> scopes : assignments) {
+            if (scopes.containsKey(universal)) {
+                return projectIds;
+            }
+            for (ProjectId scope : scopes.keySet()) {
+                if (index.isProjectGroup(scope)) {
+                    scoped.addAll(index.getProjects(scope));
+                } else {
+                    scoped.add(scope);
+                }
+            }
+        }
+        scoped.retainAll(config.persistentProjects().keySet());
+        return scoped;
+    }
+
+    private static void addAll(Set<RoleId> roleIds, Set<RoleId> assigned) {
+        if (assigned != null) {
+            roleIds.addAll(assigned);
+        }
+    }
+
+    private static <T extends Comparable<T>> List<T> sorted(Collection<T> elements) {
+        List<T> list = new ArrayList<>(elements);
+        Collections.sort(list);
+        return list;
+    }
+
+    /**
+     * Writes the rows of each user and project as a whole, separating them from the rows written before
+     */
+    private static final class Output {
+        private final Writer writer;
+        private final Format format;
+        private boolean empty = true;
+
+        private Output(Writer writer, Format format) {
+            this.writer = writer;
+            this.format = format;
+        }
+
+        private synchronized void write(CharSequence rows) {
+            if (rows.length() == 0) {
+                return;
+            }
+            try {
+                if (!empty) {
+                    writer.write(format.separator);
+                }
+                writer.append(rows);
+                empty = false;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+}
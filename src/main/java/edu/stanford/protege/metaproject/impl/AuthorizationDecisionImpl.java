@@ -0,0 +1,214 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Collection;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class AuthorizationDecisionImpl implements AuthorizationDecision {
+    @Nonnull private final UserId userId;
+    @Nonnull private final ProjectId projectId;
+    @Nonnull private final OperationId operationId;
+    private final boolean allowed;
+    @Nonnull private final ImmutableList<Grant> grants;
+    @Nonnull private final ImmutableList<DenyRule> denyRules;
+    @Nonnull private final ImmutableSet<RoleId> unknownRoles;
+    @Nonnull private final ImmutableSet<DenialReason> denialReasons;
+
+    /**
+     * Constructor
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param operationId   Operation identifier
+     * @param allowed   true if the operation is allowed, false otherwise
+     * @param grants    Role assignments that grant the operation
+     * @param denyRules Deny rules that forbid the operation
+     * @param unknownRoles  Identifiers of the assigned roles that do not exist
+     * @param denialReasons Reasons why the operation is not allowed
+     */
+    public AuthorizationDecisionImpl(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull OperationId operationId, boolean allowed,
+                                     @Nonnull Collection<Grant> grants, @Nonnull Collection<DenyRule> denyRules,
+                                     @Nonnull Collection<RoleId> unknownRoles, @Nonnull Collection<DenialReason> denialReasons) {
+        this.userId = checkNotNull(userId);
+        this.projectId = checkNotNull(projectId);
+        this.operationId = checkNotNull(operationId);
+        this.allowed = allowed;
+        this.grants = ImmutableList.copyOf(checkNotNull(grants));
+        this.denyRules = ImmutableList.copyOf(checkNotNull(denyRules));
+        this.unknownRoles = ImmutableSet.copyOf(checkNotNull(unknownRoles));
+        this.denialReasons = ImmutableSet.copyOf(checkNotNull(denialReasons));
+    }
+
+    @Override
+    @Nonnull
+    public UserId getUserId() {
+        return userId;
+    }
+
+    @Override
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    @Override
+    @Nonnull
+    public OperationId getOperationId() {
+        return operationId;
+    }
+
+    @Override
+    public boolean isAllowed() {
+        return allowed;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableList<Grant> getGrants() {
+        return grants;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableList<DenyRule> getDenyRules() {
+        return denyRules;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<RoleId> getUnknownRoles() {
+        return unknownRoles;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<DenialReason> getDenialReasons() {
+        return denialReasons;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AuthorizationDecisionImpl)) {
+            return false;
+        }
+        AuthorizationDecisionImpl that = (AuthorizationDecisionImpl) o;
+        return allowed == that.allowed &&
+                Objects.equal(userId, that.userId) &&
+                Objects.equal(projectId, that.projectId) &&
+                Objects.equal(operationId, that.operationId) &&
+                Objects.equal(grants, that.grants) &&
+                Objects.equal(denyRules, that.denyRules) &&
+                Objects.equal(unknownRoles, that.unknownRoles) &&
+                Objects.equal(denialReasons, that.denialReasons);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(userId, projectId, operationId, allowed, grants, denyRules, unknownRoles, denialReasons);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("userId", userId)
+                .add("projectId", projectId)
+                .add("operationId", operationId)
+                .add("allowed", allowed)
+                .add("grants", grants)
+                .add("denyRules", denyRules)
+                .add("unknownRoles", unknownRoles)
+                .add("denialReasons", denialReasons)
+                .toString();
+    }
+
+    /**
+     * A role assignment that grants an operation
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class GrantImpl implements Grant {
+        @Nonnull private final RoleId roleId;
+        @Nonnull private final ProjectId scope;
+        @Nullable private final UserGroupId userGroupId;
+
+        /**
+         * Constructor
+         *
+         * @param roleId    Role identifier
+         * @param scope Project, project group or universal project identifier
+         * @param userGroupId   Identifier of the user group through which the role is assigned, or null
+         */
+        public GrantImpl(@Nonnull RoleId roleId, @Nonnull ProjectId scope, @Nullable UserGroupId userGroupId) {
+            this.roleId = checkNotNull(roleId);
+            this.scope = checkNotNull(scope);
+            this.userGroupId = userGroupId;
+        }
+
+        @Override
+        @Nonnull
+        public RoleId getRoleId() {
+            return roleId;
+        }
+
+        @Override
+        @Nonnull
+        public ProjectId getScope() {
+            return scope;
+        }
+
+        @Override
+        @Nonnull
+        public Optional<UserGroupId> getUserGroupId() {
+            return Optional.ofNullable(userGroupId);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Grant)) {
+                return false;
+            }
+            Grant that = (Grant) o;
+            return Objects.equal(roleId, that.getRoleId()) &&
+                    Objects.equal(scope, that.getScope()) &&
+                    Objects.equal(getUserGroupId(), that.getUserGroupId());
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(roleId, scope, userGroupId);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("roleId", roleId)
+                    .add("scope", scope)
+                    .add("userGroupId", userGroupId)
+                    .toString();
+        }
+    }
+}
@@ -7,9 +7,15 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
+import java.time.Clock;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Builder for server configuration instances
@@ -20,37 +26,71 @@ import static com.google.common.base.Preconditions.checkNotNull;
  */
 public class ConfigurationBuilder {
     private static final Logger logger = LoggerFactory.getLogger(ConfigurationBuilder.class.getName());
-    private Host host = ConfigurationUtils.getServerHost();
-    private String root = ConfigurationUtils.getServerRoot();
-    private Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap = ConfigurationUtils.getDefaultPolicy();
-    private Set<Role> roles = ConfigurationUtils.getDefaultRoles();
-    private Set<Operation> operations = ConfigurationUtils.getDefaultOperations();
-    private Set<User> users = ConfigurationUtils.getDefaultUsers();
-    private Set<Project> projects = ConfigurationUtils.getDefaultProjects();
-    private Set<AuthenticationDetails> authDetails = ConfigurationUtils.getDefaultAuthenticationDetails();
-    private Map<String,String> properties = new HashMap<>();
+    private Host host;
+    private String root;
+    private PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap;
+    private PersistentHashSet<DenyRule> denyRules;
+    private PersistentHashSet<TimedAssignment> timedAssignments;
+    private PersistentHashMap<RoleId, Role> roles;
+    private PersistentHashMap<OperationId, Operation> operations;
+    private PersistentHashMap<UserId, User> users;
+    private PersistentHashMap<UserGroupId, UserGroup> userGroups;
+    private PersistentHashMap<ProjectId, Project> projects;
+    private PersistentHashMap<ProjectId, ProjectGroup> projectGroups;
+    private PersistentHashMap<UserId, AuthenticationDetails> authDetails;
+    private PersistentHashMap<String,String> properties;
     private PolicyFactory factory = ConfigurationManager.getFactory();
+    private ValidationMode validationMode = ValidationMode.NONE;
+    private Clock clock = Clock.systemUTC();
+    private PolicyReverseIndex reverseIndex;
+    private ServerConfigurationImpl transactionStart;
+    private final Deque<Savepoint> savepoints = new ArrayDeque<>();
 
     /**
-     * No-arguments constructor
+     * No-arguments constructor, which starts from the default configuration
      */
-    public ConfigurationBuilder() { }
+    public ConfigurationBuilder() {
+        host = ConfigurationUtils.getServerHost();
+        root = ConfigurationUtils.getServerRoot();
+        policyMap = ServerConfigurationImpl.toPersistentPolicy(ConfigurationUtils.getDefaultPolicy());
+        denyRules = PersistentHashSet.empty();
+        timedAssignments = PersistentHashSet.empty();
+        roles = ServerConfigurationImpl.index(ConfigurationUtils.getDefaultRoles(), Role::getId);
+        operations = ServerConfigurationImpl.index(ConfigurationUtils.getDefaultOperations(), Operation::getId);
+        users = ServerConfigurationImpl.index(ConfigurationUtils.getDefaultUsers(), User::getId);
+        userGroups = PersistentHashMap.empty();
+        projects = ServerConfigurationImpl.index(ConfigurationUtils.getDefaultProjects(), Project::getId);
+        projectGroups = PersistentHashMap.empty();
+        authDetails = ServerConfigurationImpl.index(ConfigurationUtils.getDefaultAuthenticationDetails(), AuthenticationDetails::getUserId);
+        properties = PersistentHashMap.empty();
+    }
 
     /**
-     * Constructor that reuses the given server configuration
+     * Constructor that reuses the given server configuration. The builder starts out sharing the (persistent)
+     * collections of the given configuration, so no copies are made, and subsequent changes only copy the parts
+     * of those collections that they modify
      *
      * @param config   Server configuration
      */
     public ConfigurationBuilder(ServerConfiguration config) {
-        this.host = checkNotNull(config.getHost());
-        this.root = checkNotNull(config.getServerRoot());
-        this.policyMap = new HashMap<>(checkNotNull(config.getPolicyMap()));
-        this.roles = new HashSet<>(checkNotNull(config.getRoles()));
-        this.operations = new HashSet<>(checkNotNull(config.getOperations()));
-        this.users = new HashSet<>(checkNotNull(config.getUsers()));
-        this.projects = new HashSet<>(checkNotNull(config.getProjects()));
-        this.authDetails = new HashSet<>(checkNotNull(config.getAuthenticationDetails()));
-        this.properties = new HashMap<>(checkNotNull(config.getProperties()));
+        restore(ServerConfigurationImpl.from(checkNotNull(config)));
+    }
+
+    private void restore(ServerConfigurationImpl impl) {
+        this.host = checkNotNull(impl.getHost());
+        this.root = checkNotNull(impl.getServerRoot());
+        this.policyMap = impl.persistentPolicyMap();
+        this.denyRules = impl.persistentDenyRules();
+        this.timedAssignments = impl.persistentTimedAssignments();
+        this.roles = impl.persistentRoles();
+        this.operations = impl.persistentOperations();
+        this.users = impl.persistentUsers();
+        this.userGroups = impl.persistentUserGroups();
+        this.projects = impl.persistentProjects();
+        this.projectGroups = impl.persistentProjectGroups();
+        this.authDetails = impl.persistentAuthenticationDetails();
+        this.properties = impl.persistentProperties();
+        this.reverseIndex = null;
     }
 
     /**
@@ -75,6 +115,39 @@ public class ConfigurationBuilder {
         return this;
     }
 
+    /**
+     * Set how references to nonexistent users, projects, roles and operations are handled when the server
+     * configuration is created. By default references are not checked
+     *
+     * @param validationMode    Validation mode
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setValidationMode(ValidationMode validationMode) {
+        this.validationMode = checkNotNull(validationMode);
+        return this;
+    }
+
+    /**
+     * Get how references to nonexistent policy objects are handled when the server configuration is created
+     *
+     * @return Validation mode
+     */
+    ValidationMode getValidationMode() {
+        return validationMode;
+    }
+
+    /**
+     * Set the clock against which the validity windows of timed role assignments are checked as they are added. By
+     * default the system clock is used
+     *
+     * @param clock Clock
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setClock(Clock clock) {
+        this.clock = checkNotNull(clock);
+        return this;
+    }
+
     /**
      * Set the metaproject policy map, defining what users have what roles in which projects
      *
@@ -82,18 +155,45 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setPolicyMap(Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap) {
-        this.policyMap = new HashMap<>(policyMap);
+        this.policyMap = ServerConfigurationImpl.toPersistentPolicy(policyMap);
+        reverseIndex = null;
+        return this;
+    }
+
+    /**
+     * Set the collection of deny rules
+     *
+     * @param denyRules Deny rules
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setDenyRules(Set<DenyRule> denyRules) {
+        this.denyRules = PersistentHashSet.copyOf(denyRules);
+        reverseIndex = null;
         return this;
     }
 
     /**
-     * Set the collection of roles
+     * Set the collection of timed role assignments. The policy map is expected to already contain the assignments
+     * whose validity window is open; see {@link #applyTimedAssignments(long)}
+     *
+     * @param timedAssignments  Timed role assignments
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setTimedAssignments(Set<TimedAssignment> timedAssignments) {
+        this.timedAssignments = PersistentHashSet.copyOf(timedAssignments);
+        return this;
+    }
+
+    /**
+     * Set the collection of roles. Cycles of included roles are not checked here, but are rejected when the server
+     * configuration is created with {@link ValidationMode#FAIL_FAST} validation
      *
      * @param roles  Roles
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setRoles(Set<Role> roles) {
-        this.roles = new HashSet<>(roles);
+        this.roles = ServerConfigurationImpl.index(roles, Role::getId);
+        reverseIndex = null;
         return this;
     }
 
@@ -104,7 +204,7 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setOperations(Set<Operation> operations) {
-        this.operations = new HashSet<>(operations);
+        this.operations = ServerConfigurationImpl.index(operations, Operation::getId);
         return this;
     }
 
@@ -115,7 +215,19 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setUsers(Set<User> users) {
-        this.users = new HashSet<>(users);
+        this.users = ServerConfigurationImpl.index(users, User::getId);
+        return this;
+    }
+
+    /**
+     * Set the collection of user groups
+     *
+     * @param userGroups    User groups
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setUserGroups(Set<UserGroup> userGroups) {
+        this.userGroups = ServerConfigurationImpl.index(userGroups, UserGroup::getId);
+        reverseIndex = null;
         return this;
     }
 
@@ -126,7 +238,19 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setProjects(Set<Project> projects) {
-        this.projects = new HashSet<>(projects);
+        this.projects = ServerConfigurationImpl.index(projects, Project::getId);
+        return this;
+    }
+
+    /**
+     * Set the collection of project groups
+     *
+     * @param projectGroups Project groups
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setProjectGroups(Set<ProjectGroup> projectGroups) {
+        this.projectGroups = ServerConfigurationImpl.index(projectGroups, ProjectGroup::getId);
+        reverseIndex = null;
         return this;
     }
 
@@ -137,7 +261,7 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setAuthenticationDetails(Set<AuthenticationDetails> authDetails) {
-        this.authDetails = new HashSet<>(authDetails);
+        this.authDetails = ServerConfigurationImpl.index(authDetails, AuthenticationDetails::getUserId);
         return this;
     }
 
@@ -148,7 +272,7 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder setProperties(Map<String,String> propertyMap) {
-        this.properties = new HashMap<>(propertyMap);
+        this.properties = PersistentHashMap.copyOf(propertyMap);
         return this;
     }
 
@@ -165,7 +289,7 @@ public class ConfigurationBuilder {
     public ConfigurationBuilder addProperty(String key, String value) {
         checkNotNull(key);
         checkNotNull(value);
-        properties.put(key, value);
+        properties = properties.plus(key, value);
         return this;
     }
 
@@ -177,7 +301,7 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder removeProperty(String key) {
         checkNotNull(key);
-        properties.remove(key);
+        properties = properties.minus(key);
         return this;
     }
 
@@ -193,13 +317,40 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder addUser(User user) throws IdAlreadyInUseException {
         checkNotNull(user);
-        if (contains(user.getId(), users)) {
+        if (users.containsKey(user.getId())) {
             throw new IdAlreadyInUseException("The specified user identifier is already used by another user");
         }
-        users.add(user);
+        users = users.plus(user.getId(), user);
         return this;
     }
 
+    /**
+     * Add all the given users to the configuration in a single step. Unlike {@link #addUser(User)}, a user whose
+     * identifier is already in use, or repeats that of an earlier user in the batch, does not abort the import; it
+     * is skipped and reported as a conflict
+     *
+     * @param users Users to add
+     * @return Import report with the number of users added and the conflicting user identifiers
+     */
+    public ImportReport addUsers(Iterable<User> users) {
+        Set<ImportReport.Conflict> conflicts = new LinkedHashSet<>();
+        Map<UserId,User> batch = collectImports(this.users, users, User::getId, conflicts);
+        this.users = this.users.plusAll(batch);
+        return new ImportReport(batch.size(), new ArrayList<>(conflicts));
+    }
+
+    /**
+     * Add all the users of the given stream to the configuration in a single step
+     *
+     * @param users Stream of users to add
+     * @return Import report with the number of users added and the conflicting user identifiers
+     * @see #addUsers(Iterable)
+     */
+    public ImportReport addUsers(Stream<User> users) {
+        checkNotNull(users);
+        return addUsers((Iterable<User>) users::iterator);
+    }
+
     /**
      * Remove the given user from the configuration
      *
@@ -208,7 +359,9 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder removeUser(User user) {
         checkNotNull(user);
-        users.remove(user);
+        if (user.equals(users.get(user.getId()))) {
+            users = users.minus(user.getId());
+        }
         return this;
     }
 
@@ -260,12 +413,249 @@ public class ConfigurationBuilder {
     }
 
     private Optional<User> getUser(UserId userId) {
-        for(User u : users) {
-            if(u.getId().equals(userId)) {
-                return Optional.of(u);
+        return Optional.ofNullable(users.get(userId));
+    }
+
+
+    /* user groups */
+
+    /**
+     * Add the given user group to the configuration
+     *
+     * @param group User group
+     * @throws IdAlreadyInUseException  User group identifier already in use
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addUserGroup(UserGroup group) throws IdAlreadyInUseException {
+        checkNotNull(group);
+        if (userGroups.containsKey(group.getId())) {
+            throw new IdAlreadyInUseException("The specified user group identifier is already used in another user group");
+        }
+        userGroups = userGroups.plus(group.getId(), group);
+        if (reverseIndex != null) {
+            reverseIndex.update(null, group);
+        }
+        return this;
+    }
+
+    /**
+     * Remove the given user group from the configuration
+     *
+     * @param group User group to be removed
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeUserGroup(UserGroup group) {
+        checkNotNull(group);
+        if (group.equals(userGroups.get(group.getId()))) {
+            userGroups = userGroups.minus(group.getId());
+            if (reverseIndex != null) {
+                reverseIndex.update(group, null);
             }
         }
-        return Optional.empty();
+        return this;
+    }
+
+    /**
+     * Modify the user group that has the specified identifier with the given user group
+     *
+     * @param groupId   User group identifier
+     * @param group User group
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setUserGroup(UserGroupId groupId, UserGroup group) {
+        checkNotNull(groupId);
+        checkNotNull(group);
+        UserGroup previous = userGroups.get(groupId);
+        userGroups = userGroups.minus(groupId).plus(group.getId(), group);
+        if (reverseIndex != null) {
+            reverseIndex.update(previous, group);
+        }
+        return this;
+    }
+
+    /**
+     * Add one or more users to the members of the given user group
+     *
+     * @param groupId   User group identifier
+     * @param userIds   User identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addUserToGroup(UserGroupId groupId, UserId... userIds) {
+        checkNotNull(groupId);
+        checkNotNull(userIds);
+        getUserGroup(groupId).ifPresent(group -> {
+            Set<UserId> members = new HashSet<>(group.getMembers());
+            Collections.addAll(members, userIds);
+            setUserGroup(groupId, factory.getUserGroup(groupId, group.getName(), group.getDescription(), members, group.getSubgroups(),
+                    group.getAssignments()));
+        });
+        return this;
+    }
+
+    /**
+     * Remove one or more users from the members of the given user group
+     *
+     * @param groupId   User group identifier
+     * @param userIds   User identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeUserFromGroup(UserGroupId groupId, UserId... userIds) {
+        checkNotNull(groupId);
+        checkNotNull(userIds);
+        getUserGroup(groupId).ifPresent(group -> {
+            Set<UserId> members = new HashSet<>(group.getMembers());
+            members.removeAll(Arrays.asList(userIds));
+            setUserGroup(groupId, factory.getUserGroup(groupId, group.getName(), group.getDescription(), members, group.getSubgroups(),
+                    group.getAssignments()));
+        });
+        return this;
+    }
+
+    /**
+     * Assign one or more roles to the given user group within the specified project
+     *
+     * @param groupId   User group identifier
+     * @param projectId Project identifier
+     * @param roleIds   Role identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addGroupPolicy(UserGroupId groupId, ProjectId projectId, RoleId... roleIds) {
+        checkNotNull(projectId);
+        checkNotNull(roleIds);
+        return updateGroupAssignments(groupId, projectId, roles -> Collections.addAll(roles, roleIds));
+    }
+
+    /**
+     * Remove one or more role assignments of the given user group within the specified project
+     *
+     * @param groupId   User group identifier
+     * @param projectId Project identifier
+     * @param roleIds   Role identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeGroupPolicy(UserGroupId groupId, ProjectId projectId, RoleId... roleIds) {
+        checkNotNull(projectId);
+        checkNotNull(roleIds);
+        return updateGroupAssignments(groupId, projectId, roles -> roles.removeAll(Arrays.asList(roleIds)));
+    }
+
+    private ConfigurationBuilder updateGroupAssignments(UserGroupId groupId, ProjectId projectId, Consumer<Set<RoleId>> update) {
+        return updateGroupAssignments(groupId, assignments -> {
+            Set<RoleId> roles = new HashSet<>(assignments.getOrDefault(projectId, Collections.emptySet()));
+            update.accept(roles);
+            assignments.put(projectId, roles);
+        });
+    }
+
+    /**
+     * Update the role assignments of the given user group, dropping the projects left without roles
+     */
+    private ConfigurationBuilder updateGroupAssignments(UserGroupId groupId, Consumer<Map<ProjectId, Set<RoleId>>> update) {
+        checkNotNull(groupId);
+        getUserGroup(groupId).ifPresent(group -> {
+            Map<ProjectId, Set<RoleId>> assignments = new HashMap<>(group.getAssignments());
+            update.accept(assignments);
+            assignments.values().removeIf(Set::isEmpty);
+            setUserGroup(groupId, factory.getUserGroup(groupId, group.getName(), group.getDescription(), group.getMembers(),
+                    group.getSubgroups(), assignments));
+        });
+        return this;
+    }
+
+    private Optional<UserGroup> getUserGroup(UserGroupId groupId) {
+        return Optional.ofNullable(userGroups.get(groupId));
+    }
+
+
+    /* project groups */
+
+    /**
+     * Add the given project group to the configuration
+     *
+     * @param group Project group
+     * @throws IdAlreadyInUseException  Project group identifier already in use by a project or another project group
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addProjectGroup(ProjectGroup group) throws IdAlreadyInUseException {
+        checkNotNull(group);
+        if (projectGroups.containsKey(group.getId()) || projects.containsKey(group.getId()) ||
+                group.getId().equals(ConfigurationUtils.getUniversalProjectId())) {
+            throw new IdAlreadyInUseException("The specified project group identifier is already used by another project or project group");
+        }
+        projectGroups = projectGroups.plus(group.getId(), group);
+        if (reverseIndex != null) {
+            reverseIndex.update(null, group);
+        }
+        return this;
+    }
+
+    /**
+     * Remove the given project group from the configuration
+     *
+     * @param group Project group to be removed
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeProjectGroup(ProjectGroup group) {
+        checkNotNull(group);
+        if (group.equals(projectGroups.get(group.getId()))) {
+            projectGroups = projectGroups.minus(group.getId());
+            if (reverseIndex != null) {
+                reverseIndex.update(group, null);
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Modify the project group that has the specified identifier with the given project group
+     *
+     * @param groupId   Project group identifier
+     * @param group Project group
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder setProjectGroup(ProjectId groupId, ProjectGroup group) {
+        checkNotNull(groupId);
+        checkNotNull(group);
+        ProjectGroup previous = projectGroups.get(groupId);
+        projectGroups = projectGroups.minus(groupId).plus(group.getId(), group);
+        if (reverseIndex != null) {
+            reverseIndex.update(previous, group);
+        }
+        return this;
+    }
+
+    /**
+     * Add one or more projects to the listed projects of the given project group
+     *
+     * @param groupId   Project group identifier
+     * @param projectIds    Project identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addProjectToGroup(ProjectId groupId, ProjectId... projectIds) {
+        checkNotNull(projectIds);
+        return updateGroupProjects(groupId, projects -> Collections.addAll(projects, projectIds));
+    }
+
+    /**
+     * Remove one or more projects from the listed projects of the given project group
+     *
+     * @param groupId   Project group identifier
+     * @param projectIds    Project identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeProjectFromGroup(ProjectId groupId, ProjectId... projectIds) {
+        checkNotNull(projectIds);
+        return updateGroupProjects(groupId, projects -> projects.removeAll(Arrays.asList(projectIds)));
+    }
+
+    private ConfigurationBuilder updateGroupProjects(ProjectId groupId, Consumer<Set<ProjectId>> update) {
+        checkNotNull(groupId);
+        Optional.ofNullable(projectGroups.get(groupId)).ifPresent(group -> {
+            Set<ProjectId> members = new HashSet<>(group.getProjects());
+            update.accept(members);
+            setProjectGroup(groupId, factory.getProjectGroup(groupId, group.getName(), group.getDescription(), members, group.getPrefixes()));
+        });
+        return this;
     }
 
 
@@ -275,15 +665,18 @@ public class ConfigurationBuilder {
      * Add the given project to the configuration
      *
      * @param project   New project
-     * @throws IdAlreadyInUseException  Project identifier already in use
+     * @throws IdAlreadyInUseException  Project identifier already in use by another project or a project group
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder addProject(Project project) throws IdAlreadyInUseException {
         checkNotNull(project);
-        if (projects.contains(project)) {
+        if (projects.containsKey(project.getId())) {
             throw new IdAlreadyInUseException("The specified project identifier is already used by another project");
         }
-        projects.add(project);
+        if (projectGroups.containsKey(project.getId())) {
+            throw new IdAlreadyInUseException("The specified project identifier is already used by a project group");
+        }
+        projects = projects.plus(project.getId(), project);
         return this;
     }
 
@@ -295,7 +688,9 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder removeProject(Project project) {
         checkNotNull(project);
-        projects.remove(project);
+        if (project.equals(projects.get(project.getId()))) {
+            projects = projects.minus(project.getId());
+        }
         return this;
     }
 
@@ -394,12 +789,7 @@ public class ConfigurationBuilder {
     }
 
     private Optional<Project> getProject(ProjectId projectId) {
-        for(Project p : projects) {
-            if(p.getId().equals(projectId)) {
-                return Optional.of(p);
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(projects.get(projectId));
     }
 
 
@@ -410,14 +800,23 @@ public class ConfigurationBuilder {
      *
      * @param role  New role
      * @throws IdAlreadyInUseException  Role identifier already in use
+     * @throws RoleCycleException   The role includes itself, directly or through the roles it includes
      * @return ServerConfigurationBuilder
      */
-    public ConfigurationBuilder addRole(Role role) throws IdAlreadyInUseException {
+    public ConfigurationBuilder addRole(Role role) throws IdAlreadyInUseException, RoleCycleException {
         checkNotNull(role);
-        if (contains(role.getId(), roles)) {
+        if (roles.containsKey(role.getId())) {
             throw new IdAlreadyInUseException("The specified role identifier is already used in another role");
         }
-        roles.add(role);
+        checkIncludedRoles(role);
+        return putRole(role);
+    }
+
+    private ConfigurationBuilder putRole(Role role) {
+        roles = roles.plus(role.getId(), role);
+        if (reverseIndex != null) {
+            reverseIndex.update(null, role);
+        }
         return this;
     }
 
@@ -429,7 +828,12 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder removeRole(Role role) {
         checkNotNull(role);
-        roles.remove(role);
+        if (role.equals(roles.get(role.getId()))) {
+            roles = roles.minus(role.getId());
+            if (reverseIndex != null) {
+                reverseIndex.update(role, null);
+            }
+        }
         return this;
     }
 
@@ -438,18 +842,27 @@ public class ConfigurationBuilder {
      *
      * @param roleId    Role identifier
      * @param role  Role
+     * @throws RoleCycleException   The role includes itself, directly or through the roles it includes
      * @return ServerConfigurationBuilder
      */
-    public ConfigurationBuilder setRole(RoleId roleId, Role role) {
+    public ConfigurationBuilder setRole(RoleId roleId, Role role) throws RoleCycleException {
         checkNotNull(roleId);
         checkNotNull(role);
+        checkIncludedRoles(role);
+        return replaceRole(roleId, role);
+    }
+
+    /**
+     * Replace the role that has the specified role identifier with the given role, whose included roles are known
+     * not to close a cycle
+     */
+    private ConfigurationBuilder replaceRole(RoleId roleId, Role role) {
         getRole(roleId).ifPresent(this::removeRole);
-        try {
-            addRole(role);
-        } catch (IdAlreadyInUseException e) {
+        if (roles.containsKey(role.getId())) {
             logger.debug("Attempted to replace a role but the original role instance was not properly deleted beforehand");
+            return this;
         }
-        return this;
+        return putRole(role);
     }
 
     /**
@@ -462,8 +875,8 @@ public class ConfigurationBuilder {
     public ConfigurationBuilder setRoleName(RoleId roleId, Name roleName) {
         checkNotNull(roleId);
         checkNotNull(roleName);
-        getRole(roleId).ifPresent(role -> setRole(roleId,
-                factory.getRole(role.getId(), roleName, role.getDescription(), role.getOperations())));
+        getRole(roleId).ifPresent(role -> replaceRole(roleId,
+                factory.getRole(role.getId(), roleName, role.getDescription(), role.getOperations(), role.getIncludedRoles())));
         return this;
     }
 
@@ -477,8 +890,8 @@ public class ConfigurationBuilder {
     public ConfigurationBuilder setRoleDescription(RoleId roleId, Description roleDescription) {
         checkNotNull(roleId);
         checkNotNull(roleDescription);
-        getRole(roleId).ifPresent(role -> setRole(roleId,
-                factory.getRole(role.getId(), role.getName(), roleDescription, role.getOperations())));
+        getRole(roleId).ifPresent(role -> replaceRole(roleId,
+                factory.getRole(role.getId(), role.getName(), roleDescription, role.getOperations(), role.getIncludedRoles())));
         return this;
     }
 
@@ -495,7 +908,7 @@ public class ConfigurationBuilder {
         getRole(roleId).ifPresent(role -> {
             Set<OperationId> operations = new HashSet<>(role.getOperations());
             Collections.addAll(operations, operationIds);
-            setRole(roleId, factory.getRole(role.getId(), role.getName(), role.getDescription(), operations));
+            replaceRole(roleId, factory.getRole(role.getId(), role.getName(), role.getDescription(), operations, role.getIncludedRoles()));
         });
         return this;
     }
@@ -515,18 +928,92 @@ public class ConfigurationBuilder {
             for (OperationId operationId : operationIds) {
                 operations.remove(checkNotNull(operationId));
             }
-            setRole(roleId, factory.getRole(role.getId(), role.getName(), role.getDescription(), operations));
+            replaceRole(roleId, factory.getRole(role.getId(), role.getName(), role.getDescription(), operations, role.getIncludedRoles()));
         });
         return this;
     }
 
-    private Optional<Role> getRole(RoleId roleId) {
-        for(Role r : roles) {
-            if(r.getId().equals(roleId)) {
-                return Optional.of(r);
+    /**
+     * Add one or more roles to the roles included by the given role, so that the given role inherits their operations
+     *
+     * @param roleId    Role identifier
+     * @param includedRoleIds   Identifier(s) of the roles to include
+     * @throws RoleCycleException   Including one of the roles would make the given role include itself
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addIncludedRole(RoleId roleId, RoleId... includedRoleIds) throws RoleCycleException {
+        checkNotNull(roleId);
+        checkNotNull(includedRoleIds);
+        Optional<Role> role = getRole(roleId);
+        if (role.isPresent()) {
+            Set<RoleId> includedRoles = new HashSet<>(role.get().getIncludedRoles());
+            for (RoleId includedRoleId : includedRoleIds) {
+                if (includes(checkNotNull(includedRoleId), roleId)) {
+                    throw new RoleCycleException("Including the role '" + includedRoleId.get() + "' in the role '" + roleId.get() +
+                            "' would make the role include itself");
+                }
+                includedRoles.add(includedRoleId);
             }
+            replaceRole(roleId, factory.getRole(roleId, role.get().getName(), role.get().getDescription(), role.get().getOperations(), includedRoles));
         }
-        return Optional.empty();
+        return this;
+    }
+
+    /**
+     * Remove one or more roles from the roles included by the given role
+     *
+     * @param roleId    Role identifier
+     * @param includedRoleIds   Identifier(s) of the included roles to remove
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeIncludedRole(RoleId roleId, RoleId... includedRoleIds) {
+        checkNotNull(roleId);
+        checkNotNull(includedRoleIds);
+        getRole(roleId).ifPresent(role -> {
+            Set<RoleId> includedRoles = new HashSet<>(role.getIncludedRoles());
+            for (RoleId includedRoleId : includedRoleIds) {
+                includedRoles.remove(checkNotNull(includedRoleId));
+            }
+            replaceRole(roleId, factory.getRole(roleId, role.getName(), role.getDescription(), role.getOperations(), includedRoles));
+        });
+        return this;
+    }
+
+    /**
+     * Check that none of the roles included by the given role is, or transitively includes, the given role. Reaching
+     * the role stops the search, so the role it replaces, if any, is never expanded
+     */
+    private void checkIncludedRoles(Role role) throws RoleCycleException {
+        for (RoleId includedRoleId : role.getIncludedRoles()) {
+            if (includes(includedRoleId, role.getId())) {
+                throw new RoleCycleException("Including the role '" + includedRoleId.get() + "' in the role '" + role.getId().get() +
+                        "' would make the role include itself");
+            }
+        }
+    }
+
+    /**
+     * Check whether the first role is, or transitively includes, the second role
+     */
+    private boolean includes(RoleId roleId, RoleId includedRoleId) {
+        Set<RoleId> visited = new HashSet<>();
+        Deque<RoleId> pending = new ArrayDeque<>();
+        pending.push(roleId);
+        while (!pending.isEmpty()) {
+            RoleId next = pending.pop();
+            if (next.equals(includedRoleId)) {
+                return true;
+            }
+            Role role = roles.get(next);
+            if (visited.add(next) && role != null) {
+                role.getIncludedRoles().forEach(pending::push);
+            }
+        }
+        return false;
+    }
+
+    private Optional<Role> getRole(RoleId roleId) {
+        return Optional.ofNullable(roles.get(roleId));
     }
 
 
@@ -541,10 +1028,10 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder addOperation(Operation operation) throws IdAlreadyInUseException {
         checkNotNull(operation);
-        if (contains(operation.getId(), operations)) {
+        if (operations.containsKey(operation.getId())) {
             throw new IdAlreadyInUseException("The specified operation identifier is already used by another operation");
         }
-        operations.add(operation);
+        operations = operations.plus(operation.getId(), operation);
         return this;
     }
 
@@ -556,7 +1043,9 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder removeOperation(Operation operation) {
         checkNotNull(operation);
-        operations.remove(operation);
+        if (operation.equals(operations.get(operation.getId()))) {
+            operations = operations.minus(operation.getId());
+        }
         return this;
     }
 
@@ -620,12 +1109,7 @@ public class ConfigurationBuilder {
     }
 
     private Optional<Operation> getOperation(OperationId operationId) {
-        for(Operation o : operations) {
-            if(o.getId().equals(operationId)) {
-                return Optional.of(o);
-            }
-        }
-        return Optional.empty();
+        return Optional.ofNullable(operations.get(operationId));
     }
 
 
@@ -642,31 +1126,177 @@ public class ConfigurationBuilder {
     public ConfigurationBuilder addPolicy(UserId userId, ProjectId projectId, RoleId... roleIds) {
         checkNotNull(userId);
         checkNotNull(projectId);
-        if (policyMap.containsKey(userId)) {
-            // getProject {project -> roles} assignments for this user
-            Map<ProjectId, Set<RoleId>> projectRoleMap = policyMap.get(userId);
-            if (projectRoleMap.containsKey(projectId)) {
-                Set<RoleId> roles = projectRoleMap.get(projectId);
-                Collections.addAll(roles, roleIds);
-                projectRoleMap.put(projectId, roles);
-            } else {
-                Set<RoleId> roles = new HashSet<>();
-                Collections.addAll(roles, roleIds);
-                projectRoleMap.put(projectId, roles);
+        List<RoleId> roleList = Arrays.asList(roleIds);
+        grant(userId, projectId, roleList);
+        // a permanent assignment supersedes any validity window of the same role
+        removeTimedAssignments(a -> a.getUserId().equals(userId) && a.getProjectId().equals(projectId) && roleList.contains(a.getRoleId()));
+        return this;
+    }
+
+    /**
+     * Add a user to the access control policy with the specified role(s) in the given project, but only for the
+     * given window of time. The assignments replace any existing assignment of the same roles, and are added to
+     * the policy map right away if their window is open according to the clock of the builder. Moving the policy
+     * along as windows open and close is left to {@link #applyTimedAssignments(long)}, which a
+     * {@link TimedAssignmentScheduler} calls whenever a window boundary passes, so authorization checks never need to
+     * compare timestamps
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param validFrom Start time of the validity window, in milliseconds since the epoch
+     * @param validUntil    End time of the validity window, in milliseconds since the epoch
+     * @param roleIds   Role identifier(s)
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addPolicy(UserId userId, ProjectId projectId, long validFrom, long validUntil, RoleId... roleIds) {
+        checkNotNull(userId);
+        checkNotNull(projectId);
+        List<RoleId> roleList = Arrays.asList(roleIds);
+        removeTimedAssignments(a -> a.getUserId().equals(userId) && a.getProjectId().equals(projectId) && roleList.contains(a.getRoleId()));
+        List<TimedAssignment> added = new ArrayList<>();
+        for (RoleId roleId : roleList) {
+            revoke(userId, projectId, roleId);
+            added.add(factory.getTimedAssignment(userId, projectId, roleId, validFrom, validUntil));
+        }
+        timedAssignments = timedAssignments.plusAll(added);
+        applyTimedAssignments(added, clock.millis());
+        return this;
+    }
+
+    /**
+     * Bring the policy map in line with the validity windows of the timed role assignments at the given time. The
+     * assignments whose window is open are added to the policy, and those whose window has closed are removed from
+     * the policy along with their timed assignment
+     *
+     * @param time  Time in milliseconds since the epoch
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder applyTimedAssignments(long time) {
+        return applyTimedAssignments(new ArrayList<>(timedAssignments), time);
+    }
+
+    private ConfigurationBuilder applyTimedAssignments(Collection<TimedAssignment> assignments, long time) {
+        // revoke lapsed assignments before granting open ones, so that a lapsed window cannot revoke a role that
+        // another window of the same assignment still grants
+        for (TimedAssignment assignment : assignments) {
+            if (assignment.getValidUntil() <= time) {
+                timedAssignments = timedAssignments.minus(assignment);
+                revoke(assignment.getUserId(), assignment.getProjectId(), assignment.getRoleId());
+            }
+        }
+        for (TimedAssignment assignment : assignments) {
+            if (assignment.isValidAt(time)) {
+                grant(assignment.getUserId(), assignment.getProjectId(), Collections.singleton(assignment.getRoleId()));
             }
-            policyMap.put(userId, projectRoleMap);
-        } else {
-            Set<RoleId> roles = new HashSet<>();
-            Collections.addAll(roles, roleIds);
-            Map<ProjectId, Set<RoleId>> map = new HashMap<>();
-            map.put(projectId, roles);
-            policyMap.put(userId, map);
         }
         return this;
     }
 
+    private void grant(UserId userId, ProjectId projectId, Collection<RoleId> roleIds) {
+        PersistentHashMap<ProjectId, Set<RoleId>> projectRoleMap = PersistentHashMap.copyOf(policyMap.getOrDefault(userId, PersistentHashMap.empty()));
+        PersistentHashSet<RoleId> roles = PersistentHashSet.copyOf(projectRoleMap.getOrDefault(projectId, PersistentHashSet.empty())),
+                updated = roles.plusAll(roleIds);
+        if (updated != roles || !projectRoleMap.containsKey(projectId)) {
+            putAssignments(userId, projectRoleMap.plus(projectId, updated));
+        }
+    }
+
+    private void revoke(UserId userId, ProjectId projectId, RoleId roleId) {
+        Map<ProjectId, Set<RoleId>> assignments = policyMap.get(userId);
+        if (assignments == null || !assignments.getOrDefault(projectId, Collections.emptySet()).contains(roleId)) {
+            return;
+        }
+        PersistentHashMap<ProjectId, Set<RoleId>> map = PersistentHashMap.copyOf(assignments);
+        PersistentHashSet<RoleId> roles = PersistentHashSet.copyOf(map.get(projectId)).minus(roleId);
+        if (roles.isEmpty()) {
+            map = map.minus(projectId);
+        } else {
+            map = map.plus(projectId, roles);
+        }
+        putAssignments(userId, map);
+    }
+
+    private void removeTimedAssignments(Predicate<TimedAssignment> filter) {
+        if (timedAssignments.isEmpty()) {
+            return;
+        }
+        List<TimedAssignment> removed = new ArrayList<>();
+        for (TimedAssignment assignment : timedAssignments) {
+            if (filter.test(assignment)) {
+                removed.add(assignment);
+            }
+        }
+        timedAssignments = timedAssignments.minusAll(removed);
+    }
+
     /**
-     * Remove a role from the specified user and project in the access control policy
+     * Add all the given role assignments to the access control policy in a single step. Assignments that refer to a
+     * user, role, or project or project group that does not exist in the configuration are skipped and reported as
+     * conflicts, once per unknown identifier, while the remaining assignments are merged with the existing ones. As
+     * with {@link #addPolicy(UserId, ProjectId, RoleId...)}, the added assignments are permanent, and replace any
+     * validity window of the same roles
+     *
+     * @param assignments   Map of user identifiers to the roles they should have in each project
+     * @return Import report with the number of role assignments added and the unknown identifiers
+     */
+    public ImportReport addPolicies(Map<UserId, Map<ProjectId, Set<RoleId>>> assignments) {
+        checkNotNull(assignments);
+        Set<ImportReport.Conflict> conflicts = new LinkedHashSet<>();
+        Map<UserId, Map<ProjectId, Set<RoleId>>> updates = new HashMap<>(), granted = new HashMap<>();
+        int imported = 0;
+        for (Map.Entry<UserId, Map<ProjectId, Set<RoleId>>> entry : assignments.entrySet()) {
+            UserId userId = checkNotNull(entry.getKey());
+            if (!users.containsKey(userId)) {
+                conflicts.add(new ImportReport.Conflict(userId, ImportReport.Reason.UNKNOWN_USER));
+                continue;
+            }
+            PersistentHashMap<ProjectId, Set<RoleId>> original = PersistentHashMap.copyOf(policyMap.getOrDefault(userId, PersistentHashMap.empty())),
+                    projectRoleMap = original;
+            for (Map.Entry<ProjectId, Set<RoleId>> assignment : entry.getValue().entrySet()) {
+                ProjectId projectId = checkNotNull(assignment.getKey());
+                if (!isKnownProject(projectId)) {
+                    conflicts.add(new ImportReport.Conflict(projectId, ImportReport.Reason.UNKNOWN_PROJECT));
+                    continue;
+                }
+                List<RoleId> accepted = new ArrayList<>();
+                for (RoleId roleId : assignment.getValue()) {
+                    if (roles.containsKey(roleId)) {
+                        accepted.add(roleId);
+                    } else {
+                        conflicts.add(new ImportReport.Conflict(roleId, ImportReport.Reason.UNKNOWN_ROLE));
+                    }
+                }
+                granted.computeIfAbsent(userId, id -> new HashMap<>()).computeIfAbsent(projectId, id -> new HashSet<>()).addAll(accepted);
+                PersistentHashSet<RoleId> current = PersistentHashSet.copyOf(projectRoleMap.getOrDefault(projectId, PersistentHashSet.empty())),
+                        updated = current.plusAll(accepted);
+                if (updated != current) {
+                    imported += updated.size() - current.size();
+                    projectRoleMap = projectRoleMap.plus(projectId, updated);
+                }
+            }
+            if (projectRoleMap != original) {
+                updates.put(userId, projectRoleMap);
+            }
+        }
+        PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> previous = policyMap;
+        policyMap = policyMap.plusAll(updates);
+        if (reverseIndex != null) {
+            updates.forEach((userId, updated) -> reverseIndex.update(userId, previous.get(userId), updated));
+        }
+        // a permanent assignment supersedes any validity window of the same role, as in addPolicy
+        removeTimedAssignments(a -> granted.getOrDefault(a.getUserId(), Collections.emptyMap())
+                .getOrDefault(a.getProjectId(), Collections.emptySet()).contains(a.getRoleId()));
+        return new ImportReport(imported, new ArrayList<>(conflicts));
+    }
+
+    private boolean isKnownProject(ProjectId projectId) {
+        return projects.containsKey(projectId) || projectGroups.containsKey(projectId) ||
+                projectId.equals(ConfigurationUtils.getUniversalProjectId());
+    }
+
+    /**
+     * Remove a role from the specified user and project in the access control policy, along with any validity window
+     * of the assignment, including one that has not opened yet
      *
      * @param userId    User identifier
      * @param projectId    Project identifier
@@ -674,32 +1304,30 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(UserId userId, ProjectId projectId, RoleId roleId) {
-        Map<ProjectId, Set<RoleId>> map = policyMap.get(userId);
-        Set<RoleId> roles = map.get(projectId);
-        roles.remove(roleId);
-        if (roles.isEmpty()) {
-            map.remove(projectId);
-            if(map.isEmpty()) {
-                policyMap.remove(userId);
-            }
-        } else {
-            map.put(projectId, roles);
-        }
-        policyMap.put(userId, map);
+        checkNotNull(userId);
+        checkNotNull(projectId);
+        checkNotNull(roleId);
+        removeTimedAssignments(a -> a.getUserId().equals(userId) && a.getProjectId().equals(projectId) && a.getRoleId().equals(roleId));
+        revoke(userId, projectId, roleId);
         return this;
     }
 
     /**
-     * Remove all role assignments on the specified project by the given user
+     * Remove all role assignments on the specified project by the given user, along with their validity windows,
+     * including those that have not opened yet
      *
      * @param userId    User identifier
      * @param projectId Project identifier
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(UserId userId, ProjectId projectId) {
+        checkNotNull(userId);
+        checkNotNull(projectId);
+        removeTimedAssignments(a -> a.getUserId().equals(userId) && a.getProjectId().equals(projectId));
         Map<ProjectId,Set<RoleId>> roleAssignments = policyMap.get(userId);
-        roleAssignments.remove(projectId);
-        policyMap.put(userId, roleAssignments);
+        if (roleAssignments != null && roleAssignments.containsKey(projectId)) {
+            putAssignments(userId, PersistentHashMap.copyOf(roleAssignments).minus(projectId));
+        }
         return this;
     }
 
@@ -710,47 +1338,97 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(UserId userId) {
-        policyMap.remove(userId);
+        removeTimedAssignments(a -> a.getUserId().equals(userId));
+        Map<ProjectId,Set<RoleId>> previous = policyMap.get(userId);
+        policyMap = policyMap.minus(userId);
+        if (reverseIndex != null) {
+            reverseIndex.update(userId, previous, null);
+        }
         return this;
     }
 
     /**
-     * Remove all users' role assignments involving the role with the specified identifier
+     * Remove all users' and user groups' role assignments involving the role with the specified identifier, and
+     * remove the role from the roles that include it
      *
      * @param roleId    Role identifier
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(RoleId roleId) {
-        Map<UserId, Map<ProjectId,Set<RoleId>>> toUpdate = new HashMap<>();
-        for(UserId userId : policyMap.keySet()) {
-            Map<ProjectId,Set<RoleId>> roleAssignments = policyMap.get(userId);
-            for(ProjectId projectId : roleAssignments.keySet()) {
-                if(roleAssignments.get(projectId).contains(roleId)) {
-                    Set<RoleId> roleIds = roleAssignments.get(projectId);
-                    roleIds.remove(roleId);
-                    roleAssignments.put(projectId, roleIds);
-                }
+        removeTimedAssignments(a -> a.getRoleId().equals(roleId));
+        Map<UserId, Set<ProjectId>> affected = new HashMap<>(reverseIndex().getAssignments(roleId));
+        for(Map.Entry<UserId, Set<ProjectId>> entry : affected.entrySet()) {
+            PersistentHashMap<ProjectId,Set<RoleId>> roleAssignments = PersistentHashMap.copyOf(policyMap.get(entry.getKey()));
+            for(ProjectId projectId : entry.getValue()) {
+                PersistentHashSet<RoleId> roles = PersistentHashSet.copyOf(roleAssignments.get(projectId)).minus(roleId);
+                roleAssignments = roles.isEmpty() ? roleAssignments.minus(projectId) : roleAssignments.plus(projectId, roles);
             }
-            toUpdate.put(userId, roleAssignments);
+            putAssignments(entry.getKey(), roleAssignments);
+        }
+        for(UserGroupId groupId : new ArrayList<>(reverseIndex().getUserGroups(roleId))) {
+            updateGroupAssignments(groupId, assignments -> assignments.replaceAll((projectId, roles) -> {
+                Set<RoleId> remaining = new HashSet<>(roles);
+                remaining.remove(roleId);
+                return remaining;
+            }));
+        }
+        for(RoleId includingRoleId : new ArrayList<>(reverseIndex().getIncludingRoles(roleId))) {
+            removeIncludedRole(includingRoleId, roleId);
         }
-        policyMap.putAll(toUpdate);
         return this;
     }
 
     /**
-     * Remove all users' role assignments to the project with the given identifier
+     * Remove all users' and user groups' role assignments to the project with the given identifier, the deny rules on
+     * it, and the project from the project groups that list it
      *
      * @param projectId Project identifier
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(ProjectId projectId) {
-        Map<UserId, Map<ProjectId,Set<RoleId>>> toUpdate = new HashMap<>();
-        for(UserId userId : policyMap.keySet()) {
-            Map<ProjectId, Set<RoleId>> roleAssignments = policyMap.get(userId);
-            roleAssignments.remove(projectId);
-            toUpdate.put(userId, roleAssignments);
+        removeTimedAssignments(a -> a.getProjectId().equals(projectId));
+        for(UserId userId : new ArrayList<>(reverseIndex().getUsers(projectId))) {
+            putAssignments(userId, PersistentHashMap.copyOf(policyMap.get(userId)).minus(projectId));
+        }
+        for(UserGroupId groupId : new ArrayList<>(reverseIndex().getUserGroups(projectId))) {
+            updateGroupAssignments(groupId, assignments -> assignments.remove(projectId));
+        }
+        for(DenyRule rule : new ArrayList<>(reverseIndex().getDenyRules(projectId))) {
+            removeDenyRule(rule);
+        }
+        for(ProjectId groupId : new ArrayList<>(reverseIndex().getProjectGroups(projectId))) {
+            removeProjectFromGroup(groupId, projectId);
+        }
+        return this;
+    }
+
+    /**
+     * Add the given deny rule, which forbids its operations regardless of the roles that would otherwise allow them
+     *
+     * @param denyRule  Deny rule
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder addDenyRule(DenyRule denyRule) {
+        PersistentHashSet<DenyRule> previous = denyRules;
+        denyRules = denyRules.plus(checkNotNull(denyRule));
+        if (reverseIndex != null && denyRules != previous) {
+            reverseIndex.update(null, denyRule);
+        }
+        return this;
+    }
+
+    /**
+     * Remove the given deny rule
+     *
+     * @param denyRule  Deny rule
+     * @return ServerConfigurationBuilder
+     */
+    public ConfigurationBuilder removeDenyRule(DenyRule denyRule) {
+        PersistentHashSet<DenyRule> previous = denyRules;
+        denyRules = denyRules.minus(checkNotNull(denyRule));
+        if (reverseIndex != null && denyRules != previous) {
+            reverseIndex.update(denyRule, null);
         }
-        policyMap.putAll(toUpdate);
         return this;
     }
 
@@ -761,13 +1439,7 @@ public class ConfigurationBuilder {
      * @return ServerConfigurationBuilder
      */
     public ConfigurationBuilder removePolicy(OperationId operationId) {
-        Set<RoleId> roleIds = new HashSet<>();
-        for(Role r : roles) {
-            if(r.getOperations().contains(operationId)) {
-                roleIds.add(r.getId());
-            }
-        }
-        for(RoleId roleId : roleIds) {
+        for(RoleId roleId : new ArrayList<>(reverseIndex().getRoles(operationId))) {
             removeOperationFromRole(roleId, operationId);
         }
         return this;
@@ -790,7 +1462,7 @@ public class ConfigurationBuilder {
         if(isRegistered(userId)) {
             throw new IdAlreadyInUseException("The specified user is already registered with the authentication manager. Recover or change the password.");
         }
-        authDetails.add(factory.getAuthenticationDetails(userId, password));
+        authDetails = authDetails.plus(userId, factory.getAuthenticationDetails(userId, password));
         return this;
     }
 
@@ -802,7 +1474,7 @@ public class ConfigurationBuilder {
      */
     public ConfigurationBuilder unregisterUser(UserId userId) {
         checkNotNull(userId);
-        getAuthenticationDetails(userId).ifPresent(details -> authDetails.remove(details));
+        authDetails = authDetails.minus(userId);
         return this;
     }
 
@@ -817,46 +1489,242 @@ public class ConfigurationBuilder {
         checkNotNull(userId);
         checkNotNull(password);
         unregisterUser(userId);
-        authDetails.add(factory.getAuthenticationDetails(userId, password));
+        authDetails = authDetails.plus(userId, factory.getAuthenticationDetails(userId, password));
         return this;
     }
 
+    /**
+     * Register all the given authentication details in the authentication registry in a single step. Unlike
+     * {@link #registerUser(UserId, SaltedPasswordDigest)}, details for a user that is already registered, or that
+     * repeat an earlier user in the batch, do not abort the import; they are skipped and reported as a conflict
+     *
+     * @param details   Authentication details to register
+     * @return Import report with the number of users registered and the conflicting user identifiers
+     */
+    public ImportReport registerUsers(Iterable<AuthenticationDetails> details) {
+        Set<ImportReport.Conflict> conflicts = new LinkedHashSet<>();
+        Map<UserId,AuthenticationDetails> batch = collectImports(authDetails, details, AuthenticationDetails::getUserId, conflicts);
+        authDetails = authDetails.plusAll(batch);
+        return new ImportReport(batch.size(), new ArrayList<>(conflicts));
+    }
+
+    /**
+     * Register all the authentication details of the given stream in the authentication registry in a single step
+     *
+     * @param details   Stream of authentication details to register
+     * @return Import report with the number of users registered and the conflicting user identifiers
+     * @see #registerUsers(Iterable)
+     */
+    public ImportReport registerUsers(Stream<AuthenticationDetails> details) {
+        checkNotNull(details);
+        return registerUsers((Iterable<AuthenticationDetails>) details::iterator);
+    }
+
     private boolean isRegistered(UserId userId) {
-        for(AuthenticationDetails details : authDetails) {
-            if(details.getUserId().equals(userId)) {
-                return true;
-            }
+        return authDetails.containsKey(userId);
+    }
+
+
+    /* transactions */
+
+    /**
+     * Start a transaction. Edits made until the transaction is committed or rolled back can be undone as a group,
+     * or back to a savepoint. Since the builder state is held in persistent collections, starting a transaction or
+     * setting a savepoint only records references to the current state, and rolling back only restores them
+     *
+     * @return ServerConfigurationBuilder
+     * @throws IllegalStateException    A transaction is already in progress
+     */
+    public ConfigurationBuilder beginTransaction() {
+        checkState(transactionStart == null, "A transaction is already in progress");
+        transactionStart = snapshot();
+        return this;
+    }
+
+    /**
+     * Check whether a transaction is in progress
+     *
+     * @return true if a transaction was started and has not been committed or rolled back, false otherwise
+     */
+    public boolean isInTransaction() {
+        return transactionStart != null;
+    }
+
+    /**
+     * Record the current state of the builder so that later edits of the transaction can be rolled back to it
+     *
+     * @return Savepoint
+     * @throws IllegalStateException    No transaction is in progress
+     */
+    public Savepoint setSavepoint() {
+        checkState(transactionStart != null, "No transaction is in progress");
+        Savepoint savepoint = new Savepoint(snapshot());
+        savepoints.push(savepoint);
+        return savepoint;
+    }
+
+    /**
+     * Undo all edits made since the given savepoint was set. The savepoint remains valid, while savepoints set after
+     * it are released
+     *
+     * @param savepoint Savepoint of the current transaction
+     * @return ServerConfigurationBuilder
+     * @throws IllegalStateException    No transaction is in progress, or the savepoint was released
+     */
+    public ConfigurationBuilder rollbackTo(Savepoint savepoint) {
+        checkNotNull(savepoint);
+        checkState(transactionStart != null, "No transaction is in progress");
+        checkState(savepoints.contains(savepoint), "The savepoint does not belong to the current transaction or was released");
+        while (savepoints.peek() != savepoint) {
+            savepoints.pop();
         }
-        return false;
+        restore(savepoint.state);
+        return this;
     }
 
-    private Optional<AuthenticationDetails> getAuthenticationDetails(UserId userId) {
-        checkNotNull(userId);
-        for(AuthenticationDetails detail : authDetails) {
-            if(detail.getUserId().equals(userId)) {
-                return Optional.of(detail);
-            }
+    /**
+     * Undo all edits made since the transaction was started, and end the transaction
+     *
+     * @return ServerConfigurationBuilder
+     * @throws IllegalStateException    No transaction is in progress
+     */
+    public ConfigurationBuilder rollback() {
+        checkState(transactionStart != null, "No transaction is in progress");
+        restore(transactionStart);
+        endTransaction();
+        return this;
+    }
+
+    /**
+     * Get the change log of the current transaction, that is, the delta from the state at the start of the transaction
+     * to the current state. It is computed from the persistent collections in time proportional to the number of
+     * changes, and can be handed directly to persistence or replication
+     *
+     * @return Configuration delta
+     * @throws IllegalStateException    No transaction is in progress
+     */
+    public ConfigurationDelta getChangeLog() {
+        checkState(transactionStart != null, "No transaction is in progress");
+        return ConfigurationDelta.between(transactionStart, snapshot());
+    }
+
+    /**
+     * Keep all edits made since the transaction was started, and end the transaction
+     *
+     * @return Change log of the transaction
+     * @throws IllegalStateException    No transaction is in progress
+     */
+    public ConfigurationDelta commit() {
+        ConfigurationDelta changeLog = getChangeLog();
+        endTransaction();
+        return changeLog;
+    }
+
+    /**
+     * Apply the given edits in a transaction, so that either all of them land or, if any of them fails, none does
+     *
+     * @param edits Edits to apply to this builder
+     * @return Change log of the transaction
+     * @throws ConfigurationException   An edit failed, and the transaction was rolled back
+     * @throws IllegalStateException    A transaction is already in progress
+     */
+    public ConfigurationDelta inTransaction(TransactionalEdit edits) throws ConfigurationException {
+        checkNotNull(edits);
+        beginTransaction();
+        try {
+            edits.apply(this);
+        } catch (ConfigurationException | RuntimeException e) {
+            rollback();
+            throw e;
         }
-        return Optional.empty();
+        return commit();
     }
 
-    private <E extends PolicyObjectId, T extends PolicyObject> boolean contains(E id, Set<T> elements) {
-        checkNotNull(id);
-        checkNotNull(elements);
-        for(T element : elements) {
-            if(element.getId().equals(id)) {
-                return true;
+    private void endTransaction() {
+        transactionStart = null;
+        savepoints.clear();
+    }
+
+    private ServerConfigurationImpl snapshot() {
+        return new ServerConfigurationImpl(host, root, policyMap, denyRules, timedAssignments, users, userGroups, projects, projectGroups, roles, operations, authDetails, properties);
+    }
+
+    /**
+     * A point within a transaction that the builder can be rolled back to
+     */
+    public static final class Savepoint {
+        private final ServerConfigurationImpl state;
+
+        private Savepoint(ServerConfigurationImpl state) {
+            this.state = state;
+        }
+    }
+
+    /**
+     * A group of edits applied to a builder within a transaction
+     */
+    @FunctionalInterface
+    public interface TransactionalEdit {
+
+        /**
+         * Apply the edits to the given builder
+         *
+         * @param builder   Configuration builder
+         * @throws ConfigurationException   An edit failed
+         */
+        void apply(ConfigurationBuilder builder) throws ConfigurationException;
+
+    }
+
+    /**
+     * Replace the role assignments of the given user, keeping the reverse index (if built) in sync
+     */
+    private void putAssignments(UserId userId, Map<ProjectId, Set<RoleId>> assignments) {
+        Map<ProjectId, Set<RoleId>> previous = policyMap.get(userId);
+        policyMap = policyMap.plus(userId, assignments);
+        if (reverseIndex != null) {
+            reverseIndex.update(userId, previous, assignments);
+        }
+    }
+
+    /**
+     * Get the reverse index of the policy, roles, user groups, project groups and deny rules, building it on first
+     * use. The index is then maintained incrementally by every change to them, and dropped when any of them is
+     * replaced wholesale
+     */
+    private PolicyReverseIndex reverseIndex() {
+        if (reverseIndex == null) {
+            reverseIndex = new PolicyReverseIndex(policyMap, roles.values(), userGroups.values(), projectGroups.values(), denyRules);
+        }
+        return reverseIndex;
+    }
+
+    /**
+     * Collect the given elements into a batch keyed by their identifiers, in a single pass, reporting the identifiers
+     * already used in the given map or by an earlier element of the batch
+     */
+    private static <K extends PolicyObjectId<?>, E> Map<K,E> collectImports(Map<K,E> existing, Iterable<? extends E> elements,
+                                                                         Function<? super E, ? extends K> key, Set<ImportReport.Conflict> conflicts) {
+        Map<K,E> batch = new LinkedHashMap<>();
+        for (E element : checkNotNull(elements)) {
+            K id = checkNotNull(key.apply(checkNotNull(element)));
+            if (existing.containsKey(id)) {
+                conflicts.add(new ImportReport.Conflict(id, ImportReport.Reason.ID_ALREADY_IN_USE));
+            } else if (batch.putIfAbsent(id, element) != null) {
+                conflicts.add(new ImportReport.Conflict(id, ImportReport.Reason.DUPLICATE_IN_BATCH));
             }
         }
-        return false;
+        return batch;
     }
 
     /**
-     * Create a server configuration instance
+     * Create a server configuration instance, validating its references according to the validation mode
      *
      * @return Server configuration
+     * @throws DanglingReferenceException   The validation mode is {@link ValidationMode#FAIL_FAST} and the policy or a
+     * role refers to a nonexistent policy object, or a role includes itself
      */
     public ServerConfiguration createServerConfiguration() {
-        return new ServerConfigurationImpl(host, root, policyMap, users, projects, roles, operations, authDetails, properties);
+        return ConfigurationValidator.validate(snapshot(), validationMode, factory);
     }
 }
@@ -0,0 +1,191 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Delivers change events for the snapshots published to a live configuration. Events are delivered asynchronously,
+ * off the committing thread, and each listener receives its events one at a time and in commit order. Commits that
+ * occur while a listener is still being notified (or waiting to be) are coalesced into a single event, so a burst of
+ * edits results in one notification per listener. A listener registered for specific change types is only notified
+ * of events that contain at least one of those types
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class ConfigurationChangeBus implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ConfigurationChangeBus.class.getName());
+    private final Map<ChangeListener, Subscription> subscriptions = new ConcurrentHashMap<>();
+    @Nonnull private final LiveConfiguration configuration;
+    @Nonnull private final Executor executor;
+    @Nonnull private final LiveConfiguration.CommitListener commitListener = this::committed;
+    private final boolean ownsExecutor;
+
+    /**
+     * Constructor. Events are delivered on a dedicated daemon thread, which is stopped when the bus is closed
+     *
+     * @param configuration Live configuration
+     */
+    public ConfigurationChangeBus(@Nonnull LiveConfiguration configuration) {
+        this(configuration, Executors.newSingleThreadExecutor(
+                new ThreadFactoryBuilder().setNameFormat("configuration-change-bus-%d").setDaemon(true).build()), true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration
+     * @param executor  Executor on which events are delivered
+     */
+    public ConfigurationChangeBus(@Nonnull LiveConfiguration configuration, @Nonnull Executor executor) {
+        this(configuration, executor, false);
+    }
+
+    private ConfigurationChangeBus(LiveConfiguration configuration, Executor executor, boolean ownsExecutor) {
+        this.configuration = checkNotNull(configuration);
+        this.executor = checkNotNull(executor);
+        this.ownsExecutor = ownsExecutor;
+        configuration.addCommitListener(commitListener);
+    }
+
+    private void committed(VersionedConfiguration previous, VersionedConfiguration current, ConfigurationDelta delta) {
+        if (subscriptions.isEmpty()) {
+            return;
+        }
+        ConfigurationChangeEvent event = new ConfigurationChangeEvent(previous, current, delta);
+        for (Subscription subscription : subscriptions.values()) {
+            subscription.enqueue(event);
+        }
+    }
+
+    /**
+     * Register a listener to be notified of all configuration changes
+     *
+     * @param listener  Change listener
+     */
+    public void addListener(@Nonnull ChangeListener listener) {
+        addListener(listener, EnumSet.allOf(ConfigurationChangeEvent.Type.class));
+    }
+
+    /**
+     * Register a listener to be notified of changes of the given types. Registering a listener again replaces the
+     * change types it was registered for
+     *
+     * @param listener  Change listener
+     * @param types Change types of interest
+     */
+    public void addListener(@Nonnull ChangeListener listener, @Nonnull Set<ConfigurationChangeEvent.Type> types) {
+        checkNotNull(listener);
+        subscriptions.put(listener, new Subscription(listener, types));
+    }
+
+    /**
+     * Remove the given listener. Events already being delivered to the listener may still arrive
+     *
+     * @param listener  Change listener
+     */
+    public void removeListener(@Nonnull ChangeListener listener) {
+        subscriptions.remove(checkNotNull(listener));
+    }
+
+    /**
+     * Get the number of registered listeners
+     *
+     * @return Number of listeners
+     */
+    public int getListenerCount() {
+        return subscriptions.size();
+    }
+
+    @Override
+    public void close() {
+        configuration.removeCommitListener(commitListener);
+        subscriptions.clear();
+        if (ownsExecutor) {
+            ((ExecutorService) executor).shutdown();
+        }
+    }
+
+    /**
+     * The delivery state of a single listener. At most one delivery task per listener is scheduled at any time;
+     * events arriving in the meantime are merged into the pending event
+     */
+    private final class Subscription implements Runnable {
+        private final ChangeListener listener;
+        private final Set<ConfigurationChangeEvent.Type> types;
+        private ConfigurationChangeEvent pending;
+        private boolean scheduled;
+
+        private Subscription(ChangeListener listener, Set<ConfigurationChangeEvent.Type> types) {
+            this.listener = listener;
+            Set<ConfigurationChangeEvent.Type> copy = EnumSet.noneOf(ConfigurationChangeEvent.Type.class);
+            copy.addAll(checkNotNull(types));
+            this.types = Collections.unmodifiableSet(copy);
+        }
+
+        private void enqueue(ConfigurationChangeEvent event) {
+            synchronized (this) {
+                pending = (pending == null ? event : pending.andThen(event));
+                if (scheduled) {
+                    return;
+                }
+                scheduled = true;
+            }
+            executor.execute(this);
+        }
+
+        @Override
+        public void run() {
+            while (true) {
+                ConfigurationChangeEvent event;
+                synchronized (this) {
+                    event = pending;
+                    pending = null;
+                    if (event == null) {
+                        scheduled = false;
+                        return;
+                    }
+                }
+                if (event.affects(types) && subscriptions.get(listener) == this) {
+                    try {
+                        listener.configurationChanged(event);
+                    } catch (RuntimeException e) {
+                        logger.error("Configuration change listener failed to handle version " + event.getCurrent().getVersion(), e);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Listener for configuration change events
+     */
+    @FunctionalInterface
+    public interface ChangeListener {
+
+        /**
+         * Handle a configuration change
+         *
+         * @param event Change event, possibly spanning several commits
+         */
+        void configurationChanged(@Nonnull ConfigurationChangeEvent event);
+
+    }
+}
@@ -0,0 +1,186 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.EnumSet;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A notification that the live configuration changed from one snapshot to another. When several commits are
+ * coalesced into a single event, the event spans from the snapshot before the first commit to the snapshot after
+ * the last one, and its delta combines the deltas of all those commits
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class ConfigurationChangeEvent {
+    @Nonnull private final VersionedConfiguration previous, current;
+    @Nonnull private final ConfigurationDelta delta;
+    @Nonnull private final Set<Type> types;
+
+    /**
+     * Constructor
+     *
+     * @param previous  Snapshot before the change
+     * @param current   Snapshot after the change
+     * @param delta Changes from the previous snapshot to the current one
+     */
+    public ConfigurationChangeEvent(@Nonnull VersionedConfiguration previous, @Nonnull VersionedConfiguration current, @Nonnull ConfigurationDelta delta) {
+        this.previous = checkNotNull(previous);
+        this.current = checkNotNull(current);
+        this.delta = checkNotNull(delta);
+        this.types = Sets.immutableEnumSet(getTypes(delta));
+    }
+
+    private static Set<Type> getTypes(ConfigurationDelta delta) {
+        Set<Type> types = EnumSet.noneOf(Type.class);
+        if (delta.getHost().isPresent()) {
+            types.add(Type.HOST);
+        }
+        if (delta.getServerRoot().isPresent()) {
+            types.add(Type.SERVER_ROOT);
+        }
+        if (!delta.getPolicy().isEmpty()) {
+            types.add(Type.POLICY);
+        }
+        if (!delta.getDenyRules().isEmpty()) {
+            types.add(Type.DENY_RULES);
+        }
+        if (!delta.getTimedAssignments().isEmpty()) {
+            types.add(Type.TIMED_ASSIGNMENTS);
+        }
+        if (!delta.getUsers().isEmpty()) {
+            types.add(Type.USERS);
+        }
+        if (!delta.getUserGroups().isEmpty()) {
+            types.add(Type.USER_GROUPS);
+        }
+        if (!delta.getProjects().isEmpty()) {
+            types.add(Type.PROJECTS);
+        }
+        if (!delta.getProjectGroups().isEmpty()) {
+            types.add(Type.PROJECT_GROUPS);
+        }
+        if (!delta.getRoles().isEmpty()) {
+            types.add(Type.ROLES);
+        }
+        if (!delta.getOperations().isEmpty()) {
+            types.add(Type.OPERATIONS);
+        }
+        if (!delta.getAuthenticationDetails().isEmpty()) {
+            types.add(Type.AUTHENTICATION_DETAILS);
+        }
+        if (!delta.getProperties().isEmpty()) {
+            types.add(Type.PROPERTIES);
+        }
+        return types;
+    }
+
+    /**
+     * Get the snapshot before the change
+     *
+     * @return Previous versioned configuration
+     */
+    @Nonnull
+    public VersionedConfiguration getPrevious() {
+        return previous;
+    }
+
+    /**
+     * Get the snapshot after the change
+     *
+     * @return Current versioned configuration
+     */
+    @Nonnull
+    public VersionedConfiguration getCurrent() {
+        return current;
+    }
+
+    /**
+     * Get the changes from the previous snapshot to the current one
+     *
+     * @return Configuration delta
+     */
+    @Nonnull
+    public ConfigurationDelta getDelta() {
+        return delta;
+    }
+
+    /**
+     * Get the types of change contained in this event
+     *
+     * @return Set of change types
+     */
+    @Nonnull
+    public Set<Type> getTypes() {
+        return types;
+    }
+
+    /**
+     * Check whether this event contains a change of any of the given types
+     *
+     * @param types Change types
+     * @return true if any of the given parts of the configuration changed, false otherwise
+     */
+    public boolean affects(@Nonnull Set<Type> types) {
+        return !Sets.intersection(this.types, checkNotNull(types)).isEmpty();
+    }
+
+    /**
+     * Combine this event with the given one, which is assumed to follow this event
+     *
+     * @param next  Subsequent change event
+     * @return Change event spanning both events
+     */
+    @Nonnull
+    public ConfigurationChangeEvent andThen(@Nonnull ConfigurationChangeEvent next) {
+        checkNotNull(next);
+        return new ConfigurationChangeEvent(previous, next.current, delta.andThen(next.delta));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigurationChangeEvent)) {
+            return false;
+        }
+        ConfigurationChangeEvent that = (ConfigurationChangeEvent) o;
+        return Objects.equal(previous, that.previous) &&
+                Objects.equal(current, that.current) &&
+                Objects.equal(delta, that.delta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(previous, current, delta);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fromVersion", previous.getVersion())
+                .add("toVersion", current.getVersion())
+                .add("types", types)
+                .add("delta", delta)
+                .toString();
+    }
+
+    /**
+     * The parts of a server configuration that a change event may concern
+     */
+    public enum Type {
+        HOST, SERVER_ROOT, POLICY, DENY_RULES, TIMED_ASSIGNMENTS, USERS, USER_GROUPS, PROJECTS, PROJECT_GROUPS, ROLES, OPERATIONS, AUTHENTICATION_DETAILS, PROPERTIES
+    }
+}
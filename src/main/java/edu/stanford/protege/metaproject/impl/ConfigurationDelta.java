@@ -0,0 +1,408 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The difference between two server configurations, described section by section. A delta computed between
+ * configurations A and B can be applied to A (or to any configuration equal to A) to obtain a configuration
+ * equal to B. Policy changes are recorded per user, i.e., a changed user entry carries the user's complete
+ * project-role assignments
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class ConfigurationDelta {
+    private static final ConfigurationDelta EMPTY = new ConfigurationDelta(null, null, MapDelta.empty(), SetDelta.empty(), SetDelta.empty(),
+            SetDelta.empty(), SetDelta.empty(), SetDelta.empty(), SetDelta.empty(), SetDelta.empty(), SetDelta.empty(), SetDelta.empty(), MapDelta.empty());
+    @Nullable private final Host host;
+    @Nullable private final String root;
+    @Nonnull private final MapDelta<UserId, Map<ProjectId, Set<RoleId>>> policy;
+    @Nonnull private final SetDelta<DenyRule> denyRules;
+    @Nonnull private final SetDelta<TimedAssignment> timedAssignments;
+    @Nonnull private final SetDelta<User> users;
+    @Nonnull private final SetDelta<UserGroup> userGroups;
+    @Nonnull private final SetDelta<Project> projects;
+    @Nonnull private final SetDelta<ProjectGroup> projectGroups;
+    @Nonnull private final SetDelta<Role> roles;
+    @Nonnull private final SetDelta<Operation> operations;
+    @Nonnull private final SetDelta<AuthenticationDetails> authDetails;
+    @Nonnull private final MapDelta<String,String> properties;
+
+    /**
+     * Constructor
+     *
+     * @param host  New host, or null if the host is unchanged
+     * @param root  New server root directory, or null if the root is unchanged
+     * @param policy    Changes to the policy map
+     * @param denyRules Changes to the set of deny rules
+     * @param timedAssignments  Changes to the set of timed role assignments
+     * @param users Changes to the set of users
+     * @param userGroups    Changes to the set of user groups
+     * @param projects  Changes to the set of projects
+     * @param projectGroups Changes to the set of project groups
+     * @param roles Changes to the set of roles
+     * @param operations    Changes to the set of operations
+     * @param authDetails   Changes to the set of authentication details
+     * @param properties    Changes to the map of custom configuration properties
+     */
+    public ConfigurationDelta(@Nullable Host host, @Nullable String root, @Nonnull MapDelta<UserId, Map<ProjectId, Set<RoleId>>> policy,
+                              @Nonnull SetDelta<DenyRule> denyRules, @Nonnull SetDelta<TimedAssignment> timedAssignments,
+                              @Nonnull SetDelta<User> users, @Nonnull SetDelta<UserGroup> userGroups, @Nonnull SetDelta<Project> projects,
+                              @Nonnull SetDelta<ProjectGroup> projectGroups,
+                              @Nonnull SetDelta<Role> roles,
+                              @Nonnull SetDelta<Operation> operations, @Nonnull SetDelta<AuthenticationDetails> authDetails,
+                              @Nonnull MapDelta<String,String> properties) {
+        this.host = host;
+        this.root = root;
+        this.policy = checkNotNull(policy);
+        this.denyRules = checkNotNull(denyRules);
+        this.timedAssignments = checkNotNull(timedAssignments);
+        this.users = checkNotNull(users);
+        this.userGroups = checkNotNull(userGroups);
+        this.projects = checkNotNull(projects);
+        this.projectGroups = checkNotNull(projectGroups);
+        this.roles = checkNotNull(roles);
+        this.operations = checkNotNull(operations);
+        this.authDetails = checkNotNull(authDetails);
+        this.properties = checkNotNull(properties);
+    }
+
+    /**
+     * Get a delta that contains no changes
+     *
+     * @return Empty configuration delta
+     */
+    @Nonnull
+    public static ConfigurationDelta empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Compute the difference between the given server configurations
+     *
+     * @param from  Original server configuration
+     * @param to    Modified server configuration
+     * @return Configuration delta that transforms the original configuration into the modified one
+     */
+    @Nonnull
+    public static ConfigurationDelta between(@Nonnull ServerConfiguration from, @Nonnull ServerConfiguration to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return EMPTY;
+        }
+        ServerConfigurationImpl source = ServerConfigurationImpl.from(from), target = ServerConfigurationImpl.from(to);
+        return new ConfigurationDelta(
+                source.getHost().equals(target.getHost()) ? null : target.getHost(),
+                source.getServerRoot().equals(target.getServerRoot()) ? null : target.getServerRoot(),
+                MapDelta.between(source.persistentPolicyMap(), target.persistentPolicyMap()),
+                SetDelta.between(source.persistentDenyRules(), target.persistentDenyRules()),
+                SetDelta.between(source.persistentTimedAssignments(), target.persistentTimedAssignments()),
+                SetDelta.betweenValues(source.persistentUsers(), target.persistentUsers()),
+                SetDelta.betweenValues(source.persistentUserGroups(), target.persistentUserGroups()),
+                SetDelta.betweenValues(source.persistentProjects(), target.persistentProjects()),
+                SetDelta.betweenValues(source.persistentProjectGroups(), target.persistentProjectGroups()),
+                SetDelta.betweenValues(source.persistentRoles(), target.persistentRoles()),
+                SetDelta.betweenValues(source.persistentOperations(), target.persistentOperations()),
+                SetDelta.betweenValues(source.persistentAuthenticationDetails(), target.persistentAuthenticationDetails()),
+                MapDelta.between(source.persistentProperties(), target.persistentProperties()));
+    }
+
+    /**
+     * Get the new server host, if it changed
+     *
+     * @return Optional host
+     */
+    @Nonnull
+    public Optional<Host> getHost() {
+        return Optional.ofNullable(host);
+    }
+
+    /**
+     * Get the new server root directory, if it changed
+     *
+     * @return Optional server root directory
+     */
+    @Nonnull
+    public Optional<String> getServerRoot() {
+        return Optional.ofNullable(root);
+    }
+
+    /**
+     * Get the changes to the policy map, keyed by user identifier
+     *
+     * @return Policy map delta
+     */
+    @Nonnull
+    public MapDelta<UserId, Map<ProjectId, Set<RoleId>>> getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Get the changes to the set of deny rules
+     *
+     * @return Deny rule set delta
+     */
+    @Nonnull
+    public SetDelta<DenyRule> getDenyRules() {
+        return denyRules;
+    }
+
+    /**
+     * Get the changes to the set of timed role assignments
+     *
+     * @return Timed assignment set delta
+     */
+    @Nonnull
+    public SetDelta<TimedAssignment> getTimedAssignments() {
+        return timedAssignments;
+    }
+
+    /**
+     * Get the changes to the set of users
+     *
+     * @return User set delta
+     */
+    @Nonnull
+    public SetDelta<User> getUsers() {
+        return users;
+    }
+
+    /**
+     * Get the changes to the set of user groups
+     *
+     * @return User group set delta
+     */
+    @Nonnull
+    public SetDelta<UserGroup> getUserGroups() {
+        return userGroups;
+    }
+
+    /**
+     * Get the changes to the set of projects
+     *
+     * @return Project set delta
+     */
+    @Nonnull
+    public SetDelta<Project> getProjects() {
+        return projects;
+    }
+
+    /**
+     * Get the changes to the set of project groups
+     *
+     * @return Project group set delta
+     */
+    @Nonnull
+    public SetDelta<ProjectGroup> getProjectGroups() {
+        return projectGroups;
+    }
+
+    /**
+     * Get the changes to the set of roles
+     *
+     * @return Role set delta
+     */
+    @Nonnull
+    public SetDelta<Role> getRoles() {
+        return roles;
+    }
+
+    /**
+     * Get the changes to the set of operations
+     *
+     * @return Operation set delta
+     */
+    @Nonnull
+    public SetDelta<Operation> getOperations() {
+        return operations;
+    }
+
+    /**
+     * Get the changes to the set of authentication details
+     *
+     * @return Authentication details set delta
+     */
+    @Nonnull
+    public SetDelta<AuthenticationDetails> getAuthenticationDetails() {
+        return authDetails;
+    }
+
+    /**
+     * Get the changes to the map of custom configuration properties
+     *
+     * @return Properties map delta
+     */
+    @Nonnull
+    public MapDelta<String,String> getProperties() {
+        return properties;
+    }
+
+    /**
+     * Check whether this delta contains no changes
+     *
+     * @return true if applying this delta has no effect, false otherwise
+     */
+    public boolean isEmpty() {
+        return host == null && root == null && policy.isEmpty() && denyRules.isEmpty() && timedAssignments.isEmpty() && users.isEmpty() && userGroups.isEmpty() && projects.isEmpty() &&
+                projectGroups.isEmpty() && roles.isEmpty() && operations.isEmpty() && authDetails.isEmpty() && properties.isEmpty();
+    }
+
+    /**
+     * Apply this delta to the given server configuration
+     *
+     * @param config    Server configuration
+     * @return New server configuration with the changes in this delta
+     */
+    @Nonnull
+    public ServerConfiguration applyTo(@Nonnull ServerConfiguration config) {
+        checkNotNull(config);
+        if (isEmpty()) {
+            return config;
+        }
+        ServerConfigurationImpl base = ServerConfigurationImpl.from(config);
+        PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap = base.persistentPolicyMap().minusAll(policy.getRemoved());
+        for (Map.Entry<UserId, Map<ProjectId, Set<RoleId>>> entry : policy.getUpdated().entrySet()) {
+            policyMap = policyMap.plus(entry.getKey(), ServerConfigurationImpl.toPersistentAssignments(entry.getValue()));
+        }
+        return new ServerConfigurationImpl(
+                host != null ? host : base.getHost(),
+                root != null ? root : base.getServerRoot(),
+                policyMap,
+                denyRules.applyTo(base.persistentDenyRules()),
+                timedAssignments.applyTo(base.persistentTimedAssignments()),
+                users.applyTo(base.persistentUsers(), User::getId),
+                userGroups.applyTo(base.persistentUserGroups(), UserGroup::getId),
+                projects.applyTo(base.persistentProjects(), Project::getId),
+                projectGroups.applyTo(base.persistentProjectGroups(), ProjectGroup::getId),
+                roles.applyTo(base.persistentRoles(), Role::getId),
+                operations.applyTo(base.persistentOperations(), Operation::getId),
+                authDetails.applyTo(base.persistentAuthenticationDetails(), AuthenticationDetails::getUserId),
+                properties.applyTo(base.persistentProperties()));
+    }
+
+    /**
+     * Combine this delta with the given one, which is assumed to be applied after this one
+     *
+     * @param next  Delta applied after this delta
+     * @return Configuration delta equivalent to applying this delta followed by the given delta
+     */
+    @Nonnull
+    public ConfigurationDelta andThen(@Nonnull ConfigurationDelta next) {
+        checkNotNull(next);
+        if (isEmpty()) {
+            return next;
+        }
+        if (next.isEmpty()) {
+            return this;
+        }
+        return new ConfigurationDelta(
+                next.host != null ? next.host : host,
+                next.root != null ? next.root : root,
+                policy.andThen(next.policy),
+                denyRules.andThen(next.denyRules),
+                timedAssignments.andThen(next.timedAssignments),
+                users.andThen(next.users),
+                userGroups.andThen(next.userGroups),
+                projects.andThen(next.projects),
+                projectGroups.andThen(next.projectGroups),
+                roles.andThen(next.roles),
+                operations.andThen(next.operations),
+                authDetails.andThen(next.authDetails),
+                properties.andThen(next.properties));
+    }
+
+    /**
+     * Get the delta that undoes this delta, i.e., that transforms the result of applying this delta to the given
+     * configuration back into the given configuration. The inverse is computed in time proportional to the size
+     * of this delta
+     *
+     * @param base  Server configuration that this delta is applied to
+     * @return Inverse configuration delta
+     */
+    @Nonnull
+    public ConfigurationDelta invert(@Nonnull ServerConfiguration base) {
+        checkNotNull(base);
+        if (isEmpty()) {
+            return this;
+        }
+        ServerConfigurationImpl config = ServerConfigurationImpl.from(base);
+        return new ConfigurationDelta(
+                host != null ? config.getHost() : null,
+                root != null ? config.getServerRoot() : null,
+                policy.invert(config.persistentPolicyMap()),
+                denyRules.invert(config.persistentDenyRules()),
+                timedAssignments.invert(config.persistentTimedAssignments()),
+                users.invert(config.persistentUsers(), User::getId),
+                userGroups.invert(config.persistentUserGroups(), UserGroup::getId),
+                projects.invert(config.persistentProjects(), Project::getId),
+                projectGroups.invert(config.persistentProjectGroups(), ProjectGroup::getId),
+                roles.invert(config.persistentRoles(), Role::getId),
+                operations.invert(config.persistentOperations(), Operation::getId),
+                authDetails.invert(config.persistentAuthenticationDetails(), AuthenticationDetails::getUserId),
+                properties.invert(config.persistentProperties()));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigurationDelta)) {
+            return false;
+        }
+        ConfigurationDelta that = (ConfigurationDelta) o;
+        return Objects.equal(host, that.host) &&
+                Objects.equal(root, that.root) &&
+                Objects.equal(policy, that.policy) &&
+                Objects.equal(denyRules, that.denyRules) &&
+                Objects.equal(timedAssignments, that.timedAssignments) &&
+                Objects.equal(users, that.users) &&
+                Objects.equal(userGroups, that.userGroups) &&
+                Objects.equal(projects, that.projects) &&
+                Objects.equal(projectGroups, that.projectGroups) &&
+                Objects.equal(roles, that.roles) &&
+                Objects.equal(operations, that.operations) &&
+                Objects.equal(authDetails, that.authDetails) &&
+                Objects.equal(properties, that.properties);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(host, root, policy, denyRules, timedAssignments, users, userGroups, projects, projectGroups, roles, operations, authDetails, properties);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("host", host)
+                .add("root", root)
+                .add("policy", policy)
+                .add("denyRules", denyRules)
+                .add("timedAssignments", timedAssignments)
+                .add("users", users)
+                .add("userGroups", userGroups)
+                .add("projects", projects)
+                .add("projectGroups", projectGroups)
+                .add("roles", roles)
+                .add("operations", operations)
+                .add("authDetails", authDetails)
+                .add("properties", properties)
+                .toString();
+    }
+}
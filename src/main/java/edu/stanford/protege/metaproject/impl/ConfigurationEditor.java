@@ -0,0 +1,207 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.Maps;
+import com.google.common.util.concurrent.Striped;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.exception.ConfigurationException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A thread-safe facade for editing a live configuration from several sessions at once. Each edit is applied to a
+ * {@link ConfigurationBuilder} over the current snapshot and committed with optimistic concurrency: if another edit
+ * committed in the meantime, the edit is run again against the newer snapshot, so that edits are serializable even
+ * when they decide what to change from what they read. Edits may name the keys they touch, such as policy object
+ * identifiers or configuration sections, to be serialized with other edits of the same keys through striped locks
+ * and so avoid being rerun, while edits of other keys proceed in parallel. Edits whose changes do not depend on what
+ * they read, such as adding a user, may instead be committed with {@link #editIndependently}: such an edit is
+ * rebased onto a concurrent commit that changed different entries, and only run again if both changed an entry
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class ConfigurationEditor {
+    private static final int DEFAULT_STRIPES = 64;
+    @Nonnull private final LiveConfiguration configuration;
+    @Nonnull private final Striped<Lock> locks;
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration to edit
+     */
+    public ConfigurationEditor(@Nonnull LiveConfiguration configuration) {
+        this(configuration, DEFAULT_STRIPES);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration to edit
+     * @param stripes   Number of locks that edit keys are spread over
+     */
+    public ConfigurationEditor(@Nonnull LiveConfiguration configuration, int stripes) {
+        checkArgument(stripes > 0, "The number of stripes must be positive");
+        this.configuration = checkNotNull(configuration);
+        this.locks = Striped.lock(stripes);
+    }
+
+    /**
+     * Apply the given edit to the live configuration, without serializing it with other edits
+     *
+     * @param edit  Edit to apply
+     * @return Versioned configuration that includes the edit
+     * @throws ConfigurationException   The edit failed, and nothing was committed
+     */
+    @Nonnull
+    public VersionedConfiguration edit(@Nonnull ConfigurationBuilder.TransactionalEdit edit) throws ConfigurationException {
+        return edit(Collections.emptySet(), edit);
+    }
+
+    /**
+     * Apply the given edit to the live configuration, serializing it with other edits that name any of the given keys
+     *
+     * @param keys  Keys touched by the edit, e.g., policy object identifiers or {@link ConfigurationChangeEvent.Type}s
+     * @param edit  Edit to apply
+     * @return Versioned configuration that includes the edit
+     * @throws ConfigurationException   The edit failed, and nothing was committed
+     */
+    @Nonnull
+    public VersionedConfiguration edit(@Nonnull Collection<?> keys, @Nonnull ConfigurationBuilder.TransactionalEdit edit) throws ConfigurationException {
+        return edit(keys, edit, false);
+    }
+
+    /**
+     * Apply the given edit, whose changes must not depend on what it reads from the configuration, to the live
+     * configuration, serializing it with other edits that name any of the given keys. If another edit committed in
+     * the meantime and changed different entries, the changes are applied to the newer snapshot without running the
+     * edit again. An edit that, say, removes a role assignment only if some other user holds the same role reads the
+     * other user's assignments, and must be applied with {@link #edit(Collection, ConfigurationBuilder.TransactionalEdit)}
+     * instead
+     *
+     * @param keys  Keys touched by the edit, e.g., policy object identifiers or {@link ConfigurationChangeEvent.Type}s
+     * @param edit  Edit to apply
+     * @return Versioned configuration that includes the edit
+     * @throws ConfigurationException   The edit failed, and nothing was committed
+     */
+    @Nonnull
+    public VersionedConfiguration editIndependently(@Nonnull Collection<?> keys, @Nonnull ConfigurationBuilder.TransactionalEdit edit)
+            throws ConfigurationException {
+        return edit(keys, edit, true);
+    }
+
+    private VersionedConfiguration edit(Collection<?> keys, ConfigurationBuilder.TransactionalEdit edit, boolean rebase) throws ConfigurationException {
+        checkNotNull(keys);
+        checkNotNull(edit);
+        // bulkGet returns the locks in stripe order, so edits acquiring several locks cannot deadlock
+        List<Lock> acquired = new ArrayList<>();
+        for (Lock lock : locks.bulkGet(keys)) {
+            if (!acquired.contains(lock)) {
+                lock.lock();
+                acquired.add(lock);
+            }
+        }
+        try {
+            return commit(edit, rebase);
+        } finally {
+            for (int i = acquired.size() - 1; i >= 0; i--) {
+                acquired.get(i).unlock();
+            }
+        }
+    }
+
+    private VersionedConfiguration commit(ConfigurationBuilder.TransactionalEdit edit, boolean rebase) throws ConfigurationException {
+        while (true) {
+            VersionedConfiguration base = configuration.getSnapshot();
+            ConfigurationBuilder builder = new ConfigurationBuilder(base.getConfiguration());
+            ConfigurationDelta delta = builder.inTransaction(edit);
+            if (delta.isEmpty()) {
+                return base;
+            }
+            Optional<VersionedConfiguration> committed = configuration.commit(base.getVersion(), builder.createServerConfiguration());
+            if (committed.isPresent()) {
+                return committed.get();
+            }
+            if (rebase) {
+                committed = rebase(base, builder.getValidationMode(), delta);
+                if (committed.isPresent()) {
+                    return committed.get();
+                }
+            }
+            // run the edit again on the latest snapshot
+        }
+    }
+
+    /**
+     * Apply the given delta to the latest snapshots for as long as their changes since the base snapshot do not
+     * touch the entries that the delta changes. The rebased configurations are validated like those the edit
+     * creates itself
+     */
+    private Optional<VersionedConfiguration> rebase(VersionedConfiguration base, ValidationMode validationMode, ConfigurationDelta delta) {
+        Set<Map.Entry<ConfigurationChangeEvent.Type,Object>> touched = getTouchedEntries(delta);
+        while (true) {
+            VersionedConfiguration latest = configuration.getSnapshot();
+            if (!Collections.disjoint(touched, getTouchedEntries(ConfigurationDelta.between(base.getConfiguration(), latest.getConfiguration())))) {
+                return Optional.empty();
+            }
+            ServerConfiguration edited = new ConfigurationBuilder(delta.applyTo(latest.getConfiguration()))
+                    .setValidationMode(validationMode).createServerConfiguration();
+            Optional<VersionedConfiguration> committed = configuration.commit(latest.getVersion(), edited);
+            if (committed.isPresent()) {
+                return committed;
+            }
+        }
+    }
+
+    /**
+     * Get the entries changed by the given delta, each identified by its configuration section and key
+     */
+    private static Set<Map.Entry<ConfigurationChangeEvent.Type,Object>> getTouchedEntries(ConfigurationDelta delta) {
+        Set<Map.Entry<ConfigurationChangeEvent.Type,Object>> entries = new HashSet<>();
+        if (delta.getHost().isPresent()) {
+            entries.add(Maps.immutableEntry(ConfigurationChangeEvent.Type.HOST, ConfigurationChangeEvent.Type.HOST));
+        }
+        if (delta.getServerRoot().isPresent()) {
+            entries.add(Maps.immutableEntry(ConfigurationChangeEvent.Type.SERVER_ROOT, ConfigurationChangeEvent.Type.SERVER_ROOT));
+        }
+        addKeys(entries, ConfigurationChangeEvent.Type.POLICY, delta.getPolicy().getUpdated().keySet());
+        addKeys(entries, ConfigurationChangeEvent.Type.POLICY, delta.getPolicy().getRemoved());
+        addIds(entries, ConfigurationChangeEvent.Type.DENY_RULES, delta.getDenyRules(), Function.identity());
+        addIds(entries, ConfigurationChangeEvent.Type.TIMED_ASSIGNMENTS, delta.getTimedAssignments(), Function.identity());
+        addIds(entries, ConfigurationChangeEvent.Type.USERS, delta.getUsers(), User::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.USER_GROUPS, delta.getUserGroups(), UserGroup::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.PROJECTS, delta.getProjects(), Project::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.PROJECT_GROUPS, delta.getProjectGroups(), ProjectGroup::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.ROLES, delta.getRoles(), Role::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.OPERATIONS, delta.getOperations(), Operation::getId);
+        addIds(entries, ConfigurationChangeEvent.Type.AUTHENTICATION_DETAILS, delta.getAuthenticationDetails(), AuthenticationDetails::getUserId);
+        addKeys(entries, ConfigurationChangeEvent.Type.PROPERTIES, delta.getProperties().getUpdated().keySet());
+        addKeys(entries, ConfigurationChangeEvent.Type.PROPERTIES, delta.getProperties().getRemoved());
+        return entries;
+    }
+
+    private static void addKeys(Set<Map.Entry<ConfigurationChangeEvent.Type,Object>> entries, ConfigurationChangeEvent.Type type, Collection<?> keys) {
+        for (Object key : keys) {
+            entries.add(Maps.immutableEntry(type, key));
+        }
+    }
+
+    private static <E> void addIds(Set<Map.Entry<ConfigurationChangeEvent.Type,Object>> entries, ConfigurationChangeEvent.Type type,
+                                   SetDelta<E> delta, Function<E,?> id) {
+        for (E element : delta.getAdded()) {
+            entries.add(Maps.immutableEntry(type, id.apply(element)));
+        }
+        for (E element : delta.getRemoved()) {
+            entries.add(Maps.immutableEntry(type, id.apply(element)));
+        }
+    }
+}
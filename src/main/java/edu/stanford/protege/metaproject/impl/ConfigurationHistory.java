@@ -0,0 +1,254 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.api.OperationId;
+import edu.stanford.protege.metaproject.api.ProjectId;
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+import edu.stanford.protege.metaproject.api.UserId;
+import edu.stanford.protege.metaproject.api.exception.UnknownVersionException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.time.Instant;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A bounded history of the snapshots published to a live configuration, which allows querying the configuration
+ * as it was at a given version or point in time (e.g., to check whether a user was allowed to perform some
+ * operation at the time). Only the latest snapshot is held in full; every older version is stored as the delta
+ * that undoes the commit following it, so memory grows with the size of the changes rather than with the number
+ * of versions. Older versions are reconstructed on demand, and the most recently reconstructed ones are cached
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class ConfigurationHistory {
+    private static final int CACHE_SIZE = 8;
+    private final int capacity;
+    private final Deque<Entry> entries = new ArrayDeque<>();
+    private final Map<Long, ServerConfiguration> cache = new LinkedHashMap<Long, ServerConfiguration>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, ServerConfiguration> eldest) {
+            return size() > CACHE_SIZE;
+        }
+    };
+    private VersionedConfiguration latest;
+
+    /**
+     * Constructor. The history starts with the current snapshot of the given live configuration, and records
+     * every snapshot subsequently published to it
+     *
+     * @param configuration Live configuration
+     * @param capacity  Maximum number of versions retained, including the latest one
+     */
+    public ConfigurationHistory(@Nonnull LiveConfiguration configuration, int capacity) {
+        checkNotNull(configuration);
+        checkArgument(capacity > 0, "The history capacity must be positive");
+        this.capacity = capacity;
+        configuration.addCommitListener(this::committed);
+        synchronized (this) {
+            if (latest == null) {
+                latest = configuration.getSnapshot();
+            }
+        }
+    }
+
+    private synchronized void committed(VersionedConfiguration previous, VersionedConfiguration current, ConfigurationDelta delta) {
+        if (latest == null) {
+            latest = previous;
+        }
+        if (capacity > 1) {
+            entries.addLast(new Entry(latest.getVersion(), latest.getTimestamp(), delta.invert(latest.getConfiguration())));
+        }
+        latest = current;
+        while (entries.size() >= capacity) {
+            cache.remove(entries.removeFirst().version);
+        }
+    }
+
+    /**
+     * Get the latest version recorded in the history
+     *
+     * @return Version number
+     */
+    public synchronized long getLatestVersion() {
+        return latest.getVersion();
+    }
+
+    /**
+     * Get the oldest version still retained in the history
+     *
+     * @return Version number
+     */
+    public synchronized long getOldestVersion() {
+        return entries.isEmpty() ? latest.getVersion() : entries.getFirst().version;
+    }
+
+    /**
+     * Get the snapshot with the given version
+     *
+     * @param version   Version number
+     * @return Versioned configuration, or an empty optional if the version is not retained in the history
+     */
+    @Nonnull
+    public synchronized Optional<VersionedConfiguration> getSnapshot(long version) {
+        if (version == latest.getVersion()) {
+            return Optional.of(latest);
+        }
+        for (Entry entry : entries) {
+            if (entry.version == version) {
+                return Optional.of(materialize(entry));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get the snapshot that was current at the given time
+     *
+     * @param time  Point in time
+     * @return Versioned configuration, or an empty optional if the history does not reach back to the given time
+     */
+    @Nonnull
+    public synchronized Optional<VersionedConfiguration> getSnapshot(@Nonnull Instant time) {
+        long millis = checkNotNull(time).toEpochMilli();
+        if (latest.getTimestamp() <= millis) {
+            return Optional.of(latest);
+        }
+        Iterator<Entry> iterator = entries.descendingIterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.timestamp <= millis) {
+                return Optional.of(materialize(entry));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Get the server configuration with the given version
+     *
+     * @param version   Version number
+     * @return Server configuration
+     * @throws UnknownVersionException  Version is not retained in the history
+     */
+    @Nonnull
+    public ServerConfiguration getConfiguration(long version) throws UnknownVersionException {
+        return getSnapshot(version).orElseThrow(() -> new UnknownVersionException("Version " + version +
+                " is not retained in the configuration history")).getConfiguration();
+    }
+
+    /**
+     * Get the server configuration that was current at the given time
+     *
+     * @param time  Point in time
+     * @return Server configuration
+     * @throws UnknownVersionException  History does not reach back to the given time
+     */
+    @Nonnull
+    public ServerConfiguration getConfiguration(@Nonnull Instant time) throws UnknownVersionException {
+        return getSnapshot(time).orElseThrow(() -> new UnknownVersionException("The configuration history does not reach back to " +
+                time)).getConfiguration();
+    }
+
+    /**
+     * Check whether the specified operation was allowed for the given user within the project at the given version
+     *
+     * @param version   Version number
+     * @param operationId   Operation identifier
+     * @param projectId Project identifier
+     * @param userId    User identifier
+     * @return true if user was allowed to carry out the specified operation within the project, false otherwise
+     * @throws UnknownVersionException  Version is not retained in the history
+     */
+    public boolean isOperationAllowed(long version, @Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId)
+            throws UnknownVersionException {
+        return getConfiguration(version).isOperationAllowed(operationId, projectId, userId);
+    }
+
+    /**
+     * Check whether the specified operation was allowed for the given user within the project at the given time
+     *
+     * @param time  Point in time
+     * @param operationId   Operation identifier
+     * @param projectId Project identifier
+     * @param userId    User identifier
+     * @return true if user was allowed to carry out the specified operation within the project, false otherwise
+     * @throws UnknownVersionException  History does not reach back to the given time
+     */
+    public boolean isOperationAllowed(@Nonnull Instant time, @Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId)
+            throws UnknownVersionException {
+        return getConfiguration(time).isOperationAllowed(operationId, projectId, userId);
+    }
+
+    /**
+     * Check whether the specified operation was allowed for the given user at the given version
+     *
+     * @param version   Version number
+     * @param operationId   Operation identifier
+     * @param userId    User identifier
+     * @return true if user was allowed to carry out the specified operation, false otherwise
+     * @throws UnknownVersionException  Version is not retained in the history
+     */
+    public boolean isOperationAllowed(long version, @Nonnull OperationId operationId, @Nonnull UserId userId) throws UnknownVersionException {
+        return getConfiguration(version).isOperationAllowed(operationId, userId);
+    }
+
+    /**
+     * Check whether the specified operation was allowed for the given user at the given time
+     *
+     * @param time  Point in time
+     * @param operationId   Operation identifier
+     * @param userId    User identifier
+     * @return true if user was allowed to carry out the specified operation, false otherwise
+     * @throws UnknownVersionException  History does not reach back to the given time
+     */
+    public boolean isOperationAllowed(@Nonnull Instant time, @Nonnull OperationId operationId, @Nonnull UserId userId) throws UnknownVersionException {
+        return getConfiguration(time).isOperationAllowed(operationId, userId);
+    }
+
+    /**
+     * Reconstruct the configuration of the given entry by composing the undo deltas from the latest version (or from
+     * the closest newer version that is cached) down to the entry, and applying the result in a single step
+     */
+    private VersionedConfiguration materialize(Entry target) {
+        ServerConfiguration config = cache.get(target.version);
+        if (config == null) {
+            ServerConfiguration start = latest.getConfiguration();
+            ConfigurationDelta undo = ConfigurationDelta.empty();
+            long position = latest.getVersion();
+            Iterator<Entry> iterator = entries.descendingIterator();
+            while (iterator.hasNext()) {
+                Entry entry = iterator.next();
+                ServerConfiguration cached = cache.get(position);
+                if (cached != null) {
+                    start = cached;
+                    undo = ConfigurationDelta.empty();
+                }
+                undo = undo.andThen(entry.undo);
+                position = entry.version;
+                if (entry == target) {
+                    break;
+                }
+            }
+            config = undo.applyTo(start);
+            cache.put(target.version, config);
+        }
+        return new VersionedConfiguration(target.version, target.timestamp, config);
+    }
+
+    private static final class Entry {
+        private final long version, timestamp;
+        private final ConfigurationDelta undo;
+
+        private Entry(long version, long timestamp, ConfigurationDelta undo) {
+            this.version = version;
+            this.timestamp = timestamp;
+            this.undo = undo;
+        }
+    }
+}
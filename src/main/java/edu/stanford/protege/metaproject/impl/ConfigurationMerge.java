@@ -0,0 +1,409 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The three-way merge of two server configurations derived from a common base configuration. Changes made on only
+ * one side are merged automatically, as are identical changes made on both sides. Role assignments are merged per
+ * user and project, so that roles granted or revoked on either side are combined, and likewise deny rules added or
+ * removed on either side are combined. A policy object, property or setting that was changed differently on both
+ * sides is a conflict: the merged configuration keeps the left-hand version of it, and the conflict is reported.
+ * Changes that merge cleanly section by section may still clash, as when one side removes a role that the other
+ * side assigns; every element that the merge leaves with such a dangling reference is reported as a conflict too,
+ * and kept as merged. Sections are compared through their persistent collections, so merging them
+ * takes time proportional to the number of changes on both sides, while the final reference check visits the
+ * whole merged configuration
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class ConfigurationMerge {
+    @Nonnull private final ServerConfiguration mergedConfiguration;
+    @Nonnull private final ImmutableList<Conflict> conflicts;
+
+    private ConfigurationMerge(@Nonnull ServerConfiguration mergedConfiguration, @Nonnull List<Conflict> conflicts) {
+        this.mergedConfiguration = checkNotNull(mergedConfiguration);
+        this.conflicts = ImmutableList.copyOf(checkNotNull(conflicts));
+    }
+
+    /**
+     * Merge the changes made to the given base configuration in the left and right configurations
+     *
+     * @param base  Common base configuration
+     * @param left  Configuration derived from the base, whose version wins on conflicts
+     * @param right Configuration derived from the base
+     * @return Merge result
+     */
+    @Nonnull
+    public static ConfigurationMerge merge(@Nonnull ServerConfiguration base, @Nonnull ServerConfiguration left, @Nonnull ServerConfiguration right) {
+        ServerConfigurationImpl b = ServerConfigurationImpl.from(checkNotNull(base)), l = ServerConfigurationImpl.from(checkNotNull(left)),
+                r = ServerConfigurationImpl.from(checkNotNull(right));
+        List<Conflict> conflicts = new ArrayList<>();
+        Host host = mergeValue(ConfigurationChangeEvent.Type.HOST, b.getHost(), l.getHost(), r.getHost(), conflicts);
+        String root = mergeValue(ConfigurationChangeEvent.Type.SERVER_ROOT, b.getServerRoot(), l.getServerRoot(), r.getServerRoot(), conflicts);
+        ServerConfigurationImpl merged = new ServerConfigurationImpl(host, root,
+                merge(b.persistentPolicyMap(), l.persistentPolicyMap(), r.persistentPolicyMap(), (userId, before, ours, theirs) -> {
+                    if (ours != null && theirs != null) {
+                        Optional<Map<ProjectId, Set<RoleId>>> assignments = mergeAssignments(before, ours, theirs);
+                        if (assignments.isPresent()) {
+                            return assignments.get();
+                        }
+                    }
+                    conflicts.add(new Conflict(ConfigurationChangeEvent.Type.POLICY, userId, before, ours, theirs));
+                    return ours;
+                }),
+                mergeSets(b.persistentDenyRules(), l.persistentDenyRules(), r.persistentDenyRules()),
+                mergeSets(b.persistentTimedAssignments(), l.persistentTimedAssignments(), r.persistentTimedAssignments()),
+                merge(b.persistentUsers(), l.persistentUsers(), r.persistentUsers(), reporter(ConfigurationChangeEvent.Type.USERS, conflicts)),
+                merge(b.persistentUserGroups(), l.persistentUserGroups(), r.persistentUserGroups(),
+                        reporter(ConfigurationChangeEvent.Type.USER_GROUPS, conflicts)),
+                merge(b.persistentProjects(), l.persistentProjects(), r.persistentProjects(), reporter(ConfigurationChangeEvent.Type.PROJECTS, conflicts)),
+                merge(b.persistentProjectGroups(), l.persistentProjectGroups(), r.persistentProjectGroups(),
+                        reporter(ConfigurationChangeEvent.Type.PROJECT_GROUPS, conflicts)),
+                merge(b.persistentRoles(), l.persistentRoles(), r.persistentRoles(), reporter(ConfigurationChangeEvent.Type.ROLES, conflicts)),
+                merge(b.persistentOperations(), l.persistentOperations(), r.persistentOperations(),
+                        reporter(ConfigurationChangeEvent.Type.OPERATIONS, conflicts)),
+                merge(b.persistentAuthenticationDetails(), l.persistentAuthenticationDetails(), r.persistentAuthenticationDetails(),
+                        reporter(ConfigurationChangeEvent.Type.AUTHENTICATION_DETAILS, conflicts)),
+                merge(b.persistentProperties(), l.persistentProperties(), r.persistentProperties(),
+                        reporter(ConfigurationChangeEvent.Type.PROPERTIES, conflicts)));
+        reportDanglingReferences(b, l, r, merged, conflicts);
+        return new ConfigurationMerge(merged, conflicts);
+    }
+
+    /**
+     * Report the elements of the merged configuration that refer to policy objects removed on the other side, such
+     * as a role assignment added on one side for a role removed on the other. Elements that already dangled on
+     * either side, or are already in conflict, are not reported
+     */
+    private static void reportDanglingReferences(ServerConfigurationImpl base, ServerConfigurationImpl left, ServerConfigurationImpl right,
+                                                 ServerConfigurationImpl merged, List<Conflict> conflicts) {
+        Set<List<Object>> reported = new HashSet<>();
+        for (Conflict conflict : conflicts) {
+            reported.add(Arrays.asList(conflict.getSection(), conflict.getKey()));
+        }
+        ConfigurationValidator.forEachDanglingElement(left, (section, key) -> reported.add(Arrays.asList(section, key)));
+        ConfigurationValidator.forEachDanglingElement(right, (section, key) -> reported.add(Arrays.asList(section, key)));
+        ConfigurationValidator.forEachDanglingElement(merged, (section, key) -> {
+            if (reported.add(Arrays.asList(section, key))) {
+                conflicts.add(new Conflict(section, key, element(base, section, key), element(left, section, key),
+                        element(right, section, key)));
+            }
+        });
+    }
+
+    @Nullable
+    private static Object element(ServerConfigurationImpl config, ConfigurationChangeEvent.Type section, Object key) {
+        switch (section) {
+            case POLICY:
+                return config.persistentPolicyMap().get(key);
+            case ROLES:
+                return config.persistentRoles().get(key);
+            case USER_GROUPS:
+                return config.persistentUserGroups().get(key);
+            case PROJECT_GROUPS:
+                return config.persistentProjectGroups().get(key);
+            case DENY_RULES:
+                return config.persistentDenyRules().contains(key) ? key : null;
+            case TIMED_ASSIGNMENTS:
+                return config.persistentTimedAssignments().contains(key) ? key : null;
+            default:
+                throw new IllegalArgumentException("Unexpected section " + section);
+        }
+    }
+
+    private static <T> T mergeValue(ConfigurationChangeEvent.Type type, T base, T left, T right, List<Conflict> conflicts) {
+        if (left.equals(right) || right.equals(base)) {
+            return left;
+        }
+        if (left.equals(base)) {
+            return right;
+        }
+        conflicts.add(new Conflict(type, type, base, left, right));
+        return left;
+    }
+
+    private static <K,V> Resolver<K,V> reporter(ConfigurationChangeEvent.Type type, List<Conflict> conflicts) {
+        return (key, before, ours, theirs) -> {
+            conflicts.add(new Conflict(type, key, before, ours, theirs));
+            return ours;
+        };
+    }
+
+    /**
+     * Merge the role assignments of a user changed on both sides, or return an empty optional if a project's
+     * assignments were removed on one side and changed on the other
+     */
+    private static Optional<Map<ProjectId, Set<RoleId>>> mergeAssignments(@Nullable Map<ProjectId, Set<RoleId>> base,
+                                                                       Map<ProjectId, Set<RoleId>> left, Map<ProjectId, Set<RoleId>> right) {
+        boolean[] conflict = new boolean[1];
+        PersistentHashMap<ProjectId, Set<RoleId>> merged = merge(
+                base != null ? PersistentHashMap.copyOf(base) : PersistentHashMap.empty(),
+                PersistentHashMap.copyOf(left), PersistentHashMap.copyOf(right), (projectId, before, ours, theirs) -> {
+                    if (ours == null || theirs == null) {
+                        conflict[0] = true;
+                        return ours;
+                    }
+                    return mergeSets(before != null ? PersistentHashSet.copyOf(before) : PersistentHashSet.empty(),
+                            PersistentHashSet.copyOf(ours), PersistentHashSet.copyOf(theirs));
+                });
+        return conflict[0] ? Optional.empty() : Optional.of(merged);
+    }
+
+    private static <E> PersistentHashSet<E> mergeSets(PersistentHashSet<E> base, PersistentHashSet<E> left, PersistentHashSet<E> right) {
+        List<E> added = new ArrayList<>(), removed = new ArrayList<>();
+        base.diff(right, added::add, removed::add);
+        return left.plusAll(added).minusAll(removed);
+    }
+
+    /**
+     * Merge the changes made to the base map on both sides, starting from the left-hand map and applying the
+     * right-hand changes to it. Keys changed differently on both sides are settled by the given resolver
+     */
+    private static <K,V> PersistentHashMap<K,V> merge(PersistentHashMap<K,V> base, PersistentHashMap<K,V> left,
+                                                      PersistentHashMap<K,V> right, Resolver<K,V> resolver) {
+        if (right == base || left == right) {
+            return left;
+        }
+        if (left == base) {
+            return right;
+        }
+        Map<K,V> ours = changes(base, left), theirs = changes(base, right), updates = new HashMap<>();
+        List<K> removals = new ArrayList<>();
+        for (Map.Entry<K,V> change : theirs.entrySet()) {
+            K key = change.getKey();
+            V value = change.getValue();
+            if (ours.containsKey(key)) {
+                V current = ours.get(key);
+                if (Objects.equal(current, value)) {
+                    continue;
+                }
+                value = resolver.resolve(key, base.get(key), current, value);
+                if (value == current) {
+                    continue;
+                }
+            }
+            if (value != null) {
+                updates.put(key, value);
+            } else {
+                removals.add(key);
+            }
+        }
+        return left.plusAll(updates).minusAll(removals);
+    }
+
+    /**
+     * Get the keys whose entries differ between the given maps, each mapped to its new value, or to null if removed
+     */
+    private static <K,V> Map<K,V> changes(PersistentHashMap<K,V> from, PersistentHashMap<K,V> to) {
+        Map<K,V> changes = new HashMap<>();
+        from.diff(to, new PersistentHashMap.DiffVisitor<K,V>() {
+            @Override
+            public void added(@Nonnull K key, @Nonnull V value) {
+                changes.put(key, value);
+            }
+
+            @Override
+            public void removed(@Nonnull K key, @Nonnull V value) {
+                changes.put(key, null);
+            }
+
+            @Override
+            public void changed(@Nonnull K key, @Nonnull V oldValue, @Nonnull V newValue) {
+                changes.put(key, newValue);
+            }
+        });
+        return changes;
+    }
+
+    /**
+     * Get the merged configuration. Where there are conflicts, it holds the left-hand version
+     *
+     * @return Merged server configuration
+     */
+    @Nonnull
+    public ServerConfiguration getMergedConfiguration() {
+        return mergedConfiguration;
+    }
+
+    /**
+     * Get the conflicting changes
+     *
+     * @return List of conflicts
+     */
+    @Nonnull
+    public ImmutableList<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Check whether any change conflicts
+     *
+     * @return true if there is at least one conflict, false otherwise
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ConfigurationMerge)) {
+            return false;
+        }
+        ConfigurationMerge that = (ConfigurationMerge) o;
+        return Objects.equal(mergedConfiguration, that.mergedConfiguration) &&
+                Objects.equal(conflicts, that.conflicts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(mergedConfiguration, conflicts);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("mergedConfiguration", mergedConfiguration)
+                .add("conflicts", conflicts)
+                .toString();
+    }
+
+    /**
+     * Settles a key changed differently on both sides, returning the value to keep (null to remove the key)
+     */
+    @FunctionalInterface
+    private interface Resolver<K,V> {
+        V resolve(K key, V base, V left, V right);
+    }
+
+    /**
+     * A change made differently on both sides, or an element left with a dangling reference by the merge. The key
+     * identifies the element within its section: a policy object identifier, a user identifier for role assignments,
+     * the deny rule or timed assignment itself, a property key, or the section type itself for the host and server
+     * root. Absent values denote an element that did not exist or was removed
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Conflict {
+        @Nonnull private final ConfigurationChangeEvent.Type section;
+        @Nonnull private final Object key;
+        @Nullable private final Object base, left, right;
+
+        /**
+         * Constructor
+         *
+         * @param section   Configuration section
+         * @param key   Key of the conflicting element within the section
+         * @param base  Base value, or null if absent
+         * @param left  Left-hand value, or null if absent
+         * @param right Right-hand value, or null if absent
+         */
+        public Conflict(@Nonnull ConfigurationChangeEvent.Type section, @Nonnull Object key, @Nullable Object base,
+                        @Nullable Object left, @Nullable Object right) {
+            this.section = checkNotNull(section);
+            this.key = checkNotNull(key);
+            this.base = base;
+            this.left = left;
+            this.right = right;
+        }
+
+        /**
+         * Get the configuration section of the conflicting element
+         *
+         * @return Section type
+         */
+        @Nonnull
+        public ConfigurationChangeEvent.Type getSection() {
+            return section;
+        }
+
+        /**
+         * Get the key of the conflicting element within its section
+         *
+         * @return Element key
+         */
+        @Nonnull
+        public Object getKey() {
+            return key;
+        }
+
+        /**
+         * Get the value in the base configuration
+         *
+         * @return Optional base value
+         */
+        @Nonnull
+        public Optional<Object> getBase() {
+            return Optional.ofNullable(base);
+        }
+
+        /**
+         * Get the value in the left-hand configuration
+         *
+         * @return Optional left-hand value
+         */
+        @Nonnull
+        public Optional<Object> getLeft() {
+            return Optional.ofNullable(left);
+        }
+
+        /**
+         * Get the value in the right-hand configuration
+         *
+         * @return Optional right-hand value
+         */
+        @Nonnull
+        public Optional<Object> getRight() {
+            return Optional.ofNullable(right);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Conflict)) {
+                return false;
+            }
+            Conflict that = (Conflict) o;
+            return section == that.section &&
+                    Objects.equal(key, that.key) &&
+                    Objects.equal(base, that.base) &&
+                    Objects.equal(left, that.left) &&
+                    Objects.equal(right, that.right);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(section, key, base, left, right);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("section", section)
+                    .add("key", key)
+                    .add("base", base)
+                    .add("left", left)
+                    .add("right", right)
+                    .toString();
+        }
+    }
+}
@@ -0,0 +1,424 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.exception.DanglingReferenceException;
+import edu.stanford.protege.metaproject.api.exception.RoleCycleException;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Checks that the policy of a server configuration only refers to existing users, projects and roles, that roles
+ * only refer to existing operations and roles, that user groups only refer to existing users, groups, projects and
+ * roles, that deny rules only refer to existing users, groups, projects and operations, that timed role assignments
+ * only refer to existing users, projects and roles, and that project groups only list existing projects. The policy,
+ * user groups, deny rules and timed assignments may refer to a project group or to the universal project in place of
+ * a project. Policy entries, roles, user groups, deny rules, timed assignments and project groups are checked in
+ * parallel against the configuration's identifier indexes, so each reference costs a single hash lookup. When
+ * failing fast, roles are also checked not to include themselves, directly or through other roles, in a single
+ * depth-first search over role inclusions
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+final class ConfigurationValidator {
+    private static final int PARALLEL_THRESHOLD = 512;
+
+    private ConfigurationValidator() { }
+
+    /**
+     * Validate the references of the given configuration
+     *
+     * @param config    Server configuration
+     * @param mode  Validation mode
+     * @param factory   Policy factory, used to rebuild pruned roles
+     * @return The given configuration, or a configuration without dangling references if pruning removed any
+     * @throws DanglingReferenceException   A reference is dangling, or a role includes itself, and the mode is
+     * {@link ValidationMode#FAIL_FAST}
+     */
+    @Nonnull
+    static ServerConfigurationImpl validate(@Nonnull ServerConfigurationImpl config, @Nonnull ValidationMode mode, @Nonnull PolicyFactory factory) {
+        checkNotNull(config);
+        checkNotNull(factory);
+        switch (checkNotNull(mode)) {
+            case FAIL_FAST:
+                checkReferences(config);
+                return config;
+            case PRUNE:
+                return prune(config, factory);
+            default:
+                return config;
+        }
+    }
+
+    private static <T> Stream<T> stream(Collection<T> collection) {
+        return collection.size() >= PARALLEL_THRESHOLD ? collection.parallelStream() : collection.stream();
+    }
+
+    private static void checkReferences(ServerConfigurationImpl config) {
+        Optional<String> dangling = stream(config.persistentPolicyMap().entrySet())
+                .map(entry -> findDanglingReference(config, entry.getKey(), entry.getValue()))
+                .filter(Objects::nonNull)
+                .findAny();
+        if (!dangling.isPresent()) {
+            dangling = stream(config.persistentRoles().values())
+                    .map(role -> findDanglingReference(config, role))
+                    .filter(Objects::nonNull)
+                    .findAny();
+        }
+        if (!dangling.isPresent()) {
+            dangling = stream(config.persistentUserGroups().values())
+                    .map(group -> findDanglingReference(config, group))
+                    .filter(Objects::nonNull)
+                    .findAny();
+        }
+        if (!dangling.isPresent()) {
+            dangling = stream(config.persistentDenyRules())
+                    .map(rule -> findDanglingReference(config, rule))
+                    .filter(Objects::nonNull)
+                    .findAny();
+        }
+        if (!dangling.isPresent()) {
+            dangling = stream(config.persistentTimedAssignments())
+                    .map(assignment -> findDanglingReference(config, assignment))
+                    .filter(Objects::nonNull)
+                    .findAny();
+        }
+        if (!dangling.isPresent()) {
+            dangling = stream(config.persistentProjectGroups().values())
+                    .map(group -> findDanglingReference(config, group))
+                    .filter(Objects::nonNull)
+                    .findAny();
+        }
+        if (dangling.isPresent()) {
+            throw new DanglingReferenceException(dangling.get());
+        }
+        RoleId cyclic = findRoleCycle(config.persistentRoles());
+        if (cyclic != null) {
+            String message = "The role '" + cyclic.get() + "' includes itself through the roles it includes";
+            throw new DanglingReferenceException(message, new RoleCycleException(message));
+        }
+    }
+
+    /**
+     * Find a role that transitively includes itself, by a depth-first search over role inclusions that visits each
+     * role and inclusion once
+     *
+     * @return Identifier of a role on a cycle of inclusions, or null if there is no such cycle
+     */
+    private static RoleId findRoleCycle(Map<RoleId, Role> roles) {
+        Set<RoleId> finished = new HashSet<>(), onPath = new HashSet<>();
+        for (RoleId start : roles.keySet()) {
+            if (finished.contains(start)) {
+                continue;
+            }
+            // each frame holds a role on the current path and the iterator over the roles it includes
+            Deque<Map.Entry<RoleId, Iterator<RoleId>>> path = new ArrayDeque<>();
+            path.push(new AbstractMap.SimpleImmutableEntry<>(start, roles.get(start).getIncludedRoles().iterator()));
+            onPath.add(start);
+            while (!path.isEmpty()) {
+                Iterator<RoleId> included = path.peek().getValue();
+                if (!included.hasNext()) {
+                    RoleId done = path.pop().getKey();
+                    onPath.remove(done);
+                    finished.add(done);
+                    continue;
+                }
+                RoleId next = included.next();
+                if (onPath.contains(next)) {
+                    return next;
+                }
+                Role role = roles.get(next);
+                if (role != null && !finished.contains(next)) {
+                    path.push(new AbstractMap.SimpleImmutableEntry<>(next, role.getIncludedRoles().iterator()));
+                    onPath.add(next);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Visit every element of the given configuration that holds a dangling reference, identified by its section and
+     * by its key within the section: a user identifier for role assignments, the element itself for deny rules and
+     * timed assignments, or the policy object identifier otherwise
+     *
+     * @param config    Server configuration
+     * @param action    Action applied to the section and key of each element
+     */
+    static void forEachDanglingElement(@Nonnull ServerConfigurationImpl config, @Nonnull BiConsumer<ConfigurationChangeEvent.Type, Object> action) {
+        checkNotNull(config);
+        checkNotNull(action);
+        config.persistentPolicyMap().forEach((userId, assignments) -> {
+            if (findDanglingReference(config, userId, assignments) != null) {
+                action.accept(ConfigurationChangeEvent.Type.POLICY, userId);
+            }
+        });
+        config.persistentRoles().forEach((roleId, role) -> {
+            if (findDanglingReference(config, role) != null) {
+                action.accept(ConfigurationChangeEvent.Type.ROLES, roleId);
+            }
+        });
+        config.persistentUserGroups().forEach((groupId, group) -> {
+            if (findDanglingReference(config, group) != null) {
+                action.accept(ConfigurationChangeEvent.Type.USER_GROUPS, groupId);
+            }
+        });
+        for (DenyRule rule : config.persistentDenyRules()) {
+            if (findDanglingReference(config, rule) != null) {
+                action.accept(ConfigurationChangeEvent.Type.DENY_RULES, rule);
+            }
+        }
+        for (TimedAssignment assignment : config.persistentTimedAssignments()) {
+            if (findDanglingReference(config, assignment) != null) {
+                action.accept(ConfigurationChangeEvent.Type.TIMED_ASSIGNMENTS, assignment);
+            }
+        }
+        config.persistentProjectGroups().forEach((groupId, group) -> {
+            if (findDanglingReference(config, group) != null) {
+                action.accept(ConfigurationChangeEvent.Type.PROJECT_GROUPS, groupId);
+            }
+        });
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, UserId userId, Map<ProjectId, Set<RoleId>> assignments) {
+        if (!config.persistentUsers().containsKey(userId)) {
+            return "The access control policy refers to the unknown user '" + userId.get() + "'";
+        }
+        for (Map.Entry<ProjectId, Set<RoleId>> assignment : assignments.entrySet()) {
+            if (!isKnownProject(config, assignment.getKey())) {
+                return "The access control policy refers to the unknown project '" + assignment.getKey().get() + "'";
+            }
+            for (RoleId roleId : assignment.getValue()) {
+                if (!config.persistentRoles().containsKey(roleId)) {
+                    return "The access control policy refers to the unknown role '" + roleId.get() + "'";
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, Role role) {
+        for (OperationId operationId : role.getOperations()) {
+            if (!config.persistentOperations().containsKey(operationId)) {
+                return "The role '" + role.getId().get() + "' refers to the unknown operation '" + operationId.get() + "'";
+            }
+        }
+        for (RoleId roleId : role.getIncludedRoles()) {
+            if (!config.persistentRoles().containsKey(roleId)) {
+                return "The role '" + role.getId().get() + "' includes the unknown role '" + roleId.get() + "'";
+            }
+        }
+        return null;
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, UserGroup group) {
+        for (UserId userId : group.getMembers()) {
+            if (!config.persistentUsers().containsKey(userId)) {
+                return "The user group '" + group.getId().get() + "' refers to the unknown user '" + userId.get() + "'";
+            }
+        }
+        for (UserGroupId groupId : group.getSubgroups()) {
+            if (!config.persistentUserGroups().containsKey(groupId)) {
+                return "The user group '" + group.getId().get() + "' refers to the unknown user group '" + groupId.get() + "'";
+            }
+        }
+        for (Map.Entry<ProjectId, ImmutableSet<RoleId>> assignment : group.getAssignments().entrySet()) {
+            if (!isKnownProject(config, assignment.getKey())) {
+                return "The user group '" + group.getId().get() + "' refers to the unknown project '" + assignment.getKey().get() + "'";
+            }
+            for (RoleId roleId : assignment.getValue()) {
+                if (!config.persistentRoles().containsKey(roleId)) {
+                    return "The user group '" + group.getId().get() + "' refers to the unknown role '" + roleId.get() + "'";
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, DenyRule rule) {
+        if (rule.getUserId().isPresent() && !config.persistentUsers().containsKey(rule.getUserId().get())) {
+            return "A deny rule refers to the unknown user '" + rule.getUserId().get().get() + "'";
+        }
+        if (rule.getUserGroupId().isPresent() && !config.persistentUserGroups().containsKey(rule.getUserGroupId().get())) {
+            return "A deny rule refers to the unknown user group '" + rule.getUserGroupId().get().get() + "'";
+        }
+        if (!isKnownProject(config, rule.getProjectId())) {
+            return "A deny rule refers to the unknown project '" + rule.getProjectId().get() + "'";
+        }
+        for (OperationId operationId : rule.getOperations()) {
+            if (!config.persistentOperations().containsKey(operationId)) {
+                return "A deny rule refers to the unknown operation '" + operationId.get() + "'";
+            }
+        }
+        return null;
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, TimedAssignment assignment) {
+        if (!config.persistentUsers().containsKey(assignment.getUserId())) {
+            return "A timed role assignment refers to the unknown user '" + assignment.getUserId().get() + "'";
+        }
+        if (!isKnownProject(config, assignment.getProjectId())) {
+            return "A timed role assignment refers to the unknown project '" + assignment.getProjectId().get() + "'";
+        }
+        if (!config.persistentRoles().containsKey(assignment.getRoleId())) {
+            return "A timed role assignment refers to the unknown role '" + assignment.getRoleId().get() + "'";
+        }
+        return null;
+    }
+
+    private static String findDanglingReference(ServerConfigurationImpl config, ProjectGroup group) {
+        for (ProjectId projectId : group.getProjects()) {
+            if (!config.persistentProjects().containsKey(projectId)) {
+                return "The project group '" + group.getId().get() + "' refers to the unknown project '" + projectId.get() + "'";
+            }
+        }
+        return null;
+    }
+
+    private static boolean isKnownProject(ServerConfigurationImpl config, ProjectId projectId) {
+        return config.persistentProjects().containsKey(projectId) || config.persistentProjectGroups().containsKey(projectId) ||
+                projectId.equals(ConfigurationUtils.getUniversalProjectId());
+    }
+
+    private static ServerConfigurationImpl prune(ServerConfigurationImpl config, PolicyFactory factory) {
+        PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap = config.persistentPolicyMap();
+        PersistentHashMap<RoleId, Role> roles = config.persistentRoles();
+        Map<UserId, Optional<Map<ProjectId, Set<RoleId>>>> policyUpdates = stream(policyMap.entrySet())
+                .filter(entry -> findDanglingReference(config, entry.getKey(), entry.getValue()) != null)
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> prune(config, entry.getKey(), entry.getValue())));
+        List<Role> roleUpdates = stream(roles.values())
+                .filter(role -> findDanglingReference(config, role) != null)
+                .map(role -> prune(config, role, factory))
+                .collect(Collectors.toList());
+        List<UserGroup> groupUpdates = stream(config.persistentUserGroups().values())
+                .filter(group -> findDanglingReference(config, group) != null)
+                .map(group -> prune(config, group, factory))
+                .collect(Collectors.toList());
+        List<DenyRule> danglingRules = stream(config.persistentDenyRules())
+                .filter(rule -> findDanglingReference(config, rule) != null)
+                .collect(Collectors.toList());
+        List<ProjectGroup> projectGroupUpdates = stream(config.persistentProjectGroups().values())
+                .filter(group -> findDanglingReference(config, group) != null)
+                .map(group -> prune(config, group, factory))
+                .collect(Collectors.toList());
+        List<TimedAssignment> danglingAssignments = stream(config.persistentTimedAssignments())
+                .filter(assignment -> findDanglingReference(config, assignment) != null)
+                .collect(Collectors.toList());
+        if (policyUpdates.isEmpty() && roleUpdates.isEmpty() && groupUpdates.isEmpty() && danglingRules.isEmpty() &&
+                projectGroupUpdates.isEmpty() && danglingAssignments.isEmpty()) {
+            return config;
+        }
+        PersistentHashSet<DenyRule> denyRules = config.persistentDenyRules().minusAll(danglingRules);
+        for (DenyRule rule : danglingRules) {
+            Optional<DenyRule> pruned = prune(config, rule, factory);
+            if (pruned.isPresent()) {
+                denyRules = denyRules.plus(pruned.get());
+            }
+        }
+        Map<UserId, Map<ProjectId, Set<RoleId>>> updated = new HashMap<>();
+        List<UserId> removed = new ArrayList<>();
+        policyUpdates.forEach((userId, assignments) -> {
+            if (assignments.isPresent()) {
+                updated.put(userId, assignments.get());
+            } else {
+                removed.add(userId);
+            }
+        });
+        return new ServerConfigurationImpl(config.getHost(), config.getServerRoot(), policyMap.plusAll(updated).minusAll(removed), denyRules,
+                config.persistentTimedAssignments().minusAll(danglingAssignments),
+                config.persistentUsers(), config.persistentUserGroups().plusAll(ServerConfigurationImpl.index(groupUpdates, UserGroup::getId)),
+                config.persistentProjects(),
+                config.persistentProjectGroups().plusAll(ServerConfigurationImpl.index(projectGroupUpdates, ProjectGroup::getId)),
+                roles.plusAll(ServerConfigurationImpl.index(roleUpdates, Role::getId)),
+                config.persistentOperations(), config.persistentAuthenticationDetails(), config.persistentProperties());
+    }
+
+    /**
+     * Get the given user's assignments without unknown projects and roles, and without the projects left with no
+     * roles, or an empty optional if the user is unknown or has no assignments left
+     */
+    private static Optional<Map<ProjectId, Set<RoleId>>> prune(ServerConfigurationImpl config, UserId userId, Map<ProjectId, Set<RoleId>> assignments) {
+        if (!config.persistentUsers().containsKey(userId)) {
+            return Optional.empty();
+        }
+        PersistentHashMap<ProjectId, Set<RoleId>> pruned = PersistentHashMap.copyOf(assignments);
+        for (Map.Entry<ProjectId, Set<RoleId>> assignment : assignments.entrySet()) {
+            if (!isKnownProject(config, assignment.getKey())) {
+                pruned = pruned.minus(assignment.getKey());
+                continue;
+            }
+            List<RoleId> unknown = assignment.getValue().stream()
+                    .filter(roleId -> !config.persistentRoles().containsKey(roleId))
+                    .collect(Collectors.toList());
+            if (!unknown.isEmpty()) {
+                PersistentHashSet<RoleId> known = PersistentHashSet.copyOf(assignment.getValue()).minusAll(unknown);
+                pruned = known.isEmpty() ? pruned.minus(assignment.getKey()) : pruned.plus(assignment.getKey(), known);
+            }
+        }
+        return pruned.isEmpty() ? Optional.empty() : Optional.of(pruned);
+    }
+
+    private static Role prune(ServerConfigurationImpl config, Role role, PolicyFactory factory) {
+        Set<OperationId> operations = role.getOperations().stream()
+                .filter(config.persistentOperations()::containsKey)
+                .collect(Collectors.toSet());
+        Set<RoleId> includedRoles = role.getIncludedRoles().stream()
+                .filter(config.persistentRoles()::containsKey)
+                .collect(Collectors.toSet());
+        return factory.getRole(role.getId(), role.getName(), role.getDescription(), operations, includedRoles);
+    }
+
+    private static UserGroup prune(ServerConfigurationImpl config, UserGroup group, PolicyFactory factory) {
+        Set<UserId> members = group.getMembers().stream()
+                .filter(config.persistentUsers()::containsKey)
+                .collect(Collectors.toSet());
+        Set<UserGroupId> subgroups = group.getSubgroups().stream()
+                .filter(config.persistentUserGroups()::containsKey)
+                .collect(Collectors.toSet());
+        Map<ProjectId, Set<RoleId>> assignments = new HashMap<>();
+        group.getAssignments().forEach((projectId, roleIds) -> {
+            Set<RoleId> known = roleIds.stream().filter(config.persistentRoles()::containsKey).collect(Collectors.toSet());
+            if (isKnownProject(config, projectId) && !known.isEmpty()) {
+                assignments.put(projectId, known);
+            }
+        });
+        return factory.getUserGroup(group.getId(), group.getName(), group.getDescription(), members, subgroups, assignments);
+    }
+
+    private static ProjectGroup prune(ServerConfigurationImpl config, ProjectGroup group, PolicyFactory factory) {
+        Set<ProjectId> projects = group.getProjects().stream()
+                .filter(config.persistentProjects()::containsKey)
+                .collect(Collectors.toSet());
+        return factory.getProjectGroup(group.getId(), group.getName(), group.getDescription(), projects, group.getPrefixes());
+    }
+
+    /**
+     * Get the given deny rule without unknown operations, or an empty optional if the rule applies to an unknown
+     * user, group or project, or if none of its operations is known
+     */
+    private static Optional<DenyRule> prune(ServerConfigurationImpl config, DenyRule rule, PolicyFactory factory) {
+        Set<OperationId> operations = rule.getOperations().stream()
+                .filter(config.persistentOperations()::containsKey)
+                .collect(Collectors.toSet());
+        if (operations.isEmpty() || !isKnownProject(config, rule.getProjectId())) {
+            return Optional.empty();
+        }
+        if (rule.getUserId().isPresent()) {
+            return config.persistentUsers().containsKey(rule.getUserId().get()) ?
+                    Optional.of(factory.getUserDenyRule(rule.getUserId().get(), rule.getProjectId(), operations)) : Optional.empty();
+        }
+        if (rule.getUserGroupId().isPresent()) {
+            return config.persistentUserGroups().containsKey(rule.getUserGroupId().get()) ?
+                    Optional.of(factory.getUserGroupDenyRule(rule.getUserGroupId().get(), rule.getProjectId(), operations)) : Optional.empty();
+        }
+        return Optional.of(factory.getProjectDenyRule(rule.getProjectId(), operations));
+    }
+}
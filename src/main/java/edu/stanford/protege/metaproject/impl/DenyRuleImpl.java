@@ -0,0 +1,115 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Ordering;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class DenyRuleImpl implements DenyRule, Serializable {
+    private static final long serialVersionUID = -2214607361987703458L;
+    @Nullable private final UserId userId;
+    @Nullable private final UserGroupId userGroupId;
+    @Nonnull private final ProjectId projectId;
+    @Nonnull private final ImmutableSet<OperationId> operations;
+
+    /**
+     * Constructor
+     *
+     * @param userId    Identifier of the user the rule applies to, or null
+     * @param userGroupId   Identifier of the user group the rule applies to, or null
+     * @param projectId Project identifier
+     * @param operations    Set of identifiers of the denied operations
+     */
+    public DenyRuleImpl(@Nullable UserId userId, @Nullable UserGroupId userGroupId, @Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations) {
+        checkArgument(userId == null || userGroupId == null, "A deny rule cannot apply to both a user and a user group");
+        this.userId = userId;
+        this.userGroupId = userGroupId;
+        this.projectId = checkNotNull(projectId);
+        this.operations = ImmutableSet.copyOf(checkNotNull(operations));
+    }
+
+    @Override
+    @Nonnull
+    public Optional<UserId> getUserId() {
+        return Optional.ofNullable(userId);
+    }
+
+    @Override
+    @Nonnull
+    public Optional<UserGroupId> getUserGroupId() {
+        return Optional.ofNullable(userGroupId);
+    }
+
+    @Override
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<OperationId> getOperations() {
+        return operations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DenyRule)) {
+            return false;
+        }
+        DenyRule that = (DenyRule) o;
+        return Objects.equal(getUserId(), that.getUserId()) &&
+                Objects.equal(getUserGroupId(), that.getUserGroupId()) &&
+                Objects.equal(projectId, that.getProjectId()) &&
+                Objects.equal(operations, that.getOperations());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(userId, userGroupId, projectId, operations);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("userId", userId)
+                .add("userGroupId", userGroupId)
+                .add("projectId", projectId)
+                .add("operations", operations)
+                .toString();
+    }
+
+    @Override
+    public int compareTo(@Nonnull DenyRule that) {
+        return ComparisonChain.start()
+                .compare(projectId.get(), that.getProjectId().get())
+                .compare(getUserId().map(UserId::get).orElse(null), that.getUserId().map(UserId::get).orElse(null), Ordering.natural().nullsFirst())
+                .compare(getUserGroupId().map(UserGroupId::get).orElse(null), that.getUserGroupId().map(UserGroupId::get).orElse(null),
+                        Ordering.natural().nullsFirst())
+                .compare(operations.toString(), that.getOperations().toString())
+                .result();
+    }
+}
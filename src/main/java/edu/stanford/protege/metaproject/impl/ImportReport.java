@@ -0,0 +1,180 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.metaproject.api.PolicyObjectId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The outcome of a bulk import into a {@link ConfigurationBuilder}: the number of items that were applied, and every
+ * item that was rejected because it conflicts with the configuration or with an earlier item of the same batch
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class ImportReport {
+    private final int importedCount;
+    @Nonnull private final ImmutableList<Conflict> conflicts;
+
+    /**
+     * Constructor
+     *
+     * @param importedCount Number of items applied
+     * @param conflicts List of conflicts, in the order they were found
+     */
+    public ImportReport(int importedCount, @Nonnull List<Conflict> conflicts) {
+        this.importedCount = importedCount;
+        this.conflicts = ImmutableList.copyOf(checkNotNull(conflicts));
+    }
+
+    /**
+     * Get the number of items that were applied to the builder
+     *
+     * @return Number of imported items
+     */
+    public int getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * Get the items that were rejected, in the order they were found
+     *
+     * @return List of conflicts
+     */
+    @Nonnull
+    public ImmutableList<Conflict> getConflicts() {
+        return conflicts;
+    }
+
+    /**
+     * Check whether any item was rejected
+     *
+     * @return true if there is at least one conflict, false otherwise
+     */
+    public boolean hasConflicts() {
+        return !conflicts.isEmpty();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ImportReport)) {
+            return false;
+        }
+        ImportReport that = (ImportReport) o;
+        return importedCount == that.importedCount &&
+                Objects.equal(conflicts, that.conflicts);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(importedCount, conflicts);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("importedCount", importedCount)
+                .add("conflicts", conflicts)
+                .toString();
+    }
+
+    /**
+     * The reason why an item was rejected
+     */
+    public enum Reason {
+        /** The identifier is already used in the configuration */
+        ID_ALREADY_IN_USE,
+
+        /** The identifier occurs more than once in the batch; the first occurrence was imported */
+        DUPLICATE_IN_BATCH,
+
+        /** A role assignment refers to a user that does not exist */
+        UNKNOWN_USER,
+
+        /** A role assignment refers to a project that does not exist */
+        UNKNOWN_PROJECT,
+
+        /** A role assignment refers to a role that does not exist */
+        UNKNOWN_ROLE
+    }
+
+    /**
+     * A rejected item, identified by the identifier that caused the conflict
+     */
+    @Immutable
+    @ThreadSafe
+    public static final class Conflict {
+        @Nonnull private final PolicyObjectId<?> id;
+        @Nonnull private final Reason reason;
+
+        /**
+         * Constructor
+         *
+         * @param id    Conflicting identifier
+         * @param reason    Reason for the conflict
+         */
+        public Conflict(@Nonnull PolicyObjectId<?> id, @Nonnull Reason reason) {
+            this.id = checkNotNull(id);
+            this.reason = checkNotNull(reason);
+        }
+
+        /**
+         * Get the identifier that caused the conflict
+         *
+         * @return Policy object identifier
+         */
+        @Nonnull
+        public PolicyObjectId<?> getId() {
+            return id;
+        }
+
+        /**
+         * Get the reason for the conflict
+         *
+         * @return Conflict reason
+         */
+        @Nonnull
+        public Reason getReason() {
+            return reason;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Conflict)) {
+                return false;
+            }
+            Conflict that = (Conflict) o;
+            return Objects.equal(id, that.id) &&
+                    reason == that.reason;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(id, reason);
+        }
+
+        @Override
+        public String toString() {
+            return MoreObjects.toStringHelper(this)
+                    .add("id", id)
+                    .add("reason", reason)
+                    .toString();
+        }
+    }
+}
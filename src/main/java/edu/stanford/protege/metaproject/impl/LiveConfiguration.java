@@ -0,0 +1,184 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The live server configuration of a server node. Readers obtain the current immutable snapshot without locking,
+ * while writers publish new snapshots that are assigned increasing version numbers. Every published snapshot is
+ * announced to the registered commit listeners along with the delta from the previous snapshot
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class LiveConfiguration {
+    private static final Logger logger = LoggerFactory.getLogger(LiveConfiguration.class.getName());
+    private final List<CommitListener> listeners = new CopyOnWriteArrayList<>();
+    private volatile VersionedConfiguration current;
+
+    /**
+     * Constructor
+     *
+     * @param configuration Initial server configuration, published as version 0
+     */
+    public LiveConfiguration(@Nonnull ServerConfiguration configuration) {
+        this.current = new VersionedConfiguration(0, System.currentTimeMillis(), checkNotNull(configuration));
+    }
+
+    /**
+     * Get the current snapshot
+     *
+     * @return Current versioned configuration
+     */
+    @Nonnull
+    public VersionedConfiguration getSnapshot() {
+        return current;
+    }
+
+    /**
+     * Get the current server configuration
+     *
+     * @return Server configuration
+     */
+    @Nonnull
+    public ServerConfiguration getConfiguration() {
+        return current.getConfiguration();
+    }
+
+    /**
+     * Get the version number of the current snapshot
+     *
+     * @return Version number
+     */
+    public long getVersion() {
+        return current.getVersion();
+    }
+
+    /**
+     * Publish the given server configuration as the new current snapshot. Nothing is published if the given
+     * configuration does not differ from the current one
+     *
+     * @param configuration New server configuration
+     * @return Current versioned configuration
+     */
+    @Nonnull
+    public synchronized VersionedConfiguration commit(@Nonnull ServerConfiguration configuration) {
+        checkNotNull(configuration);
+        ConfigurationDelta delta = ConfigurationDelta.between(current.getConfiguration(), configuration);
+        if (delta.isEmpty()) {
+            return current;
+        }
+        return publish(new VersionedConfiguration(current.getVersion() + 1, System.currentTimeMillis(), configuration), delta);
+    }
+
+    /**
+     * Publish the given server configuration as the new current snapshot, provided that the current snapshot
+     * still has the expected version
+     *
+     * @param expectedVersion   Version that the given configuration was derived from
+     * @param configuration New server configuration
+     * @return Current versioned configuration, or an empty optional if another snapshot was published in the meantime
+     */
+    @Nonnull
+    public synchronized Optional<VersionedConfiguration> commit(long expectedVersion, @Nonnull ServerConfiguration configuration) {
+        if (current.getVersion() != expectedVersion) {
+            return Optional.empty();
+        }
+        return Optional.of(commit(configuration));
+    }
+
+    /**
+     * Apply a delta received from another node, publishing the result with the version number and commit time
+     * assigned by that node
+     *
+     * @param version   Version number of the resulting snapshot
+     * @param timestamp Commit time of the resulting snapshot, in milliseconds since the epoch
+     * @param delta Configuration delta relative to the current snapshot
+     * @return Current versioned configuration
+     */
+    @Nonnull
+    public synchronized VersionedConfiguration apply(long version, long timestamp, @Nonnull ConfigurationDelta delta) {
+        checkNotNull(delta);
+        checkArgument(version > current.getVersion(), "Version " + version + " is not newer than the current version " + current.getVersion());
+        return publish(new VersionedConfiguration(version, timestamp, delta.applyTo(current.getConfiguration())), delta);
+    }
+
+    /**
+     * Replace the current snapshot with a full snapshot received from another node
+     *
+     * @param version   Version number of the snapshot
+     * @param timestamp Commit time of the snapshot, in milliseconds since the epoch
+     * @param configuration Server configuration
+     * @return Current versioned configuration
+     */
+    @Nonnull
+    public synchronized VersionedConfiguration reset(long version, long timestamp, @Nonnull ServerConfiguration configuration) {
+        checkNotNull(configuration);
+        ConfigurationDelta delta = ConfigurationDelta.between(current.getConfiguration(), configuration);
+        return publish(new VersionedConfiguration(version, timestamp, configuration), delta);
+    }
+
+    private VersionedConfiguration publish(VersionedConfiguration snapshot, ConfigurationDelta delta) {
+        VersionedConfiguration previous = current;
+        if (previous.getConfiguration() instanceof ServerConfigurationImpl && snapshot.getConfiguration() instanceof ServerConfigurationImpl) {
+            ((ServerConfigurationImpl) snapshot.getConfiguration()).deriveStatistics((ServerConfigurationImpl) previous.getConfiguration(), delta);
+        }
+        current = snapshot;
+        for (CommitListener listener : listeners) {
+            try {
+                listener.committed(previous, snapshot, delta);
+            } catch (RuntimeException e) {
+                logger.error("Commit listener failed to handle version " + snapshot.getVersion(), e);
+            }
+        }
+        return snapshot;
+    }
+
+    /**
+     * Register a listener to be notified of every published snapshot. Listeners are invoked on the committing
+     * thread, in commit order, and should hand off any expensive work
+     *
+     * @param listener  Commit listener
+     */
+    public void addCommitListener(@Nonnull CommitListener listener) {
+        listeners.add(checkNotNull(listener));
+    }
+
+    /**
+     * Remove the given commit listener
+     *
+     * @param listener  Commit listener
+     */
+    public void removeCommitListener(@Nonnull CommitListener listener) {
+        listeners.remove(checkNotNull(listener));
+    }
+
+    /**
+     * Listener for snapshots published to a live configuration
+     */
+    @FunctionalInterface
+    public interface CommitListener {
+
+        /**
+         * Handle a newly published snapshot
+         *
+         * @param previous  Previous snapshot
+         * @param current   Newly published snapshot
+         * @param delta Changes from the previous snapshot to the new one
+         */
+        void committed(@Nonnull VersionedConfiguration previous, @Nonnull VersionedConfiguration current, @Nonnull ConfigurationDelta delta);
+
+    }
+}
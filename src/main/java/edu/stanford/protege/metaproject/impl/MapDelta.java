@@ -0,0 +1,255 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The difference between two maps, given by the entries that were put into (added or replaced) and the keys that
+ * were removed from the original map
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class MapDelta<K,V> {
+    private static final MapDelta<Object,Object> EMPTY = new MapDelta<>(ImmutableMap.of(), ImmutableSet.of());
+    @Nonnull private final ImmutableMap<K,V> updated;
+    @Nonnull private final ImmutableSet<K> removed;
+
+    /**
+     * Constructor
+     *
+     * @param updated   Entries added to or replaced in the original map
+     * @param removed   Keys removed from the original map
+     */
+    public MapDelta(@Nonnull Map<K,V> updated, @Nonnull Set<K> removed) {
+        this.updated = ImmutableMap.copyOf(checkNotNull(updated));
+        this.removed = ImmutableSet.copyOf(checkNotNull(removed));
+    }
+
+    /**
+     * Get an empty map delta
+     *
+     * @return Empty map delta
+     */
+    @SuppressWarnings("unchecked")
+    public static <K,V> MapDelta<K,V> empty() {
+        return (MapDelta<K,V>) EMPTY;
+    }
+
+    /**
+     * Compute the difference between the given maps
+     *
+     * @param from  Original map
+     * @param to    Modified map
+     * @return Map delta that transforms the original map into the modified one
+     */
+    public static <K,V> MapDelta<K,V> between(@Nonnull Map<K,V> from, @Nonnull Map<K,V> to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return empty();
+        }
+        if (from instanceof PersistentHashMap && to instanceof PersistentHashMap) {
+            return between((PersistentHashMap<K,V>) from, (PersistentHashMap<K,V>) to);
+        }
+        Map<K,V> updated = new HashMap<>();
+        for (Map.Entry<K,V> entry : to.entrySet()) {
+            if (!from.containsKey(entry.getKey()) || !Objects.equal(from.get(entry.getKey()), entry.getValue())) {
+                updated.put(entry.getKey(), entry.getValue());
+            }
+        }
+        Set<K> removed = new HashSet<>();
+        for (K key : from.keySet()) {
+            if (!to.containsKey(key)) {
+                removed.add(key);
+            }
+        }
+        return new MapDelta<>(updated, removed);
+    }
+
+    /**
+     * Compute the difference between the given persistent maps, skipping the parts that they share
+     *
+     * @param from  Original map
+     * @param to    Modified map
+     * @return Map delta that transforms the original map into the modified one
+     */
+    public static <K,V> MapDelta<K,V> between(@Nonnull PersistentHashMap<K,V> from, @Nonnull PersistentHashMap<K,V> to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return empty();
+        }
+        Map<K,V> updated = new HashMap<>();
+        Set<K> removed = new HashSet<>();
+        from.diff(to, new PersistentHashMap.DiffVisitor<K,V>() {
+            @Override
+            public void added(@Nonnull K key, @Nonnull V value) {
+                updated.put(key, value);
+            }
+
+            @Override
+            public void removed(@Nonnull K key, @Nonnull V value) {
+                removed.add(key);
+            }
+
+            @Override
+            public void changed(@Nonnull K key, @Nonnull V oldValue, @Nonnull V newValue) {
+                updated.put(key, newValue);
+            }
+        });
+        return new MapDelta<>(updated, removed);
+    }
+
+    /**
+     * Get the entries added to or replaced in the original map
+     *
+     * @return Map of updated entries
+     */
+    @Nonnull
+    public ImmutableMap<K,V> getUpdated() {
+        return updated;
+    }
+
+    /**
+     * Get the keys removed from the original map
+     *
+     * @return Set of removed keys
+     */
+    @Nonnull
+    public ImmutableSet<K> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Check whether this delta contains no changes
+     *
+     * @return true if no entries were updated or removed, false otherwise
+     */
+    public boolean isEmpty() {
+        return updated.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Apply this delta to the given map
+     *
+     * @param map   Original map
+     * @return New map with the removed keys taken out and the updated entries put in
+     */
+    @Nonnull
+    public Map<K,V> applyTo(@Nonnull Map<K,V> map) {
+        checkNotNull(map);
+        if (isEmpty()) {
+            return map;
+        }
+        if (map instanceof PersistentHashMap) {
+            return applyTo((PersistentHashMap<K,V>) map);
+        }
+        Map<K,V> result = new HashMap<>(map);
+        result.keySet().removeAll(removed);
+        result.putAll(updated);
+        return result;
+    }
+
+    /**
+     * Apply this delta to the given persistent map, which shares all unchanged parts with the result
+     *
+     * @param map   Original map
+     * @return New persistent map with the removed keys taken out and the updated entries put in
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> applyTo(@Nonnull PersistentHashMap<K,V> map) {
+        return checkNotNull(map).minusAll(removed).plusAll(updated);
+    }
+
+    /**
+     * Combine this delta with the given one, which is assumed to be applied after this one
+     *
+     * @param next  Delta applied after this delta
+     * @return Map delta equivalent to applying this delta followed by the given delta
+     */
+    @Nonnull
+    public MapDelta<K,V> andThen(@Nonnull MapDelta<K,V> next) {
+        checkNotNull(next);
+        if (isEmpty()) {
+            return next;
+        }
+        if (next.isEmpty()) {
+            return this;
+        }
+        Map<K,V> combinedUpdates = new HashMap<>(updated);
+        combinedUpdates.keySet().removeAll(next.removed);
+        combinedUpdates.putAll(next.updated);
+        Set<K> combinedRemovals = new HashSet<>(removed);
+        combinedRemovals.removeAll(next.updated.keySet());
+        combinedRemovals.addAll(next.removed);
+        return new MapDelta<>(combinedUpdates, combinedRemovals);
+    }
+
+    /**
+     * Get the delta that undoes this delta, i.e., that transforms the result of applying this delta to the given
+     * map back into the given map
+     *
+     * @param base  Map that this delta is applied to
+     * @return Inverse map delta
+     */
+    @Nonnull
+    public MapDelta<K,V> invert(@Nonnull Map<K,V> base) {
+        checkNotNull(base);
+        if (isEmpty()) {
+            return this;
+        }
+        Map<K,V> restored = new HashMap<>();
+        Set<K> discarded = new HashSet<>();
+        for (K key : Sets.union(updated.keySet(), removed)) {
+            if (base.containsKey(key)) {
+                restored.put(key, base.get(key));
+            } else {
+                discarded.add(key);
+            }
+        }
+        return new MapDelta<>(restored, discarded);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MapDelta)) {
+            return false;
+        }
+        MapDelta<?,?> that = (MapDelta<?,?>) o;
+        return Objects.equal(updated, that.updated) &&
+                Objects.equal(removed, that.removed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(updated, removed);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("updated", updated)
+                .add("removed", removed)
+                .toString();
+    }
+}
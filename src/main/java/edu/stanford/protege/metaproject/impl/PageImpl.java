@@ -0,0 +1,74 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
+import edu.stanford.protege.metaproject.api.Page;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class PageImpl<T> implements Page<T> {
+    @Nonnull private final ImmutableList<T> items;
+    @Nonnull private final Optional<String> nextCursor;
+
+    /**
+     * Constructor
+     *
+     * @param items Objects in the page
+     * @param nextCursor    Cursor of the next page, if any
+     */
+    public PageImpl(@Nonnull ImmutableList<T> items, @Nonnull Optional<String> nextCursor) {
+        this.items = checkNotNull(items);
+        this.nextCursor = checkNotNull(nextCursor);
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableList<T> getItems() {
+        return items;
+    }
+
+    @Override
+    @Nonnull
+    public Optional<String> getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PageImpl)) {
+            return false;
+        }
+        PageImpl<?> that = (PageImpl<?>) o;
+        return Objects.equal(items, that.items) &&
+                Objects.equal(nextCursor, that.nextCursor);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(items, nextCursor);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("items", items)
+                .add("nextCursor", nextCursor)
+                .toString();
+    }
+}
@@ -0,0 +1,725 @@
+package edu.stanford.protege.metaproject.impl;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable hash map implemented as a hash array mapped trie. Updates return a new map that shares all unchanged
+ * nodes with the original one, so adding, replacing or removing an entry takes O(log n) time and space. Two maps
+ * derived from one another can be compared in time proportional to the number of entries that differ, because
+ * shared subtrees are skipped without being visited. Null keys and values are not permitted
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class PersistentHashMap<K,V> extends AbstractMap<K,V> implements Serializable {
+    private static final long serialVersionUID = -4185240153962395717L;
+    private static final int BITS = 5, MASK = (1 << BITS) - 1, MAX_DEPTH = 16;
+    private static final PersistentHashMap<Object,Object> EMPTY = new PersistentHashMap<>(BitmapNode.EMPTY, 0);
+    @Nonnull private final Node root;
+    private final int size;
+    private transient int hashCode;
+
+    private PersistentHashMap(@Nonnull Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    /**
+     * Get the empty map
+     *
+     * @return Empty persistent map
+     */
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    public static <K,V> PersistentHashMap<K,V> empty() {
+        return (PersistentHashMap<K,V>) EMPTY;
+    }
+
+    /**
+     * Get a persistent map with the entries of the given map. If the given map is itself a persistent map, it is
+     * returned as is
+     *
+     * @param map   Map
+     * @return Persistent map
+     */
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    public static <K,V> PersistentHashMap<K,V> copyOf(@Nonnull Map<? extends K, ? extends V> map) {
+        checkNotNull(map);
+        if (map instanceof PersistentHashMap) {
+            return (PersistentHashMap<K,V>) map;
+        }
+        return PersistentHashMap.<K,V>empty().plusAll(map);
+    }
+
+    private static int hash(Object key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private static int bit(int hash, int shift) {
+        return 1 << ((hash >>> shift) & MASK);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public boolean containsKey(@Nullable Object key) {
+        return key != null && root.find(key, hash(key), 0) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    @Nullable
+    public V get(@Nullable Object key) {
+        if (key == null) {
+            return null;
+        }
+        Leaf leaf = root.find(key, hash(key), 0);
+        return leaf != null ? (V) leaf.value : null;
+    }
+
+    /**
+     * Get a map with the given entry added to this map, or replacing the existing entry for the given key
+     *
+     * @param key   Key
+     * @param value Value
+     * @return Persistent map with the given entry, which is this map if it already contains the entry
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> plus(@Nonnull K key, @Nonnull V value) {
+        checkNotNull(key);
+        checkNotNull(value);
+        int[] added = new int[1];
+        Node updated = root.put(new Leaf(hash(key), key, value), 0, added);
+        return updated == root ? this : new PersistentHashMap<>(updated, size + added[0]);
+    }
+
+    /**
+     * Get a map with all entries of the given map added to this map
+     *
+     * @param map   Map
+     * @return Persistent map with the given entries
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> plusAll(@Nonnull Map<? extends K, ? extends V> map) {
+        return plusEntries(checkNotNull(map).entrySet());
+    }
+
+    /**
+     * Get a map with all the given entries added to this map, where later entries replace earlier ones with the same
+     * key. The entries are inserted in a single pass over the trie, so each node touched by the batch is copied once
+     * rather than once per entry
+     *
+     * @param entries   Entries
+     * @return Persistent map with the given entries, which is this map if it already contains all of them
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> plusEntries(@Nonnull Iterable<? extends Map.Entry<? extends K, ? extends V>> entries) {
+        List<Leaf> leaves = new ArrayList<>();
+        for (Map.Entry<? extends K, ? extends V> entry : checkNotNull(entries)) {
+            K key = checkNotNull(entry.getKey());
+            leaves.add(new Leaf(hash(key), key, checkNotNull(entry.getValue())));
+        }
+        if (leaves.isEmpty()) {
+            return this;
+        }
+        int[] added = new int[1];
+        Node updated = root.putAll(leaves, 0, added);
+        return updated == root ? this : new PersistentHashMap<>(updated, size + added[0]);
+    }
+
+    /**
+     * Get a map with the entry for the given key removed from this map
+     *
+     * @param key   Key
+     * @return Persistent map without the given key, which is this map if it does not contain the key
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> minus(@Nonnull Object key) {
+        checkNotNull(key);
+        Node updated = root.remove(key, hash(key), 0);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentHashMap<>(updated, size - 1);
+    }
+
+    /**
+     * Get a map with the entries for all the given keys removed from this map
+     *
+     * @param keys  Keys
+     * @return Persistent map without the given keys
+     */
+    @Nonnull
+    public PersistentHashMap<K,V> minusAll(@Nonnull Collection<?> keys) {
+        PersistentHashMap<K,V> result = this;
+        for (Object key : checkNotNull(keys)) {
+            result = result.minus(key);
+        }
+        return result;
+    }
+
+    @Override
+    @Nonnull
+    public Set<Entry<K,V>> entrySet() {
+        return new AbstractSet<Entry<K,V>>() {
+            @SuppressWarnings("unchecked")
+            @Override
+            public Iterator<Entry<K,V>> iterator() {
+                return (Iterator<Entry<K,V>>) (Iterator<?>) new LeafIterator(root);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * Report the differences between this map and the given one to the given visitor. Subtrees shared by both maps
+     * are skipped, so comparing a map with one derived from it takes time proportional to the number of changes
+     *
+     * @param other Map to compare this map against
+     * @param visitor   Visitor notified of the entries that were added, removed or changed in the other map
+     */
+    public void diff(@Nonnull PersistentHashMap<K,V> other, @Nonnull DiffVisitor<K,V> visitor) {
+        checkNotNull(other);
+        checkNotNull(visitor);
+        diff(root, other.root, 0, visitor);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <K,V> void diff(Object a, Object b, int shift, DiffVisitor<K,V> visitor) {
+        if (a == b) {
+            return;
+        }
+        if (a == null) {
+            forEachLeaf(b, leaf -> visitor.added((K) leaf.key, (V) leaf.value));
+        } else if (b == null) {
+            forEachLeaf(a, leaf -> visitor.removed((K) leaf.key, (V) leaf.value));
+        } else if (a instanceof BitmapNode && b instanceof BitmapNode) {
+            BitmapNode x = (BitmapNode) a, y = (BitmapNode) b;
+            int bits = x.bitmap | y.bitmap;
+            while (bits != 0) {
+                int bit = bits & -bits;
+                bits ^= bit;
+                diff(x.slotFor(bit), y.slotFor(bit), shift + BITS, visitor);
+            }
+        } else if (a instanceof Leaf && b instanceof Leaf) {
+            Leaf x = (Leaf) a, y = (Leaf) b;
+            if (x.matches(y.key, y.hash)) {
+                if (!x.value.equals(y.value)) {
+                    visitor.changed((K) y.key, (V) x.value, (V) y.value);
+                }
+            } else {
+                visitor.removed((K) x.key, (V) x.value);
+                visitor.added((K) y.key, (V) y.value);
+            }
+        } else {
+            // a leaf compared against a subtree, or a collision node: the sides are small, so compare them entry by entry
+            Map<Object,Leaf> remaining = new HashMap<>();
+            forEachLeaf(a, leaf -> remaining.put(leaf.key, leaf));
+            forEachLeaf(b, leaf -> {
+                Leaf previous = remaining.remove(leaf.key);
+                if (previous == null) {
+                    visitor.added((K) leaf.key, (V) leaf.value);
+                } else if (!previous.value.equals(leaf.value)) {
+                    visitor.changed((K) leaf.key, (V) previous.value, (V) leaf.value);
+                }
+            });
+            for (Leaf leaf : remaining.values()) {
+                visitor.removed((K) leaf.key, (V) leaf.value);
+            }
+        }
+    }
+
+    private static void forEachLeaf(Object slot, Consumer<Leaf> action) {
+        if (slot instanceof Leaf) {
+            action.accept((Leaf) slot);
+        } else {
+            Iterator<Leaf> iterator = new LeafIterator((Node) slot);
+            while (iterator.hasNext()) {
+                action.accept(iterator.next());
+            }
+        }
+    }
+
+    @Override
+    public int hashCode() {
+        int h = hashCode;
+        if (h == 0 && size > 0) {
+            h = super.hashCode();
+            hashCode = h;
+        }
+        return h;
+    }
+
+    /**
+     * Visitor for the differences between two persistent maps
+     */
+    public interface DiffVisitor<K,V> {
+
+        /**
+         * Handle an entry that exists only in the other map
+         *
+         * @param key   Key
+         * @param value Value in the other map
+         */
+        void added(@Nonnull K key, @Nonnull V value);
+
+        /**
+         * Handle an entry that exists only in this map
+         *
+         * @param key   Key
+         * @param value Value in this map
+         */
+        void removed(@Nonnull K key, @Nonnull V value);
+
+        /**
+         * Handle a key that is mapped to different values in both maps
+         *
+         * @param key   Key
+         * @param oldValue  Value in this map
+         * @param newValue  Value in the other map
+         */
+        void changed(@Nonnull K key, @Nonnull V oldValue, @Nonnull V newValue);
+
+    }
+
+    /**
+     * A map entry, stored in the trie along with the hash of its key
+     */
+    private static final class Leaf implements Map.Entry<Object,Object>, Serializable {
+        private static final long serialVersionUID = 5379207637003526391L;
+        private final int hash;
+        private final Object key, value;
+
+        private Leaf(int hash, Object key, Object value) {
+            this.hash = hash;
+            this.key = key;
+            this.value = value;
+        }
+
+        private boolean matches(Object key, int hash) {
+            return this.hash == hash && this.key.equals(key);
+        }
+
+        @Override
+        public Object getKey() {
+            return key;
+        }
+
+        @Override
+        public Object getValue() {
+            return value;
+        }
+
+        @Override
+        public Object setValue(Object value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Map.Entry)) {
+                return false;
+            }
+            Map.Entry<?,?> that = (Map.Entry<?,?>) o;
+            return key.equals(that.getKey()) && value.equals(that.getValue());
+        }
+
+        @Override
+        public int hashCode() {
+            return key.hashCode() ^ value.hashCode();
+        }
+
+        @Override
+        public String toString() {
+            return key + "=" + value;
+        }
+    }
+
+    /**
+     * A trie node, whose slots hold either leaves or child nodes
+     */
+    private abstract static class Node implements Serializable {
+        private static final long serialVersionUID = -2771232508417893096L;
+
+        /** Find the leaf with the given key, or null if there is none */
+        abstract Leaf find(Object key, int hash, int shift);
+
+        /** Get a node with the given leaf put in place, or this node if it already holds an equal entry */
+        abstract Node put(Leaf leaf, int shift, int[] added);
+
+        /** Get a node with all the given leaves put in place, in order, copying this node at most once */
+        abstract Node putAll(List<Leaf> leaves, int shift, int[] added);
+
+        /** Get a node without the given key, this node if the key is absent, or null if the node becomes empty */
+        abstract Node remove(Object key, int hash, int shift);
+
+        /** Get the only slot of this node if it is a leaf, or null otherwise */
+        abstract Leaf singleLeaf();
+
+        abstract int slotCount();
+
+        abstract Object slot(int index);
+    }
+
+    /**
+     * A node whose occupied slots are given by a 32-bit bitmap indexed by 5 bits of the key hash
+     */
+    private static final class BitmapNode extends Node {
+        private static final long serialVersionUID = 7612530954791358436L;
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+        private final int bitmap;
+        private final Object[] slots;
+
+        private BitmapNode(int bitmap, Object[] slots) {
+            this.bitmap = bitmap;
+            this.slots = slots;
+        }
+
+        private int index(int bit) {
+            return Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        private Object slotFor(int bit) {
+            return (bitmap & bit) != 0 ? slots[index(bit)] : null;
+        }
+
+        @Override
+        Leaf find(Object key, int hash, int shift) {
+            Object slot = slotFor(bit(hash, shift));
+            if (slot instanceof Leaf) {
+                Leaf leaf = (Leaf) slot;
+                return leaf.matches(key, hash) ? leaf : null;
+            }
+            return slot != null ? ((Node) slot).find(key, hash, shift + BITS) : null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, int[] added) {
+            int bit = bit(leaf.hash, shift), index = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0]++;
+                Object[] updated = new Object[slots.length + 1];
+                System.arraycopy(slots, 0, updated, 0, index);
+                updated[index] = leaf;
+                System.arraycopy(slots, index, updated, index + 1, slots.length - index);
+                return new BitmapNode(bitmap | bit, updated);
+            }
+            Object slot = slots[index];
+            if (slot instanceof Leaf) {
+                Leaf existing = (Leaf) slot;
+                if (existing.matches(leaf.key, leaf.hash)) {
+                    return existing.value.equals(leaf.value) ? this : replace(index, leaf);
+                }
+                added[0]++;
+                return replace(index, merge(existing, leaf, shift + BITS));
+            }
+            Node child = (Node) slot, updated = child.put(leaf, shift + BITS, added);
+            return updated == child ? this : replace(index, updated);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        @Override
+        Node putAll(List<Leaf> leaves, int shift, int[] added) {
+            if (leaves.size() == 1) {
+                return put(leaves.get(0), shift, added);
+            }
+            List<Leaf>[] groups = new List[1 << BITS];
+            int touched = 0;
+            for (Leaf leaf : leaves) {
+                int fragment = (leaf.hash >>> shift) & MASK;
+                if (groups[fragment] == null) {
+                    groups[fragment] = new ArrayList<>();
+                    touched |= 1 << fragment;
+                }
+                groups[fragment].add(leaf);
+            }
+            int updatedBitmap = bitmap | touched;
+            Object[] updated = new Object[Integer.bitCount(updatedBitmap)];
+            boolean changed = false;
+            for (int bits = updatedBitmap, index = 0; bits != 0; index++) {
+                int bit = bits & -bits;
+                bits ^= bit;
+                Object existing = slotFor(bit), slot = existing;
+                List<Leaf> group = groups[Integer.numberOfTrailingZeros(bit)];
+                if (group != null) {
+                    slot = insert(existing, group, shift + BITS, added);
+                    changed |= slot != existing;
+                }
+                updated[index] = slot;
+            }
+            return changed ? new BitmapNode(updatedBitmap, updated) : this;
+        }
+
+        /** Get the slot resulting from inserting the given leaves, which share a hash prefix, into the given slot */
+        private static Object insert(Object existing, List<Leaf> group, int shift, int[] added) {
+            if (existing == null && group.size() == 1) {
+                added[0]++;
+                return group.get(0);
+            }
+            Node node;
+            if (existing == null) {
+                node = EMPTY;
+            } else if (existing instanceof Leaf) {
+                node = new BitmapNode(bit(((Leaf) existing).hash, shift), new Object[]{existing});
+            } else {
+                node = (Node) existing;
+            }
+            if (sameHash(group)) {
+                // keys with identical hashes never split into separate slots, so put them one by one
+                for (Leaf leaf : group) {
+                    node = node.put(leaf, shift, added);
+                }
+            } else {
+                node = node.putAll(group, shift, added);
+            }
+            Leaf single = node.singleLeaf();
+            if (single != null && single == existing) {
+                return existing;
+            }
+            return single != null ? single : node;
+        }
+
+        private static boolean sameHash(List<Leaf> group) {
+            int hash = group.get(0).hash;
+            for (Leaf leaf : group) {
+                if (leaf.hash != hash) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int bit = bit(hash, shift);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int index = index(bit);
+            Object slot = slots[index];
+            if (slot instanceof Leaf) {
+                return ((Leaf) slot).matches(key, hash) ? delete(bit, index) : this;
+            }
+            Node child = (Node) slot, updated = child.remove(key, hash, shift + BITS);
+            if (updated == child) {
+                return this;
+            }
+            if (updated == null) {
+                return delete(bit, index);
+            }
+            Leaf single = updated.singleLeaf();
+            return replace(index, single != null ? single : updated);
+        }
+
+        private Node replace(int index, Object slot) {
+            Object[] updated = slots.clone();
+            updated[index] = slot;
+            return new BitmapNode(bitmap, updated);
+        }
+
+        private Node delete(int bit, int index) {
+            if (slots.length == 1) {
+                return null;
+            }
+            Object[] updated = new Object[slots.length - 1];
+            System.arraycopy(slots, 0, updated, 0, index);
+            System.arraycopy(slots, index + 1, updated, index, slots.length - index - 1);
+            return new BitmapNode(bitmap ^ bit, updated);
+        }
+
+        private static Node merge(Leaf a, Leaf b, int shift) {
+            if (a.hash == b.hash) {
+                return new CollisionNode(a.hash, new Leaf[]{a, b});
+            }
+            int bitA = bit(a.hash, shift), bitB = bit(b.hash, shift);
+            if (bitA == bitB) {
+                return new BitmapNode(bitA, new Object[]{merge(a, b, shift + BITS)});
+            }
+            boolean ordered = ((a.hash >>> shift) & MASK) < ((b.hash >>> shift) & MASK);
+            return new BitmapNode(bitA | bitB, ordered ? new Object[]{a, b} : new Object[]{b, a});
+        }
+
+        @Override
+        Leaf singleLeaf() {
+            return slots.length == 1 && slots[0] instanceof Leaf ? (Leaf) slots[0] : null;
+        }
+
+        @Override
+        int slotCount() {
+            return slots.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return slots[index];
+        }
+    }
+
+    /**
+     * A node holding entries whose keys have the same hash
+     */
+    private static final class CollisionNode extends Node {
+        private static final long serialVersionUID = 3035725186934624420L;
+        private final int hash;
+        private final Leaf[] leaves;
+
+        private CollisionNode(int hash, Leaf[] leaves) {
+            this.hash = hash;
+            this.leaves = leaves;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < leaves.length; i++) {
+                if (leaves[i].key.equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Leaf find(Object key, int hash, int shift) {
+            if (hash != this.hash) {
+                return null;
+            }
+            int index = indexOf(key);
+            return index >= 0 ? leaves[index] : null;
+        }
+
+        @Override
+        Node put(Leaf leaf, int shift, int[] added) {
+            if (leaf.hash != hash) {
+                return new BitmapNode(bit(hash, shift), new Object[]{this}).put(leaf, shift, added);
+            }
+            int index = indexOf(leaf.key);
+            if (index >= 0) {
+                if (leaves[index].value.equals(leaf.value)) {
+                    return this;
+                }
+                Leaf[] updated = leaves.clone();
+                updated[index] = leaf;
+                return new CollisionNode(hash, updated);
+            }
+            added[0]++;
+            Leaf[] updated = Arrays.copyOf(leaves, leaves.length + 1);
+            updated[leaves.length] = leaf;
+            return new CollisionNode(hash, updated);
+        }
+
+        @Override
+        Node putAll(List<Leaf> leaves, int shift, int[] added) {
+            Node node = this;
+            for (Leaf leaf : leaves) {
+                node = node.put(leaf, shift, added);
+            }
+            return node;
+        }
+
+        @Override
+        Node remove(Object key, int hash, int shift) {
+            int index = hash == this.hash ? indexOf(key) : -1;
+            if (index < 0) {
+                return this;
+            }
+            if (leaves.length == 1) {
+                return null;
+            }
+            Leaf[] updated = new Leaf[leaves.length - 1];
+            System.arraycopy(leaves, 0, updated, 0, index);
+            System.arraycopy(leaves, index + 1, updated, index, leaves.length - index - 1);
+            return new CollisionNode(hash, updated);
+        }
+
+        @Override
+        Leaf singleLeaf() {
+            return leaves.length == 1 ? leaves[0] : null;
+        }
+
+        @Override
+        int slotCount() {
+            return leaves.length;
+        }
+
+        @Override
+        Object slot(int index) {
+            return leaves[index];
+        }
+    }
+
+    /**
+     * Depth-first iterator over the leaves of a trie
+     */
+    private static final class LeafIterator implements Iterator<Leaf> {
+        private final Node[] nodes = new Node[MAX_DEPTH];
+        private final int[] positions = new int[MAX_DEPTH];
+        private int depth;
+        private Leaf next;
+
+        private LeafIterator(Node root) {
+            nodes[0] = root;
+            advance();
+        }
+
+        private void advance() {
+            next = null;
+            while (depth >= 0) {
+                Node node = nodes[depth];
+                if (positions[depth] < node.slotCount()) {
+                    Object slot = node.slot(positions[depth]++);
+                    if (slot instanceof Leaf) {
+                        next = (Leaf) slot;
+                        return;
+                    }
+                    depth++;
+                    nodes[depth] = (Node) slot;
+                    positions[depth] = 0;
+                } else {
+                    nodes[depth--] = null;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return next != null;
+        }
+
+        @Override
+        public Leaf next() {
+            if (next == null) {
+                throw new NoSuchElementException();
+            }
+            Leaf leaf = next;
+            advance();
+            return leaf;
+        }
+    }
+}
@@ -0,0 +1,178 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Maps;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+import java.util.AbstractSet;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * An immutable hash set backed by a {@link PersistentHashMap}. Updates return a new set that shares all unchanged
+ * nodes with the original one, so adding or removing an element takes O(log n) time and space. Null elements are
+ * not permitted
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class PersistentHashSet<E> extends AbstractSet<E> implements Serializable {
+    private static final long serialVersionUID = 1748810553208906253L;
+    private static final PersistentHashSet<Object> EMPTY = new PersistentHashSet<>(PersistentHashMap.empty());
+    @Nonnull private final PersistentHashMap<E,Boolean> map;
+
+    private PersistentHashSet(@Nonnull PersistentHashMap<E,Boolean> map) {
+        this.map = map;
+    }
+
+    /**
+     * Get the empty set
+     *
+     * @return Empty persistent set
+     */
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    public static <E> PersistentHashSet<E> empty() {
+        return (PersistentHashSet<E>) EMPTY;
+    }
+
+    /**
+     * Get a persistent set with the elements of the given collection. If the given collection is itself a persistent
+     * set, it is returned as is
+     *
+     * @param elements  Collection of elements
+     * @return Persistent set
+     */
+    @SuppressWarnings("unchecked")
+    @Nonnull
+    public static <E> PersistentHashSet<E> copyOf(@Nonnull Collection<? extends E> elements) {
+        checkNotNull(elements);
+        if (elements instanceof PersistentHashSet) {
+            return (PersistentHashSet<E>) elements;
+        }
+        return PersistentHashSet.<E>empty().plusAll(elements);
+    }
+
+    private PersistentHashSet<E> with(PersistentHashMap<E,Boolean> updated) {
+        if (updated == map) {
+            return this;
+        }
+        return updated.isEmpty() ? empty() : new PersistentHashSet<>(updated);
+    }
+
+    @Override
+    public int size() {
+        return map.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return map.isEmpty();
+    }
+
+    @Override
+    public boolean contains(@Nullable Object element) {
+        return map.containsKey(element);
+    }
+
+    @Override
+    @Nonnull
+    public Iterator<E> iterator() {
+        return map.keySet().iterator();
+    }
+
+    /**
+     * Get a set with the given element added to this set
+     *
+     * @param element   Element
+     * @return Persistent set with the given element, which is this set if it already contains the element
+     */
+    @Nonnull
+    public PersistentHashSet<E> plus(@Nonnull E element) {
+        return with(map.plus(element, Boolean.TRUE));
+    }
+
+    /**
+     * Get a set with all the given elements added to this set, copying each node touched by the elements once
+     *
+     * @param elements  Collection of elements
+     * @return Persistent set with the given elements
+     */
+    @Nonnull
+    public PersistentHashSet<E> plusAll(@Nonnull Collection<? extends E> elements) {
+        return with(map.plusEntries(Iterables.transform(checkNotNull(elements), element -> Maps.immutableEntry(element, Boolean.TRUE))));
+    }
+
+    /**
+     * Get a set with the given element removed from this set
+     *
+     * @param element   Element
+     * @return Persistent set without the given element, which is this set if it does not contain the element
+     */
+    @Nonnull
+    public PersistentHashSet<E> minus(@Nonnull Object element) {
+        return with(map.minus(element));
+    }
+
+    /**
+     * Get a set with all the given elements removed from this set
+     *
+     * @param elements  Collection of elements
+     * @return Persistent set without the given elements
+     */
+    @Nonnull
+    public PersistentHashSet<E> minusAll(@Nonnull Collection<?> elements) {
+        return with(map.minusAll(elements));
+    }
+
+    /**
+     * Report the differences between this set and the given one. Subtrees shared by both sets are skipped, so
+     * comparing a set with one derived from it takes time proportional to the number of changes
+     *
+     * @param other Set to compare this set against
+     * @param added Consumer of the elements that exist only in the other set
+     * @param removed   Consumer of the elements that exist only in this set
+     */
+    public void diff(@Nonnull PersistentHashSet<E> other, @Nonnull Consumer<? super E> added, @Nonnull Consumer<? super E> removed) {
+        checkNotNull(other);
+        checkNotNull(added);
+        checkNotNull(removed);
+        map.diff(other.map, new PersistentHashMap.DiffVisitor<E,Boolean>() {
+            @Override
+            public void added(@Nonnull E key, @Nonnull Boolean value) {
+                added.accept(key);
+            }
+
+            @Override
+            public void removed(@Nonnull E key, @Nonnull Boolean value) {
+                removed.accept(key);
+            }
+
+            @Override
+            public void changed(@Nonnull E key, @Nonnull Boolean oldValue, @Nonnull Boolean newValue) {
+                /* no-op: set values never change */
+            }
+        });
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof PersistentHashSet) {
+            return map.equals(((PersistentHashSet<?>) o).map);
+        }
+        return super.equals(o);
+    }
+}
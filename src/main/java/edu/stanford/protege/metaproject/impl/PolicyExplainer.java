@@ -0,0 +1,126 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.AuthorizationDecision.DenialReason;
+import edu.stanford.protege.metaproject.api.AuthorizationDecision.Grant;
+
+import javax.annotation.Nonnull;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Explains the authorization decisions of a server configuration. The outcome of a decision is always taken from the
+ * configuration's permission index, and the explanation is traced against the same index (role closures, group
+ * memberships, project groups and deny rules by scope), walking only the assignments and deny rules in the scopes
+ * that apply to the checked project: the project itself, the project groups that contain it and the universal
+ * project. Nothing is traced unless an explanation is requested, so permission checks are unaffected
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+final class PolicyExplainer {
+
+    private PolicyExplainer() { }
+
+    /**
+     * Explain whether the given user may carry out the specified operation in the given project
+     *
+     * @param config    Server configuration
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param operationId   Operation identifier
+     * @return Explained authorization decision
+     */
+    @Nonnull
+    static AuthorizationDecision explain(@Nonnull ServerConfigurationImpl config, @Nonnull UserId userId, @Nonnull ProjectId projectId,
+                                         @Nonnull OperationId operationId) {
+        checkNotNull(config);
+        checkNotNull(userId);
+        checkNotNull(projectId);
+        checkNotNull(operationId);
+        PolicyIndex index = config.policyIndex();
+        Set<ProjectId> scopes = new LinkedHashSet<>();
+        scopes.add(projectId);
+        scopes.addAll(index.getProjectGroups(projectId));
+        scopes.add(ConfigurationUtils.getUniversalProjectId());
+
+        List<Grant> grants = new ArrayList<>();
+        Set<RoleId> unknownRoles = new LinkedHashSet<>();
+        boolean assigned = trace(config, index, config.persistentPolicyMap().getOrDefault(userId, Collections.emptyMap()), scopes, operationId,
+                null, grants, unknownRoles);
+        ImmutableSet<UserGroupId> groupIds = index.getUserGroups(userId);
+        for (UserGroupId groupId : groupIds) {
+            UserGroup group = config.persistentUserGroups().get(groupId);
+            if (group != null) {
+                assigned |= trace(config, index, group.getAssignments(), scopes, operationId, groupId, grants, unknownRoles);
+            }
+        }
+
+        List<DenyRule> denyRules = new ArrayList<>();
+        for (ProjectId scope : scopes) {
+            for (DenyRule rule : index.getDenyRules(scope)) {
+                boolean applies = rule.getUserId().map(userId::equals).orElseGet(() -> rule.getUserGroupId().map(groupIds::contains).orElse(true));
+                if (applies && rule.getOperations().contains(operationId)) {
+                    denyRules.add(rule);
+                }
+            }
+        }
+        Collections.sort(denyRules);
+
+        boolean allowed = index.isOperationAllowed(userId, projectId, operationId);
+        Set<DenialReason> reasons = EnumSet.noneOf(DenialReason.class);
+        if (!allowed) {
+            if (!config.persistentUsers().containsKey(userId)) {
+                reasons.add(DenialReason.UNKNOWN_USER);
+            }
+            if (!index.isIndexed(operationId)) {
+                reasons.add(DenialReason.UNKNOWN_OPERATION);
+            }
+            if (!assigned) {
+                reasons.add(DenialReason.NO_ROLE_ASSIGNED);
+            }
+            if (!unknownRoles.isEmpty()) {
+                reasons.add(DenialReason.UNKNOWN_ROLE);
+            }
+            if (assigned && grants.isEmpty()) {
+                reasons.add(DenialReason.NO_ROLE_ALLOWS_OPERATION);
+            }
+            if (grants.isEmpty() && index.isOperationAllowed(userId, operationId)) {
+                reasons.add(DenialReason.NO_UNIVERSAL_GRANT);
+            }
+            if (!denyRules.isEmpty()) {
+                reasons.add(DenialReason.DENIED_BY_RULE);
+            }
+        }
+        return new AuthorizationDecisionImpl(userId, projectId, operationId, allowed, grants, denyRules, unknownRoles, reasons);
+    }
+
+    /**
+     * Collect the grants of the operation among the given assignments in the given scopes, and the assigned roles
+     * that do not exist
+     *
+     * @return true if some role is assigned in one of the scopes, false otherwise
+     */
+    private static boolean trace(ServerConfigurationImpl config, PolicyIndex index, Map<ProjectId, ? extends Set<RoleId>> assignments,
+                                 Set<ProjectId> scopes, OperationId operationId, UserGroupId groupId, List<Grant> grants, Set<RoleId> unknownRoles) {
+        boolean assigned = false;
+        for (ProjectId scope : scopes) {
+            Set<RoleId> roleIds = assignments.get(scope);
+            if (roleIds == null) {
+                continue;
+            }
+            for (RoleId roleId : roleIds) {
+                assigned = true;
+                if (!config.persistentRoles().containsKey(roleId)) {
+                    unknownRoles.add(roleId);
+                } else if (index.isOperationAllowed(roleId, operationId)) {
+                    grants.add(new AuthorizationDecisionImpl.GrantImpl(roleId, scope, groupId));
+                }
+            }
+        }
+        return assigned;
+    }
+}
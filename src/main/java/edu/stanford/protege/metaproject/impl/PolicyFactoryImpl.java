@@ -47,6 +47,79 @@ public final class PolicyFactoryImpl implements PolicyFactory {
         return new RoleImpl(roleId, name, description, operations);
     }
 
+    @Nonnull
+    @Override
+    public Role getRole(@Nonnull RoleId roleId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<OperationId> operations,
+                        @Nonnull Set<RoleId> includedRoles) {
+        checkNotNull(roleId, "Role identifier cannot be null");
+        checkNotNull(name, "Name cannot be null");
+        checkNotNull(description, "Description cannot be null");
+        checkNotNull(operations, "Operation identifier set cannot be null");
+        checkNotNull(includedRoles, "Included role identifier set cannot be null");
+        return new RoleImpl(roleId, name, description, operations, includedRoles);
+    }
+
+    @Nonnull
+    @Override
+    public UserGroup getUserGroup(@Nonnull UserGroupId groupId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<UserId> members,
+                                  @Nonnull Set<UserGroupId> subgroups, @Nonnull Map<ProjectId, ? extends Set<RoleId>> assignments) {
+        checkNotNull(groupId, "User group identifier cannot be null");
+        checkNotNull(name, "Name cannot be null");
+        checkNotNull(description, "Description cannot be null");
+        checkNotNull(members, "Member set cannot be null");
+        checkNotNull(subgroups, "Subgroup set cannot be null");
+        checkNotNull(assignments, "Assignment map cannot be null");
+        return new UserGroupImpl(groupId, name, description, members, subgroups, assignments);
+    }
+
+    @Nonnull
+    @Override
+    public ProjectGroup getProjectGroup(@Nonnull ProjectId groupId, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<ProjectId> projects,
+                                        @Nonnull Set<String> prefixes) {
+        checkNotNull(groupId, "Project group identifier cannot be null");
+        checkNotNull(name, "Name cannot be null");
+        checkNotNull(description, "Description cannot be null");
+        checkNotNull(projects, "Project identifier set cannot be null");
+        checkNotNull(prefixes, "Prefix set cannot be null");
+        return new ProjectGroupImpl(groupId, name, description, projects, prefixes);
+    }
+
+    @Nonnull
+    @Override
+    public DenyRule getUserDenyRule(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations) {
+        checkNotNull(userId, "User identifier cannot be null");
+        checkNotNull(projectId, "Project identifier cannot be null");
+        checkNotNull(operations, "Operation identifier set cannot be null");
+        return new DenyRuleImpl(userId, null, projectId, operations);
+    }
+
+    @Nonnull
+    @Override
+    public DenyRule getUserGroupDenyRule(@Nonnull UserGroupId groupId, @Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations) {
+        checkNotNull(groupId, "User group identifier cannot be null");
+        checkNotNull(projectId, "Project identifier cannot be null");
+        checkNotNull(operations, "Operation identifier set cannot be null");
+        return new DenyRuleImpl(null, groupId, projectId, operations);
+    }
+
+    @Nonnull
+    @Override
+    public DenyRule getProjectDenyRule(@Nonnull ProjectId projectId, @Nonnull Set<OperationId> operations) {
+        checkNotNull(projectId, "Project identifier cannot be null");
+        checkNotNull(operations, "Operation identifier set cannot be null");
+        return new DenyRuleImpl(null, null, projectId, operations);
+    }
+
+    @Nonnull
+    @Override
+    public TimedAssignment getTimedAssignment(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull RoleId roleId, long validFrom,
+                                              long validUntil) {
+        checkNotNull(userId, "User identifier cannot be null");
+        checkNotNull(projectId, "Project identifier cannot be null");
+        checkNotNull(roleId, "Role identifier cannot be null");
+        return new TimedAssignmentImpl(userId, projectId, roleId, validFrom, validUntil);
+    }
+
     @Nonnull
     @Override
     public Operation getCustomOperation(@Nonnull OperationId operationId, @Nonnull Name name, @Nonnull Description description, @Nonnull OperationType operationType, @Nonnull Operation.Scope scope) {
@@ -129,6 +202,13 @@ public final class PolicyFactoryImpl implements PolicyFactory {
         return new EmailAddressImpl(emailAddress);
     }
 
+    @Nonnull
+    @Override
+    public UserGroupId getUserGroupId(@Nonnull String groupId) {
+        checkNotNull(groupId, "User group identifier cannot be null");
+        return new UserGroupIdImpl(groupId);
+    }
+
     @Nonnull
     @Override
     public RoleId getRoleId(@Nonnull String roleId) {
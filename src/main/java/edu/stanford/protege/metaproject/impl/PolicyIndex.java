@@ -0,0 +1,735 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A permission index compiled from the roles, policy and user groups of a server configuration snapshot. Each
+ * operation referenced by some role is given a bit position, and each role is flattened into the set of bits of the
+ * operations it allows, either directly or through the roles it (transitively) includes. Roles that include each
+ * other in a cycle all allow the union of their operations. Group memberships are expanded through nested groups,
+ * and project groups are resolved into the projects they contain, matching their identifier prefixes against the
+ * projects of the configuration once. Each user's direct and group role assignments, minus the operations denied to
+ * the user by deny rules, are folded into one bit set per project plus one for all other projects, so that checking
+ * whether a user may carry out an operation is a map lookup and a bit test, regardless of how deep the role and
+ * group hierarchies are, and no pattern is evaluated at check time. The users that have some role in each project,
+ * directly, through user groups or through project groups, and the users that are assigned each role, are collected
+ * as well, as are the deny rules stated for each scope. For reverse queries, the rows are inverted on first use into
+ * the users allowed each operation per project, in all other projects and in some project, so that finding who may
+ * carry out an operation costs time proportional to the answer rather than to the number of users. The bit sets are
+ * never exposed, so the index is immutable once compiled
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class PolicyIndex {
+    @Nonnull private final Map<OperationId, Integer> operationBits;
+    @Nonnull private final OperationId[] operationsByBit;
+    @Nonnull private final Map<RoleId, BitSet> roleOperations;
+    @Nonnull private final Map<UserId, ImmutableSet<UserGroupId>> userGroups;
+    @Nonnull private final Map<ProjectId, ImmutableSet<ProjectId>> projectGroups, groupProjects;
+    @Nonnull private final Map<ProjectId, ImmutableSet<UserId>> projectUsers;
+    @Nonnull private final Map<RoleId, ImmutableSet<UserId>> roleUsers;
+    @Nonnull private final Map<ProjectId, ImmutableSet<DenyRule>> scopeDenyRules;
+    @Nonnull private final Map<UserId, Permissions> userPermissions;
+    private volatile Grantees grantees;
+
+    private PolicyIndex(Map<OperationId, Integer> operationBits, Map<RoleId, BitSet> roleOperations,
+                        Map<UserId, ImmutableSet<UserGroupId>> userGroups, Map<ProjectId, ImmutableSet<ProjectId>> projectGroups,
+                        Map<ProjectId, ImmutableSet<ProjectId>> groupProjects, Map<ProjectId, ImmutableSet<UserId>> projectUsers,
+                        Map<RoleId, ImmutableSet<UserId>> roleUsers, Map<ProjectId, ImmutableSet<DenyRule>> scopeDenyRules,
+                        Map<UserId, Permissions> userPermissions) {
+        this.operationBits = operationBits;
+        this.roleOperations = roleOperations;
+        this.userGroups = userGroups;
+        this.projectGroups = projectGroups;
+        this.groupProjects = groupProjects;
+        this.projectUsers = projectUsers;
+        this.roleUsers = roleUsers;
+        this.scopeDenyRules = scopeDenyRules;
+        this.userPermissions = userPermissions;
+        this.operationsByBit = new OperationId[operationBits.size()];
+        operationBits.forEach((operationId, bit) -> operationsByBit[bit] = operationId);
+    }
+
+    /**
+     * Compile the permission index of the given roles, policy, user groups, deny rules and project groups
+     *
+     * @param roles Map of role identifiers to roles
+     * @param policyMap Map of user identifiers to their direct project-role assignments
+     * @param groups    Map of user group identifiers to user groups
+     * @param denyRules Deny rules
+     * @param projectIds    Identifiers of the projects in the configuration
+     * @param projectGroupMap   Map of project group identifiers to project groups
+     * @return Permission index
+     */
+    @Nonnull
+    static PolicyIndex compile(@Nonnull Map<RoleId, Role> roles, @Nonnull Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap,
+                               @Nonnull Map<UserGroupId, UserGroup> groups, @Nonnull Collection<DenyRule> denyRules,
+                               @Nonnull Collection<ProjectId> projectIds, @Nonnull Map<ProjectId, ProjectGroup> projectGroupMap) {
+        checkNotNull(roles);
+        checkNotNull(policyMap);
+        checkNotNull(groups);
+        checkNotNull(denyRules);
+        checkNotNull(projectIds);
+        checkNotNull(projectGroupMap);
+        Map<OperationId, Integer> operationBits = new HashMap<>();
+        for (Role role : roles.values()) {
+            for (OperationId operationId : role.getOperations()) {
+                operationBits.putIfAbsent(operationId, operationBits.size());
+            }
+        }
+        Map<RoleId, BitSet> roleOperations = new Closure(roles, operationBits).compute();
+        Map<UserId, ImmutableSet<UserGroupId>> userGroups = expandGroups(groups);
+        Map<ProjectId, Set<ProjectId>> groupProjects = expandProjectGroups(projectIds, projectGroupMap);
+
+        // fold each group's assignments and deny rules into bit sets once, and then fold those into the rows of the
+        // group members, so that the rows of users in the same groups share the work
+        Map<UserGroupId, Grants> groupGrants = new HashMap<>();
+        for (UserGroup group : groups.values()) {
+            Grants grants = new Grants();
+            group.getAssignments().forEach((projectId, roleIds) -> grants.allow(projectId, roleIds, roleOperations));
+            groupGrants.put(group.getId(), grants);
+        }
+        Map<UserId, Grants> userGrants = new HashMap<>();
+        policyMap.forEach((userId, assignments) -> {
+            Grants grants = new Grants();
+            assignments.forEach((projectId, roleIds) -> grants.allow(projectId, roleIds, roleOperations));
+            userGrants.put(userId, grants);
+        });
+        Map<ProjectId, BitSet> projectDenials = new HashMap<>();
+        Map<ProjectId, Set<DenyRule>> scopeDenyRules = new HashMap<>();
+        for (DenyRule rule : denyRules) {
+            scopeDenyRules.computeIfAbsent(rule.getProjectId(), id -> new HashSet<>()).add(rule);
+            BitSet denied = new BitSet(operationBits.size());
+            for (OperationId operationId : rule.getOperations()) {
+                Integer bit = operationBits.get(operationId);
+                if (bit != null) {
+                    denied.set(bit);
+                }
+            }
+            if (rule.getUserId().isPresent()) {
+                userGrants.computeIfAbsent(rule.getUserId().get(), id -> new Grants()).deny(rule.getProjectId(), denied);
+            } else if (rule.getUserGroupId().isPresent()) {
+                Grants grants = groupGrants.get(rule.getUserGroupId().get());
+                if (grants != null) {
+                    grants.deny(rule.getProjectId(), denied);
+                }
+            } else {
+                projectDenials.computeIfAbsent(rule.getProjectId(), id -> new BitSet()).or(denied);
+            }
+        }
+        userGroups.forEach((userId, groupIds) -> {
+            Grants grants = userGrants.computeIfAbsent(userId, id -> new Grants());
+            for (UserGroupId groupId : groupIds) {
+                grants.add(groupGrants.get(groupId));
+            }
+        });
+        Map<ProjectId, BitSet> denials = expand(projectDenials, groupProjects);
+        Map<UserId, Permissions> userPermissions = new HashMap<>();
+        userGrants.forEach((userId, grants) -> userPermissions.put(userId, new Permissions(grants.expand(groupProjects), denials)));
+        Map<ProjectId, Set<ProjectId>> projectGroups = new HashMap<>();
+        groupProjects.forEach((groupId, members) -> members.forEach(projectId ->
+                projectGroups.computeIfAbsent(projectId, id -> new HashSet<>()).add(groupId)));
+        Map<ProjectId, Set<UserId>> projectUsers = new HashMap<>();
+        Map<RoleId, Set<UserId>> roleUsers = new HashMap<>();
+        policyMap.forEach((userId, assignments) -> {
+            forEachProject(assignments.keySet(), groupProjects,
+                    projectId -> projectUsers.computeIfAbsent(projectId, id -> new HashSet<>()).add(userId));
+            assignments.values().forEach(roleIds -> roleIds.forEach(
+                    roleId -> roleUsers.computeIfAbsent(roleId, id -> new HashSet<>()).add(userId)));
+        });
+        userGroups.forEach((userId, groupIds) -> {
+            for (UserGroupId groupId : groupIds) {
+                UserGroup group = groups.get(groupId);
+                if (group != null) {
+                    forEachProject(group.getAssignments().keySet(), groupProjects,
+                            projectId -> projectUsers.computeIfAbsent(projectId, id -> new HashSet<>()).add(userId));
+                    group.getAssignments().values().forEach(roleIds -> roleIds.forEach(
+                            roleId -> roleUsers.computeIfAbsent(roleId, id -> new HashSet<>()).add(userId)));
+                }
+            }
+        });
+        return new PolicyIndex(operationBits, roleOperations, userGroups, immutable(projectGroups), immutable(groupProjects),
+                immutable(projectUsers), immutable(roleUsers), immutable(scopeDenyRules), userPermissions);
+    }
+
+    /**
+     * Apply the given action to each of the given projects, replacing project groups with the projects they contain
+     */
+    private static void forEachProject(Collection<ProjectId> projectIds, Map<ProjectId, Set<ProjectId>> groupProjects,
+                                       Consumer<ProjectId> action) {
+        for (ProjectId projectId : projectIds) {
+            Set<ProjectId> members = groupProjects.get(projectId);
+            if (members == null) {
+                action.accept(projectId);
+            } else {
+                members.forEach(action);
+            }
+        }
+    }
+
+    private static <K, V> Map<K, ImmutableSet<V>> immutable(Map<K, Set<V>> map) {
+        Map<K, ImmutableSet<V>> result = new HashMap<>();
+        map.forEach((key, values) -> result.put(key, ImmutableSet.copyOf(values)));
+        return result;
+    }
+
+    /**
+     * Map each project group to the projects it contains, i.e., its listed projects and the projects of the
+     * configuration whose identifiers start with one of its prefixes. Prefixes are matched against the sorted
+     * project identifiers, so each prefix costs a logarithmic search plus the number of matching projects
+     */
+    private static Map<ProjectId, Set<ProjectId>> expandProjectGroups(Collection<ProjectId> projectIds, Map<ProjectId, ProjectGroup> projectGroups) {
+        NavigableMap<String, ProjectId> sorted = new TreeMap<>();
+        if (projectGroups.values().stream().anyMatch(group -> !group.getPrefixes().isEmpty())) {
+            for (ProjectId projectId : projectIds) {
+                sorted.put(projectId.get(), projectId);
+            }
+        }
+        Map<ProjectId, Set<ProjectId>> members = new HashMap<>();
+        for (ProjectGroup group : projectGroups.values()) {
+            Set<ProjectId> projects = new HashSet<>(group.getProjects());
+            for (String prefix : group.getPrefixes()) {
+                projects.addAll(sorted.subMap(prefix, true, prefix + Character.MAX_VALUE, true).values());
+            }
+            members.put(group.getId(), projects);
+        }
+        return members;
+    }
+
+    /**
+     * Get a copy of the given per-project bit sets where the bit sets of project groups are merged into those of
+     * the projects they contain
+     */
+    private static Map<ProjectId, BitSet> expand(Map<ProjectId, BitSet> operations, Map<ProjectId, Set<ProjectId>> groupProjects) {
+        if (groupProjects.isEmpty()) {
+            return operations;
+        }
+        Map<ProjectId, BitSet> expanded = new HashMap<>();
+        operations.forEach((projectId, bits) -> {
+            Set<ProjectId> members = groupProjects.get(projectId);
+            if (members == null) {
+                expanded.computeIfAbsent(projectId, id -> new BitSet()).or(bits);
+            } else {
+                members.forEach(member -> expanded.computeIfAbsent(member, id -> new BitSet()).or(bits));
+            }
+        });
+        return expanded;
+    }
+
+    /**
+     * Map each user to the groups it belongs to, directly or because a group it belongs to is a subgroup of another
+     * group. Nesting cycles are harmless: all groups in a cycle share their members
+     */
+    private static Map<UserId, ImmutableSet<UserGroupId>> expandGroups(Map<UserGroupId, UserGroup> groups) {
+        Map<UserGroupId, List<UserGroupId>> parents = new HashMap<>();
+        for (UserGroup group : groups.values()) {
+            for (UserGroupId subgroupId : group.getSubgroups()) {
+                parents.computeIfAbsent(subgroupId, id -> new ArrayList<>()).add(group.getId());
+            }
+        }
+        Map<UserId, Set<UserGroupId>> memberships = new HashMap<>();
+        for (UserGroup group : groups.values()) {
+            if (group.getMembers().isEmpty()) {
+                continue;
+            }
+            Set<UserGroupId> ancestors = new HashSet<>();
+            Deque<UserGroupId> pending = new ArrayDeque<>();
+            pending.push(group.getId());
+            while (!pending.isEmpty()) {
+                UserGroupId groupId = pending.pop();
+                if (ancestors.add(groupId)) {
+                    parents.getOrDefault(groupId, Collections.emptyList()).forEach(pending::push);
+                }
+            }
+            for (UserId userId : group.getMembers()) {
+                memberships.computeIfAbsent(userId, id -> new HashSet<>()).addAll(ancestors);
+            }
+        }
+        Map<UserId, ImmutableSet<UserGroupId>> result = new HashMap<>();
+        memberships.forEach((userId, groupIds) -> result.put(userId, ImmutableSet.copyOf(groupIds)));
+        return result;
+    }
+
+    /**
+     * Check whether the role with the given identifier allows the specified operation
+     *
+     * @param roleId    Role identifier
+     * @param operationId   Operation identifier
+     * @return true if the role exists and allows the operation, false otherwise
+     */
+    boolean isOperationAllowed(@Nonnull RoleId roleId, @Nonnull OperationId operationId) {
+        Integer bit = operationBits.get(operationId);
+        BitSet operations = roleOperations.get(roleId);
+        return bit != null && operations != null && operations.get(bit);
+    }
+
+    /**
+     * Apply the given action to each operation allowed by the role with the given identifier, including those
+     * inherited from the roles it includes
+     *
+     * @param roleId    Role identifier
+     * @param action    Action to apply to each operation identifier
+     */
+    void forEachOperation(@Nonnull RoleId roleId, @Nonnull Consumer<OperationId> action) {
+        BitSet operations = roleOperations.get(roleId);
+        if (operations != null) {
+            for (int bit = operations.nextSetBit(0); bit >= 0; bit = operations.nextSetBit(bit + 1)) {
+                action.accept(operationsByBit[bit]);
+            }
+        }
+    }
+
+    /**
+     * Check whether some role allows the specified operation
+     *
+     * @param operationId   Operation identifier
+     * @return true if the operation has a bit position in the index, false otherwise
+     */
+    boolean isIndexed(@Nonnull OperationId operationId) {
+        return operationBits.containsKey(operationId);
+    }
+
+    /**
+     * Check whether the given user may carry out the specified operation in the given project, through a role
+     * assigned to the user or to one of its groups, either in that project or in all projects, and no deny rule that
+     * applies to the user forbids the operation in that project or in all projects
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param operationId   Operation identifier
+     * @return true if the operation is allowed, false otherwise
+     */
+    boolean isOperationAllowed(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull OperationId operationId) {
+        Integer bit = operationBits.get(operationId);
+        Permissions permissions = userPermissions.get(userId);
+        return bit != null && permissions != null && permissions.isAllowed(projectId, bit);
+    }
+
+    /**
+     * Check whether the given user may carry out the specified operation in some project
+     *
+     * @param userId    User identifier
+     * @param operationId   Operation identifier
+     * @return true if the operation is allowed in some project, false otherwise
+     */
+    boolean isOperationAllowed(@Nonnull UserId userId, @Nonnull OperationId operationId) {
+        Integer bit = operationBits.get(operationId);
+        Permissions permissions = userPermissions.get(userId);
+        return bit != null && permissions != null && permissions.anyProject.get(bit);
+    }
+
+    /**
+     * Get the identifiers of the users that may carry out the specified operation in the given project, i.e., those
+     * for which {@link #isOperationAllowed(UserId, ProjectId, OperationId)} holds
+     *
+     * @param operationId   Operation identifier
+     * @param projectId Project identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getUserIds(@Nonnull OperationId operationId, @Nonnull ProjectId projectId) {
+        Integer bit = operationBits.get(operationId);
+        if (bit == null) {
+            return ImmutableSet.of();
+        }
+        Grantees grantees = grantees();
+        OperationGrantees operation = grantees.operations[bit];
+        ImmutableSet.Builder<UserId> userIds = ImmutableSet.builder();
+        userIds.addAll(operation.projects.getOrDefault(projectId, Collections.emptySet()));
+        // users with a row of their own for the project are allowed or not by that row alone
+        Set<UserId> rows = grantees.projectRows.getOrDefault(projectId, Collections.emptySet());
+        for (UserId userId : operation.otherProjects) {
+            if (!rows.contains(userId)) {
+                userIds.add(userId);
+            }
+        }
+        return userIds.build();
+    }
+
+    /**
+     * Get the identifiers of the users that may carry out the specified operation in some project, i.e., those for
+     * which {@link #isOperationAllowed(UserId, OperationId)} holds
+     *
+     * @param operationId   Operation identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getUserIds(@Nonnull OperationId operationId) {
+        Integer bit = operationBits.get(operationId);
+        return bit != null ? grantees().operations[bit].anyProject : ImmutableSet.of();
+    }
+
+    private Grantees grantees() {
+        Grantees result = grantees;
+        if (result == null) {
+            result = new Grantees(userPermissions, operationBits.size());
+            grantees = result;
+        }
+        return result;
+    }
+
+    /**
+     * Get the identifiers of the groups that the given user belongs to, directly or through subgroups
+     *
+     * @param userId    User identifier
+     * @return Set of user group identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserGroupId> getUserGroups(@Nonnull UserId userId) {
+        ImmutableSet<UserGroupId> groupIds = userGroups.get(userId);
+        return groupIds != null ? groupIds : ImmutableSet.of();
+    }
+
+    /**
+     * Get the identifiers of the project groups that contain the given project, either by listing it or through a
+     * prefix of its identifier
+     *
+     * @param projectId Project identifier
+     * @return Set of project group identifiers
+     */
+    @Nonnull
+    ImmutableSet<ProjectId> getProjectGroups(@Nonnull ProjectId projectId) {
+        ImmutableSet<ProjectId> groupIds = projectGroups.get(projectId);
+        return groupIds != null ? groupIds : ImmutableSet.of();
+    }
+
+    /**
+     * Get the identifiers of the projects that the given project group contains, either by listing them or through a
+     * prefix of their identifiers
+     *
+     * @param groupId   Project group identifier
+     * @return Set of project identifiers, empty if there is no such project group
+     */
+    @Nonnull
+    ImmutableSet<ProjectId> getProjects(@Nonnull ProjectId groupId) {
+        ImmutableSet<ProjectId> projectIds = groupProjects.get(groupId);
+        return projectIds != null ? projectIds : ImmutableSet.of();
+    }
+
+    /**
+     * Check whether the given identifier is that of a project group
+     *
+     * @param projectId Project or project group identifier
+     * @return true if there is a project group with the given identifier, false otherwise
+     */
+    boolean isProjectGroup(@Nonnull ProjectId projectId) {
+        return groupProjects.containsKey(projectId);
+    }
+
+    /**
+     * Get the identifiers of the users that have some role in the given project or in a project group that contains
+     * it, either directly or through the user groups they belong to. Roles assigned in all projects are not taken into
+     * account, unless the given project is the universal project itself
+     *
+     * @param projectId Project identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    ImmutableSet<UserId> getUserIds(@Nonnull ProjectId projectId) {
+        ImmutableSet<UserId> userIds = projectUsers.get(projectId);
+        return userIds != null ? userIds : ImmutableSet.of();
+    }
+
+    /**
+     * Get the deny rules stated for the given project, project group or the universal project. Rules stated for a
+     * project group are not returned for the projects it contains
+     *
+     * @param scope Project, project group or universal project identifier
+     * @return Set of deny rules
+     */
+    @Nonnull
+    ImmutableSet<DenyRule> getDenyRules(@Nonnull ProjectId scope) {
+        ImmutableSet<DenyRule> rules = scopeDenyRules.get(scope);
+        return rules != null ? rules : ImmutableSet.of();
+    }
+
+    /**
+     * Get the number of users that have some role in each project, counted like {@link #getUserIds(ProjectId)}, for
+     * each project that has some member
+     *
+     * @return Map of project identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<ProjectId, Integer> getMemberCounts() {
+        return counts(projectUsers);
+    }
+
+    /**
+     * Get the number of users that are assigned each role in some project, either directly or through the user
+     * groups they belong to, for each role that some user is assigned
+     *
+     * @return Map of role identifiers to numbers of users
+     */
+    @Nonnull
+    ImmutableMap<RoleId, Integer> getUserCounts() {
+        return counts(roleUsers);
+    }
+
+    private static <K> ImmutableMap<K, Integer> counts(Map<K, ImmutableSet<UserId>> users) {
+        ImmutableMap.Builder<K, Integer> builder = ImmutableMap.builder();
+        users.forEach((key, userIds) -> builder.put(key, userIds.size()));
+        return builder.build();
+    }
+
+    /**
+     * Get the identifiers of the operations allowed by the given role, including those inherited from the roles it
+     * includes. The given role need not be part of the indexed configuration, but its included roles are resolved
+     * against the configuration
+     *
+     * @param role  Role
+     * @return Set of operation identifiers
+     */
+    @Nonnull
+    Set<OperationId> getOperationIds(@Nonnull Role role) {
+        Set<OperationId> operations = new HashSet<>(role.getOperations());
+        for (RoleId roleId : role.getIncludedRoles()) {
+            BitSet included = roleOperations.get(roleId);
+            if (included != null) {
+                for (int bit = included.nextSetBit(0); bit >= 0; bit = included.nextSetBit(bit + 1)) {
+                    operations.add(operationsByBit[bit]);
+                }
+            }
+        }
+        return operations;
+    }
+
+    /**
+     * Stream the identifiers of the operations allowed by the given role, like {@link #getOperationIds(Role)}, but
+     * lazily and without collecting them into a set
+     *
+     * @param role  Role
+     * @return Stream of distinct operation identifiers
+     */
+    @Nonnull
+    Stream<OperationId> streamOperationIds(@Nonnull Role role) {
+        Stream<OperationId> inherited = role.getIncludedRoles().stream()
+                .map(roleOperations::get)
+                .filter(operations -> operations != null)
+                .flatMap(operations -> operations.stream().mapToObj(bit -> operationsByBit[bit]));
+        return Stream.concat(role.getOperations().stream(), inherited).distinct();
+    }
+
+    /**
+     * The operations granted to and denied to a user or group, as bit sets per project, where the universal project
+     * stands for all projects
+     */
+    private static final class Grants {
+        private final Map<ProjectId, BitSet> allowed = new HashMap<>(), denied = new HashMap<>();
+
+        private void allow(ProjectId projectId, Set<RoleId> roleIds, Map<RoleId, BitSet> roleOperations) {
+            BitSet operations = allowed.computeIfAbsent(projectId, id -> new BitSet());
+            for (RoleId roleId : roleIds) {
+                BitSet granted = roleOperations.get(roleId);
+                if (granted != null) {
+                    operations.or(granted);
+                }
+            }
+        }
+
+        private void deny(ProjectId projectId, BitSet operations) {
+            denied.computeIfAbsent(projectId, id -> new BitSet()).or(operations);
+        }
+
+        private void add(Grants grants) {
+            grants.allowed.forEach((projectId, operations) -> allowed.computeIfAbsent(projectId, id -> new BitSet()).or(operations));
+            grants.denied.forEach((projectId, operations) -> denied.computeIfAbsent(projectId, id -> new BitSet()).or(operations));
+        }
+
+        private Grants expand(Map<ProjectId, Set<ProjectId>> groupProjects) {
+            Grants expanded = new Grants();
+            expanded.allowed.putAll(PolicyIndex.expand(allowed, groupProjects));
+            expanded.denied.putAll(PolicyIndex.expand(denied, groupProjects));
+            return expanded;
+        }
+    }
+
+    /**
+     * The operations a user may carry out, as one bit set for each project that has its own grants or denials, one
+     * for all other projects (which only receive the grants and denials stated for all projects), and the union of
+     * those bit sets
+     */
+    private static final class Permissions {
+        private final Map<ProjectId, BitSet> projects = new HashMap<>();
+        private final BitSet otherProjects, anyProject;
+
+        private Permissions(Grants grants, Map<ProjectId, BitSet> projectDenials) {
+            ProjectId universal = ConfigurationUtils.getUniversalProjectId();
+            BitSet allowedEverywhere = grants.allowed.getOrDefault(universal, new BitSet()),
+                    deniedEverywhere = or(grants.denied.get(universal), projectDenials.get(universal));
+            otherProjects = (BitSet) allowedEverywhere.clone();
+            otherProjects.andNot(deniedEverywhere);
+            anyProject = (BitSet) otherProjects.clone();
+
+            // projects without grants of their own only need a row if something is allowed in all projects
+            Set<ProjectId> projectIds = new HashSet<>(grants.allowed.keySet());
+            if (!allowedEverywhere.isEmpty()) {
+                projectIds.addAll(grants.denied.keySet());
+                projectIds.addAll(projectDenials.keySet());
+            }
+            projectIds.remove(universal);
+            for (ProjectId projectId : projectIds) {
+                BitSet operations = or(grants.allowed.get(projectId), allowedEverywhere);
+                operations.andNot(or(or(grants.denied.get(projectId), projectDenials.get(projectId)), deniedEverywhere));
+                projects.put(projectId, operations);
+                anyProject.or(operations);
+            }
+        }
+
+        private static BitSet or(BitSet first, BitSet second) {
+            BitSet result = first != null ? (BitSet) first.clone() : new BitSet();
+            if (second != null) {
+                result.or(second);
+            }
+            return result;
+        }
+
+        private boolean isAllowed(ProjectId projectId, int bit) {
+            return projects.getOrDefault(projectId, otherProjects).get(bit);
+        }
+    }
+
+    /**
+     * The users' permission rows inverted by operation: for each operation bit, the users allowed it in each project
+     * that has rows of its own, in all other projects, and in some project
+     */
+    private static final class Grantees {
+        private final OperationGrantees[] operations;
+        private final Map<ProjectId, Set<UserId>> projectRows = new HashMap<>();
+
+        private Grantees(Map<UserId, Permissions> userPermissions, int bits) {
+            List<Map<ProjectId, Set<UserId>>> projects = new ArrayList<>(bits);
+            List<Set<UserId>> otherProjects = new ArrayList<>(bits), anyProject = new ArrayList<>(bits);
+            for (int bit = 0; bit < bits; bit++) {
+                projects.add(new HashMap<>());
+                otherProjects.add(new HashSet<>());
+                anyProject.add(new HashSet<>());
+            }
+            userPermissions.forEach((userId, permissions) -> {
+                forEachBit(permissions.otherProjects, bit -> otherProjects.get(bit).add(userId));
+                forEachBit(permissions.anyProject, bit -> anyProject.get(bit).add(userId));
+                permissions.projects.forEach((projectId, operations) -> {
+                    projectRows.computeIfAbsent(projectId, id -> new HashSet<>()).add(userId);
+                    forEachBit(operations, bit -> projects.get(bit).computeIfAbsent(projectId, id -> new HashSet<>()).add(userId));
+                });
+            });
+            operations = new OperationGrantees[bits];
+            for (int bit = 0; bit < bits; bit++) {
+                operations[bit] = new OperationGrantees(projects.get(bit), otherProjects.get(bit), anyProject.get(bit));
+            }
+        }
+
+        private static void forEachBit(BitSet bits, IntConsumer action) {
+            for (int bit = bits.nextSetBit(0); bit >= 0; bit = bits.nextSetBit(bit + 1)) {
+                action.accept(bit);
+            }
+        }
+    }
+
+    /**
+     * The users allowed an operation in each project that has rows of its own, in all other projects, and in some
+     * project
+     */
+    private static final class OperationGrantees {
+        private final Map<ProjectId, Set<UserId>> projects;
+        private final Set<UserId> otherProjects;
+        private final ImmutableSet<UserId> anyProject;
+
+        private OperationGrantees(Map<ProjectId, Set<UserId>> projects, Set<UserId> otherProjects, Set<UserId> anyProject) {
+            this.projects = projects;
+            this.otherProjects = otherProjects;
+            this.anyProject = ImmutableSet.copyOf(anyProject);
+        }
+    }
+
+    /**
+     * Computes the transitive closure of role inclusions over operation bit sets, using Tarjan's strongly connected
+     * components algorithm so that each role is visited once, and roles in a cycle share a single bit set
+     */
+    private static final class Closure {
+        private final Map<RoleId, Role> roles;
+        private final Map<OperationId, Integer> operationBits;
+        private final Map<RoleId, BitSet> closures = new HashMap<>();
+        private final Map<RoleId, Integer> indexes = new HashMap<>(), lowLinks = new HashMap<>();
+        private final Deque<RoleId> stack = new ArrayDeque<>();
+        private final Set<RoleId> onStack = new HashSet<>();
+
+        private Closure(Map<RoleId, Role> roles, Map<OperationId, Integer> operationBits) {
+            this.roles = roles;
+            this.operationBits = operationBits;
+        }
+
+        private Map<RoleId, BitSet> compute() {
+            for (RoleId roleId : roles.keySet()) {
+                if (!indexes.containsKey(roleId)) {
+                    visit(roleId);
+                }
+            }
+            return closures;
+        }
+
+        private void visit(RoleId roleId) {
+            int index = indexes.size();
+            indexes.put(roleId, index);
+            lowLinks.put(roleId, index);
+            stack.push(roleId);
+            onStack.add(roleId);
+            Role role = roles.get(roleId);
+            BitSet operations = new BitSet(operationBits.size());
+            for (OperationId operationId : role.getOperations()) {
+                operations.set(operationBits.get(operationId));
+            }
+            for (RoleId includedRoleId : role.getIncludedRoles()) {
+                if (!roles.containsKey(includedRoleId)) {
+                    continue;
+                }
+                if (!indexes.containsKey(includedRoleId)) {
+                    visit(includedRoleId);
+                    lowLinks.put(roleId, Math.min(lowLinks.get(roleId), lowLinks.get(includedRoleId)));
+                } else if (onStack.contains(includedRoleId)) {
+                    lowLinks.put(roleId, Math.min(lowLinks.get(roleId), indexes.get(includedRoleId)));
+                    continue;
+                }
+                BitSet included = closures.get(includedRoleId);
+                if (included != null) {
+                    operations.or(included);
+                }
+            }
+            closures.put(roleId, operations);
+            if (lowLinks.get(roleId) == index) {
+                // roleId is the root of a strongly connected component: all its members allow the same operations
+                List<RoleId> component = new ArrayList<>();
+                RoleId member;
+                do {
+                    member = stack.pop();
+                    onStack.remove(member);
+                    component.add(member);
+                } while (!member.equals(roleId));
+                if (component.size() > 1) {
+                    BitSet union = new BitSet(operationBits.size());
+                    for (RoleId id : component) {
+                        union.or(closures.get(id));
+                    }
+                    for (RoleId id : component) {
+                        closures.put(id, union);
+                    }
+                }
+            }
+        }
+    }
+}
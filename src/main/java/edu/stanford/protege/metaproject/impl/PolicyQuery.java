@@ -0,0 +1,585 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+import java.util.function.IntFunction;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A policy query, compiled into a plan of lookups and bit set operations over a {@link PolicyQueryIndex}. A query is
+ * a condition on users or on projects, built from the predicates below with {@code and}, {@code or}, {@code not} and
+ * parentheses. Identifiers are written as they are, or in double quotes if they contain spaces, parentheses or
+ * quotes, or coincide with a keyword. Keywords are not case sensitive.
+ * <p>
+ * User predicates:
+ * <ul>
+ *     <li>{@code has role R} or {@code has any role}, optionally followed by a scope: {@code on project P} (where P
+ *     may also be a project group), {@code on projects owned by U}, {@code on projects in group G} or
+ *     {@code globally}. Assignments are taken as stated in the policy, directly or through a user group</li>
+ *     <li>{@code can O} or {@code can O on project P}: the operation is allowed, as by
+ *     {@link ConfigurationBrowser#isOperationAllowed(OperationId, ProjectId, UserId)}</li>
+ *     <li>{@code in group G}: member of the user group or of one of its subgroups</li>
+ *     <li>{@code is U}</li>
+ * </ul>
+ * Project predicates are {@code owned by U}, {@code has member U} (U is assigned some role in the project),
+ * {@code in group G} (G is a project group) and {@code is P}. For example, the users with the editor role on some
+ * project owned by alice but with no global role are
+ * {@code has role editor on projects owned by alice and not has any role globally}.
+ * <p>
+ * The planner flattens nested conjunctions and disjunctions and removes double negations. Conjunctions start from
+ * their smallest operand and narrow it down with the others in order of size, stopping as soon as the result is
+ * empty, and subtract negated operands instead of complementing them
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class PolicyQuery<T> {
+    private static final PolicyFactory factory = ConfigurationManager.getFactory();
+    @Nonnull private final Plan plan;
+    @Nonnull private final IntFunction<T> ids;
+
+    private PolicyQuery(Plan plan, IntFunction<T> ids) {
+        this.plan = plan;
+        this.ids = ids;
+    }
+
+    /**
+     * Compile a condition on users
+     *
+     * @param index Query index
+     * @param condition Condition on users
+     * @return Compiled query
+     * @throws IllegalArgumentException The condition is malformed or refers to an unknown policy object
+     */
+    @Nonnull
+    static PolicyQuery<UserId> users(@Nonnull PolicyQueryIndex index, @Nonnull String condition) {
+        Parser parser = new Parser(index, checkNotNull(condition), true);
+        return new PolicyQuery<>(parser.parse(), index::getUserId);
+    }
+
+    /**
+     * Compile a condition on projects
+     *
+     * @param index Query index
+     * @param condition Condition on projects
+     * @return Compiled query
+     * @throws IllegalArgumentException The condition is malformed or refers to an unknown policy object
+     */
+    @Nonnull
+    static PolicyQuery<ProjectId> projects(@Nonnull PolicyQueryIndex index, @Nonnull String condition) {
+        Parser parser = new Parser(index, checkNotNull(condition), false);
+        return new PolicyQuery<>(parser.parse(), index::getProjectId);
+    }
+
+    /**
+     * Evaluate the query
+     *
+     * @return Identifiers of the matching users or projects, in identifier order
+     */
+    @Nonnull
+    ImmutableSet<T> evaluate() {
+        BitSet result = plan.evaluate();
+        ImmutableSet.Builder<T> builder = ImmutableSet.builder();
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            builder.add(ids.apply(i));
+        }
+        return builder.build();
+    }
+
+    /**
+     * Get a description of the query plan, with the operands of each operation in evaluation order
+     *
+     * @return Query plan
+     */
+    @Nonnull
+    String getPlan() {
+        return plan.toString();
+    }
+
+    @Override
+    public String toString() {
+        return getPlan();
+    }
+
+    /* query plans */
+
+    /**
+     * A node of a query plan, which evaluates to a new bit set that the caller may modify
+     */
+    private static abstract class Plan {
+        abstract int estimate();
+
+        abstract BitSet evaluate();
+    }
+
+    /**
+     * An index lookup
+     */
+    private static final class Lookup extends Plan {
+        private final String description;
+        private final BitSet bits;
+        private final int cardinality;
+
+        private Lookup(String description, BitSet bits) {
+            this.description = description;
+            this.bits = bits;
+            this.cardinality = bits.cardinality();
+        }
+
+        @Override
+        int estimate() {
+            return cardinality;
+        }
+
+        @Override
+        BitSet evaluate() {
+            return (BitSet) bits.clone();
+        }
+
+        @Override
+        public String toString() {
+            return description;
+        }
+    }
+
+    private static final class And extends Plan {
+        private final ImmutableList<Plan> operands, negated;
+
+        private And(List<Plan> operands, List<Plan> negated) {
+            this.operands = ImmutableList.copyOf(operands);
+            this.negated = ImmutableList.copyOf(negated);
+        }
+
+        @Override
+        int estimate() {
+            return operands.get(0).estimate();
+        }
+
+        @Override
+        BitSet evaluate() {
+            BitSet result = operands.get(0).evaluate();
+            for (int i = 1; i < operands.size() && !result.isEmpty(); i++) {
+                result.and(operands.get(i).evaluate());
+            }
+            for (int i = 0; i < negated.size() && !result.isEmpty(); i++) {
+                result.andNot(negated.get(i).evaluate());
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            List<Object> all = new ArrayList<>(operands);
+            negated.forEach(plan -> all.add("not " + plan));
+            return "and(" + Joiner.on(", ").join(all) + ")";
+        }
+    }
+
+    private static final class Or extends Plan {
+        private final ImmutableList<Plan> operands;
+        private final int universe;
+
+        private Or(List<Plan> operands, int universe) {
+            this.operands = ImmutableList.copyOf(operands);
+            this.universe = universe;
+        }
+
+        @Override
+        int estimate() {
+            long sum = 0;
+            for (Plan operand : operands) {
+                sum += operand.estimate();
+            }
+            return (int) Math.min(sum, universe);
+        }
+
+        @Override
+        BitSet evaluate() {
+            BitSet result = operands.get(0).evaluate();
+            for (int i = 1; i < operands.size(); i++) {
+                result.or(operands.get(i).evaluate());
+            }
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "or(" + Joiner.on(", ").join(operands) + ")";
+        }
+    }
+
+    private static final class Not extends Plan {
+        private final Plan operand;
+        private final Lookup universe;
+
+        private Not(Plan operand, Lookup universe) {
+            this.operand = operand;
+            this.universe = universe;
+        }
+
+        @Override
+        int estimate() {
+            return universe.estimate() - operand.estimate();
+        }
+
+        @Override
+        BitSet evaluate() {
+            BitSet result = universe.evaluate();
+            result.andNot(operand.evaluate());
+            return result;
+        }
+
+        @Override
+        public String toString() {
+            return "not " + operand;
+        }
+    }
+
+    /* parsing and planning */
+
+    private static final class Token {
+        private final String text;
+        private final boolean quoted;
+        private final int position;
+
+        private Token(String text, boolean quoted, int position) {
+            this.text = text;
+            this.quoted = quoted;
+            this.position = position;
+        }
+
+        private boolean is(String keyword) {
+            return !quoted && text.equalsIgnoreCase(keyword);
+        }
+    }
+
+    /**
+     * Recursive descent parser that plans each connective as it is parsed
+     */
+    private static final class Parser {
+        private final PolicyQueryIndex index;
+        private final ServerConfigurationImpl config;
+        private final String condition;
+        private final boolean users;
+        private final Lookup universe;
+        private final List<Token> tokens = new ArrayList<>();
+        private int next;
+
+        private Parser(PolicyQueryIndex index, String condition, boolean users) {
+            this.index = checkNotNull(index);
+            this.config = index.getConfiguration();
+            this.condition = condition;
+            this.users = users;
+            this.universe = new Lookup(users ? "all users" : "all projects", users ? index.getAllUsers() : index.getAllProjects());
+            tokenize();
+        }
+
+        private void tokenize() {
+            int i = 0;
+            while (i < condition.length()) {
+                char c = condition.charAt(i);
+                if (Character.isWhitespace(c)) {
+                    i++;
+                } else if (c == '(' || c == ')') {
+                    tokens.add(new Token(String.valueOf(c), false, i++));
+                } else if (c == '"') {
+                    StringBuilder text = new StringBuilder();
+                    int start = i++;
+                    while (i < condition.length() && condition.charAt(i) != '"') {
+                        if (condition.charAt(i) == '\\' && i + 1 < condition.length()) {
+                            i++;
+                        }
+                        text.append(condition.charAt(i++));
+                    }
+                    if (i == condition.length()) {
+                        throw error("Unterminated quoted identifier", start);
+                    }
+                    i++;
+                    tokens.add(new Token(text.toString(), true, start));
+                } else {
+                    int start = i;
+                    while (i < condition.length() && !Character.isWhitespace(condition.charAt(i)) && "()\"".indexOf(condition.charAt(i)) < 0) {
+                        i++;
+                    }
+                    tokens.add(new Token(condition.substring(start, i), false, start));
+                }
+            }
+        }
+
+        private Plan parse() {
+            if (tokens.isEmpty()) {
+                throw new IllegalArgumentException("The query condition is empty");
+            }
+            Plan plan = parseOr();
+            if (next < tokens.size()) {
+                throw error("Unexpected '" + tokens.get(next).text + "'", tokens.get(next).position);
+            }
+            return plan;
+        }
+
+        private Plan parseOr() {
+            List<Plan> operands = new ArrayList<>();
+            operands.add(parseAnd());
+            while (accept("or")) {
+                operands.add(parseAnd());
+            }
+            return or(operands);
+        }
+
+        private Plan parseAnd() {
+            List<Plan> operands = new ArrayList<>();
+            operands.add(parseUnary());
+            while (accept("and")) {
+                operands.add(parseUnary());
+            }
+            return and(operands);
+        }
+
+        private Plan parseUnary() {
+            if (accept("not")) {
+                return not(parseUnary());
+            }
+            if (accept("(")) {
+                Plan plan = parseOr();
+                expect(")");
+                return plan;
+            }
+            return users ? parseUserPredicate() : parseProjectPredicate();
+        }
+
+        private Plan parseUserPredicate() {
+            if (accept("has")) {
+                Optional<RoleId> roleId;
+                if (accept("any")) {
+                    expect("role");
+                    roleId = Optional.empty();
+                } else {
+                    expect("role");
+                    roleId = Optional.of(roleId(identifier()));
+                }
+                return parseScope(roleId);
+            }
+            if (accept("can")) {
+                OperationId operationId = operationId(identifier());
+                Optional<ProjectId> projectId = Optional.empty();
+                if (accept("on")) {
+                    expect("project");
+                    projectId = Optional.of(projectId(identifier(), false));
+                }
+                return new Lookup("can(" + operationId.get() + projectId.map(p -> ", " + p.get()).orElse("") + ")",
+                        index.getAllowedUsers(operationId, projectId));
+            }
+            if (accept("in")) {
+                expect("group");
+                UserGroupId groupId = userGroupId(identifier());
+                return new Lookup("group(" + groupId.get() + ")", index.getGroupMembers(groupId));
+            }
+            if (accept("is")) {
+                UserId userId = userId(identifier());
+                return new Lookup("user(" + userId.get() + ")", index.getUser(userId));
+            }
+            throw expected("a user predicate");
+        }
+
+        private Plan parseScope(Optional<RoleId> roleId) {
+            String role = roleId.map(RoleId::get).orElse("*");
+            if (accept("globally")) {
+                return scopeLookup(roleId, ConfigurationUtils.getUniversalProjectId());
+            }
+            if (!accept("on")) {
+                return new Lookup("role(" + role + ")", roleId.isPresent() ? index.getUsers(roleId.get()) : index.getAssignedUsers());
+            }
+            if (accept("project")) {
+                return scopeLookup(roleId, projectId(identifier(), true));
+            }
+            expect("projects");
+            BitSet projects;
+            if (accept("owned")) {
+                expect("by");
+                projects = index.getOwnedProjects(userId(identifier()));
+            } else if (accept("in")) {
+                expect("group");
+                projects = index.getGroupProjects(projectGroupId(identifier()));
+            } else {
+                throw expected("'owned by' or 'in group'");
+            }
+            List<Plan> scopes = new ArrayList<>();
+            for (int i = projects.nextSetBit(0); i >= 0; i = projects.nextSetBit(i + 1)) {
+                scopes.add(scopeLookup(roleId, index.getProjectId(i)));
+            }
+            return or(scopes);
+        }
+
+        private Lookup scopeLookup(Optional<RoleId> roleId, ProjectId scope) {
+            String description = "role(" + roleId.map(RoleId::get).orElse("*") + ", " + scope.get() + ")";
+            return new Lookup(description, roleId.isPresent() ? index.getUsers(roleId.get(), scope) : index.getAssignedUsers(scope));
+        }
+
+        private Plan parseProjectPredicate() {
+            if (accept("owned")) {
+                expect("by");
+                UserId userId = userId(identifier());
+                return new Lookup("owner(" + userId.get() + ")", index.getOwnedProjects(userId));
+            }
+            if (accept("has")) {
+                expect("member");
+                UserId userId = userId(identifier());
+                return new Lookup("member(" + userId.get() + ")", index.getMemberProjects(userId));
+            }
+            if (accept("in")) {
+                expect("group");
+                ProjectId groupId = projectGroupId(identifier());
+                return new Lookup("group(" + groupId.get() + ")", index.getGroupProjects(groupId));
+            }
+            if (accept("is")) {
+                ProjectId projectId = projectId(identifier(), false);
+                return new Lookup("project(" + projectId.get() + ")", index.getProject(projectId));
+            }
+            throw expected("a project predicate");
+        }
+
+        /**
+         * Plan a conjunction: nested conjunctions are merged, negated operands are subtracted, and the remaining
+         * operands are intersected from the smallest up
+         */
+        private Plan and(List<Plan> plans) {
+            if (plans.size() == 1) {
+                return plans.get(0);
+            }
+            List<Plan> operands = new ArrayList<>(), negated = new ArrayList<>();
+            for (Plan plan : plans) {
+                if (plan instanceof And) {
+                    operands.addAll(((And) plan).operands);
+                    negated.addAll(((And) plan).negated);
+                } else if (plan instanceof Not) {
+                    negated.add(((Not) plan).operand);
+                } else {
+                    operands.add(plan);
+                }
+            }
+            if (operands.isEmpty()) {
+                operands.add(universe);
+            }
+            operands.sort(Comparator.comparingInt(Plan::estimate));
+            negated.sort(Comparator.comparingInt(Plan::estimate).reversed());
+            return new And(operands, negated);
+        }
+
+        private Plan or(List<Plan> plans) {
+            if (plans.isEmpty()) {
+                return new Lookup("nothing", new BitSet());
+            }
+            if (plans.size() == 1) {
+                return plans.get(0);
+            }
+            List<Plan> operands = new ArrayList<>();
+            for (Plan plan : plans) {
+                if (plan instanceof Or) {
+                    operands.addAll(((Or) plan).operands);
+                } else {
+                    operands.add(plan);
+                }
+            }
+            operands.sort(Comparator.comparingInt(Plan::estimate).reversed());
+            return new Or(operands, universe.estimate());
+        }
+
+        private Plan not(Plan plan) {
+            if (plan instanceof Not) {
+                return ((Not) plan).operand;
+            }
+            return new Not(plan, universe);
+        }
+
+        /* identifiers */
+
+        private RoleId roleId(Token token) {
+            RoleId roleId = factory.getRoleId(token.text);
+            check(config.persistentRoles().containsKey(roleId), "role", token);
+            return roleId;
+        }
+
+        private OperationId operationId(Token token) {
+            OperationId operationId = factory.getOperationId(token.text);
+            check(config.persistentOperations().containsKey(operationId), "operation", token);
+            return operationId;
+        }
+
+        private UserId userId(Token token) {
+            UserId userId = factory.getUserId(token.text);
+            check(config.persistentUsers().containsKey(userId), "user", token);
+            return userId;
+        }
+
+        private UserGroupId userGroupId(Token token) {
+            UserGroupId groupId = factory.getUserGroupId(token.text);
+            check(config.persistentUserGroups().containsKey(groupId), "user group", token);
+            return groupId;
+        }
+
+        private ProjectId projectGroupId(Token token) {
+            ProjectId groupId = factory.getProjectId(token.text);
+            check(config.persistentProjectGroups().containsKey(groupId), "project group", token);
+            return groupId;
+        }
+
+        private ProjectId projectId(Token token, boolean scope) {
+            ProjectId projectId = factory.getProjectId(token.text);
+            check(config.persistentProjects().containsKey(projectId) || (scope && config.persistentProjectGroups().containsKey(projectId)),
+                    scope ? "project or project group" : "project", token);
+            return projectId;
+        }
+
+        private void check(boolean known, String type, Token token) {
+            if (!known) {
+                throw error("Unknown " + type + " '" + token.text + "'", token.position);
+            }
+        }
+
+        /* tokens */
+
+        private boolean accept(String keyword) {
+            if (next < tokens.size() && tokens.get(next).is(keyword)) {
+                next++;
+                return true;
+            }
+            return false;
+        }
+
+        private void expect(String keyword) {
+            if (!accept(keyword)) {
+                throw expected("'" + keyword + "'");
+            }
+        }
+
+        private Token identifier() {
+            if (next == tokens.size() || (!tokens.get(next).quoted && "()".contains(tokens.get(next).text))) {
+                throw expected("an identifier");
+            }
+            return tokens.get(next++);
+        }
+
+        private IllegalArgumentException expected(String what) {
+            if (next == tokens.size()) {
+                return error("Expected " + what, condition.length());
+            }
+            return error("Expected " + what + " but found '" + tokens.get(next).text + "'", tokens.get(next).position);
+        }
+
+        private IllegalArgumentException error(String message, int position) {
+            return new IllegalArgumentException(message + " at position " + position + " of query: " + condition);
+        }
+    }
+}
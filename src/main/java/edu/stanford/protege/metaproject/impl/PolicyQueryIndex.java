@@ -0,0 +1,244 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The bit set indexes that policy queries are evaluated against, compiled once per server configuration snapshot.
+ * Users and projects are numbered in identifier order, and each index maps a role, scope, user group, owner or
+ * project group to the bit set of the users or projects it relates to, so that the conditions of a query become
+ * lookups and the connectives become bit set operations. Role assignments made to user groups are indexed as
+ * assignments to each of their members. The index is not modified once compiled, and the bit sets it hands out must
+ * not be modified either
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class PolicyQueryIndex {
+    private static final BitSet EMPTY = new BitSet();
+    @Nonnull private final ServerConfigurationImpl config;
+    @Nonnull private final UserId[] users;
+    @Nonnull private final ProjectId[] projects;
+    @Nonnull private final Map<UserId, Integer> userOrdinals = new HashMap<>();
+    @Nonnull private final Map<ProjectId, Integer> projectOrdinals = new HashMap<>();
+    @Nonnull private final BitSet allUsers, allProjects;
+    // users assigned each role in each scope, in any scope, and any role in each scope
+    @Nonnull private final Map<ProjectId, Map<RoleId, BitSet>> scopeRoleUsers = new HashMap<>();
+    @Nonnull private final Map<RoleId, BitSet> roleUsers = new HashMap<>();
+    @Nonnull private final Map<ProjectId, BitSet> scopeUsers = new HashMap<>();
+    @Nonnull private final BitSet assignedUsers = new BitSet();
+    @Nonnull private final Map<UserGroupId, BitSet> groupUsers = new HashMap<>();
+    // projects of each owner, in each project group, and in which each user is assigned some role
+    @Nonnull private final Map<UserId, BitSet> ownerProjects = new HashMap<>();
+    @Nonnull private final Map<ProjectId, BitSet> groupProjects = new HashMap<>();
+    @Nonnull private final Map<UserId, BitSet> memberProjects = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param config    Server configuration
+     */
+    PolicyQueryIndex(@Nonnull ServerConfigurationImpl config) {
+        this.config = checkNotNull(config);
+        PolicyIndex index = config.policyIndex();
+        ProjectId universal = ConfigurationUtils.getUniversalProjectId();
+        users = config.persistentUsers().keySet().stream().sorted().toArray(UserId[]::new);
+        projects = config.persistentProjects().keySet().stream().filter(projectId -> !projectId.equals(universal))
+                .sorted().toArray(ProjectId[]::new);
+        for (int i = 0; i < users.length; i++) {
+            userOrdinals.put(users[i], i);
+        }
+        for (int i = 0; i < projects.length; i++) {
+            projectOrdinals.put(projects[i], i);
+        }
+        allUsers = new BitSet();
+        allUsers.set(0, users.length);
+        allProjects = new BitSet();
+        allProjects.set(0, projects.length);
+        for (int user = 0; user < users.length; user++) {
+            Map<ProjectId, Set<RoleId>> assignments = config.persistentPolicyMap().get(users[user]);
+            if (assignments != null) {
+                addAssignments(user, assignments);
+            }
+            for (UserGroupId groupId : index.getUserGroups(users[user])) {
+                groupUsers.computeIfAbsent(groupId, id -> new BitSet()).set(user);
+                UserGroup group = config.persistentUserGroups().get(groupId);
+                if (group != null) {
+                    addAssignments(user, group.getAssignments());
+                }
+            }
+        }
+        for (int project = 0; project < projects.length; project++) {
+            Project p = config.persistentProjects().get(projects[project]);
+            ownerProjects.computeIfAbsent(p.getOwner(), id -> new BitSet()).set(project);
+            for (ProjectId groupId : index.getProjectGroups(projects[project])) {
+                groupProjects.computeIfAbsent(groupId, id -> new BitSet()).set(project);
+            }
+        }
+    }
+
+    private void addAssignments(int user, Map<ProjectId, ? extends Set<RoleId>> assignments) {
+        assignments.forEach((scope, roleIds) -> {
+            if (roleIds.isEmpty()) {
+                return;
+            }
+            Map<RoleId, BitSet> scopeRoles = scopeRoleUsers.computeIfAbsent(scope, id -> new HashMap<>());
+            for (RoleId roleId : roleIds) {
+                scopeRoles.computeIfAbsent(roleId, id -> new BitSet()).set(user);
+                roleUsers.computeIfAbsent(roleId, id -> new BitSet()).set(user);
+            }
+            scopeUsers.computeIfAbsent(scope, id -> new BitSet()).set(user);
+            assignedUsers.set(user);
+            Integer project = projectOrdinals.get(scope);
+            if (project != null) {
+                memberProjects.computeIfAbsent(users[user], id -> new BitSet()).set(project);
+            }
+        });
+    }
+
+    @Nonnull
+    ServerConfigurationImpl getConfiguration() {
+        return config;
+    }
+
+    @Nonnull
+    BitSet getAllUsers() {
+        return allUsers;
+    }
+
+    @Nonnull
+    BitSet getAllProjects() {
+        return allProjects;
+    }
+
+    @Nonnull
+    UserId getUserId(int user) {
+        return users[user];
+    }
+
+    @Nonnull
+    ProjectId getProjectId(int project) {
+        return projects[project];
+    }
+
+    /**
+     * Get the users with the given user identifier, i.e., that user if it exists
+     */
+    @Nonnull
+    BitSet getUser(@Nonnull UserId userId) {
+        return singleton(userOrdinals.get(userId));
+    }
+
+    /**
+     * Get the projects with the given project identifier, i.e., that project if it exists
+     */
+    @Nonnull
+    BitSet getProject(@Nonnull ProjectId projectId) {
+        return singleton(projectOrdinals.get(projectId));
+    }
+
+    /**
+     * Get the users assigned the given role in some scope
+     */
+    @Nonnull
+    BitSet getUsers(@Nonnull RoleId roleId) {
+        return orEmpty(roleUsers.get(roleId));
+    }
+
+    /**
+     * Get the users assigned the given role in the given scope
+     */
+    @Nonnull
+    BitSet getUsers(@Nonnull RoleId roleId, @Nonnull ProjectId scope) {
+        Map<RoleId, BitSet> scopeRoles = scopeRoleUsers.get(scope);
+        return orEmpty(scopeRoles != null ? scopeRoles.get(roleId) : null);
+    }
+
+    /**
+     * Get the users assigned some role in some scope
+     */
+    @Nonnull
+    BitSet getAssignedUsers() {
+        return assignedUsers;
+    }
+
+    /**
+     * Get the users assigned some role in the given scope
+     */
+    @Nonnull
+    BitSet getAssignedUsers(@Nonnull ProjectId scope) {
+        return orEmpty(scopeUsers.get(scope));
+    }
+
+    /**
+     * Get the members of the given user group, including the members of its subgroups
+     */
+    @Nonnull
+    BitSet getGroupMembers(@Nonnull UserGroupId groupId) {
+        return orEmpty(groupUsers.get(groupId));
+    }
+
+    /**
+     * Get the users allowed to carry out the given operation in some project, or in the given project, according to
+     * the snapshot's permission index. These sets are converted on each lookup rather than kept, since operations
+     * are seldom queried for
+     */
+    @Nonnull
+    BitSet getAllowedUsers(@Nonnull OperationId operationId, @Nonnull Optional<ProjectId> projectId) {
+        PolicyIndex index = config.policyIndex();
+        Set<UserId> userIds = projectId.isPresent() ? index.getUserIds(operationId, projectId.get()) : index.getUserIds(operationId);
+        BitSet result = new BitSet();
+        for (UserId userId : userIds) {
+            Integer user = userOrdinals.get(userId);
+            if (user != null) {
+                result.set(user);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Get the projects owned by the given user
+     */
+    @Nonnull
+    BitSet getOwnedProjects(@Nonnull UserId owner) {
+        return orEmpty(ownerProjects.get(owner));
+    }
+
+    /**
+     * Get the projects contained in the given project group
+     */
+    @Nonnull
+    BitSet getGroupProjects(@Nonnull ProjectId groupId) {
+        return orEmpty(groupProjects.get(groupId));
+    }
+
+    /**
+     * Get the projects in which the given user is assigned some role, directly or through a user group
+     */
+    @Nonnull
+    BitSet getMemberProjects(@Nonnull UserId userId) {
+        return orEmpty(memberProjects.get(userId));
+    }
+
+    private static BitSet singleton(Integer ordinal) {
+        BitSet result = new BitSet();
+        if (ordinal != null) {
+            result.set(ordinal);
+        }
+        return result;
+    }
+
+    private static BitSet orEmpty(BitSet bits) {
+        return bits != null ? bits : EMPTY;
+    }
+}
@@ -0,0 +1,295 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Reverse indexes over an access control policy, its roles, user groups, project groups and deny rules, mapping each
+ * role to the (user, project) pairs where it is assigned, to the user groups it is assigned to and to the roles that
+ * include it, each project to the users and user groups that have assignments in it, to the project groups that list
+ * it and to the deny rules on it, and each operation to the roles that permit it. The indexes are updated
+ * incrementally as these sections change, so that cascading removals only visit the entries they affect
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@NotThreadSafe
+final class PolicyReverseIndex {
+    private final Map<RoleId, Map<UserId, Set<ProjectId>>> roleAssignments = new HashMap<>();
+    private final Map<ProjectId, Set<UserId>> projectUsers = new HashMap<>();
+    private final Map<OperationId, Set<RoleId>> operationRoles = new HashMap<>();
+    private final Map<RoleId, Set<RoleId>> includingRoles = new HashMap<>();
+    private final Map<RoleId, Set<UserGroupId>> roleGroups = new HashMap<>();
+    private final Map<ProjectId, Set<UserGroupId>> projectGroups = new HashMap<>();
+    private final Map<ProjectId, Set<DenyRule>> projectDenyRules = new HashMap<>();
+    private final Map<ProjectId, Set<ProjectId>> listingGroups = new HashMap<>();
+
+    /**
+     * Constructor
+     *
+     * @param policyMap Policy map
+     * @param roles Roles
+     * @param userGroups    User groups
+     * @param projectGroups Project groups
+     * @param denyRules Deny rules
+     */
+    PolicyReverseIndex(@Nonnull Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap, @Nonnull Collection<Role> roles,
+                       @Nonnull Collection<UserGroup> userGroups, @Nonnull Collection<ProjectGroup> projectGroups,
+                       @Nonnull Collection<DenyRule> denyRules) {
+        for (Map.Entry<UserId, Map<ProjectId, Set<RoleId>>> entry : checkNotNull(policyMap).entrySet()) {
+            update(entry.getKey(), null, entry.getValue());
+        }
+        for (Role role : checkNotNull(roles)) {
+            update(null, role);
+        }
+        for (UserGroup group : checkNotNull(userGroups)) {
+            update(null, group);
+        }
+        for (ProjectGroup group : checkNotNull(projectGroups)) {
+            update(null, group);
+        }
+        for (DenyRule rule : checkNotNull(denyRules)) {
+            update(null, rule);
+        }
+    }
+
+    /**
+     * Update the index after the role assignments of the given user changed
+     *
+     * @param userId    User identifier
+     * @param before    Previous role assignments of the user, or null if the user had none
+     * @param after Current role assignments of the user, or null if the user has none
+     */
+    void update(@Nonnull UserId userId, @Nullable Map<ProjectId, Set<RoleId>> before, @Nullable Map<ProjectId, Set<RoleId>> after) {
+        checkNotNull(userId);
+        Map<ProjectId, Set<RoleId>> previous = before != null ? before : Collections.emptyMap(),
+                current = after != null ? after : Collections.emptyMap();
+        if (previous == current) {
+            return;
+        }
+        for (Map.Entry<ProjectId, Set<RoleId>> entry : previous.entrySet()) {
+            Set<RoleId> roles = current.get(entry.getKey());
+            if (roles == null) {
+                remove(projectUsers, entry.getKey(), userId);
+            }
+            if (roles != entry.getValue()) {
+                for (RoleId roleId : entry.getValue()) {
+                    if (roles == null || !roles.contains(roleId)) {
+                        removeAssignment(roleId, userId, entry.getKey());
+                    }
+                }
+            }
+        }
+        for (Map.Entry<ProjectId, Set<RoleId>> entry : current.entrySet()) {
+            Set<RoleId> roles = previous.get(entry.getKey());
+            if (roles == null) {
+                projectUsers.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(userId);
+            }
+            if (roles != entry.getValue()) {
+                for (RoleId roleId : entry.getValue()) {
+                    if (roles == null || !roles.contains(roleId)) {
+                        roleAssignments.computeIfAbsent(roleId, k -> new HashMap<>())
+                                .computeIfAbsent(userId, k -> new HashSet<>()).add(entry.getKey());
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the index after a role was added, removed or replaced
+     *
+     * @param before    Previous role, or null if the role was added
+     * @param after Current role, or null if the role was removed
+     */
+    void update(@Nullable Role before, @Nullable Role after) {
+        if (before != null) {
+            for (OperationId operationId : before.getOperations()) {
+                remove(operationRoles, operationId, before.getId());
+            }
+            for (RoleId roleId : before.getIncludedRoles()) {
+                remove(includingRoles, roleId, before.getId());
+            }
+        }
+        if (after != null) {
+            for (OperationId operationId : after.getOperations()) {
+                operationRoles.computeIfAbsent(operationId, k -> new HashSet<>()).add(after.getId());
+            }
+            for (RoleId roleId : after.getIncludedRoles()) {
+                includingRoles.computeIfAbsent(roleId, k -> new HashSet<>()).add(after.getId());
+            }
+        }
+    }
+
+    /**
+     * Update the index after a user group was added, removed or replaced
+     *
+     * @param before    Previous user group, or null if the group was added
+     * @param after Current user group, or null if the group was removed
+     */
+    void update(@Nullable UserGroup before, @Nullable UserGroup after) {
+        if (before != null) {
+            for (Map.Entry<ProjectId, ImmutableSet<RoleId>> entry : before.getAssignments().entrySet()) {
+                remove(projectGroups, entry.getKey(), before.getId());
+                for (RoleId roleId : entry.getValue()) {
+                    remove(roleGroups, roleId, before.getId());
+                }
+            }
+        }
+        if (after != null) {
+            for (Map.Entry<ProjectId, ImmutableSet<RoleId>> entry : after.getAssignments().entrySet()) {
+                projectGroups.computeIfAbsent(entry.getKey(), k -> new HashSet<>()).add(after.getId());
+                for (RoleId roleId : entry.getValue()) {
+                    roleGroups.computeIfAbsent(roleId, k -> new HashSet<>()).add(after.getId());
+                }
+            }
+        }
+    }
+
+    /**
+     * Update the index after a project group was added, removed or replaced
+     *
+     * @param before    Previous project group, or null if the group was added
+     * @param after Current project group, or null if the group was removed
+     */
+    void update(@Nullable ProjectGroup before, @Nullable ProjectGroup after) {
+        if (before != null) {
+            for (ProjectId projectId : before.getProjects()) {
+                remove(listingGroups, projectId, before.getId());
+            }
+        }
+        if (after != null) {
+            for (ProjectId projectId : after.getProjects()) {
+                listingGroups.computeIfAbsent(projectId, k -> new HashSet<>()).add(after.getId());
+            }
+        }
+    }
+
+    /**
+     * Update the index after a deny rule was added or removed
+     *
+     * @param before    Removed deny rule, or null if a rule was added
+     * @param after Added deny rule, or null if a rule was removed
+     */
+    void update(@Nullable DenyRule before, @Nullable DenyRule after) {
+        if (before != null) {
+            remove(projectDenyRules, before.getProjectId(), before);
+        }
+        if (after != null) {
+            projectDenyRules.computeIfAbsent(after.getProjectId(), k -> new HashSet<>()).add(after);
+        }
+    }
+
+    /**
+     * Get the users that have the given role, each along with the projects where they have it
+     *
+     * @param roleId    Role identifier
+     * @return Map of user identifiers to project identifiers
+     */
+    @Nonnull
+    Map<UserId, Set<ProjectId>> getAssignments(@Nonnull RoleId roleId) {
+        return roleAssignments.getOrDefault(checkNotNull(roleId), Collections.emptyMap());
+    }
+
+    /**
+     * Get the users that have role assignments in the given project
+     *
+     * @param projectId Project identifier
+     * @return Set of user identifiers
+     */
+    @Nonnull
+    Set<UserId> getUsers(@Nonnull ProjectId projectId) {
+        return projectUsers.getOrDefault(checkNotNull(projectId), Collections.emptySet());
+    }
+
+    /**
+     * Get the roles that permit the given operation
+     *
+     * @param operationId   Operation identifier
+     * @return Set of role identifiers
+     */
+    @Nonnull
+    Set<RoleId> getRoles(@Nonnull OperationId operationId) {
+        return operationRoles.getOrDefault(checkNotNull(operationId), Collections.emptySet());
+    }
+
+    /**
+     * Get the project groups that list the given project among their projects
+     *
+     * @param projectId Project identifier
+     * @return Set of project group identifiers
+     */
+    @Nonnull
+    Set<ProjectId> getProjectGroups(@Nonnull ProjectId projectId) {
+        return listingGroups.getOrDefault(checkNotNull(projectId), Collections.emptySet());
+    }
+
+    /**
+     * Get the deny rules on the given project
+     *
+     * @param projectId Project identifier
+     * @return Set of deny rules
+     */
+    @Nonnull
+    Set<DenyRule> getDenyRules(@Nonnull ProjectId projectId) {
+        return projectDenyRules.getOrDefault(checkNotNull(projectId), Collections.emptySet());
+    }
+
+    /**
+     * Get the roles that directly include the given role
+     *
+     * @param roleId    Role identifier
+     * @return Set of role identifiers
+     */
+    @Nonnull
+    Set<RoleId> getIncludingRoles(@Nonnull RoleId roleId) {
+        return includingRoles.getOrDefault(checkNotNull(roleId), Collections.emptySet());
+    }
+
+    /**
+     * Get the user groups that are assigned the given role in some project
+     *
+     * @param roleId    Role identifier
+     * @return Set of user group identifiers
+     */
+    @Nonnull
+    Set<UserGroupId> getUserGroups(@Nonnull RoleId roleId) {
+        return roleGroups.getOrDefault(checkNotNull(roleId), Collections.emptySet());
+    }
+
+    /**
+     * Get the user groups that have role assignments in the given project
+     *
+     * @param projectId Project identifier
+     * @return Set of user group identifiers
+     */
+    @Nonnull
+    Set<UserGroupId> getUserGroups(@Nonnull ProjectId projectId) {
+        return projectGroups.getOrDefault(checkNotNull(projectId), Collections.emptySet());
+    }
+
+    private void removeAssignment(RoleId roleId, UserId userId, ProjectId projectId) {
+        Map<UserId, Set<ProjectId>> users = roleAssignments.get(roleId);
+        if (users != null) {
+            remove(users, userId, projectId);
+            if (users.isEmpty()) {
+                roleAssignments.remove(roleId);
+            }
+        }
+    }
+
+    private static <K,V> void remove(Map<K, Set<V>> map, K key, V value) {
+        Set<V> values = map.get(key);
+        if (values != null && values.remove(value) && values.isEmpty()) {
+            map.remove(key);
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.*;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Policy statistics of a server configuration snapshot. The counts of direct assignments are kept in persistent maps,
+ * so that they can be derived from those of the previous snapshot and the delta between the two, in time proportional
+ * to the delta: only the users whose assignments changed and the user groups that changed are visited. The counts of
+ * users through user groups and project groups, the roles that are used neither directly nor through inclusion, and
+ * the operations nobody may carry out depend on group nesting, role inclusion and deny rules, so they are read off
+ * the snapshot's permission index and roles when first requested
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class PolicyStatisticsImpl implements PolicyStatistics {
+    @Nonnull private final ServerConfigurationImpl config;
+    @Nonnull private final PersistentHashMap<RoleId, Integer> roleUsers, roleGroups;
+    @Nonnull private final PersistentHashMap<ProjectId, Integer> projectMembers;
+    private volatile ImmutableSet<RoleId> unusedRoles;
+    private volatile ImmutableSet<OperationId> unperformableOperations;
+
+    private PolicyStatisticsImpl(ServerConfigurationImpl config, PersistentHashMap<RoleId, Integer> roleUsers,
+                                 PersistentHashMap<RoleId, Integer> roleGroups, PersistentHashMap<ProjectId, Integer> projectMembers) {
+        this.config = config;
+        this.roleUsers = roleUsers;
+        this.roleGroups = roleGroups;
+        this.projectMembers = projectMembers;
+    }
+
+    /**
+     * Compute the policy statistics of the given configuration from scratch
+     *
+     * @param config    Server configuration
+     * @return Policy statistics
+     */
+    @Nonnull
+    static PolicyStatisticsImpl compute(@Nonnull ServerConfigurationImpl config) {
+        checkNotNull(config);
+        PolicyStatisticsImpl empty = new PolicyStatisticsImpl(config, PersistentHashMap.empty(), PersistentHashMap.empty(),
+                PersistentHashMap.empty());
+        Counts counts = new Counts();
+        config.persistentPolicyMap().forEach((userId, assignments) -> counts.changeUser(null, assignments));
+        config.persistentUserGroups().values().forEach(group -> counts.changeGroup(group, 1));
+        return empty.apply(config, counts);
+    }
+
+    /**
+     * Derive the policy statistics of the configuration that results from applying the given delta to the
+     * configuration of these statistics
+     *
+     * @param delta Delta from the configuration of these statistics
+     * @param after Resulting server configuration
+     * @return Policy statistics of the resulting configuration
+     */
+    @Nonnull
+    PolicyStatisticsImpl update(@Nonnull ConfigurationDelta delta, @Nonnull ServerConfigurationImpl after) {
+        checkNotNull(delta);
+        checkNotNull(after);
+        Counts counts = new Counts();
+        PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> before = config.persistentPolicyMap();
+        delta.getPolicy().getUpdated().forEach((userId, assignments) -> counts.changeUser(before.get(userId), assignments));
+        delta.getPolicy().getRemoved().forEach(userId -> counts.changeUser(before.get(userId), null));
+        delta.getUserGroups().getRemoved().forEach(group -> counts.changeGroup(group, -1));
+        delta.getUserGroups().getAdded().forEach(group -> counts.changeGroup(group, 1));
+        return apply(after, counts);
+    }
+
+    private PolicyStatisticsImpl apply(ServerConfigurationImpl after, Counts counts) {
+        return new PolicyStatisticsImpl(after, add(roleUsers, counts.roleUsers), add(roleGroups, counts.roleGroups),
+                add(projectMembers, counts.projectMembers));
+    }
+
+    private static <K> PersistentHashMap<K, Integer> add(PersistentHashMap<K, Integer> counts, Map<K, Integer> changes) {
+        List<K> removed = new ArrayList<>();
+        Map<K, Integer> updated = new HashMap<>();
+        changes.forEach((key, change) -> {
+            int count = counts.getOrDefault(key, 0) + change;
+            if (count > 0) {
+                updated.put(key, count);
+            } else {
+                removed.add(key);
+            }
+        });
+        return counts.minusAll(removed).plusAll(updated);
+    }
+
+    @Override
+    public int getUserCount(@Nonnull RoleId roleId) {
+        return getUserCounts().getOrDefault(checkNotNull(roleId), 0);
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<RoleId, Integer> getUserCounts() {
+        return config.policyIndex().getUserCounts();
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<RoleId, Integer> getDirectUserCounts() {
+        return ImmutableMap.copyOf(roleUsers);
+    }
+
+    @Override
+    public int getMemberCount(@Nonnull ProjectId projectId) {
+        return getMemberCounts().getOrDefault(checkNotNull(projectId), 0);
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<ProjectId, Integer> getMemberCounts() {
+        return config.policyIndex().getMemberCounts();
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<ProjectId, Integer> getDirectMemberCounts() {
+        return ImmutableMap.copyOf(projectMembers);
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<RoleId> getUnusedRoles() {
+        ImmutableSet<RoleId> roles = unusedRoles;
+        if (roles == null) {
+            // a role is used if it is assigned to some user or user group, or included by a role that is used
+            Map<RoleId, Role> roleMap = config.persistentRoles();
+            Set<RoleId> used = new HashSet<>();
+            Deque<RoleId> pending = new ArrayDeque<>(roleUsers.keySet());
+            pending.addAll(roleGroups.keySet());
+            while (!pending.isEmpty()) {
+                RoleId roleId = pending.pop();
+                Role role = roleMap.get(roleId);
+                if (used.add(roleId) && role != null) {
+                    role.getIncludedRoles().forEach(pending::push);
+                }
+            }
+            ImmutableSet.Builder<RoleId> builder = ImmutableSet.builder();
+            for (RoleId roleId : roleMap.keySet()) {
+                if (!used.contains(roleId)) {
+                    builder.add(roleId);
+                }
+            }
+            roles = builder.build();
+            unusedRoles = roles;
+        }
+        return roles;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<OperationId> getUnperformableOperations() {
+        ImmutableSet<OperationId> operations = unperformableOperations;
+        if (operations == null) {
+            PolicyIndex index = config.policyIndex();
+            ImmutableSet.Builder<OperationId> builder = ImmutableSet.builder();
+            for (OperationId operationId : config.persistentOperations().keySet()) {
+                if (index.getUserIds(operationId).isEmpty()) {
+                    builder.add(operationId);
+                }
+            }
+            operations = builder.build();
+            unperformableOperations = operations;
+        }
+        return operations;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PolicyStatisticsImpl)) {
+            return false;
+        }
+        PolicyStatisticsImpl that = (PolicyStatisticsImpl) o;
+        return Objects.equal(roleUsers, that.roleUsers) &&
+                Objects.equal(roleGroups, that.roleGroups) &&
+                Objects.equal(projectMembers, that.projectMembers);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(roleUsers, roleGroups, projectMembers);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("directUserCounts", roleUsers)
+                .add("directMemberCounts", projectMembers)
+                .toString();
+    }
+
+    /**
+     * Changes to the counts of direct assignments
+     */
+    private static final class Counts {
+        private final Map<RoleId, Integer> roleUsers = new HashMap<>(), roleGroups = new HashMap<>();
+        private final Map<ProjectId, Integer> projectMembers = new HashMap<>();
+
+        private void changeUser(@Nullable Map<ProjectId, Set<RoleId>> before, @Nullable Map<ProjectId, Set<RoleId>> after) {
+            Set<RoleId> rolesBefore = getRoles(before), rolesAfter = getRoles(after);
+            Set<ProjectId> projectsBefore = before != null ? before.keySet() : Collections.emptySet(),
+                    projectsAfter = after != null ? after.keySet() : Collections.emptySet();
+            change(roleUsers, rolesBefore, rolesAfter);
+            change(projectMembers, projectsBefore, projectsAfter);
+        }
+
+        private void changeGroup(UserGroup group, int change) {
+            for (RoleId roleId : getRoles(group.getAssignments())) {
+                roleGroups.merge(roleId, change, Integer::sum);
+            }
+        }
+
+        private <K> void change(Map<K, Integer> counts, Set<K> before, Set<K> after) {
+            for (K key : before) {
+                if (!after.contains(key)) {
+                    counts.merge(key, -1, Integer::sum);
+                }
+            }
+            for (K key : after) {
+                if (!before.contains(key)) {
+                    counts.merge(key, 1, Integer::sum);
+                }
+            }
+        }
+
+        private static Set<RoleId> getRoles(@Nullable Map<ProjectId, ? extends Set<RoleId>> assignments) {
+            if (assignments == null) {
+                return Collections.emptySet();
+            }
+            Set<RoleId> roleIds = new HashSet<>();
+            assignments.values().forEach(roleIds::addAll);
+            return roleIds;
+        }
+    }
+}
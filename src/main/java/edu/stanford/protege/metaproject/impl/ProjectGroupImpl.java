@@ -0,0 +1,140 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class ProjectGroupImpl implements ProjectGroup, Serializable {
+    private static final long serialVersionUID = 4410873162530097715L;
+    @Nonnull private final ProjectId id;
+    @Nonnull private final Name name;
+    @Nonnull private final Description description;
+    @Nonnull private final ImmutableSet<ProjectId> projects;
+    @Nonnull private final ImmutableSet<String> prefixes;
+
+    /**
+     * Constructor
+     *
+     * @param id    Project group identifier
+     * @param name  Project group name
+     * @param description   Project group description
+     * @param projects  Set of identifiers of the projects in the group
+     * @param prefixes  Set of project identifier prefixes that select further projects in the group
+     */
+    public ProjectGroupImpl(@Nonnull ProjectId id, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<ProjectId> projects,
+                            @Nonnull Set<String> prefixes) {
+        this.id = checkNotNull(id);
+        this.name = checkNotNull(name);
+        this.description = checkNotNull(description);
+        this.projects = ImmutableSet.copyOf(checkNotNull(projects));
+        this.prefixes = ImmutableSet.copyOf(checkNotNull(prefixes));
+        checkArgument(!this.prefixes.contains(""), "A project identifier prefix cannot be empty");
+    }
+
+    @Override
+    @Nonnull
+    public ProjectId getId() {
+        return id;
+    }
+
+    @Override
+    @Nonnull
+    public Name getName() {
+        return name;
+    }
+
+    @Override
+    @Nonnull
+    public Description getDescription() {
+        return description;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<ProjectId> getProjects() {
+        return projects;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<String> getPrefixes() {
+        return prefixes;
+    }
+
+    @Override
+    public boolean isUser() {
+        return false;
+    }
+
+    @Override
+    public boolean isProject() {
+        return false;
+    }
+
+    @Override
+    public boolean isRole() {
+        return false;
+    }
+
+    @Override
+    public boolean isOperation() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof ProjectGroup)) {
+            return false;
+        }
+        ProjectGroup that = (ProjectGroup) o;
+        return Objects.equal(id, that.getId()) &&
+                Objects.equal(name, that.getName()) &&
+                Objects.equal(description, that.getDescription()) &&
+                Objects.equal(projects, that.getProjects()) &&
+                Objects.equal(prefixes, that.getPrefixes());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id, name, description, projects, prefixes);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("id", id)
+                .add("name", name)
+                .add("description", description)
+                .add("projects", projects)
+                .add("prefixes", prefixes)
+                .toString();
+    }
+
+    @Override
+    public int compareTo(@Nonnull ProjectGroup that) {
+        return ComparisonChain.start()
+                .compare(this.name.get(), that.getName().get())
+                .result();
+    }
+}
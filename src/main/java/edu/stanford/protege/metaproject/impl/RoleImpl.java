@@ -27,6 +27,7 @@ public final class RoleImpl implements Role, Serializable {
     @Nonnull private final Name name;
     @Nonnull private final Description description;
     @Nonnull private final ImmutableSet<OperationId> operations;
+    @Nonnull private final ImmutableSet<RoleId> includedRoles;
 
     /**
      * Constructor
@@ -37,10 +38,25 @@ public final class RoleImpl implements Role, Serializable {
      * @param operations    Set of operations that can be performed on the given projects
      */
     public RoleImpl(@Nonnull RoleId id, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<OperationId> operations) {
+        this(id, name, description, operations, ImmutableSet.of());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param id    Role identifier
+     * @param name  Role name
+     * @param description   Role description
+     * @param operations    Set of operations that can be performed on the given projects
+     * @param includedRoles Set of identifiers of the roles whose operations this role inherits
+     */
+    public RoleImpl(@Nonnull RoleId id, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<OperationId> operations,
+                    @Nonnull Set<RoleId> includedRoles) {
         this.id = checkNotNull(id);
         this.name = checkNotNull(name);
         this.description = checkNotNull(description);
         this.operations = ImmutableSet.copyOf(checkNotNull(operations));
+        this.includedRoles = ImmutableSet.copyOf(checkNotNull(includedRoles));
     }
 
     @Override
@@ -67,6 +83,12 @@ public final class RoleImpl implements Role, Serializable {
         return operations;
     }
 
+    @Override
+    @Nonnull
+    public ImmutableSet<RoleId> getIncludedRoles() {
+        return includedRoles;
+    }
+
     @Override
     public boolean isUser() {
         return false;
@@ -99,12 +121,13 @@ public final class RoleImpl implements Role, Serializable {
         return Objects.equal(id, that.getId()) &&
                 Objects.equal(name, that.getName()) &&
                 Objects.equal(description, that.getDescription()) &&
-                Objects.equal(operations, that.getOperations());
+                Objects.equal(operations, that.getOperations()) &&
+                Objects.equal(includedRoles, that.getIncludedRoles());
     }
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(id, name, description, operations);
+        return Objects.hashCode(id, name, description, operations, includedRoles);
     }
 
     @Override
@@ -114,9 +137,18 @@ public final class RoleImpl implements Role, Serializable {
                 .add("name", name)
                 .add("description", description)
                 .add("operations", operations)
+                .add("includedRoles", includedRoles)
                 .toString();
     }
 
+    /**
+     * Roles serialized before role inheritance was introduced have no included roles field, so they are read back
+     * as roles that include no other roles
+     */
+    private Object readResolve() {
+        return includedRoles != null ? this : new RoleImpl(id, name, description, operations, ImmutableSet.of());
+    }
+
     @Override
     public int compareTo(@Nonnull Role that) {
         return ComparisonChain.start()
@@ -0,0 +1,139 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableList;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.text.Normalizer;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A type-ahead search index over the text fields of a set of policy objects, such as names, email addresses and
+ * identifiers. Each field is normalized (accents removed, case folded, runs of whitespace collapsed) and indexed as a
+ * whole and from the start of each of its words, in one sorted array of terms. A search for a prefix is a binary
+ * search for the first term that starts with it, followed by a scan over the matching terms that stops as soon as
+ * enough objects are found, so it does not depend on the number of indexed objects
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class SearchIndex<T> {
+    private static final Pattern COMBINING_MARKS = Pattern.compile("\\p{M}+"), WHITESPACE = Pattern.compile("\\s+");
+    @Nonnull private final ImmutableList<T> objects;
+    @Nonnull private final String[] terms;
+    @Nonnull private final int[] owners;
+
+    /**
+     * Constructor
+     *
+     * @param objects   Objects to index
+     * @param fields    Function that gets the text fields of an object
+     */
+    SearchIndex(@Nonnull Collection<T> objects, @Nonnull Function<T, Collection<String>> fields) {
+        checkNotNull(objects);
+        checkNotNull(fields);
+        this.objects = ImmutableList.copyOf(objects);
+        List<Term> entries = new ArrayList<>();
+        Set<String> terms = new HashSet<>();
+        for (int owner = 0; owner < this.objects.size(); owner++) {
+            terms.clear();
+            for (String field : fields.apply(this.objects.get(owner))) {
+                addTerms(normalize(field), terms);
+            }
+            for (String term : terms) {
+                entries.add(new Term(term, owner));
+            }
+        }
+        entries.sort(Comparator.comparing((Term entry) -> entry.text).thenComparingInt(entry -> entry.owner));
+        this.terms = new String[entries.size()];
+        this.owners = new int[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            this.terms[i] = entries.get(i).text;
+            this.owners[i] = entries.get(i).owner;
+        }
+    }
+
+    /**
+     * Add the given normalized field, and its suffixes that start a word, to the given terms
+     */
+    private static void addTerms(String field, Set<String> terms) {
+        if (field.isEmpty()) {
+            return;
+        }
+        terms.add(field);
+        for (int i = 1; i < field.length(); i++) {
+            if (Character.isLetterOrDigit(field.charAt(i)) && !Character.isLetterOrDigit(field.charAt(i - 1))) {
+                terms.add(field.substring(i));
+            }
+        }
+    }
+
+    /**
+     * Normalize the given text for indexing and searching
+     *
+     * @param text  Text
+     * @return Normalized text
+     */
+    @Nonnull
+    static String normalize(@Nonnull String text) {
+        String decomposed = Normalizer.normalize(text, Normalizer.Form.NFKD);
+        String stripped = COMBINING_MARKS.matcher(decomposed).replaceAll("");
+        return WHITESPACE.matcher(stripped.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    /**
+     * Search for the objects with a field, or a word of a field, that starts with the given text. Objects are returned
+     * in the alphabetical order of their first matching term
+     *
+     * @param prefix    Text that matching fields or words start with
+     * @param limit Maximum number of objects to return
+     * @return List of matching objects
+     */
+    @Nonnull
+    ImmutableList<T> search(@Nonnull String prefix, int limit) {
+        checkNotNull(prefix);
+        checkArgument(limit > 0, "The number of results must be positive");
+        String query = normalize(prefix);
+        Set<Integer> found = new LinkedHashSet<>();
+        for (int i = lowerBound(query); i < terms.length && found.size() < limit && terms[i].startsWith(query); i++) {
+            found.add(owners[i]);
+        }
+        ImmutableList.Builder<T> result = ImmutableList.builder();
+        for (int owner : found) {
+            result.add(objects.get(owner));
+        }
+        return result.build();
+    }
+
+    private int lowerBound(String query) {
+        int low = 0, high = terms.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].compareTo(query) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static final class Term {
+        private final String text;
+        private final int owner;
+
+        private Term(String text, int owner) {
+            this.text = text;
+            this.owner = owner;
+        }
+    }
+}
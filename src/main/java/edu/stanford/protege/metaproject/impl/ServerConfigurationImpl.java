@@ -2,6 +2,7 @@ package edu.stanford.protege.metaproject.impl;
 
 import com.google.common.base.MoreObjects;
 import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import edu.stanford.protege.metaproject.api.*;
@@ -15,11 +16,10 @@ import javax.annotation.concurrent.Immutable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.io.File;
 import java.io.Serializable;
-import java.util.HashMap;
-import java.util.HashSet;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -31,43 +31,219 @@ import static com.google.common.base.Preconditions.checkNotNull;
 @Immutable
 @ThreadSafe
 public final class ServerConfigurationImpl implements ServerConfiguration, Serializable {
-    private static final long serialVersionUID = -8439017057476248949L;
+    private static final long serialVersionUID = 3747767842969177734L;
     private static final Logger logger = LoggerFactory.getLogger(ServerConfigurationImpl.class.getName());
-    @Nonnull private final ImmutableMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap;
-    @Nonnull private final ImmutableSet<User> users;
-    @Nonnull private final ImmutableSet<Project> projects;
-    @Nonnull private final ImmutableSet<Role> roles;
-    @Nonnull private final ImmutableSet<Operation> operations;
-    @Nonnull private final ImmutableSet<AuthenticationDetails> authDetails;
-    @Nonnull private final ImmutableMap<String,String> properties;
+    @Nonnull private final PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap;
+    @Nonnull private final PersistentHashSet<DenyRule> denyRules;
+    @Nonnull private final PersistentHashSet<TimedAssignment> timedAssignments;
+    @Nonnull private final PersistentHashMap<UserId, User> users;
+    @Nonnull private final PersistentHashMap<UserGroupId, UserGroup> userGroups;
+    @Nonnull private final PersistentHashMap<ProjectId, Project> projects;
+    @Nonnull private final PersistentHashMap<ProjectId, ProjectGroup> projectGroups;
+    @Nonnull private final PersistentHashMap<RoleId, Role> roles;
+    @Nonnull private final PersistentHashMap<OperationId, Operation> operations;
+    @Nonnull private final PersistentHashMap<UserId, AuthenticationDetails> authDetails;
+    @Nonnull private final PersistentHashMap<String,String> properties;
     @Nonnull private final Host host;
     @Nonnull private final String root;
+    private transient volatile ImmutableMap<UserId, Map<ProjectId, Set<RoleId>>> policyMapView;
+    private transient volatile ImmutableSet<DenyRule> denyRulesView;
+    private transient volatile ImmutableSet<TimedAssignment> timedAssignmentsView;
+    private transient volatile ImmutableSet<User> usersView;
+    private transient volatile ImmutableSet<UserGroup> userGroupsView;
+    private transient volatile ImmutableSet<Project> projectsView;
+    private transient volatile ImmutableSet<ProjectGroup> projectGroupsView;
+    private transient volatile ImmutableSet<Role> rolesView;
+    private transient volatile ImmutableSet<Operation> operationsView;
+    private transient volatile ImmutableSet<AuthenticationDetails> authDetailsView;
+    private transient volatile ImmutableMap<String,String> propertiesView;
+    private transient volatile SortedPages<User> usersPages;
+    private transient volatile SortedPages<Project> projectsPages;
+    private transient volatile SortedPages<Role> rolesPages;
+    private transient volatile SearchIndex<User> usersSearchIndex;
+    private transient volatile SearchIndex<Project> projectsSearchIndex;
+    private transient volatile PolicyIndex policyIndex;
+    private transient volatile PolicyStatisticsImpl statistics;
+    private transient volatile PolicyQueryIndex queryIndex;
+    private transient int hashCode;
 
     /**
-     * Package-private constructor; use {@link ConfigurationBuilder}
+     * Package-private constructor; use {@link ConfigurationBuilder}. The given collections are persistent, so that
+     * configurations derived from one another share all unchanged parts, and policy objects are keyed by their
+     * identifiers (authentication details by user identifier). The assignment maps in the policy map, and the role
+     * sets within them, must be persistent as well (see {@link #toPersistentAssignments(Map)})
      *
      * @param host    Host
      * @param root  Root directory of the server
      * @param policyMap    Policy map
-     * @param roles Set of roles
-     * @param operations    Set of operations
-     * @param users Set of users
-     * @param projects   Set of projects
-     * @param authDetails   Set of user authentication details
+     * @param denyRules Set of deny rules
+     * @param timedAssignments  Set of timed role assignments
+     * @param roles Map of roles
+     * @param operations    Map of operations
+     * @param users Map of users
+     * @param userGroups    Map of user groups
+     * @param projects   Map of projects
+     * @param projectGroups Map of project groups
+     * @param authDetails   Map of user authentication details
      * @param properties   Map of custom configuration properties
      */
-    ServerConfigurationImpl(@Nonnull Host host, @Nonnull String root, @Nonnull Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap,
-                            @Nonnull Set<User> users, @Nonnull Set<Project> projects, @Nonnull Set<Role> roles, @Nonnull Set<Operation> operations,
-                            @Nonnull Set<AuthenticationDetails> authDetails, @Nonnull Map<String,String> properties) {
+    ServerConfigurationImpl(@Nonnull Host host, @Nonnull String root, @Nonnull PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> policyMap,
+                            @Nonnull PersistentHashSet<DenyRule> denyRules, @Nonnull PersistentHashSet<TimedAssignment> timedAssignments,
+                            @Nonnull PersistentHashMap<UserId, User> users, @Nonnull PersistentHashMap<UserGroupId, UserGroup> userGroups,
+                            @Nonnull PersistentHashMap<ProjectId, Project> projects, @Nonnull PersistentHashMap<ProjectId, ProjectGroup> projectGroups,
+                            @Nonnull PersistentHashMap<RoleId, Role> roles, @Nonnull PersistentHashMap<OperationId, Operation> operations,
+                            @Nonnull PersistentHashMap<UserId, AuthenticationDetails> authDetails, @Nonnull PersistentHashMap<String,String> properties) {
         this.host = checkNotNull(host);
         this.root = checkNotNull(root);
-        this.policyMap = ImmutableMap.copyOf(checkNotNull(policyMap));
-        this.users = ImmutableSet.copyOf(checkNotNull(users));
-        this.projects = ImmutableSet.copyOf(checkNotNull(projects));
-        this.roles = ImmutableSet.copyOf(checkNotNull(roles));
-        this.operations = ImmutableSet.copyOf(checkNotNull(operations));
-        this.authDetails = ImmutableSet.copyOf(checkNotNull(authDetails));
-        this.properties = ImmutableMap.copyOf(checkNotNull(properties));
+        this.policyMap = checkNotNull(policyMap);
+        this.denyRules = checkNotNull(denyRules);
+        this.timedAssignments = checkNotNull(timedAssignments);
+        this.users = checkNotNull(users);
+        this.userGroups = checkNotNull(userGroups);
+        this.projects = checkNotNull(projects);
+        this.projectGroups = checkNotNull(projectGroups);
+        this.roles = checkNotNull(roles);
+        this.operations = checkNotNull(operations);
+        this.authDetails = checkNotNull(authDetails);
+        this.properties = checkNotNull(properties);
+    }
+
+    /**
+     * Get the given server configuration as an instance of this class, converting it if necessary
+     *
+     * @param config    Server configuration
+     * @return Server configuration backed by persistent collections
+     */
+    @Nonnull
+    static ServerConfigurationImpl from(@Nonnull ServerConfiguration config) {
+        checkNotNull(config);
+        if (config instanceof ServerConfigurationImpl) {
+            return (ServerConfigurationImpl) config;
+        }
+        return new ServerConfigurationImpl(config.getHost(), config.getServerRoot(), toPersistentPolicy(config.getPolicyMap()),
+                PersistentHashSet.copyOf(config.getDenyRules()), PersistentHashSet.copyOf(config.getTimedAssignments()),
+                index(config.getUsers(), User::getId), index(config.getUserGroups(), UserGroup::getId), index(config.getProjects(), Project::getId),
+                index(config.getProjectGroups(), ProjectGroup::getId), index(config.getRoles(), Role::getId),
+                index(config.getOperations(), Operation::getId), index(config.getAuthenticationDetails(), AuthenticationDetails::getUserId),
+                PersistentHashMap.copyOf(config.getProperties()));
+    }
+
+    /**
+     * Key the given elements by the identifiers given by the specified function
+     *
+     * @param elements  Collection of elements
+     * @param key   Function that gives the key of an element
+     * @return Persistent map of keys to elements
+     */
+    @Nonnull
+    static <K,E> PersistentHashMap<K,E> index(@Nonnull Collection<E> elements, @Nonnull Function<? super E, ? extends K> key) {
+        PersistentHashMap<K,E> result = PersistentHashMap.empty();
+        for (E element : checkNotNull(elements)) {
+            result = result.plus(key.apply(element), element);
+        }
+        return result;
+    }
+
+    /**
+     * Convert the given policy map into a persistent map whose assignment maps and role sets are persistent too
+     *
+     * @param policyMap Policy map
+     * @return Persistent policy map
+     */
+    @Nonnull
+    static PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> toPersistentPolicy(@Nonnull Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap) {
+        PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> result = PersistentHashMap.empty();
+        for (Map.Entry<UserId, Map<ProjectId, Set<RoleId>>> entry : checkNotNull(policyMap).entrySet()) {
+            result = result.plus(entry.getKey(), toPersistentAssignments(entry.getValue()));
+        }
+        return result;
+    }
+
+    /**
+     * Convert the given project-role assignments of a user into a persistent map with persistent role sets. If the
+     * given map is already in that form, it is returned as is
+     *
+     * @param assignments   Map of project identifiers to role identifiers
+     * @return Persistent assignments map
+     */
+    @Nonnull
+    static PersistentHashMap<ProjectId, Set<RoleId>> toPersistentAssignments(@Nonnull Map<ProjectId, Set<RoleId>> assignments) {
+        checkNotNull(assignments);
+        if (assignments instanceof PersistentHashMap && assignments.values().stream().allMatch(roles -> roles instanceof PersistentHashSet)) {
+            return PersistentHashMap.copyOf(assignments);
+        }
+        PersistentHashMap<ProjectId, Set<RoleId>> result = PersistentHashMap.empty();
+        for (Map.Entry<ProjectId, Set<RoleId>> assignment : assignments.entrySet()) {
+            result = result.plus(assignment.getKey(), PersistentHashSet.copyOf(assignment.getValue()));
+        }
+        return result;
+    }
+
+    private static ImmutableMap<UserId, Map<ProjectId, Set<RoleId>>> copyPolicy(Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap) {
+        ImmutableMap.Builder<UserId, Map<ProjectId, Set<RoleId>>> builder = ImmutableMap.builder();
+        for (Map.Entry<UserId, Map<ProjectId, Set<RoleId>>> entry : policyMap.entrySet()) {
+            ImmutableMap.Builder<ProjectId, Set<RoleId>> assignments = ImmutableMap.builder();
+            for (Map.Entry<ProjectId, Set<RoleId>> assignment : entry.getValue().entrySet()) {
+                assignments.put(assignment.getKey(), ImmutableSet.copyOf(assignment.getValue()));
+            }
+            builder.put(entry.getKey(), assignments.build());
+        }
+        return builder.build();
+    }
+
+    @Nonnull
+    PersistentHashMap<UserId, Map<ProjectId, Set<RoleId>>> persistentPolicyMap() {
+        return policyMap;
+    }
+
+    @Nonnull
+    PersistentHashSet<DenyRule> persistentDenyRules() {
+        return denyRules;
+    }
+
+    @Nonnull
+    PersistentHashSet<TimedAssignment> persistentTimedAssignments() {
+        return timedAssignments;
+    }
+
+    @Nonnull
+    PersistentHashMap<UserId, User> persistentUsers() {
+        return users;
+    }
+
+    @Nonnull
+    PersistentHashMap<UserGroupId, UserGroup> persistentUserGroups() {
+        return userGroups;
+    }
+
+    @Nonnull
+    PersistentHashMap<ProjectId, Project> persistentProjects() {
+        return projects;
+    }
+
+    @Nonnull
+    PersistentHashMap<ProjectId, ProjectGroup> persistentProjectGroups() {
+        return projectGroups;
+    }
+
+    @Nonnull
+    PersistentHashMap<RoleId, Role> persistentRoles() {
+        return roles;
+    }
+
+    @Nonnull
+    PersistentHashMap<OperationId, Operation> persistentOperations() {
+        return operations;
+    }
+
+    @Nonnull
+    PersistentHashMap<UserId, AuthenticationDetails> persistentAuthenticationDetails() {
+        return authDetails;
+    }
+
+    @Nonnull
+    PersistentHashMap<String,String> persistentProperties() {
+        return properties;
     }
 
     @Override
@@ -85,7 +261,12 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableMap<String,String> getProperties() {
-        return properties;
+        ImmutableMap<String,String> view = propertiesView;
+        if (view == null) {
+            view = ImmutableMap.copyOf(properties);
+            propertiesView = view;
+        }
+        return view;
     }
 
     @Override
@@ -101,133 +282,236 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableMap<UserId, Map<ProjectId, Set<RoleId>>> getPolicyMap() {
-        return policyMap;
+        ImmutableMap<UserId, Map<ProjectId, Set<RoleId>>> view = policyMapView;
+        if (view == null) {
+            view = copyPolicy(policyMap);
+            policyMapView = view;
+        }
+        return view;
     }
 
     @Override
     public boolean hasRole(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull RoleId roleId) {
-        Map<UserId,Map<ProjectId,Set<RoleId>>> policyMap = getPolicyMap();
-        if (policyMap.containsKey(userId)) {
-            Map<ProjectId, Set<RoleId>> assignments = getUserRoleMap(userId);
-            if (assignments.containsKey(projectId)) {
-                if(assignments.get(projectId).contains(roleId)) {
-                    return true;
-                }
-            }
-            if (assignments.containsKey(ConfigurationUtils.getUniversalProjectId())) {
-                return assignments.get(ConfigurationUtils.getUniversalProjectId()).contains(roleId);
-            }
-        }
-        return false;
+        return streamRoleIds(userId, projectId, GlobalPermissions.INCLUDED).anyMatch(roleId::equals);
     }
 
     @Override
     @Nonnull
     public Set<RoleId> getRoleIds(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions) {
-        Map<ProjectId,Set<RoleId>> assignments = getUserRoleMap(userId);
-        Set<RoleId> roles = new HashSet<>();
-        if(assignments.containsKey(projectId)) {
-            roles.addAll(assignments.get(projectId));
-        }
-        if(globalPermissions.equals(GlobalPermissions.INCLUDED) && assignments.containsKey(ConfigurationUtils.getUniversalProjectId())) {
-            roles.addAll(assignments.get(ConfigurationUtils.getUniversalProjectId()));
-        }
-        return roles;
+        return streamRoleIds(userId, projectId, globalPermissions).collect(Collectors.toSet());
     }
 
     @Override
     @Nonnull
     public Set<RoleId> getRoleIds(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions) {
-        Map<ProjectId,Set<RoleId>> map = getUserRoleMap(userId);
-        Set<RoleId> roles = new HashSet<>();
-        for(ProjectId p : map.keySet()) {
-            if(p.equals(ConfigurationUtils.getUniversalProjectId()) && globalPermissions.equals(GlobalPermissions.EXCLUDED)) {
-                continue;
-            }
-            roles.addAll(map.get(p));
+        return streamRoleIds(userId, globalPermissions).collect(Collectors.toSet());
+    }
+
+    /**
+     * Stream the distinct identifiers of the roles assigned to the given user in the given project, its project
+     * groups and, if global permissions are included, in all projects
+     */
+    private Stream<RoleId> streamRoleIds(UserId userId, ProjectId projectId, GlobalPermissions globalPermissions) {
+        List<ProjectId> scopes = new ArrayList<>(policyIndex().getProjectGroups(projectId));
+        scopes.add(projectId);
+        if (globalPermissions.equals(GlobalPermissions.INCLUDED)) {
+            scopes.add(ConfigurationUtils.getUniversalProjectId());
         }
-        return roles;
+        return streamAssignments(userId).flatMap(assignments -> scopes.stream()
+                .map(assignments::get)
+                .filter(roleIds -> roleIds != null)
+                .flatMap(Set::stream))
+                .distinct();
+    }
+
+    /**
+     * Stream the distinct identifiers of the roles assigned to the given user in any project, leaving out those
+     * assigned in all projects if global permissions are excluded
+     */
+    private Stream<RoleId> streamRoleIds(UserId userId, GlobalPermissions globalPermissions) {
+        boolean excluded = globalPermissions.equals(GlobalPermissions.EXCLUDED);
+        return streamAssignments(userId).flatMap(assignments -> assignments.entrySet().stream()
+                .filter(entry -> !excluded || !entry.getKey().equals(ConfigurationUtils.getUniversalProjectId()))
+                .flatMap(entry -> entry.getValue().stream()))
+                .distinct();
+    }
+
+    /**
+     * Stream the project-role assignments of the given user, followed by those of the user groups it belongs to
+     */
+    private Stream<Map<ProjectId, ? extends Set<RoleId>>> streamAssignments(UserId userId) {
+        Map<ProjectId, Set<RoleId>> direct = policyMap.get(userId);
+        Stream<Map<ProjectId, ? extends Set<RoleId>>> groups = policyIndex().getUserGroups(userId).stream()
+                .map(userGroups::get)
+                .filter(group -> group != null)
+                .map(UserGroup::getAssignments);
+        return direct != null ? Stream.concat(Stream.of(direct), groups) : groups;
     }
 
     @Override
     @Nonnull
     public Set<ProjectId> getProjectIds(@Nonnull UserId userId) {
-        return new HashSet<>(getUserRoleMap(userId).keySet());
+        return streamProjectIds(userId).collect(Collectors.toSet());
+    }
+
+    /**
+     * Stream the distinct identifiers of the projects the given user has role assignments in, directly or through the
+     * user groups it belongs to, where project groups are replaced with the projects they contain
+     */
+    private Stream<ProjectId> streamProjectIds(UserId userId) {
+        PolicyIndex index = policyIndex();
+        return streamAssignments(checkNotNull(userId))
+                .flatMap(assignments -> assignments.keySet().stream())
+                .flatMap(scope -> index.isProjectGroup(scope) ? index.getProjects(scope).stream() : Stream.of(scope))
+                .distinct();
     }
 
     @Override
     public boolean isOperationAllowed(@Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId) {
-        try {
-            Set<RoleId> roles = new HashSet<>(getRoleIds(userId, projectId, GlobalPermissions.INCLUDED));
-            for (RoleId role : roles) {
-                Role r = getRole(role);
-                if (r.getOperations().contains(operationId)) {
-                    return true;
-                }
-            }
-        } catch (UnknownRoleIdException e) {
-            return false;
-        }
-        return false;
+        return policyIndex().isOperationAllowed(userId, projectId, operationId);
+    }
+
+    @Override
+    @Nonnull
+    public AuthorizationDecision explainOperation(@Nonnull OperationId operationId, @Nonnull ProjectId projectId, @Nonnull UserId userId) {
+        return PolicyExplainer.explain(this, userId, projectId, operationId);
     }
 
     @Override
     public boolean isOperationAllowed(@Nonnull OperationId operationId, @Nonnull UserId userId) {
-        try {
-            Set<RoleId> roles = getRoleIds(userId, GlobalPermissions.INCLUDED);
-            for (RoleId role : roles) {
-                Role r = getRole(role);
-                if (r.getOperations().contains(operationId)) {
-                    return true;
-                }
-            }
-        } catch (UnknownRoleIdException e) {
-            return false;
+        return policyIndex().isOperationAllowed(userId, operationId);
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserId> getAllowedUserIds(@Nonnull OperationId operationId, @Nonnull ProjectId projectId) {
+        return policyIndex().getUserIds(checkNotNull(operationId), checkNotNull(projectId));
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserId> getAllowedUserIds(@Nonnull OperationId operationId) {
+        return policyIndex().getUserIds(checkNotNull(operationId));
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<DenyRule> getDenyRules() {
+        ImmutableSet<DenyRule> view = denyRulesView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(denyRules);
+            denyRulesView = view;
         }
-        return false;
+        return view;
     }
 
     @Override
-    public boolean hasRole(@Nonnull UserId userId, @Nonnull ProjectId projectId) {
-        Map<UserId,Map<ProjectId,Set<RoleId>>> policyMap = getPolicyMap();
-        for (UserId user : policyMap.keySet()) {
-            if (user.equals(userId)) {
-                for (ProjectId project : policyMap.get(userId).keySet()) {
-                    if (project.equals(projectId)) {
-                        return true;
-                    }
-                }
-            }
+    @Nonnull
+    public ImmutableSet<TimedAssignment> getTimedAssignments() {
+        ImmutableSet<TimedAssignment> view = timedAssignmentsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(timedAssignments);
+            timedAssignmentsView = view;
         }
-        return false;
+        return view;
+    }
+
+    /**
+     * Get the permission index of this configuration, which is compiled on first use
+     *
+     * @return Permission index
+     */
+    @Nonnull
+    PolicyIndex policyIndex() {
+        PolicyIndex index = policyIndex;
+        if (index == null) {
+            index = PolicyIndex.compile(roles, policyMap, userGroups, denyRules, projects.keySet(), projectGroups);
+            policyIndex = index;
+        }
+        return index;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserId> queryUsers(@Nonnull String condition) {
+        return PolicyQuery.users(queryIndex(), condition).evaluate();
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<ProjectId> queryProjects(@Nonnull String condition) {
+        return PolicyQuery.projects(queryIndex(), condition).evaluate();
+    }
+
+    /**
+     * Get the policy query index of this configuration, which is compiled on first use
+     *
+     * @return Policy query index
+     */
+    @Nonnull
+    PolicyQueryIndex queryIndex() {
+        PolicyQueryIndex index = queryIndex;
+        if (index == null) {
+            index = new PolicyQueryIndex(this);
+            queryIndex = index;
+        }
+        return index;
+    }
+
+    @Override
+    @Nonnull
+    public PolicyStatistics getStatistics() {
+        PolicyStatisticsImpl stats = statistics;
+        if (stats == null) {
+            stats = PolicyStatisticsImpl.compute(this);
+            statistics = stats;
+        }
+        return stats;
+    }
+
+    /**
+     * Derive the policy statistics of this configuration from those of the given previous configuration, if they
+     * have been computed, so that statistics requested once are kept up to date by each commit rather than recomputed
+     *
+     * @param previous  Previous server configuration
+     * @param delta Delta from the previous configuration to this one
+     */
+    void deriveStatistics(@Nonnull ServerConfigurationImpl previous, @Nonnull ConfigurationDelta delta) {
+        PolicyStatisticsImpl stats = previous.statistics;
+        if (stats != null && statistics == null) {
+            statistics = stats.update(delta, this);
+        }
+    }
+
+    @Override
+    public boolean hasRole(@Nonnull UserId userId, @Nonnull ProjectId projectId) {
+        return policyIndex().getUserIds(checkNotNull(projectId)).contains(checkNotNull(userId));
     }
 
     @Override
     @Nonnull
     public Map<ProjectId, Set<RoleId>> getUserRoleMap(@Nonnull UserId userId) {
+        checkNotNull(userId);
+        PolicyIndex index = policyIndex();
         Map<ProjectId, Set<RoleId>> map = new HashMap<>();
-        if(getPolicyMap().get(userId) != null) {
-            return getPolicyMap().get(userId);
-        }
+        streamAssignments(userId).forEach(assignments -> assignments.forEach((scope, roleIds) -> {
+            Collection<ProjectId> projectIds = index.isProjectGroup(scope) ? index.getProjects(scope) : Collections.singleton(scope);
+            for (ProjectId projectId : projectIds) {
+                map.computeIfAbsent(projectId, id -> new HashSet<>()).addAll(roleIds);
+            }
+        }));
         return map;
     }
 
     @Override
     @Nonnull
     public Set<UserId> getUserIds(@Nonnull ProjectId projectId) {
-        Map<UserId,Map<ProjectId,Set<RoleId>>> policyMap = getPolicyMap();
-        return policyMap.keySet().stream().filter(userId ->
-                policyMap.get(userId).keySet().contains(projectId)).collect(Collectors.toSet());
+        return policyIndex().getUserIds(checkNotNull(projectId));
     }
 
     @Override
     public boolean hasRole(@Nonnull UserId id) {
-        for (UserId userId : getPolicyMap().keySet()) {
-            if (userId.equals(id)) {
-                return true;
-            }
-        }
-        return false;
+        return streamAssignments(checkNotNull(id)).anyMatch(assignments -> !assignments.isEmpty());
     }
 
 
@@ -237,21 +521,30 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableSet<User> getUsers() {
-        return users;
+        ImmutableSet<User> view = usersView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(users.values());
+            usersView = view;
+        }
+        return view;
+    }
+
+    @Override
+    @Nonnull
+    public Page<User> getUsers(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit) {
+        SortedPages<User> pages = usersPages;
+        if (pages == null) {
+            pages = new SortedPages<>(users.values());
+            usersPages = pages;
+        }
+        return pages.getPage(order, cursor, limit);
     }
 
     @Override
     @Nonnull
     public User getUser(@Nonnull UserId userId) throws UnknownUserIdException {
         checkNotNull(userId);
-        Set<User> users = getUsers();
-        User user = null;
-        for(User u : users) {
-            if(u.getId().equals(userId)) {
-                user = u;
-                break;
-            }
-        }
+        User user = users.get(userId);
         if(user != null) {
             return user;
         } else {
@@ -259,41 +552,66 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         }
     }
 
+    @Override
+    @Nonnull
+    public Optional<User> findUser(@Nonnull UserId userId) {
+        return Optional.ofNullable(users.get(checkNotNull(userId)));
+    }
+
     @Override
     @Nonnull
     public Set<User> getUsers(@Nonnull Name userName) {
+        return streamUsers(userName).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<User> streamUsers(@Nonnull Name userName) {
         checkNotNull(userName);
-        return getUsers().stream().filter(user -> user.getName().get().equals(userName.get())).collect(Collectors.toSet());
+        return users.values().stream().filter(user -> user.getName().get().equals(userName.get()));
     }
 
     @Override
     @Nonnull
     public Set<User> getUsers(@Nonnull EmailAddress emailAddress) {
+        return streamUsers(emailAddress).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<User> streamUsers(@Nonnull EmailAddress emailAddress) {
         checkNotNull(emailAddress);
-        return getUsers().stream().filter(user -> user.getEmailAddress().equals(emailAddress)).collect(Collectors.toSet());
+        return users.values().stream().filter(user -> user.getEmailAddress().equals(emailAddress));
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableList<User> searchUsers(@Nonnull String prefix, int limit) {
+        SearchIndex<User> index = usersSearchIndex;
+        if (index == null) {
+            index = new SearchIndex<>(users.values(),
+                    user -> Arrays.asList(user.getName().get(), user.getEmailAddress().get(), user.getId().get()));
+            usersSearchIndex = index;
+        }
+        return index.search(prefix, limit);
     }
 
     @Override
     public boolean containsUser(@Nonnull User user) {
         checkNotNull(user);
-        return getUsers().contains(user);
+        return user.equals(users.get(user.getId()));
     }
 
     @Override
     public boolean containsUser(@Nonnull UserId userId) {
         checkNotNull(userId);
-        try {
-            return containsUser(getUser(userId));
-        } catch (UnknownUserIdException e) {
-            /* no-op */
-        }
-        return false;
+        return users.containsKey(userId);
     }
 
     @Override
     public boolean isEmailAddressInUse(@Nonnull EmailAddress address) {
         checkNotNull(address);
-        for(User u : getUsers()) {
+        for(User u : users.values()) {
             if(u.getEmailAddress().equals(address)) {
                 return true;
             }
@@ -303,29 +621,126 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
 
 
 
-    /* projects */
+    /* user groups */
 
     @Override
     @Nonnull
-    public ImmutableSet<Project> getProjects() {
-        return projects;
+    public UserGroup getUserGroup(@Nonnull UserGroupId groupId) throws UnknownUserGroupIdException {
+        checkNotNull(groupId);
+        UserGroup group = userGroups.get(groupId);
+        if(group != null) {
+            return group;
+        } else {
+            throw new UnknownUserGroupIdException("The specified user group identifier does not correspond to an existing user group");
+        }
     }
 
     @Override
     @Nonnull
-    public Project getProject(@Nonnull ProjectId projectId) throws UnknownProjectIdException {
+    public Optional<UserGroup> findUserGroup(@Nonnull UserGroupId groupId) {
+        return Optional.ofNullable(userGroups.get(checkNotNull(groupId)));
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserGroup> getUserGroups() {
+        ImmutableSet<UserGroup> view = userGroupsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(userGroups.values());
+            userGroupsView = view;
+        }
+        return view;
+    }
+
+    @Override
+    @Nonnull
+    public Set<UserGroup> getUserGroups(@Nonnull UserId userId) {
+        checkNotNull(userId);
+        return policyIndex().getUserGroups(userId).stream().map(userGroups::get).collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean containsUserGroup(@Nonnull UserGroupId groupId) {
+        checkNotNull(groupId);
+        return userGroups.containsKey(groupId);
+    }
+
+
+
+    /* project groups */
+
+    @Override
+    @Nonnull
+    public ProjectGroup getProjectGroup(@Nonnull ProjectId groupId) throws UnknownProjectIdException {
+        checkNotNull(groupId);
+        ProjectGroup group = projectGroups.get(groupId);
+        if(group != null) {
+            return group;
+        } else {
+            throw new UnknownProjectIdException("The specified project group identifier does not correspond to an existing project group");
+        }
+    }
+
+    @Override
+    @Nonnull
+    public Optional<ProjectGroup> findProjectGroup(@Nonnull ProjectId groupId) {
+        return Optional.ofNullable(projectGroups.get(checkNotNull(groupId)));
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<ProjectGroup> getProjectGroups() {
+        ImmutableSet<ProjectGroup> view = projectGroupsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(projectGroups.values());
+            projectGroupsView = view;
+        }
+        return view;
+    }
+
+    @Override
+    @Nonnull
+    public Set<ProjectGroup> getProjectGroups(@Nonnull ProjectId projectId) {
         checkNotNull(projectId);
-        if(projectId.equals(ConfigurationUtils.getUniversalProjectId())) {
-            return ConfigurationUtils.getUniversalProject();
+        return policyIndex().getProjectGroups(projectId).stream().map(projectGroups::get).collect(Collectors.toSet());
+    }
+
+    @Override
+    public boolean containsProjectGroup(@Nonnull ProjectId groupId) {
+        checkNotNull(groupId);
+        return projectGroups.containsKey(groupId);
+    }
+
+
+
+    /* projects */
+
+    @Override
+    @Nonnull
+    public ImmutableSet<Project> getProjects() {
+        ImmutableSet<Project> view = projectsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(projects.values());
+            projectsView = view;
         }
-        Set<Project> projects = getProjects();
-        Project project = null;
-        for(Project p : projects) {
-            if(p.getId().equals(projectId)) {
-                project = p;
-                break;
-            }
+        return view;
+    }
+
+    @Override
+    @Nonnull
+    public Page<Project> getProjects(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit) {
+        SortedPages<Project> pages = projectsPages;
+        if (pages == null) {
+            pages = new SortedPages<>(projects.values());
+            projectsPages = pages;
         }
+        return pages.getPage(order, cursor, limit);
+    }
+
+    @Override
+    @Nonnull
+    public Project getProject(@Nonnull ProjectId projectId) throws UnknownProjectIdException {
+        Project project = lookupProject(checkNotNull(projectId));
         if(project != null) {
             return project;
         } else {
@@ -333,46 +748,73 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         }
     }
 
+    @Override
+    @Nonnull
+    public Optional<Project> findProject(@Nonnull ProjectId projectId) {
+        return Optional.ofNullable(lookupProject(checkNotNull(projectId)));
+    }
+
+    /**
+     * Get the project with the given identifier, including the universal project, or null if there is no such project
+     */
+    @Nullable
+    private Project lookupProject(ProjectId projectId) {
+        if(projectId.equals(ConfigurationUtils.getUniversalProjectId())) {
+            return ConfigurationUtils.getUniversalProject();
+        }
+        return projects.get(projectId);
+    }
+
     @Override
     @Nonnull
     public Set<Project> getProjects(@Nonnull Name projectName) {
         checkNotNull(projectName);
-        return getProjects().stream().filter(project -> project.getName().equals(projectName) &&
+        return projects.values().stream().filter(project -> project.getName().equals(projectName) &&
                 !project.getId().equals(ConfigurationUtils.getUniversalProjectId())).collect(Collectors.toSet());
     }
 
+    @Override
+    @Nonnull
+    public ImmutableList<Project> searchProjects(@Nonnull String prefix, int limit) {
+        SearchIndex<Project> index = projectsSearchIndex;
+        if (index == null) {
+            index = new SearchIndex<>(projects.values().stream().filter(project ->
+                    !project.getId().equals(ConfigurationUtils.getUniversalProjectId())).collect(Collectors.toList()),
+                    project -> Arrays.asList(project.getName().get(), project.getId().get()));
+            projectsSearchIndex = index;
+        }
+        return index.search(prefix, limit);
+    }
+
     @Override
     @Nonnull
     public Set<Project> getProjects(@Nonnull UserId userId) {
-        Set<Project> projects = new HashSet<>();
-        Set<ProjectId> projectIds = getProjectIds(userId);
-        for (ProjectId projectId : projectIds) {
-            try {
-                Project p = getProject(projectId);
-                projects.add(p);
-            } catch (UnknownProjectIdException e) {
+        return streamProjects(userId).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<Project> streamProjects(@Nonnull UserId userId) {
+        return streamProjectIds(userId).map(projectId -> {
+            Project p = lookupProject(projectId);
+            if (p == null && logger.isDebugEnabled()) {
                 logger.debug("The project with identifier '" + projectId.get() + "' is stated in the access control policy " +
                         "but there is no project with that identifier in the project registry.");
             }
-        }
-        return projects;
+            return p;
+        }).filter(project -> project != null);
     }
 
     @Override
     public boolean containsProject(@Nonnull Project project) {
         checkNotNull(project);
-        return getProjects().contains(project);
+        return project.equals(projects.get(project.getId()));
     }
 
     @Override
     public boolean containsProject(@Nonnull ProjectId projectId) {
         checkNotNull(projectId);
-        try {
-            return containsProject(getProject(projectId));
-        } catch (UnknownProjectIdException e) {
-            /* no-op */
-        }
-        return false;
+        return projects.containsKey(projectId);
     }
 
 
@@ -382,19 +824,30 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableSet<Role> getRoles() {
-        return roles;
+        ImmutableSet<Role> view = rolesView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(roles.values());
+            rolesView = view;
+        }
+        return view;
+    }
+
+    @Override
+    @Nonnull
+    public Page<Role> getRoles(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit) {
+        SortedPages<Role> pages = rolesPages;
+        if (pages == null) {
+            pages = new SortedPages<>(roles.values());
+            rolesPages = pages;
+        }
+        return pages.getPage(order, cursor, limit);
     }
 
     @Override
     @Nonnull
     public Role getRole(@Nonnull RoleId roleId) throws UnknownRoleIdException {
         checkNotNull(roleId);
-        Role role = null;
-        for(Role r : roles) {
-            if(r.getId().equals(roleId)) {
-                role = r; break;
-            }
-        }
+        Role role = roles.get(roleId);
         if(role != null) {
             return role;
         } else {
@@ -402,48 +855,57 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         }
     }
 
+    @Override
+    @Nonnull
+    public Optional<Role> findRole(@Nonnull RoleId roleId) {
+        return Optional.ofNullable(roles.get(checkNotNull(roleId)));
+    }
+
     @Override
     @Nonnull
     public Set<Role> getRoles(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions) {
-        Set<RoleId> roleIds = getRoleIds(userId, globalPermissions);
-        return getRoles(roleIds);
+        return streamRoles(userId, globalPermissions).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<Role> streamRoles(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions) {
+        return toRoles(streamRoleIds(userId, globalPermissions));
     }
 
     @Override
     @Nonnull
     public Set<Role> getRoles(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions) {
-        Set<RoleId> roleIds = getRoleIds(userId, projectId, globalPermissions);
-        return getRoles(roleIds);
+        return streamRoles(userId, projectId, globalPermissions).collect(Collectors.toSet());
     }
 
-    private Set<Role> getRoles(@Nonnull Set<RoleId> roleIds) {
-        Set<Role> roles = new HashSet<>();
-        for (RoleId roleId : roleIds) {
-            try {
-                roles.add(getRole(roleId));
-            } catch (UnknownRoleIdException e) {
+    @Override
+    @Nonnull
+    public Stream<Role> streamRoles(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions) {
+        return toRoles(streamRoleIds(userId, projectId, globalPermissions));
+    }
+
+    private Stream<Role> toRoles(@Nonnull Stream<RoleId> roleIds) {
+        return roleIds.map(roleId -> {
+            Role role = this.roles.get(roleId);
+            if (role == null && logger.isDebugEnabled()) {
                 logger.debug("The role with identifier '" + roleId.get() + "' is stated in the access control policy " +
                         "but there is no role with that identifier in the role registry.");
             }
-        }
-        return roles;
+            return role;
+        }).filter(role -> role != null);
     }
 
     @Override
     public boolean containsRole(@Nonnull Role role) {
         checkNotNull(role);
-        return getRoles().contains(role);
+        return role.equals(roles.get(role.getId()));
     }
 
     @Override
     public boolean containsRole(@Nonnull RoleId roleId) {
         checkNotNull(roleId);
-        try {
-            return containsRole(getRole(roleId));
-        } catch (UnknownRoleIdException e) {
-            /* no-op */
-        }
-        return false;
+        return roles.containsKey(roleId);
     }
 
 
@@ -453,20 +915,19 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableSet<Operation> getOperations() {
-        return operations;
+        ImmutableSet<Operation> view = operationsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(operations.values());
+            operationsView = view;
+        }
+        return view;
     }
 
     @Override
     @Nonnull
     public Operation getOperation(@Nonnull OperationId operationId) throws UnknownOperationIdException {
         checkNotNull(operationId);
-        Set<Operation> operations = getOperations();
-        Operation operation = null;
-        for(Operation o : operations) {
-            if(o.getId().equals(operationId)) {
-                operation = o; break;
-            }
-        }
+        Operation operation = operations.get(operationId);
         if(operation != null) {
             return operation;
         } else {
@@ -474,60 +935,94 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         }
     }
 
+    @Override
+    @Nonnull
+    public Optional<Operation> findOperation(@Nonnull OperationId operationId) {
+        return Optional.ofNullable(operations.get(checkNotNull(operationId)));
+    }
+
     @Override
     @Nonnull
     public Set<Operation> getOperations(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions) {
-        Set<Role> roles = getRoles(userId, globalPermissions);
-        return getOperations(roles);
+        return streamOperations(userId, globalPermissions).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<Operation> streamOperations(@Nonnull UserId userId, @Nonnull GlobalPermissions globalPermissions) {
+        Stream<Operation> operations = toOperations(streamRoles(userId, globalPermissions));
+        if (denyRules.isEmpty()) {
+            return operations;
+        }
+        return operations.filter(operation -> isOperationAllowed(operation.getId(), userId));
     }
 
     @Override
     @Nonnull
     public Set<Operation> getOperations(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions) {
-        Set<Role> roles = getRoles(userId, projectId, globalPermissions);
-        return getOperations(roles);
+        return streamOperations(userId, projectId, globalPermissions).collect(Collectors.toSet());
     }
 
     @Override
     @Nonnull
-    public Set<Operation> getOperations(@Nonnull Set<Role> roles) {
-        Set<Operation> operations = new HashSet<>();
-        for (Role role : roles) {
-            operations.addAll(getOperations(role));
+    public Stream<Operation> streamOperations(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull GlobalPermissions globalPermissions) {
+        Stream<Operation> operations = toOperations(streamRoles(userId, projectId, globalPermissions));
+        if (denyRules.isEmpty()) {
+            return operations;
         }
-        return operations;
+        // the operations are all granted, so the ones not allowed are those denied to the user in the project
+        return operations.filter(operation -> isOperationAllowed(operation.getId(), projectId, userId));
+    }
+
+    @Override
+    @Nonnull
+    public Set<Operation> getOperations(@Nonnull Set<Role> roles) {
+        return streamOperations(roles).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<Operation> streamOperations(@Nonnull Set<Role> roles) {
+        return toOperations(checkNotNull(roles).stream());
     }
 
     @Override
     @Nonnull
     public Set<Operation> getOperations(@Nonnull Role role) {
-        Set<Operation> operations = new HashSet<>();
-        for (OperationId opId : role.getOperations()) {
-            try {
-                operations.add(getOperation(opId));
-            } catch (UnknownOperationIdException e) {
+        return streamOperations(role).collect(Collectors.toSet());
+    }
+
+    @Override
+    @Nonnull
+    public Stream<Operation> streamOperations(@Nonnull Role role) {
+        return toOperations(Stream.of(checkNotNull(role)));
+    }
+
+    /**
+     * Stream the distinct operations allowed by the given roles, as resolved by the permission index
+     */
+    private Stream<Operation> toOperations(Stream<Role> roles) {
+        PolicyIndex index = policyIndex();
+        return roles.flatMap(role -> index.streamOperationIds(role).map(opId -> {
+            Operation operation = this.operations.get(opId);
+            if (operation == null && logger.isDebugEnabled()) {
                 logger.debug("The operation with identifier '" + opId.get() + "' is stated in the operation list of the role '" +
                         role.getName() + "', but there is no operation with that identifier in the operation registry.");
             }
-        }
-        return operations;
+            return operation;
+        })).filter(operation -> operation != null).distinct();
     }
 
     @Override
     public boolean containsOperation(@Nonnull Operation operation) {
         checkNotNull(operation);
-        return getOperations().contains(operation);
+        return operation.equals(operations.get(operation.getId()));
     }
 
     @Override
     public boolean containsOperation(@Nonnull OperationId operationId) {
         checkNotNull(operationId);
-        try {
-            return containsOperation(getOperation(operationId));
-        } catch (UnknownOperationIdException e) {
-            /* no-op */
-        }
-        return false;
+        return operations.containsKey(operationId);
     }
 
 
@@ -537,19 +1032,18 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
     @Override
     @Nonnull
     public ImmutableSet<AuthenticationDetails> getAuthenticationDetails() {
-        return authDetails;
+        ImmutableSet<AuthenticationDetails> view = authDetailsView;
+        if (view == null) {
+            view = ImmutableSet.copyOf(authDetails.values());
+            authDetailsView = view;
+        }
+        return view;
     }
 
     @Override
     @Nonnull
     public AuthenticationDetails getAuthenticationDetails(@Nonnull UserId userId) throws UserNotRegisteredException {
-        AuthenticationDetails details = null;
-        for(AuthenticationDetails userDetails : getAuthenticationDetails()) {
-            if (userDetails.getUserId().equals(userId)) {
-                details = userDetails;
-                break;
-            }
-        }
+        AuthenticationDetails details = authDetails.get(userId);
         if(details == null) {
             throw new UserNotRegisteredException("The specified user identifier does not correspond to a user registered" +
                     " with the authentication manager.");
@@ -557,6 +1051,12 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         return details;
     }
 
+    @Override
+    @Nonnull
+    public Optional<AuthenticationDetails> findAuthenticationDetails(@Nonnull UserId userId) {
+        return Optional.ofNullable(authDetails.get(checkNotNull(userId)));
+    }
+
     @Override
     @Nonnull
     public Salt getSalt(@Nonnull UserId userId) throws UserNotRegisteredException {
@@ -565,24 +1065,17 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
 
     @Override
     public boolean isRegistered(@Nonnull UserId userId) {
-        for(AuthenticationDetails userDetails : getAuthenticationDetails()) {
-            if(userDetails.getUserId().equals(userId)) {
-                return true;
-            }
-        }
-        return false;
+        return authDetails.containsKey(userId);
     }
 
     @Override
     public boolean hasValidCredentials(@Nonnull UserId userId, @Nonnull SaltedPasswordDigest password) {
-        SaltedPasswordDigest correctHash;
-        try {
-            correctHash = getAuthenticationDetails(userId).getPassword();
-        } catch (UserNotRegisteredException e) {
+        AuthenticationDetails details = authDetails.get(userId);
+        if (details == null) {
             logger.debug("User identifier " + userId.get() + " does not correspond to a registered user");
             return false;
         }
-        return slowEquals(password.getPassword().getBytes(), correctHash.getPassword().getBytes());
+        return slowEquals(password.getPassword().getBytes(), details.getPassword().getPassword().getBytes());
     }
 
     /**
@@ -609,13 +1102,33 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
         if (!(o instanceof ServerConfiguration)) {
             return false;
         }
+        if (o instanceof ServerConfigurationImpl) {
+            ServerConfigurationImpl that = (ServerConfigurationImpl) o;
+            return Objects.equal(policyMap, that.policyMap) &&
+                    Objects.equal(denyRules, that.denyRules) &&
+                    Objects.equal(timedAssignments, that.timedAssignments) &&
+                    Objects.equal(roles, that.roles) &&
+                    Objects.equal(operations, that.operations) &&
+                    Objects.equal(users, that.users) &&
+                    Objects.equal(userGroups, that.userGroups) &&
+                    Objects.equal(projects, that.projects) &&
+                    Objects.equal(projectGroups, that.projectGroups) &&
+                    Objects.equal(authDetails, that.authDetails) &&
+                    Objects.equal(properties, that.properties) &&
+                    Objects.equal(host, that.host) &&
+                    Objects.equal(root, that.root);
+        }
         ServerConfiguration that = (ServerConfiguration) o;
-        return Objects.equal(policyMap, that.getPolicyMap()) &&
-                Objects.equal(roles, that.getRoles()) &&
-                Objects.equal(operations, that.getOperations()) &&
-                Objects.equal(users, that.getUsers()) &&
-                Objects.equal(projects, that.getProjects()) &&
-                Objects.equal(authDetails, that.getAuthenticationDetails()) &&
+        return Objects.equal(getPolicyMap(), that.getPolicyMap()) &&
+                Objects.equal(getDenyRules(), that.getDenyRules()) &&
+                Objects.equal(getTimedAssignments(), that.getTimedAssignments()) &&
+                Objects.equal(getRoles(), that.getRoles()) &&
+                Objects.equal(getOperations(), that.getOperations()) &&
+                Objects.equal(getUsers(), that.getUsers()) &&
+                Objects.equal(getUserGroups(), that.getUserGroups()) &&
+                Objects.equal(getProjects(), that.getProjects()) &&
+                Objects.equal(getProjectGroups(), that.getProjectGroups()) &&
+                Objects.equal(getAuthenticationDetails(), that.getAuthenticationDetails()) &&
                 Objects.equal(properties, that.getProperties()) &&
                 Objects.equal(host, that.getHost()) &&
                 Objects.equal(root, that.getServerRoot());
@@ -623,18 +1136,38 @@ public final class ServerConfigurationImpl implements ServerConfiguration, Seria
 
     @Override
     public int hashCode() {
-        return Objects.hashCode(policyMap, roles, operations, users, projects, authDetails, properties, host, root);
+        int h = hashCode;
+        if (h == 0) {
+            // hash the collections of policy objects as sets, consistently with equality against other implementations
+            h = Arrays.hashCode(new int[]{policyMap.hashCode(), denyRules.hashCode(), timedAssignments.hashCode(), setHashCode(roles), setHashCode(operations), setHashCode(users),
+                    setHashCode(userGroups), setHashCode(projects), setHashCode(projectGroups), setHashCode(authDetails), properties.hashCode(),
+                    host.hashCode(), root.hashCode()});
+            hashCode = h;
+        }
+        return h;
+    }
+
+    private static int setHashCode(Map<?,?> map) {
+        int h = 0;
+        for (Object element : map.values()) {
+            h += element.hashCode();
+        }
+        return h;
     }
 
     @Override
     public String toString() {
         return MoreObjects.toStringHelper(this)
                 .add("policyMap", policyMap)
-                .add("roles", roles)
-                .add("operations", operations)
-                .add("users", users)
-                .add("projects", projects)
-                .add("authDetails", authDetails)
+                .add("denyRules", denyRules)
+                .add("timedAssignments", timedAssignments)
+                .add("roles", roles.values())
+                .add("operations", operations.values())
+                .add("users", users.values())
+                .add("userGroups", userGroups.values())
+                .add("projects", projects.values())
+                .add("projectGroups", projectGroups.values())
+                .add("authDetails", authDetails.values())
                 .add("properties", properties)
                 .add("host", host)
                 .add("root", root)
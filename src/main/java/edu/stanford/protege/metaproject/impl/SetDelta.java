@@ -0,0 +1,301 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The difference between two sets, given by the elements that were added to and removed from the original set
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class SetDelta<E> {
+    private static final SetDelta<Object> EMPTY = new SetDelta<>(ImmutableSet.of(), ImmutableSet.of());
+    @Nonnull private final ImmutableSet<E> added;
+    @Nonnull private final ImmutableSet<E> removed;
+
+    /**
+     * Constructor
+     *
+     * @param added Elements added to the original set
+     * @param removed   Elements removed from the original set
+     */
+    public SetDelta(@Nonnull Set<E> added, @Nonnull Set<E> removed) {
+        this.added = ImmutableSet.copyOf(checkNotNull(added));
+        this.removed = ImmutableSet.copyOf(checkNotNull(removed));
+    }
+
+    /**
+     * Get an empty set delta
+     *
+     * @return Empty set delta
+     */
+    @SuppressWarnings("unchecked")
+    public static <E> SetDelta<E> empty() {
+        return (SetDelta<E>) EMPTY;
+    }
+
+    /**
+     * Compute the difference between the given sets
+     *
+     * @param from  Original set
+     * @param to    Modified set
+     * @return Set delta that transforms the original set into the modified one
+     */
+    public static <E> SetDelta<E> between(@Nonnull Set<E> from, @Nonnull Set<E> to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return empty();
+        }
+        if (from instanceof PersistentHashSet && to instanceof PersistentHashSet) {
+            return between((PersistentHashSet<E>) from, (PersistentHashSet<E>) to);
+        }
+        return new SetDelta<>(Sets.difference(to, from), Sets.difference(from, to));
+    }
+
+    /**
+     * Compute the difference between the given persistent sets, skipping the parts that they share
+     *
+     * @param from  Original set
+     * @param to    Modified set
+     * @return Set delta that transforms the original set into the modified one
+     */
+    public static <E> SetDelta<E> between(@Nonnull PersistentHashSet<E> from, @Nonnull PersistentHashSet<E> to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return empty();
+        }
+        Set<E> added = new HashSet<>(), removed = new HashSet<>();
+        from.diff(to, added::add, removed::add);
+        return new SetDelta<>(added, removed);
+    }
+
+    /**
+     * Compute the difference between the sets of values of the given persistent maps, where each map holds elements
+     * keyed by some identifier derived from them (e.g., users keyed by user identifier). Parts shared by both maps
+     * are skipped
+     *
+     * @param from  Original map
+     * @param to    Modified map
+     * @return Set delta that transforms the values of the original map into those of the modified one
+     */
+    public static <K,E> SetDelta<E> betweenValues(@Nonnull PersistentHashMap<K,E> from, @Nonnull PersistentHashMap<K,E> to) {
+        checkNotNull(from);
+        checkNotNull(to);
+        if (from == to) {
+            return empty();
+        }
+        Set<E> added = new HashSet<>(), removed = new HashSet<>();
+        from.diff(to, new PersistentHashMap.DiffVisitor<K,E>() {
+            @Override
+            public void added(@Nonnull K key, @Nonnull E value) {
+                added.add(value);
+            }
+
+            @Override
+            public void removed(@Nonnull K key, @Nonnull E value) {
+                removed.add(value);
+            }
+
+            @Override
+            public void changed(@Nonnull K key, @Nonnull E oldValue, @Nonnull E newValue) {
+                removed.add(oldValue);
+                added.add(newValue);
+            }
+        });
+        return new SetDelta<>(added, removed);
+    }
+
+    /**
+     * Get the elements added to the original set
+     *
+     * @return Set of added elements
+     */
+    @Nonnull
+    public ImmutableSet<E> getAdded() {
+        return added;
+    }
+
+    /**
+     * Get the elements removed from the original set
+     *
+     * @return Set of removed elements
+     */
+    @Nonnull
+    public ImmutableSet<E> getRemoved() {
+        return removed;
+    }
+
+    /**
+     * Check whether this delta contains no changes
+     *
+     * @return true if no elements were added or removed, false otherwise
+     */
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty();
+    }
+
+    /**
+     * Apply this delta to the given set
+     *
+     * @param set   Original set
+     * @return New set with the removed elements taken out and the added elements put in
+     */
+    @Nonnull
+    public Set<E> applyTo(@Nonnull Set<E> set) {
+        checkNotNull(set);
+        if (isEmpty()) {
+            return set;
+        }
+        if (set instanceof PersistentHashSet) {
+            return applyTo((PersistentHashSet<E>) set);
+        }
+        Set<E> result = new HashSet<>(set);
+        result.removeAll(removed);
+        result.addAll(added);
+        return result;
+    }
+
+    /**
+     * Apply this delta to the given persistent set, which shares all unchanged parts with the result
+     *
+     * @param set   Original set
+     * @return New persistent set with the removed elements taken out and the added elements put in
+     */
+    @Nonnull
+    public PersistentHashSet<E> applyTo(@Nonnull PersistentHashSet<E> set) {
+        return checkNotNull(set).minusAll(removed).plusAll(added);
+    }
+
+    /**
+     * Apply this delta to the values of the given persistent map, where each element is keyed by the given function
+     *
+     * @param map   Original map of elements
+     * @param key   Function that gives the key of an element
+     * @return New persistent map with the removed elements taken out and the added elements put in
+     */
+    @Nonnull
+    public <K> PersistentHashMap<K,E> applyTo(@Nonnull PersistentHashMap<K,E> map, @Nonnull Function<? super E, ? extends K> key) {
+        checkNotNull(map);
+        checkNotNull(key);
+        PersistentHashMap<K,E> result = map;
+        for (E element : removed) {
+            K elementKey = key.apply(element);
+            if (element.equals(result.get(elementKey))) {
+                result = result.minus(elementKey);
+            }
+        }
+        for (E element : added) {
+            result = result.plus(key.apply(element), element);
+        }
+        return result;
+    }
+
+    /**
+     * Combine this delta with the given one, which is assumed to be applied after this one
+     *
+     * @param next  Delta applied after this delta
+     * @return Set delta equivalent to applying this delta followed by the given delta
+     */
+    @Nonnull
+    public SetDelta<E> andThen(@Nonnull SetDelta<E> next) {
+        checkNotNull(next);
+        if (isEmpty()) {
+            return next;
+        }
+        if (next.isEmpty()) {
+            return this;
+        }
+        return new SetDelta<>(Sets.union(Sets.difference(added, next.removed), next.added), Sets.union(removed, next.removed));
+    }
+
+    /**
+     * Get the delta that undoes this delta, i.e., that transforms the result of applying this delta to the given
+     * set back into the given set
+     *
+     * @param base  Set that this delta is applied to
+     * @return Inverse set delta
+     */
+    @Nonnull
+    public SetDelta<E> invert(@Nonnull Set<E> base) {
+        checkNotNull(base);
+        return invert(base::contains);
+    }
+
+    /**
+     * Get the delta that undoes this delta, where the set that this delta is applied to is given by the values of
+     * a map whose elements are keyed by the given function
+     *
+     * @param base  Map of elements that this delta is applied to
+     * @param key   Function that gives the key of an element
+     * @return Inverse set delta
+     */
+    @Nonnull
+    public <K> SetDelta<E> invert(@Nonnull Map<K,E> base, @Nonnull Function<? super E, ? extends K> key) {
+        checkNotNull(base);
+        checkNotNull(key);
+        return invert(element -> element.equals(base.get(key.apply(element))));
+    }
+
+    private SetDelta<E> invert(Predicate<E> contains) {
+        if (isEmpty()) {
+            return this;
+        }
+        Set<E> restored = new HashSet<>(), discarded = new HashSet<>();
+        for (E element : removed) {
+            if (contains.test(element)) {
+                restored.add(element);
+            }
+        }
+        for (E element : added) {
+            if (!contains.test(element)) {
+                discarded.add(element);
+            }
+        }
+        return new SetDelta<>(restored, discarded);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SetDelta)) {
+            return false;
+        }
+        SetDelta<?> that = (SetDelta<?>) o;
+        return Objects.equal(added, that.added) &&
+                Objects.equal(removed, that.removed);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(added, removed);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("added", added)
+                .add("removed", removed)
+                .toString();
+    }
+}
@@ -0,0 +1,124 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Ordering;
+import edu.stanford.protege.metaproject.api.Page;
+import edu.stanford.protege.metaproject.api.PolicyObject;
+import edu.stanford.protege.metaproject.api.PolicyObjectId;
+import edu.stanford.protege.metaproject.api.SortOrder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The policy objects of one kind in a configuration snapshot, sorted once in each {@link SortOrder}, so that a page
+ * is found by a binary search for its cursor followed by a sublist of the sorted objects. A cursor encodes the sort
+ * key of the last object of the previous page (the identifier, or the name and the identifier), not its position,
+ * so it can be resumed against a later snapshot
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+final class SortedPages<T extends PolicyObject<?>> {
+    private static final char SEPARATOR = '\u0000';
+    @Nonnull private final ImmutableList<T> byId, byName;
+
+    /**
+     * Constructor
+     *
+     * @param objects   Policy objects
+     */
+    SortedPages(@Nonnull Collection<T> objects) {
+        checkNotNull(objects);
+        this.byId = Ordering.from((T a, T b) -> compare(SortOrder.ID, a, key(SortOrder.ID, b))).immutableSortedCopy(objects);
+        this.byName = Ordering.from((T a, T b) -> compare(SortOrder.NAME, a, key(SortOrder.NAME, b))).immutableSortedCopy(objects);
+    }
+
+    /**
+     * Get the page of at most the given number of objects that follows the given cursor in the given order
+     *
+     * @param order Sort order
+     * @param cursor    Cursor returned with the previous page, or an empty optional for the first page
+     * @param limit Maximum number of objects in the page
+     * @return Page of objects
+     * @throws IllegalArgumentException The limit is not positive, or the cursor is malformed
+     */
+    @Nonnull
+    Page<T> getPage(@Nonnull SortOrder order, @Nonnull Optional<String> cursor, int limit) {
+        checkNotNull(order);
+        checkNotNull(cursor);
+        checkArgument(limit > 0, "The page size must be positive");
+        List<T> sorted = order == SortOrder.ID ? byId : byName;
+        int from = cursor.isPresent() ? after(sorted, order, decode(order, cursor.get())) : 0;
+        int to = Math.min(from + limit, sorted.size());
+        Optional<String> next = to < sorted.size() ? Optional.of(encode(key(order, sorted.get(to - 1)))) : Optional.empty();
+        return new PageImpl<>(ImmutableList.copyOf(sorted.subList(from, to)), next);
+    }
+
+    /**
+     * Get the position of the first object that sorts after the given key
+     */
+    private static <T extends PolicyObject<?>> int after(List<T> sorted, SortOrder order, String[] key) {
+        int low = 0, high = sorted.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(order, sorted.get(middle), key) <= 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static int compare(SortOrder order, PolicyObject<?> object, String[] key) {
+        if (order == SortOrder.ID) {
+            return id(object).compareTo(key[0]);
+        }
+        return ComparisonChain.start()
+                .compare(object.getName().get(), key[0])
+                .compare(id(object), key[1])
+                .result();
+    }
+
+    private static String[] key(SortOrder order, PolicyObject<?> object) {
+        return order == SortOrder.ID ? new String[] { id(object) } : new String[] { object.getName().get(), id(object) };
+    }
+
+    private static String id(PolicyObject<?> object) {
+        return ((PolicyObjectId<?>) object.getId()).get();
+    }
+
+    private static String encode(String[] key) {
+        String text = key.length == 1 ? key[0] : key[0] + SEPARATOR + key[1];
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String[] decode(SortOrder order, String cursor) {
+        String text;
+        try {
+            text = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Malformed page cursor: " + cursor, e);
+        }
+        if (order == SortOrder.ID) {
+            return new String[] { text };
+        }
+        int separator = text.indexOf(SEPARATOR);
+        checkArgument(separator >= 0, "Malformed page cursor: %s", cursor);
+        return new String[] { text.substring(0, separator), text.substring(separator + 1) };
+    }
+}
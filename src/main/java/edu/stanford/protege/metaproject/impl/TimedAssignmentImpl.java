@@ -0,0 +1,123 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ComparisonChain;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class TimedAssignmentImpl implements TimedAssignment, Serializable {
+    private static final long serialVersionUID = 3071526494218376581L;
+    @Nonnull private final UserId userId;
+    @Nonnull private final ProjectId projectId;
+    @Nonnull private final RoleId roleId;
+    private final long validFrom, validUntil;
+
+    /**
+     * Constructor
+     *
+     * @param userId    User identifier
+     * @param projectId Project identifier
+     * @param roleId    Role identifier
+     * @param validFrom Start time of the validity window, in milliseconds since the epoch
+     * @param validUntil    End time of the validity window, in milliseconds since the epoch
+     */
+    public TimedAssignmentImpl(@Nonnull UserId userId, @Nonnull ProjectId projectId, @Nonnull RoleId roleId, long validFrom, long validUntil) {
+        checkArgument(validFrom < validUntil, "The validity window of a role assignment must end after it starts");
+        this.userId = checkNotNull(userId);
+        this.projectId = checkNotNull(projectId);
+        this.roleId = checkNotNull(roleId);
+        this.validFrom = validFrom;
+        this.validUntil = validUntil;
+    }
+
+    @Override
+    @Nonnull
+    public UserId getUserId() {
+        return userId;
+    }
+
+    @Override
+    @Nonnull
+    public ProjectId getProjectId() {
+        return projectId;
+    }
+
+    @Override
+    @Nonnull
+    public RoleId getRoleId() {
+        return roleId;
+    }
+
+    @Override
+    public long getValidFrom() {
+        return validFrom;
+    }
+
+    @Override
+    public long getValidUntil() {
+        return validUntil;
+    }
+
+    @Override
+    public boolean isValidAt(long time) {
+        return validFrom <= time && time < validUntil;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof TimedAssignment)) {
+            return false;
+        }
+        TimedAssignment that = (TimedAssignment) o;
+        return validFrom == that.getValidFrom() &&
+                validUntil == that.getValidUntil() &&
+                Objects.equal(userId, that.getUserId()) &&
+                Objects.equal(projectId, that.getProjectId()) &&
+                Objects.equal(roleId, that.getRoleId());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(userId, projectId, roleId, validFrom, validUntil);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("userId", userId)
+                .add("projectId", projectId)
+                .add("roleId", roleId)
+                .add("validFrom", validFrom)
+                .add("validUntil", validUntil)
+                .toString();
+    }
+
+    @Override
+    public int compareTo(@Nonnull TimedAssignment that) {
+        return ComparisonChain.start()
+                .compare(validUntil, that.getValidUntil())
+                .compare(validFrom, that.getValidFrom())
+                .compare(userId.get(), that.getUserId().get())
+                .compare(projectId.get(), that.getProjectId().get())
+                .compare(roleId.get(), that.getRoleId().get())
+                .result();
+    }
+}
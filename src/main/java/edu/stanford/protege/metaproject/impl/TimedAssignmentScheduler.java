@@ -0,0 +1,172 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.stanford.protege.metaproject.api.TimedAssignment;
+import edu.stanford.protege.metaproject.api.exception.ConfigurationException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.time.Clock;
+import java.util.Collections;
+import java.util.PriorityQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Opens and closes the validity windows of the timed role assignments of a live configuration. The start and end
+ * times of all windows are kept in a priority queue, and a single timer is armed for the earliest of them; when it
+ * fires, the policy is brought in line with the windows through a {@link ConfigurationEditor}, and the resulting
+ * snapshot is published like any other edit. Windows added by later commits are queued as the commits are
+ * published. Since lapsed assignments leave the policy as soon as their window closes, permission checks against a
+ * snapshot never compare timestamps. In a replicated deployment the scheduler should run only on the node that
+ * accepts edits, and the other nodes receive the resulting snapshots through replication
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class TimedAssignmentScheduler implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TimedAssignmentScheduler.class.getName());
+    @Nonnull private final LiveConfiguration configuration;
+    @Nonnull private final ConfigurationEditor editor;
+    @Nonnull private final ScheduledExecutorService executor;
+    @Nonnull private final Clock clock;
+    @Nonnull private final LiveConfiguration.CommitListener commitListener = this::committed;
+    private final boolean ownsExecutor;
+    // window boundaries and the armed timer are guarded by this scheduler's monitor
+    private final PriorityQueue<Long> boundaries = new PriorityQueue<>();
+    private ScheduledFuture<?> timer;
+    private long timerTime = Long.MAX_VALUE;
+    private boolean closed;
+
+    /**
+     * Constructor. Windows are opened and closed on a dedicated daemon thread, which is stopped when the scheduler
+     * is closed
+     *
+     * @param configuration Live configuration
+     */
+    public TimedAssignmentScheduler(@Nonnull LiveConfiguration configuration) {
+        this(configuration, Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("timed-assignment-scheduler-%d").setDaemon(true).build()),
+                Clock.systemUTC(), true);
+    }
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration
+     * @param executor  Executor on which windows are opened and closed
+     */
+    public TimedAssignmentScheduler(@Nonnull LiveConfiguration configuration, @Nonnull ScheduledExecutorService executor) {
+        this(configuration, executor, Clock.systemUTC());
+    }
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration
+     * @param executor  Executor on which windows are opened and closed
+     * @param clock Clock against which window boundaries are compared and timers are armed
+     */
+    public TimedAssignmentScheduler(@Nonnull LiveConfiguration configuration, @Nonnull ScheduledExecutorService executor,
+                                    @Nonnull Clock clock) {
+        this(configuration, executor, clock, false);
+    }
+
+    private TimedAssignmentScheduler(LiveConfiguration configuration, ScheduledExecutorService executor, Clock clock,
+                                     boolean ownsExecutor) {
+        this.configuration = checkNotNull(configuration);
+        this.editor = new ConfigurationEditor(configuration);
+        this.executor = checkNotNull(executor);
+        this.clock = checkNotNull(clock);
+        this.ownsExecutor = ownsExecutor;
+        configuration.addCommitListener(commitListener);
+        // windows may have opened or closed while the configuration was not live, so they are applied right away
+        enqueue(ServerConfigurationImpl.from(configuration.getConfiguration()).persistentTimedAssignments(), true);
+    }
+
+    private void committed(VersionedConfiguration previous, VersionedConfiguration current, ConfigurationDelta delta) {
+        if (!delta.getTimedAssignments().getAdded().isEmpty()) {
+            enqueue(delta.getTimedAssignments().getAdded(), false);
+        }
+    }
+
+    private synchronized void enqueue(Iterable<TimedAssignment> assignments, boolean applyNow) {
+        if (applyNow) {
+            boundaries.add(clock.millis());
+        }
+        for (TimedAssignment assignment : assignments) {
+            boundaries.add(assignment.getValidFrom());
+            boundaries.add(assignment.getValidUntil());
+        }
+        schedule();
+    }
+
+    private void schedule() {
+        Long next = boundaries.peek();
+        if (closed || next == null || (timer != null && timerTime <= next)) {
+            return;
+        }
+        if (timer != null) {
+            timer.cancel(false);
+        }
+        timerTime = next;
+        timer = executor.schedule(this::fire, Math.max(0, next - clock.millis()), TimeUnit.MILLISECONDS);
+    }
+
+    private void fire() {
+        long now = clock.millis();
+        synchronized (this) {
+            while (!boundaries.isEmpty() && boundaries.peek() <= now) {
+                boundaries.poll();
+            }
+            timer = null;
+            timerTime = Long.MAX_VALUE;
+            if (closed) {
+                return;
+            }
+        }
+        try {
+            editor.edit(Collections.singleton(ConfigurationChangeEvent.Type.TIMED_ASSIGNMENTS), builder -> builder.applyTimedAssignments(now));
+        } catch (ConfigurationException | RuntimeException e) {
+            logger.error("Failed to apply the timed role assignments of version " + configuration.getVersion(), e);
+        }
+        synchronized (this) {
+            schedule();
+        }
+    }
+
+    /**
+     * Get the time of the next window boundary at which the scheduler will update the policy
+     *
+     * @return Time in milliseconds since the epoch, or {@link Long#MAX_VALUE} if no boundary is pending
+     */
+    public synchronized long getNextBoundary() {
+        Long next = boundaries.peek();
+        return next != null ? next : Long.MAX_VALUE;
+    }
+
+    @Override
+    public void close() {
+        configuration.removeCommitListener(commitListener);
+        synchronized (this) {
+            closed = true;
+            boundaries.clear();
+            if (timer != null) {
+                timer.cancel(false);
+                timer = null;
+            }
+        }
+        if (ownsExecutor) {
+            executor.shutdown();
+        }
+    }
+}
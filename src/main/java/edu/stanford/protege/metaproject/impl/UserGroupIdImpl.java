@@ -0,0 +1,71 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ComparisonChain;
+import edu.stanford.protege.metaproject.api.UserGroupId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class UserGroupIdImpl implements UserGroupId, Serializable {
+    private static final long serialVersionUID = 2950612468731820445L;
+    @Nonnull private final String id;
+
+    /**
+     * Constructor
+     *
+     * @param id    Identifier
+     */
+    public UserGroupIdImpl(@Nonnull String id) {
+        this.id = checkNotNull(id);
+    }
+
+    @Override
+    @Nonnull
+    public String get() {
+        return id;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserGroupId)) {
+            return false;
+        }
+        UserGroupId that = (UserGroupId) o;
+        return Objects.equal(id, that.get());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("id", id)
+                .toString();
+    }
+
+    @Override
+    public int compareTo(@Nonnull UserGroupId that) {
+        return ComparisonChain.start()
+                .compare(id, that.get())
+                .result();
+    }
+}
@@ -0,0 +1,157 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.api.*;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Serializable;
+import java.util.Map;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class UserGroupImpl implements UserGroup, Serializable {
+    private static final long serialVersionUID = 6387041729846257032L;
+    @Nonnull private final UserGroupId id;
+    @Nonnull private final Name name;
+    @Nonnull private final Description description;
+    @Nonnull private final ImmutableSet<UserId> members;
+    @Nonnull private final ImmutableSet<UserGroupId> subgroups;
+    @Nonnull private final ImmutableMap<ProjectId, ImmutableSet<RoleId>> assignments;
+
+    /**
+     * Constructor
+     *
+     * @param id    User group identifier
+     * @param name  User group name
+     * @param description   User group description
+     * @param members   Set of identifiers of the users in the group
+     * @param subgroups Set of identifiers of the groups contained in the group
+     * @param assignments   Map of project identifiers to the roles assigned to the group in those projects
+     */
+    public UserGroupImpl(@Nonnull UserGroupId id, @Nonnull Name name, @Nonnull Description description, @Nonnull Set<UserId> members,
+                         @Nonnull Set<UserGroupId> subgroups, @Nonnull Map<ProjectId, ? extends Set<RoleId>> assignments) {
+        this.id = checkNotNull(id);
+        this.name = checkNotNull(name);
+        this.description = checkNotNull(description);
+        this.members = ImmutableSet.copyOf(checkNotNull(members));
+        this.subgroups = ImmutableSet.copyOf(checkNotNull(subgroups));
+        ImmutableMap.Builder<ProjectId, ImmutableSet<RoleId>> builder = ImmutableMap.builder();
+        for (Map.Entry<ProjectId, ? extends Set<RoleId>> assignment : checkNotNull(assignments).entrySet()) {
+            if (!assignment.getValue().isEmpty()) {
+                builder.put(assignment.getKey(), ImmutableSet.copyOf(assignment.getValue()));
+            }
+        }
+        this.assignments = builder.build();
+    }
+
+    @Override
+    @Nonnull
+    public UserGroupId getId() {
+        return id;
+    }
+
+    @Override
+    @Nonnull
+    public Name getName() {
+        return name;
+    }
+
+    @Override
+    @Nonnull
+    public Description getDescription() {
+        return description;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserId> getMembers() {
+        return members;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableSet<UserGroupId> getSubgroups() {
+        return subgroups;
+    }
+
+    @Override
+    @Nonnull
+    public ImmutableMap<ProjectId, ImmutableSet<RoleId>> getAssignments() {
+        return assignments;
+    }
+
+    @Override
+    public boolean isUser() {
+        return false;
+    }
+
+    @Override
+    public boolean isProject() {
+        return false;
+    }
+
+    @Override
+    public boolean isRole() {
+        return false;
+    }
+
+    @Override
+    public boolean isOperation() {
+        return false;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof UserGroup)) {
+            return false;
+        }
+        UserGroup that = (UserGroup) o;
+        return Objects.equal(id, that.getId()) &&
+                Objects.equal(name, that.getName()) &&
+                Objects.equal(description, that.getDescription()) &&
+                Objects.equal(members, that.getMembers()) &&
+                Objects.equal(subgroups, that.getSubgroups()) &&
+                Objects.equal(assignments, that.getAssignments());
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(id, name, description, members, subgroups, assignments);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("id", id)
+                .add("name", name)
+                .add("description", description)
+                .add("members", members)
+                .add("subgroups", subgroups)
+                .add("assignments", assignments)
+                .toString();
+    }
+
+    @Override
+    public int compareTo(@Nonnull UserGroup that) {
+        return ComparisonChain.start()
+                .compare(this.name.get(), that.getName().get())
+                .result();
+    }
+}
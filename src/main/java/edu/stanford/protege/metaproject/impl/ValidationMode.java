@@ -0,0 +1,25 @@
+package edu.stanford.protege.metaproject.impl;
+
+/**
+ * How {@link ConfigurationBuilder#createServerConfiguration()} handles references to users, projects, roles and
+ * operations that do not exist in the configuration being created
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public enum ValidationMode {
+
+    /** Do not check references */
+    NONE,
+
+    /**
+     * Throw a {@link edu.stanford.protege.metaproject.api.exception.DanglingReferenceException} on the first dangling
+     * reference found, or if a role includes itself directly or through other roles
+     */
+    FAIL_FAST,
+
+    /** Remove dangling references from the policy and from the roles */
+    PRUNE
+
+}
@@ -0,0 +1,94 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A server configuration snapshot tagged with the version number and the time at which it was committed
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class VersionedConfiguration {
+    private final long version, timestamp;
+    @Nonnull private final ServerConfiguration configuration;
+
+    /**
+     * Constructor
+     *
+     * @param version   Version number
+     * @param timestamp Commit time, in milliseconds since the epoch
+     * @param configuration Server configuration
+     */
+    public VersionedConfiguration(long version, long timestamp, @Nonnull ServerConfiguration configuration) {
+        this.version = version;
+        this.timestamp = timestamp;
+        this.configuration = checkNotNull(configuration);
+    }
+
+    /**
+     * Get the version number of this snapshot
+     *
+     * @return Version number
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Get the time at which this snapshot was committed
+     *
+     * @return Commit time, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the server configuration
+     *
+     * @return Server configuration
+     */
+    @Nonnull
+    public ServerConfiguration getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof VersionedConfiguration)) {
+            return false;
+        }
+        VersionedConfiguration that = (VersionedConfiguration) o;
+        return version == that.version &&
+                timestamp == that.timestamp &&
+                Objects.equal(configuration, that.configuration);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(version, timestamp, configuration);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("version", version)
+                .add("timestamp", timestamp)
+                .add("configuration", configuration)
+                .toString();
+    }
+}
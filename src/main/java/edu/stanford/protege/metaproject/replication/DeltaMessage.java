@@ -0,0 +1,113 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import edu.stanford.protege.metaproject.impl.ConfigurationDelta;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Message carrying the changes that take a configuration from one version to the next
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class DeltaMessage implements ReplicationMessage {
+    private final long fromVersion, toVersion, timestamp;
+    @Nonnull private final ConfigurationDelta delta;
+
+    /**
+     * Constructor
+     *
+     * @param fromVersion   Version the delta applies to
+     * @param toVersion Version obtained by applying the delta
+     * @param timestamp Commit time of the resulting version, in milliseconds since the epoch
+     * @param delta Configuration delta
+     */
+    public DeltaMessage(long fromVersion, long toVersion, long timestamp, @Nonnull ConfigurationDelta delta) {
+        this.fromVersion = fromVersion;
+        this.toVersion = toVersion;
+        this.timestamp = timestamp;
+        this.delta = checkNotNull(delta);
+    }
+
+    /**
+     * Get the version the delta applies to
+     *
+     * @return Version number
+     */
+    public long getFromVersion() {
+        return fromVersion;
+    }
+
+    /**
+     * Get the version obtained by applying the delta
+     *
+     * @return Version number
+     */
+    public long getToVersion() {
+        return toVersion;
+    }
+
+    /**
+     * Get the commit time of the resulting version
+     *
+     * @return Commit time, in milliseconds since the epoch
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * Get the configuration delta
+     *
+     * @return Configuration delta
+     */
+    @Nonnull
+    public ConfigurationDelta getDelta() {
+        return delta;
+    }
+
+    @Override
+    @Nonnull
+    public Type getType() {
+        return Type.DELTA;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof DeltaMessage)) {
+            return false;
+        }
+        DeltaMessage that = (DeltaMessage) o;
+        return fromVersion == that.fromVersion &&
+                toVersion == that.toVersion &&
+                timestamp == that.timestamp &&
+                Objects.equal(delta, that.delta);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(fromVersion, toVersion, timestamp, delta);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("fromVersion", fromVersion)
+                .add("toVersion", toVersion)
+                .add("timestamp", timestamp)
+                .add("delta", delta)
+                .toString();
+    }
+}
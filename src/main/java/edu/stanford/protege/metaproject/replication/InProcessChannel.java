@@ -0,0 +1,99 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A replication channel between two ends in the same process. Messages are handed over as objects and delivered
+ * asynchronously on a dedicated thread of the receiving end
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class InProcessChannel implements ReplicationChannel {
+    @Nonnull private final InProcessChannel peer;
+    @Nonnull private final ExecutorService delivery = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("in-process-replication-%d").setDaemon(true).build());
+    private final List<ReplicationMessage> pending = new ArrayList<>();
+    private Consumer<ReplicationMessage> handler;
+    private boolean closed;
+
+    /**
+     * Create one end of a new channel; the other end is obtained with {@link #getPeer()}
+     */
+    public InProcessChannel() {
+        this.peer = new InProcessChannel(this);
+    }
+
+    private InProcessChannel(InProcessChannel peer) {
+        this.peer = peer;
+    }
+
+    /**
+     * Get the other end of this channel
+     *
+     * @return Peer channel end
+     */
+    @Nonnull
+    public InProcessChannel getPeer() {
+        return peer;
+    }
+
+    @Override
+    public void send(@Nonnull ReplicationMessage message) throws IOException {
+        checkNotNull(message);
+        synchronized (this) {
+            if (closed) {
+                throw new IOException("The channel is closed");
+            }
+        }
+        peer.receive(message);
+    }
+
+    private synchronized void receive(ReplicationMessage message) throws IOException {
+        if (closed) {
+            throw new IOException("The channel is closed");
+        }
+        if (handler == null) {
+            pending.add(message);
+        } else {
+            deliver(message);
+        }
+    }
+
+    private void deliver(ReplicationMessage message) {
+        Consumer<ReplicationMessage> target = handler;
+        delivery.execute(() -> target.accept(message));
+    }
+
+    @Override
+    public synchronized void setMessageHandler(@Nonnull Consumer<ReplicationMessage> handler) {
+        this.handler = checkNotNull(handler);
+        pending.forEach(this::deliver);
+        pending.clear();
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            delivery.shutdown();
+        }
+        peer.close();
+    }
+}
@@ -0,0 +1,34 @@
+package edu.stanford.protege.metaproject.replication;
+
+import javax.annotation.Nonnull;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * A bidirectional, order-preserving connection between the leader and one follower of a replicated configuration.
+ * Implementations determine how messages are transported, e.g., within the same process or over a socket
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface ReplicationChannel extends Closeable {
+
+    /**
+     * Send a message to the other end of the channel
+     *
+     * @param message   Replication message
+     * @throws IOException  Channel is closed or the message could not be transported
+     */
+    void send(@Nonnull ReplicationMessage message) throws IOException;
+
+    /**
+     * Set the handler for messages received from the other end of the channel. Messages are delivered one at a time,
+     * in the order they were sent, and on a thread other than the sender's. Delivery begins once a handler is set
+     *
+     * @param handler   Message handler
+     */
+    void setMessageHandler(@Nonnull Consumer<ReplicationMessage> handler);
+
+}
@@ -0,0 +1,132 @@
+package edu.stanford.protege.metaproject.replication;
+
+import edu.stanford.protege.metaproject.impl.LiveConfiguration;
+import edu.stanford.protege.metaproject.impl.VersionedConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * A follower of a replicated configuration. Deltas received from the leader are applied to the follower's live
+ * configuration in version order; when a gap is detected, the follower asks the leader to bring it up to date,
+ * which the leader does with the missing deltas or, if those are no longer available, with a full snapshot.
+ * The follower's live configuration should not be committed to directly
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class ReplicationFollower implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationFollower.class.getName());
+    @Nonnull private final LiveConfiguration configuration;
+    @Nonnull private final ReplicationChannel channel;
+    private boolean synced, syncRequested;
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration that receives the leader's snapshots
+     * @param channel   Replication channel to the leader
+     */
+    public ReplicationFollower(@Nonnull LiveConfiguration configuration, @Nonnull ReplicationChannel channel) {
+        this.configuration = checkNotNull(configuration);
+        this.channel = checkNotNull(channel);
+    }
+
+    /**
+     * Start receiving messages from the leader, and request an initial full snapshot
+     *
+     * @throws IOException  Synchronization request could not be sent
+     */
+    public void start() throws IOException {
+        channel.setMessageHandler(this::handle);
+        synchronized (this) {
+            requestSync();
+        }
+    }
+
+    private synchronized void handle(ReplicationMessage message) {
+        switch (message.getType()) {
+            case DELTA:
+                DeltaMessage delta = (DeltaMessage) message;
+                if (synced && delta.getFromVersion() == configuration.getVersion()) {
+                    configuration.apply(delta.getToVersion(), delta.getTimestamp(), delta.getDelta());
+                    syncRequested = false;
+                    notifyAll();
+                } else if (!synced || delta.getToVersion() > configuration.getVersion()) {
+                    sync();
+                }
+                break;
+            case SNAPSHOT:
+                VersionedConfiguration snapshot = ((SnapshotMessage) message).getSnapshot();
+                if (!synced || syncRequested || snapshot.getVersion() > configuration.getVersion()) {
+                    configuration.reset(snapshot.getVersion(), snapshot.getTimestamp(), snapshot.getConfiguration());
+                    synced = true;
+                    syncRequested = false;
+                    notifyAll();
+                }
+                break;
+            default:
+                logger.warn("Ignoring unexpected " + message.getType() + " message from the leader");
+        }
+    }
+
+    private void sync() {
+        if (syncRequested) {
+            return;
+        }
+        try {
+            requestSync();
+        } catch (IOException e) {
+            logger.error("Failed to request synchronization from the replication leader", e);
+        }
+    }
+
+    private void requestSync() throws IOException {
+        syncRequested = true;
+        channel.send(new SyncRequest(synced ? configuration.getVersion() : SyncRequest.NO_VERSION));
+    }
+
+    /**
+     * Check whether the follower has received at least one snapshot from the leader
+     *
+     * @return true if the follower is synchronized with the leader, false otherwise
+     */
+    public synchronized boolean isSynced() {
+        return synced;
+    }
+
+    /**
+     * Wait until the follower's live configuration reaches at least the given version
+     *
+     * @param version   Version number
+     * @param timeout   Maximum time to wait
+     * @param unit  Time unit of the timeout
+     * @return true if the version was reached, false if the timeout elapsed first
+     * @throws InterruptedException Interrupted while waiting
+     */
+    public synchronized boolean awaitVersion(long version, long timeout, @Nonnull TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (!synced || configuration.getVersion() < version) {
+            long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+                return false;
+            }
+            TimeUnit.NANOSECONDS.timedWait(this, remaining);
+        }
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,161 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import edu.stanford.protege.metaproject.impl.ConfigurationDelta;
+import edu.stanford.protege.metaproject.impl.LiveConfiguration;
+import edu.stanford.protege.metaproject.impl.VersionedConfiguration;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * The leader of a replicated configuration. Every snapshot committed to the leader's live configuration is streamed
+ * to all followers as a versioned delta. The most recent deltas are retained so that a follower that missed some
+ * of them can be brought up to date incrementally; a follower that is further behind receives a full snapshot
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class ReplicationLeader implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicationLeader.class.getName());
+    @Nonnull private final LiveConfiguration configuration;
+    private final int backlogSize;
+    private final Deque<DeltaMessage> backlog = new ArrayDeque<>();
+    private final Set<ReplicationChannel> followers = new CopyOnWriteArraySet<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(
+            new ThreadFactoryBuilder().setNameFormat("replication-leader-%d").setDaemon(true).build());
+    private final LiveConfiguration.CommitListener listener = this::committed;
+
+    /**
+     * Constructor
+     *
+     * @param configuration Live configuration to replicate
+     * @param backlogSize   Number of recent deltas retained for catching up followers
+     */
+    public ReplicationLeader(@Nonnull LiveConfiguration configuration, int backlogSize) {
+        checkArgument(backlogSize >= 0, "The backlog size must not be negative");
+        this.configuration = checkNotNull(configuration);
+        this.backlogSize = backlogSize;
+        configuration.addCommitListener(listener);
+    }
+
+    /**
+     * Start replicating to the follower at the other end of the given channel. The follower is expected to
+     * request synchronization once connected
+     *
+     * @param channel   Replication channel to the follower
+     */
+    public void addFollower(@Nonnull ReplicationChannel channel) {
+        checkNotNull(channel);
+        followers.add(channel);
+        channel.setMessageHandler(message -> {
+            if (message.getType() == ReplicationMessage.Type.SYNC) {
+                dispatch(() -> sync(channel, ((SyncRequest) message).getVersion()));
+            } else {
+                logger.warn("Ignoring unexpected " + message.getType() + " message from a follower");
+            }
+        });
+    }
+
+    /**
+     * Stop replicating to the follower at the other end of the given channel, and close the channel
+     *
+     * @param channel   Replication channel to the follower
+     */
+    public void removeFollower(@Nonnull ReplicationChannel channel) {
+        if (followers.remove(checkNotNull(channel))) {
+            closeQuietly(channel);
+        }
+    }
+
+    /**
+     * Get the number of connected followers
+     *
+     * @return Number of followers
+     */
+    public int getFollowerCount() {
+        return followers.size();
+    }
+
+    private void committed(VersionedConfiguration previous, VersionedConfiguration current, ConfigurationDelta delta) {
+        DeltaMessage message = new DeltaMessage(previous.getVersion(), current.getVersion(), current.getTimestamp(), delta);
+        synchronized (backlog) {
+            backlog.addLast(message);
+            while (backlog.size() > backlogSize) {
+                backlog.removeFirst();
+            }
+        }
+        dispatch(() -> followers.forEach(follower -> send(follower, message)));
+    }
+
+    private void sync(ReplicationChannel follower, long version) {
+        List<DeltaMessage> deltas = new ArrayList<>();
+        VersionedConfiguration snapshot;
+        synchronized (backlog) {
+            snapshot = configuration.getSnapshot();
+            if (version == snapshot.getVersion()) {
+                return;
+            }
+            boolean found = false;
+            for (DeltaMessage message : backlog) {
+                if (message.getFromVersion() == version) {
+                    found = true;
+                }
+                if (found) {
+                    deltas.add(message);
+                }
+            }
+        }
+        if (deltas.isEmpty()) {
+            send(follower, new SnapshotMessage(snapshot));
+        } else {
+            deltas.forEach(message -> send(follower, message));
+        }
+    }
+
+    private void send(ReplicationChannel follower, ReplicationMessage message) {
+        try {
+            follower.send(message);
+        } catch (IOException e) {
+            logger.warn("Dropping follower after failing to send replication message", e);
+            removeFollower(follower);
+        }
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            logger.debug("Replication leader is closed; discarding replication task");
+        }
+    }
+
+    private static void closeQuietly(ReplicationChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.debug("Error closing replication channel", e);
+        }
+    }
+
+    @Override
+    public void close() {
+        configuration.removeCommitListener(listener);
+        dispatcher.shutdown();
+        followers.forEach(this::removeFollower);
+    }
+}
@@ -0,0 +1,33 @@
+package edu.stanford.protege.metaproject.replication;
+
+import javax.annotation.Nonnull;
+
+/**
+ * A message exchanged between the leader and the followers of a replicated configuration
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public interface ReplicationMessage {
+
+    /**
+     * Get the type of this message
+     *
+     * @return Message type
+     */
+    @Nonnull
+    Type getType();
+
+    enum Type {
+        /** Follower request to be brought up to date from a given version */
+        SYNC,
+
+        /** Changes that take a follower from one version to the next */
+        DELTA,
+
+        /** Full configuration snapshot */
+        SNAPSHOT
+    }
+
+}
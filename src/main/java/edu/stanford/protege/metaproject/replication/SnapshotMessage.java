@@ -0,0 +1,73 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.common.base.MoreObjects;
+import com.google.common.base.Objects;
+import edu.stanford.protege.metaproject.impl.VersionedConfiguration;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Message carrying a full configuration snapshot, used to catch up followers that are too far behind the leader
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class SnapshotMessage implements ReplicationMessage {
+    @Nonnull private final VersionedConfiguration snapshot;
+
+    /**
+     * Constructor
+     *
+     * @param snapshot  Versioned configuration
+     */
+    public SnapshotMessage(@Nonnull VersionedConfiguration snapshot) {
+        this.snapshot = checkNotNull(snapshot);
+    }
+
+    /**
+     * Get the configuration snapshot
+     *
+     * @return Versioned configuration
+     */
+    @Nonnull
+    public VersionedConfiguration getSnapshot() {
+        return snapshot;
+    }
+
+    @Override
+    @Nonnull
+    public Type getType() {
+        return Type.SNAPSHOT;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SnapshotMessage)) {
+            return false;
+        }
+        SnapshotMessage that = (SnapshotMessage) o;
+        return Objects.equal(snapshot, that.snapshot);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(snapshot);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("snapshot", snapshot)
+                .toString();
+    }
+}
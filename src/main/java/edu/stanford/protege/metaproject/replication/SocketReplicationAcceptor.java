@@ -0,0 +1,71 @@
+package edu.stanford.protege.metaproject.replication;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/**
+ * Accepts socket connections from followers and hands each one over as a replication channel, typically to
+ * {@link ReplicationLeader#addFollower(ReplicationChannel)}
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class SocketReplicationAcceptor implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SocketReplicationAcceptor.class.getName());
+    @Nonnull private final ServerSocket serverSocket;
+    @Nonnull private final Consumer<ReplicationChannel> consumer;
+
+    /**
+     * Constructor. Starts accepting connections immediately
+     *
+     * @param serverSocket  Bound server socket
+     * @param consumer  Consumer of the channels of newly connected followers
+     */
+    public SocketReplicationAcceptor(@Nonnull ServerSocket serverSocket, @Nonnull Consumer<ReplicationChannel> consumer) {
+        this.serverSocket = checkNotNull(serverSocket);
+        this.consumer = checkNotNull(consumer);
+        Thread acceptor = new Thread(this::accept, "socket-replication-acceptor-" + serverSocket.getLocalPort());
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    /**
+     * Get the port on which connections are accepted
+     *
+     * @return Port number
+     */
+    public int getLocalPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    private void accept() {
+        while (!serverSocket.isClosed()) {
+            try {
+                Socket socket = serverSocket.accept();
+                socket.setTcpNoDelay(true);
+                consumer.accept(new SocketReplicationChannel(socket));
+            } catch (IOException e) {
+                if (!serverSocket.isClosed()) {
+                    logger.error("Failed to accept replication connection", e);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        serverSocket.close();
+    }
+}
@@ -0,0 +1,111 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.gson.Gson;
+import edu.stanford.protege.metaproject.serialization.DefaultJsonSerializer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * A replication channel over a TCP socket. Each message is written as a length-prefixed JSON document, using
+ * the same JSON representation as configuration files
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@ThreadSafe
+public final class SocketReplicationChannel implements ReplicationChannel {
+    private static final Logger logger = LoggerFactory.getLogger(SocketReplicationChannel.class.getName());
+    private static final int MAX_MESSAGE_SIZE = 256 * 1024 * 1024;
+    @Nonnull private final Socket socket;
+    @Nonnull private final DataOutputStream out;
+    @Nonnull private final DataInputStream in;
+    @Nonnull private final Gson gson = new DefaultJsonSerializer().getGson();
+    private Thread reader;
+
+    /**
+     * Constructor
+     *
+     * @param socket    Connected socket
+     * @throws IOException  Socket streams could not be opened
+     */
+    public SocketReplicationChannel(@Nonnull Socket socket) throws IOException {
+        this.socket = checkNotNull(socket);
+        this.out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+        this.in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+    }
+
+    /**
+     * Open a channel to a leader listening at the given address
+     *
+     * @param host  Host name
+     * @param port  Port number
+     * @return Socket replication channel
+     * @throws IOException  Connection could not be established
+     */
+    @Nonnull
+    public static SocketReplicationChannel connect(@Nonnull String host, int port) throws IOException {
+        Socket socket = new Socket(checkNotNull(host), port);
+        socket.setTcpNoDelay(true);
+        return new SocketReplicationChannel(socket);
+    }
+
+    @Override
+    public synchronized void send(@Nonnull ReplicationMessage message) throws IOException {
+        checkNotNull(message);
+        byte[] bytes = gson.toJson(message, ReplicationMessage.class).getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.flush();
+    }
+
+    @Override
+    public synchronized void setMessageHandler(@Nonnull Consumer<ReplicationMessage> handler) {
+        checkNotNull(handler);
+        checkState(reader == null, "The message handler of a socket replication channel can only be set once");
+        reader = new Thread(() -> read(handler), "socket-replication-" + socket.getRemoteSocketAddress());
+        reader.setDaemon(true);
+        reader.start();
+    }
+
+    private void read(Consumer<ReplicationMessage> handler) {
+        try {
+            while (!socket.isClosed()) {
+                int length = in.readInt();
+                if (length < 0 || length > MAX_MESSAGE_SIZE) {
+                    throw new IOException("Invalid replication message length: " + length);
+                }
+                byte[] bytes = new byte[length];
+                in.readFully(bytes);
+                ReplicationMessage message = gson.fromJson(new String(bytes, StandardCharsets.UTF_8), ReplicationMessage.class);
+                handler.accept(message);
+            }
+        } catch (EOFException | SocketException e) {
+            logger.debug("Replication channel to " + socket.getRemoteSocketAddress() + " was closed");
+        } catch (IOException | RuntimeException e) {
+            logger.error("Replication channel to " + socket.getRemoteSocketAddress() + " failed", e);
+        } finally {
+            close();
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            socket.close();
+        } catch (IOException e) {
+            logger.debug("Error closing replication socket", e);
+        }
+    }
+}
@@ -0,0 +1,70 @@
+package edu.stanford.protege.metaproject.replication;
+
+import com.google.common.base.MoreObjects;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * Request sent by a follower to be brought up to date with the leader, stating the version the follower has
+ *
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+@Immutable
+@ThreadSafe
+public final class SyncRequest implements ReplicationMessage {
+    /** Version stated by followers that do not yet have any snapshot from the leader */
+    public static final long NO_VERSION = -1;
+    private final long version;
+
+    /**
+     * Constructor
+     *
+     * @param version   Version of the follower's current snapshot, or {@link #NO_VERSION}
+     */
+    public SyncRequest(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Get the version of the follower's current snapshot
+     *
+     * @return Version number, or {@link #NO_VERSION}
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    @Nonnull
+    public Type getType() {
+        return Type.SYNC;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SyncRequest)) {
+            return false;
+        }
+        SyncRequest that = (SyncRequest) o;
+        return version == that.version;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(version);
+    }
+
+    @Override
+    public String toString() {
+        return MoreObjects.toStringHelper(this)
+                .add("version", version)
+                .toString();
+    }
+}
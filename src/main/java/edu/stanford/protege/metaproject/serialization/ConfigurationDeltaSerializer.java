@@ -0,0 +1,93 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.*;
+import com.google.gson.reflect.TypeToken;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.impl.*;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationDeltaSerializer implements JsonSerializer<ConfigurationDelta>, JsonDeserializer<ConfigurationDelta> {
+    private final String HOST = "host", ROOT = "root", PROPERTIES = "properties", POLICY = "policy", DENY_RULES = "denyRules", TIMED_ASSIGNMENTS = "timedAssignments", USERS = "users", USER_GROUPS = "userGroups",
+            PROJECTS = "projects", PROJECT_GROUPS = "projectGroups", ROLES = "roles", OPERATIONS = "operations", AUTHENTICATION = "authentication", ADDED = "added",
+            UPDATED = "updated", REMOVED = "removed";
+
+    @Override
+    public JsonElement serialize(ConfigurationDelta delta, Type type, JsonSerializationContext context) {
+        JsonObject obj = new JsonObject();
+        delta.getHost().ifPresent(host -> obj.add(HOST, context.serialize(host, Host.class)));
+        delta.getServerRoot().ifPresent(root -> obj.add(ROOT, context.serialize(root)));
+        obj.add(POLICY, serialize(delta.getPolicy(), context));
+        obj.add(DENY_RULES, serialize(delta.getDenyRules(), Set.class, context));
+        obj.add(TIMED_ASSIGNMENTS, serialize(delta.getTimedAssignments(), Set.class, context));
+        // elements are written the same way as in the server configuration serializer, i.e., projects through the
+        // project serializer and other objects according to their runtime type
+        obj.add(USERS, serialize(delta.getUsers(), Set.class, context));
+        obj.add(USER_GROUPS, serialize(delta.getUserGroups(), Set.class, context));
+        obj.add(PROJECTS, serialize(delta.getProjects(), new TypeToken<Set<Project>>(){}.getType(), context));
+        obj.add(PROJECT_GROUPS, serialize(delta.getProjectGroups(), Set.class, context));
+        obj.add(ROLES, serialize(delta.getRoles(), Set.class, context));
+        obj.add(OPERATIONS, serialize(delta.getOperations(), Set.class, context));
+        obj.add(AUTHENTICATION, serialize(delta.getAuthenticationDetails(), Set.class, context));
+        obj.add(PROPERTIES, serialize(delta.getProperties(), context));
+        return obj;
+    }
+
+    private JsonObject serialize(SetDelta<?> delta, Type setType, JsonSerializationContext context) {
+        JsonObject obj = new JsonObject();
+        obj.add(ADDED, context.serialize(delta.getAdded(), setType));
+        obj.add(REMOVED, context.serialize(delta.getRemoved(), setType));
+        return obj;
+    }
+
+    private JsonObject serialize(MapDelta<?,?> delta, JsonSerializationContext context) {
+        JsonObject obj = new JsonObject();
+        obj.add(UPDATED, context.serialize(delta.getUpdated()));
+        obj.add(REMOVED, context.serialize(delta.getRemoved()));
+        return obj;
+    }
+
+    @Override
+    public ConfigurationDelta deserialize(JsonElement element, Type type, JsonDeserializationContext context) throws JsonParseException {
+        JsonObject obj = element.getAsJsonObject();
+        Host host = obj.has(HOST) ? context.deserialize(obj.get(HOST), Host.class) : null;
+        String root = obj.has(ROOT) ? obj.getAsJsonPrimitive(ROOT).getAsString() : null;
+        JsonObject policy = obj.getAsJsonObject(POLICY);
+        Map<UserId, Map<ProjectId, Set<RoleId>>> policyUpdates = context.deserialize(policy.get(UPDATED),
+                new TypeToken<Map<UserIdImpl,Map<ProjectIdImpl,Set<RoleIdImpl>>>>(){}.getType());
+        Set<UserId> policyRemovals = context.deserialize(policy.get(REMOVED), new TypeToken<Set<UserIdImpl>>(){}.getType());
+        JsonObject properties = obj.getAsJsonObject(PROPERTIES);
+        Map<String,String> propertyUpdates = context.deserialize(properties.get(UPDATED), new TypeToken<Map<String,String>>(){}.getType());
+        Set<String> propertyRemovals = context.deserialize(properties.get(REMOVED), new TypeToken<Set<String>>(){}.getType());
+        return new ConfigurationDelta(host, root,
+                new MapDelta<>(policyUpdates, policyRemovals),
+                obj.has(DENY_RULES) ? deserialize(obj.getAsJsonObject(DENY_RULES), new TypeToken<Set<DenyRule>>(){}.getType(), context) :
+                        SetDelta.empty(),
+                obj.has(TIMED_ASSIGNMENTS) ?
+                        deserialize(obj.getAsJsonObject(TIMED_ASSIGNMENTS), new TypeToken<Set<TimedAssignment>>(){}.getType(), context) :
+                        SetDelta.empty(),
+                deserialize(obj.getAsJsonObject(USERS), new TypeToken<Set<User>>(){}.getType(), context),
+                obj.has(USER_GROUPS) ? deserialize(obj.getAsJsonObject(USER_GROUPS), new TypeToken<Set<UserGroup>>(){}.getType(), context) :
+                        SetDelta.empty(),
+                deserialize(obj.getAsJsonObject(PROJECTS), new TypeToken<Set<Project>>(){}.getType(), context),
+                obj.has(PROJECT_GROUPS) ? deserialize(obj.getAsJsonObject(PROJECT_GROUPS), new TypeToken<Set<ProjectGroup>>(){}.getType(), context) :
+                        SetDelta.empty(),
+                deserialize(obj.getAsJsonObject(ROLES), new TypeToken<Set<Role>>(){}.getType(), context),
+                deserialize(obj.getAsJsonObject(OPERATIONS), new TypeToken<Set<Operation>>(){}.getType(), context),
+                deserialize(obj.getAsJsonObject(AUTHENTICATION), new TypeToken<Set<AuthenticationDetails>>(){}.getType(), context),
+                new MapDelta<>(propertyUpdates, propertyRemovals));
+    }
+
+    private <E> SetDelta<E> deserialize(JsonObject obj, Type setType, JsonDeserializationContext context) {
+        Set<E> added = context.deserialize(obj.get(ADDED), setType);
+        Set<E> removed = context.deserialize(obj.get(REMOVED), setType);
+        return new SetDelta<>(added, removed);
+    }
+}
@@ -8,6 +8,8 @@ import com.google.gson.JsonIOException;
 import com.google.gson.JsonSyntaxException;
 import edu.stanford.protege.metaproject.api.*;
 import edu.stanford.protege.metaproject.api.exception.ObjectConversionException;
+import edu.stanford.protege.metaproject.impl.ConfigurationDelta;
+import edu.stanford.protege.metaproject.replication.ReplicationMessage;
 
 import javax.annotation.Nonnull;
 import java.io.File;
@@ -45,10 +47,16 @@ public final class DefaultJsonSerializer implements Serializer {
                 .registerTypeAdapter(Project.class, new ProjectSerializer())
                 .registerTypeAdapter(Role.class, new RoleSerializer())
                 .registerTypeAdapter(User.class, new UserSerializer())
+                .registerTypeAdapter(UserGroup.class, new UserGroupSerializer())
+                .registerTypeAdapter(ProjectGroup.class, new ProjectGroupSerializer())
+                .registerTypeAdapter(DenyRule.class, new DenyRuleSerializer())
+                .registerTypeAdapter(TimedAssignment.class, new TimedAssignmentSerializer())
 
                 // configurations
                 .registerTypeAdapter(ServerConfiguration.class, new ServerConfigurationSerializer())
                 .registerTypeAdapter(Host.class, new HostSerializer())
+                .registerTypeAdapter(ConfigurationDelta.class, new ConfigurationDeltaSerializer())
+                .registerTypeHierarchyAdapter(ReplicationMessage.class, new ReplicationMessageSerializer())
 
                 // other objects
                 .registerTypeHierarchyAdapter(TextProperty.class, new PropertySerializer())
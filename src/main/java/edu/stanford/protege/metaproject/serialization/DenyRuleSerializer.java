@@ -0,0 +1,33 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.*;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.impl.OperationIdImpl;
+
+import java.lang.reflect.Type;
+import java.util.Set;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class DenyRuleSerializer implements JsonDeserializer<DenyRule> {
+
+    @Override
+    public DenyRule deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext context) throws JsonParseException {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        JsonObject obj = jsonElement.getAsJsonObject();
+        ProjectId projectId = factory.getProjectId(obj.getAsJsonPrimitive("projectId").getAsString());
+        Set<OperationId> operations = context.deserialize(obj.getAsJsonArray("operations"), new TypeToken<Set<OperationIdImpl>>(){}.getType());
+        if (obj.has("userId")) {
+            return factory.getUserDenyRule(factory.getUserId(obj.getAsJsonPrimitive("userId").getAsString()), projectId, operations);
+        }
+        if (obj.has("userGroupId")) {
+            return factory.getUserGroupDenyRule(factory.getUserGroupId(obj.getAsJsonPrimitive("userGroupId").getAsString()), projectId, operations);
+        }
+        return factory.getProjectDenyRule(projectId, operations);
+    }
+}
@@ -0,0 +1,34 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.*;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.impl.ProjectIdImpl;
+
+import java.lang.reflect.Type;
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ProjectGroupSerializer implements JsonDeserializer<ProjectGroup> {
+
+    @Override
+    public ProjectGroup deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext context) throws JsonParseException {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        JsonObject obj = jsonElement.getAsJsonObject();
+        ProjectId groupId = factory.getProjectId(obj.getAsJsonPrimitive("id").getAsString());
+        Name groupName = factory.getName(obj.getAsJsonPrimitive("name").getAsString());
+        Description groupDescription = factory.getDescription(obj.getAsJsonPrimitive("description").getAsString());
+        Set<ProjectId> projects = context.deserialize(obj.getAsJsonArray("projects"), new TypeToken<Set<ProjectIdImpl>>(){}.getType());
+        Set<String> prefixes = Collections.emptySet();
+        if (obj.has("prefixes")) {
+            prefixes = context.deserialize(obj.getAsJsonArray("prefixes"), new TypeToken<Set<String>>(){}.getType());
+        }
+        return factory.getProjectGroup(groupId, groupName, groupDescription, projects, prefixes);
+    }
+}
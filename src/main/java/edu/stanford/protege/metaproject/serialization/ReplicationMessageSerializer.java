@@ -0,0 +1,71 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.*;
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+import edu.stanford.protege.metaproject.impl.ConfigurationDelta;
+import edu.stanford.protege.metaproject.impl.VersionedConfiguration;
+import edu.stanford.protege.metaproject.replication.*;
+
+import java.lang.reflect.Type;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ReplicationMessageSerializer implements JsonSerializer<ReplicationMessage>, JsonDeserializer<ReplicationMessage> {
+    private final String TYPE = "type", VERSION = "version", FROM_VERSION = "fromVersion", TO_VERSION = "toVersion", TIMESTAMP = "timestamp",
+            DELTA = "delta", CONFIGURATION = "configuration";
+
+    @Override
+    public JsonElement serialize(ReplicationMessage message, Type type, JsonSerializationContext context) {
+        JsonObject obj = new JsonObject();
+        obj.addProperty(TYPE, message.getType().name());
+        switch (message.getType()) {
+            case SYNC:
+                obj.addProperty(VERSION, ((SyncRequest) message).getVersion());
+                break;
+            case DELTA:
+                DeltaMessage delta = (DeltaMessage) message;
+                obj.addProperty(FROM_VERSION, delta.getFromVersion());
+                obj.addProperty(TO_VERSION, delta.getToVersion());
+                obj.addProperty(TIMESTAMP, delta.getTimestamp());
+                obj.add(DELTA, context.serialize(delta.getDelta(), ConfigurationDelta.class));
+                break;
+            case SNAPSHOT:
+                VersionedConfiguration snapshot = ((SnapshotMessage) message).getSnapshot();
+                obj.addProperty(VERSION, snapshot.getVersion());
+                obj.addProperty(TIMESTAMP, snapshot.getTimestamp());
+                obj.add(CONFIGURATION, context.serialize(snapshot.getConfiguration(), ServerConfiguration.class));
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown replication message type: " + message.getType());
+        }
+        return obj;
+    }
+
+    @Override
+    public ReplicationMessage deserialize(JsonElement element, Type type, JsonDeserializationContext context) throws JsonParseException {
+        JsonObject obj = element.getAsJsonObject();
+        ReplicationMessage.Type messageType;
+        try {
+            messageType = ReplicationMessage.Type.valueOf(obj.getAsJsonPrimitive(TYPE).getAsString());
+        } catch (IllegalArgumentException e) {
+            throw new JsonParseException("Unknown replication message type", e);
+        }
+        switch (messageType) {
+            case SYNC:
+                return new SyncRequest(obj.getAsJsonPrimitive(VERSION).getAsLong());
+            case DELTA:
+                ConfigurationDelta delta = context.deserialize(obj.get(DELTA), ConfigurationDelta.class);
+                return new DeltaMessage(obj.getAsJsonPrimitive(FROM_VERSION).getAsLong(), obj.getAsJsonPrimitive(TO_VERSION).getAsLong(),
+                        obj.getAsJsonPrimitive(TIMESTAMP).getAsLong(), delta);
+            case SNAPSHOT:
+                ServerConfiguration config = context.deserialize(obj.get(CONFIGURATION), ServerConfiguration.class);
+                return new SnapshotMessage(new VersionedConfiguration(obj.getAsJsonPrimitive(VERSION).getAsLong(),
+                        obj.getAsJsonPrimitive(TIMESTAMP).getAsLong(), config));
+            default:
+                throw new JsonParseException("Unknown replication message type: " + messageType);
+        }
+    }
+}
@@ -5,8 +5,10 @@ import com.google.gson.*;
 import edu.stanford.protege.metaproject.ConfigurationManager;
 import edu.stanford.protege.metaproject.api.*;
 import edu.stanford.protege.metaproject.impl.OperationIdImpl;
+import edu.stanford.protege.metaproject.impl.RoleIdImpl;
 
 import java.lang.reflect.Type;
+import java.util.Collections;
 import java.util.Set;
 
 /**
@@ -24,6 +26,10 @@ public class RoleSerializer implements JsonDeserializer<Role> {
         Name operationName = factory.getName(obj.getAsJsonPrimitive("name").getAsString());
         Description operationDescription = factory.getDescription(obj.getAsJsonPrimitive("description").getAsString());
         Set<OperationId> operations = context.deserialize(obj.getAsJsonArray("operations"), new TypeToken<Set<OperationIdImpl>>(){}.getType());
-        return factory.getRole(operationId, operationName, operationDescription, operations);
+        Set<RoleId> includedRoles = Collections.emptySet();
+        if (obj.has("includedRoles")) {
+            includedRoles = context.deserialize(obj.getAsJsonArray("includedRoles"), new TypeToken<Set<RoleIdImpl>>(){}.getType());
+        }
+        return factory.getRole(operationId, operationName, operationDescription, operations, includedRoles);
     }
 }
@@ -18,8 +18,8 @@ import java.util.*;
  * Stanford University
  */
 public class ServerConfigurationSerializer implements JsonSerializer<ServerConfiguration>, JsonDeserializer<ServerConfiguration> {
-    private final String HOST = "host", ROOT = "root", PROPERTIES = "properties", POLICY = "policy", USERS = "users", PROJECTS = "projects",
-            ROLES = "roles", OPERATIONS = "operations", AUTHENTICATION = "authentication";
+    private final String HOST = "host", ROOT = "root", PROPERTIES = "properties", POLICY = "policy", DENY_RULES = "denyRules", TIMED_ASSIGNMENTS = "timedAssignments", USERS = "users", USER_GROUPS = "userGroups",
+            PROJECTS = "projects", PROJECT_GROUPS = "projectGroups", ROLES = "roles", OPERATIONS = "operations", AUTHENTICATION = "authentication";
 
     @Override
     public JsonElement serialize(ServerConfiguration config, Type type, JsonSerializationContext context) {
@@ -28,14 +28,30 @@ public class ServerConfigurationSerializer implements JsonSerializer<ServerConfi
         obj.add(ROOT, context.serialize(config.getServerRoot()));
         obj.add(POLICY, context.serialize(config.getPolicyMap()));
 
+        List<DenyRule> denyRules = new ArrayList<>(config.getDenyRules());
+        Collections.sort(denyRules);
+        obj.add(DENY_RULES, context.serialize(denyRules));
+
+        List<TimedAssignment> timedAssignments = new ArrayList<>(config.getTimedAssignments());
+        Collections.sort(timedAssignments);
+        obj.add(TIMED_ASSIGNMENTS, context.serialize(timedAssignments));
+
         List<User> users = new ArrayList<>(config.getUsers());
         Collections.sort(users);
         obj.add(USERS, context.serialize(users));
 
+        List<UserGroup> userGroups = new ArrayList<>(config.getUserGroups());
+        Collections.sort(userGroups);
+        obj.add(USER_GROUPS, context.serialize(userGroups));
+
         List<Project> projects = new ArrayList<>(config.getProjects());
         Collections.sort(projects);
         obj.add(PROJECTS, context.serialize(projects, new TypeToken<List<Project>>(){}.getType()));
 
+        List<ProjectGroup> projectGroups = new ArrayList<>(config.getProjectGroups());
+        Collections.sort(projectGroups);
+        obj.add(PROJECT_GROUPS, context.serialize(projectGroups));
+
         List<Role> roles = new ArrayList<>(config.getRoles());
         Collections.sort(roles);
         obj.add(ROLES, context.serialize(roles));
@@ -58,8 +74,24 @@ public class ServerConfigurationSerializer implements JsonSerializer<ServerConfi
         String root = obj.getAsJsonPrimitive(ROOT).getAsString();
         Map<UserId, Map<ProjectId, Set<RoleId>>> policy = context.deserialize(obj.getAsJsonObject(POLICY),
                 new TypeToken<Map<UserIdImpl,Map<ProjectIdImpl,Set<RoleIdImpl>>>>() {}.getType());
+        Set<DenyRule> denyRules = Collections.emptySet();
+        if (obj.has(DENY_RULES)) {
+            denyRules = context.deserialize(obj.getAsJsonArray(DENY_RULES), new TypeToken<Set<DenyRule>>(){}.getType());
+        }
+        Set<TimedAssignment> timedAssignments = Collections.emptySet();
+        if (obj.has(TIMED_ASSIGNMENTS)) {
+            timedAssignments = context.deserialize(obj.getAsJsonArray(TIMED_ASSIGNMENTS), new TypeToken<Set<TimedAssignment>>(){}.getType());
+        }
         Set<User> users = context.deserialize(obj.getAsJsonArray(USERS), new TypeToken<Set<User>>(){}.getType());
+        Set<UserGroup> userGroups = Collections.emptySet();
+        if (obj.has(USER_GROUPS)) {
+            userGroups = context.deserialize(obj.getAsJsonArray(USER_GROUPS), new TypeToken<Set<UserGroup>>(){}.getType());
+        }
         Set<Project> projects = context.deserialize(obj.getAsJsonArray(PROJECTS), new TypeToken<Set<Project>>(){}.getType());
+        Set<ProjectGroup> projectGroups = Collections.emptySet();
+        if (obj.has(PROJECT_GROUPS)) {
+            projectGroups = context.deserialize(obj.getAsJsonArray(PROJECT_GROUPS), new TypeToken<Set<ProjectGroup>>(){}.getType());
+        }
         Set<Role> roles = context.deserialize(obj.getAsJsonArray(ROLES), new TypeToken<Set<Role>>(){}.getType());
         Set<Operation> operations = context.deserialize(obj.getAsJsonArray(OPERATIONS), new TypeToken<Set<Operation>>(){}.getType());
         Set<AuthenticationDetails> authDetails = context.deserialize(obj.getAsJsonArray(AUTHENTICATION),
@@ -69,8 +101,12 @@ public class ServerConfigurationSerializer implements JsonSerializer<ServerConfi
                 .setHost(host)
                 .setServerRoot(root)
                 .setPolicyMap(policy)
+                .setDenyRules(denyRules)
+                .setTimedAssignments(timedAssignments)
                 .setUsers(users)
+                .setUserGroups(userGroups)
                 .setProjects(projects)
+                .setProjectGroups(projectGroups)
                 .setRoles(roles)
                 .setOperations(operations)
                 .setAuthenticationDetails(authDetails)
@@ -0,0 +1,27 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.*;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.api.*;
+
+import java.lang.reflect.Type;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class TimedAssignmentSerializer implements JsonDeserializer<TimedAssignment> {
+
+    @Override
+    public TimedAssignment deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext context) throws JsonParseException {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        JsonObject obj = jsonElement.getAsJsonObject();
+        return factory.getTimedAssignment(
+                factory.getUserId(obj.getAsJsonPrimitive("userId").getAsString()),
+                factory.getProjectId(obj.getAsJsonPrimitive("projectId").getAsString()),
+                factory.getRoleId(obj.getAsJsonPrimitive("roleId").getAsString()),
+                obj.getAsJsonPrimitive("validFrom").getAsLong(),
+                obj.getAsJsonPrimitive("validUntil").getAsLong());
+    }
+}
@@ -0,0 +1,36 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.common.reflect.TypeToken;
+import com.google.gson.*;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.impl.ProjectIdImpl;
+import edu.stanford.protege.metaproject.impl.RoleIdImpl;
+import edu.stanford.protege.metaproject.impl.UserGroupIdImpl;
+import edu.stanford.protege.metaproject.impl.UserIdImpl;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class UserGroupSerializer implements JsonDeserializer<UserGroup> {
+
+    @Override
+    public UserGroup deserialize(JsonElement jsonElement, Type type, JsonDeserializationContext context) throws JsonParseException {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        JsonObject obj = jsonElement.getAsJsonObject();
+        UserGroupId groupId = factory.getUserGroupId(obj.getAsJsonPrimitive("id").getAsString());
+        Name groupName = factory.getName(obj.getAsJsonPrimitive("name").getAsString());
+        Description groupDescription = factory.getDescription(obj.getAsJsonPrimitive("description").getAsString());
+        Set<UserId> members = context.deserialize(obj.getAsJsonArray("members"), new TypeToken<Set<UserIdImpl>>(){}.getType());
+        Set<UserGroupId> subgroups = context.deserialize(obj.getAsJsonArray("subgroups"), new TypeToken<Set<UserGroupIdImpl>>(){}.getType());
+        Map<ProjectId, Set<RoleId>> assignments = context.deserialize(obj.getAsJsonObject("assignments"),
+                new TypeToken<Map<ProjectIdImpl,Set<RoleIdImpl>>>(){}.getType());
+        return factory.getUserGroup(groupId, groupName, groupDescription, members, subgroups, assignments);
+    }
+}
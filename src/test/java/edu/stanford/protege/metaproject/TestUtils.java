@@ -50,6 +50,14 @@ public class TestUtils {
         return f.getProjectId(projectId);
     }
 
+    public static UserGroupId getUserGroupId() {
+        return getUserGroupId("userGroupId-" + newUUID());
+    }
+
+    public static UserGroupId getUserGroupId(String userGroupId) {
+        return f.getUserGroupId(userGroupId);
+    }
+
     public static OperationId getOperationId() {
         return getOperationId("operationId-" + newUUID());
     }
@@ -288,6 +296,40 @@ public class TestUtils {
         return f.getRole(id, name, description, operations);
     }
 
+    public static Role getRole(RoleId id, Set<OperationId> operations, RoleId... includedRoles) {
+        return f.getRole(id, getName(), getDescription(), operations, new HashSet<>(Arrays.asList(includedRoles)));
+    }
+
+    public static UserGroup getUserGroup() {
+        return getUserGroup(getUserGroupId(), getUserIdSet(), Collections.emptySet(),
+                Collections.singletonMap(getProjectId(), getRoleIdSet()));
+    }
+
+    public static UserGroup getUserGroup(UserGroupId id, Set<UserId> members, Set<UserGroupId> subgroups, Map<ProjectId, Set<RoleId>> assignments) {
+        return f.getUserGroup(id, getName(), getDescription(), members, subgroups, assignments);
+    }
+
+    public static ProjectId getProjectGroupId() {
+        return getProjectId("projectGroupId-" + newUUID());
+    }
+
+    public static ProjectGroup getProjectGroup() {
+        return getProjectGroup(getProjectGroupId(), Collections.singleton(getProjectId()), Collections.singleton("projectId-"));
+    }
+
+    public static ProjectGroup getProjectGroup(ProjectId id, Set<ProjectId> projects, Set<String> prefixes) {
+        return f.getProjectGroup(id, getName(), getDescription(), projects, prefixes);
+    }
+
+    public static TimedAssignment getTimedAssignment() {
+        long now = System.currentTimeMillis();
+        return f.getTimedAssignment(getUserId(), getProjectId(), getRoleId(), now, now + 60000);
+    }
+
+    public static DenyRule getDenyRule() {
+        return f.getUserDenyRule(getUserId(), getProjectId(), getOperationIdSet());
+    }
+
     public static User getUser() {
         return getUser(getUserId(), getName(), getEmailAddress());
     }
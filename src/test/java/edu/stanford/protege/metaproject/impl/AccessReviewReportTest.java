@@ -0,0 +1,109 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class AccessReviewReportTest {
+    private final OperationId read = TestUtils.getOperationId("read"), write = TestUtils.getOperationId("write");
+    private final User alice = TestUtils.getUser(TestUtils.getUserId("alice"), TestUtils.getName(), TestUtils.getEmailAddress()),
+            bob = TestUtils.getUser(TestUtils.getUserId("bob"), TestUtils.getName(), TestUtils.getEmailAddress());
+    private final ProjectId first = TestUtils.getProjectId("a"), second = TestUtils.getProjectId("b,c");
+    private ServerConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        Role reader = TestUtils.getRole(TestUtils.getRoleId("reader"), Collections.singleton(read));
+        Role writer = TestUtils.getRole(TestUtils.getRoleId("writer"), Collections.singleton(write), reader.getId());
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        config = new ConfigurationBuilder().addUser(alice).addUser(bob).addUser(TestUtils.getUser())
+                .addProject(project(first)).addProject(project(second)).addRole(reader).addRole(writer)
+                .addPolicy(alice.getId(), ConfigurationUtils.getUniversalProjectId(), writer.getId())
+                .addDenyRule(ConfigurationManager.getFactory().getUserDenyRule(alice.getId(), second, Collections.singleton(write)))
+                .addUserGroup(TestUtils.getUserGroup(groupId, Collections.singleton(bob.getId()), Collections.emptySet(),
+                        Collections.singletonMap(first, Collections.singleton(reader.getId()))))
+                .createServerConfiguration();
+    }
+
+    private Project project(ProjectId projectId) {
+        return TestUtils.getProject(projectId, TestUtils.getName(), TestUtils.getDescription(), alice.getId(), Optional.empty());
+    }
+
+    @Test
+    public void testCsv() throws Exception {
+        StringWriter writer = new StringWriter();
+        new AccessReviewReport(config).write(writer, AccessReviewReport.Format.CSV);
+        List<String> lines = Arrays.asList(writer.toString().split("\n"));
+        assertThat(lines.get(0), is("user,project,role,operation"));
+        List<String> rows = new ArrayList<>();
+        for (String line : lines) {
+            if (line.startsWith("alice,") || line.startsWith("bob,")) {
+                rows.add(line);
+            }
+        }
+        String universal = ConfigurationUtils.getUniversalProjectId().get();
+        assertThat(new HashSet<>(rows), is(new HashSet<>(Arrays.asList("alice,a,writer,read", "alice,a,writer,write", "alice,\"b,c\",writer,read",
+                "alice," + universal + ",writer,read", "alice," + universal + ",writer,write", "bob,a,reader,read"))));
+        assertThat(rows.size(), is(6));
+    }
+
+    @Test
+    public void testJson() throws Exception {
+        StringWriter writer = new StringWriter();
+        new AccessReviewReport(config).write(writer, AccessReviewReport.Format.JSON, true);
+        JsonArray rows = new JsonParser().parse(writer.toString()).getAsJsonArray();
+        StringWriter sequential = new StringWriter();
+        new AccessReviewReport(config).write(sequential, AccessReviewReport.Format.JSON);
+        assertThat(rows.size(), is(new JsonParser().parse(sequential.toString()).getAsJsonArray().size()));
+        for (int i = 0; i < rows.size(); i++) {
+            JsonObject row = rows.get(i).getAsJsonObject();
+            UserId userId = TestUtils.getUserId(row.get("user").getAsString());
+            ProjectId projectId = TestUtils.getProjectId(row.get("project").getAsString());
+            OperationId operationId = TestUtils.getOperationId(row.get("operation").getAsString());
+            assertThat(config.isOperationAllowed(operationId, projectId, userId), is(true));
+        }
+    }
+
+    @Test
+    public void testProjectGroupScope() throws Exception {
+        User carol = TestUtils.getUser(TestUtils.getUserId("carol"), TestUtils.getName(), TestUtils.getEmailAddress());
+        ProjectId groupId = TestUtils.getProjectGroupId();
+        ServerConfiguration grouped = new ConfigurationBuilder(config).addUser(carol)
+                .addProjectGroup(TestUtils.getProjectGroup(groupId, Collections.emptySet(), Collections.singleton("b")))
+                .addPolicy(carol.getId(), groupId, TestUtils.getRoleId("reader"))
+                .createServerConfiguration();
+        StringWriter writer = new StringWriter();
+        new AccessReviewReport(grouped).write(writer, AccessReviewReport.Format.CSV);
+        List<String> rows = new ArrayList<>();
+        for (String line : writer.toString().split("\n")) {
+            if (line.startsWith("carol,")) {
+                rows.add(line);
+            }
+        }
+        assertThat(rows, is(Collections.singletonList("carol,\"b,c\",reader,read")));
+    }
+
+    @Test
+    public void testEmptyJson() throws Exception {
+        StringWriter writer = new StringWriter();
+        new AccessReviewReport(new ConfigurationBuilder().setPolicyMap(Collections.emptyMap()).createServerConfiguration())
+                .write(writer, AccessReviewReport.Format.JSON);
+        assertThat(new JsonParser().parse(writer.toString()).getAsJsonArray().size(), is(0));
+    }
+}
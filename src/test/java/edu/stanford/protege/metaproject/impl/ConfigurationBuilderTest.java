@@ -3,6 +3,9 @@ package edu.stanford.protege.metaproject.impl;
 import edu.stanford.protege.metaproject.ConfigurationManager;
 import edu.stanford.protege.metaproject.TestUtils;
 import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.exception.DanglingReferenceException;
+import edu.stanford.protege.metaproject.api.exception.IdAlreadyInUseException;
+import edu.stanford.protege.metaproject.api.exception.RoleCycleException;
 import org.junit.Test;
 
 import java.io.File;
@@ -310,6 +313,63 @@ public class ConfigurationBuilderTest {
         assertThat(configAlt.getRole(role.getId()).getOperations().contains(opId), is(false));
     }
 
+    @Test
+    public void testAddIncludedRole() throws Exception {
+        Role role = TestUtils.getRole(), included = TestUtils.getRole();
+        ServerConfiguration config = new ConfigurationBuilder().addRole(role).addRole(included)
+                .addIncludedRole(role.getId(), included.getId()).createServerConfiguration();
+        assertThat(config.getRole(role.getId()).getIncludedRoles().contains(included.getId()), is(true));
+        assertThat(config.getOperations(config.getRole(role.getId())).containsAll(config.getOperations(included)), is(true));
+        ServerConfiguration configAlt = new ConfigurationBuilder(config).removeIncludedRole(role.getId(), included.getId()).createServerConfiguration();
+        assertThat(configAlt.getRole(role.getId()), is(role));
+    }
+
+    @Test(expected=RoleCycleException.class)
+    public void testAddIncludedRoleCycle() throws Exception {
+        Role first = TestUtils.getRole(), second = TestUtils.getRole(), third = TestUtils.getRole();
+        new ConfigurationBuilder().addRole(first).addRole(second).addRole(third)
+                .addIncludedRole(first.getId(), second.getId())
+                .addIncludedRole(second.getId(), third.getId())
+                .addIncludedRole(third.getId(), first.getId());
+    }
+
+    @Test(expected=RoleCycleException.class)
+    public void testAddRoleCycle() throws Exception {
+        RoleId firstId = TestUtils.getRoleId(), secondId = TestUtils.getRoleId();
+        new ConfigurationBuilder().addRole(TestUtils.getRole(firstId, Collections.emptySet(), secondId))
+                .addRole(TestUtils.getRole(secondId, Collections.emptySet(), firstId));
+    }
+
+    @Test
+    public void testSetRoleCycle() throws Exception {
+        Role first = TestUtils.getRole(), second = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet(), first.getId());
+        ConfigurationBuilder builder = new ConfigurationBuilder().addRole(first).addRole(second);
+        boolean rejected = false;
+        try {
+            builder.setRole(first.getId(), TestUtils.getRole(first.getId(), first.getOperations(), second.getId()));
+        } catch (RoleCycleException e) {
+            rejected = true;
+        }
+        assertThat(rejected, is(true));
+        assertThat(builder.createServerConfiguration().getRole(first.getId()), is(first));
+    }
+
+    @Test
+    public void testSetRolesCycleFailsValidation() throws Exception {
+        RoleId firstId = TestUtils.getRoleId(), secondId = TestUtils.getRoleId();
+        ConfigurationBuilder builder = new ConfigurationBuilder().setPolicyMap(Collections.emptyMap())
+                .setRoles(new HashSet<>(Arrays.asList(TestUtils.getRole(firstId, Collections.emptySet(), secondId),
+                        TestUtils.getRole(secondId, Collections.emptySet(), firstId))))
+                .setValidationMode(ValidationMode.FAIL_FAST);
+        Throwable cause = null;
+        try {
+            builder.createServerConfiguration();
+        } catch (DanglingReferenceException e) {
+            cause = e.getCause();
+        }
+        assertThat(cause instanceof RoleCycleException, is(true));
+    }
+
     @Test
     public void testAddOperation() throws Exception {
         Operation operation = TestUtils.getCustomOperation();
@@ -414,6 +474,39 @@ public class ConfigurationBuilderTest {
         assertThat(configAlt.hasRole(user.getId(), project.getId()), is(false));
     }
 
+    @Test
+    public void testRemoveProjectDenyRules() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject(), projectAlt = TestUtils.getProject();
+        Operation operation = TestUtils.getCustomOperation();
+        DenyRule rule = factory.getUserDenyRule(user.getId(), project.getId(), Collections.singleton(operation.getId())),
+                ruleAlt = factory.getUserDenyRule(user.getId(), projectAlt.getId(), Collections.singleton(operation.getId()));
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addProject(project).addProject(projectAlt).addOperation(operation)
+                .addDenyRule(rule).addDenyRule(ruleAlt).removeProject(project).removePolicy(project.getId())
+                .setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getDenyRules(), is(Collections.singleton(ruleAlt)));
+    }
+
+    @Test
+    public void testRemoveProjectFromGroups() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject(), projectAlt = TestUtils.getProject();
+        Role role = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet());
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        ProjectId projectGroupId = TestUtils.getProjectGroupId();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project).addProject(projectAlt).addRole(role)
+                .removePolicy(TestUtils.getProjectId())
+                .addUserGroup(TestUtils.getUserGroup(groupId, Collections.singleton(user.getId()), Collections.emptySet(), Collections.emptyMap()))
+                .addGroupPolicy(groupId, project.getId(), role.getId())
+                .addGroupPolicy(groupId, projectAlt.getId(), role.getId())
+                .addProjectGroup(TestUtils.getProjectGroup(projectGroupId, new HashSet<>(Arrays.asList(project.getId(), projectAlt.getId())), Collections.emptySet()));
+        ServerConfiguration config = builder.removeProject(project).removePolicy(project.getId())
+                .setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getProjectGroup(projectGroupId).getProjects(), is(Collections.singleton(projectAlt.getId())));
+        assertThat(config.getUserGroup(groupId).getAssignments(),
+                is(Collections.singletonMap(projectAlt.getId(), Collections.singleton(role.getId()))));
+    }
+
     @Test
     public void testRemoveRoleFromPolicy() throws Exception {
         User user = TestUtils.getUser();
@@ -427,6 +520,63 @@ public class ConfigurationBuilderTest {
         assertThat(configAlt.hasRole(user.getId(), project.getId(), roleAlt.getId()), is(true));
     }
 
+    @Test
+    public void testRemoveRoleFromGroupPolicy() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        Role role = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet()), roleAlt = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet());
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project).addRole(role).addRole(roleAlt)
+                .addUserGroup(TestUtils.getUserGroup(groupId, Collections.singleton(user.getId()), Collections.emptySet(), Collections.emptyMap()))
+                .addGroupPolicy(groupId, project.getId(), role.getId(), roleAlt.getId())
+                .addGroupPolicy(groupId, ConfigurationUtils.getUniversalProjectId(), role.getId());
+        ServerConfiguration config = builder.removeRole(role).removePolicy(role.getId())
+                .setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getUserGroup(groupId).getAssignments(),
+                is(Collections.singletonMap(project.getId(), Collections.singleton(roleAlt.getId()))));
+        assertThat(config.hasRole(user.getId(), project.getId(), roleAlt.getId()), is(true));
+    }
+
+    @Test
+    public void testRemoveRoleFromIncludingRoles() throws Exception {
+        Role role = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet()), roleAlt = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet());
+        Role including = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet(), role.getId(), roleAlt.getId());
+        ServerConfiguration config = new ConfigurationBuilder().addRole(role).addRole(roleAlt).addRole(including)
+                .removeRole(role).removePolicy(role.getId())
+                .setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getRole(including.getId()).getIncludedRoles(), is(Collections.singleton(roleAlt.getId())));
+    }
+
+    @Test
+    public void testCascadingRemovalsFollowEdits() throws Exception {
+        UserId user = TestUtils.getUserId(), userAlt = TestUtils.getUserId();
+        ProjectId project = TestUtils.getProjectId(), projectAlt = TestUtils.getProjectId();
+        Role role = TestUtils.getRole(), roleAlt = TestUtils.getRole();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addPolicy(user, project, role.getId())
+                .removePolicy(projectAlt)
+                .addPolicy(user, projectAlt, role.getId())
+                .addPolicy(userAlt, projectAlt, role.getId(), roleAlt.getId())
+                .removePolicy(user, project, role.getId())
+                .removePolicy(role.getId());
+        ServerConfiguration config = builder.createServerConfiguration();
+        assertThat(config.hasRole(user, projectAlt, role.getId()), is(false));
+        assertThat(config.hasRole(userAlt, projectAlt, role.getId()), is(false));
+        assertThat(config.hasRole(userAlt, projectAlt, roleAlt.getId()), is(true));
+        config = builder.removePolicy(projectAlt).createServerConfiguration();
+        assertThat(config.getPolicyMap().get(user).containsKey(projectAlt), is(false));
+        assertThat(config.getPolicyMap().get(userAlt).containsKey(projectAlt), is(false));
+    }
+
+    @Test
+    public void testRemoveOperationFromPolicy() throws Exception {
+        Operation operation = TestUtils.getSystemOperation();
+        Role role = TestUtils.getRole(operation.getId()), roleAlt = TestUtils.getRole();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addOperation(operation).addRole(roleAlt).removePolicy(operation.getId());
+        ServerConfiguration config = builder.addRole(role).removePolicy(operation.getId()).createServerConfiguration();
+        assertThat(config.getRole(role.getId()).getOperations().contains(operation.getId()), is(false));
+        assertThat(config.getRole(roleAlt.getId()), is(roleAlt));
+    }
+
     @Test
     public void testRegisterUser() throws Exception {
         UserId userId = TestUtils.getUserId();
@@ -458,4 +608,472 @@ public class ConfigurationBuilderTest {
         assertThat(configAlt.hasValidCredentials(userId, pwd), is(false));
         assertThat(configAlt.hasValidCredentials(userId, pwdAlt), is(true));
     }
-}
\ No newline at end of file
+
+    @Test(expected = IdAlreadyInUseException.class)
+    public void testAddUserWithUsedId() throws Exception {
+        UserId userId = TestUtils.getUserId();
+        new ConfigurationBuilder()
+                .addUser(TestUtils.getUser(userId, TestUtils.getName("a"), TestUtils.getEmailAddress()))
+                .addUser(TestUtils.getUser(userId, TestUtils.getName("b"), TestUtils.getEmailAddress()));
+    }
+
+    @Test
+    public void testAddManyUsers() throws Exception {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < 20000; i++) {
+            User user = TestUtils.getUser(TestUtils.getUserId("user" + i), TestUtils.getName(), TestUtils.getEmailAddress());
+            users.add(user);
+            builder.addUser(user);
+        }
+        ServerConfiguration config = builder.createServerConfiguration();
+        for (User user : users) {
+            assertThat(config.getUser(user.getId()), is(user));
+        }
+    }
+
+    @Test
+    public void testRemoveUserRequiresSameUser() throws Exception {
+        UserId userId = TestUtils.getUserId();
+        User user = TestUtils.getUser(userId, TestUtils.getName("a"), TestUtils.getEmailAddress());
+        User other = TestUtils.getUser(userId, TestUtils.getName("b"), TestUtils.getEmailAddress());
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).removeUser(other).createServerConfiguration();
+        assertThat(config.containsUser(user), is(true));
+        assertThat(config.containsUser(other), is(false));
+    }
+
+    @Test
+    public void testAddUsersReportsConflicts() throws Exception {
+        User existing = ConfigurationUtils.getRootUser();
+        User user1 = TestUtils.getUser(TestUtils.getUserId("user1"), TestUtils.getName(), TestUtils.getEmailAddress());
+        User user2 = TestUtils.getUser(TestUtils.getUserId("user2"), TestUtils.getName(), TestUtils.getEmailAddress());
+        User user1Again = TestUtils.getUser(user1.getId(), TestUtils.getName("other"), TestUtils.getEmailAddress());
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        ImportReport report = builder.addUsers(Arrays.asList(user1, existing, user2, user1Again));
+        assertThat(report.getImportedCount(), is(2));
+        assertThat(report.getConflicts(), is(Arrays.asList(
+                new ImportReport.Conflict(existing.getId(), ImportReport.Reason.ID_ALREADY_IN_USE),
+                new ImportReport.Conflict(user1.getId(), ImportReport.Reason.DUPLICATE_IN_BATCH))));
+        ServerConfiguration config = builder.createServerConfiguration();
+        assertThat(config.getUser(user1.getId()), is(user1));
+        assertThat(config.containsUser(user2), is(true));
+    }
+
+    @Test
+    public void testAddUsersFromStream() throws Exception {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        ImportReport report = builder.addUsers(TestUtils.getUserSet(500).stream());
+        assertThat(report.getImportedCount(), is(500));
+        assertThat(report.hasConflicts(), is(false));
+        assertThat(builder.createServerConfiguration().getUsers().size(), is(ConfigurationUtils.getDefaultUsers().size() + 500));
+    }
+
+    @Test
+    public void testRegisterUsers() throws Exception {
+        UserId userId = TestUtils.getUserId();
+        AuthenticationDetails details = TestUtils.getAuthenticationDetails(userId);
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        ImportReport report = builder.registerUsers(Arrays.asList(details, ConfigurationUtils.getRootUserCredentials()));
+        assertThat(report.getImportedCount(), is(1));
+        assertThat(report.getConflicts(), is(Collections.singletonList(
+                new ImportReport.Conflict(ConfigurationUtils.getRootUser().getId(), ImportReport.Reason.ID_ALREADY_IN_USE))));
+        assertThat(builder.createServerConfiguration().getAuthenticationDetails(userId), is(details));
+    }
+
+    @Test
+    public void testAddPolicies() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId roleId = ConfigurationUtils.getAdminRole().getId(), unknownRole = TestUtils.getRoleId();
+        UserId unknownUser = TestUtils.getUserId();
+        Map<UserId, Map<ProjectId, Set<RoleId>>> assignments = new HashMap<>();
+        assignments.put(user.getId(), Collections.singletonMap(project.getId(), new HashSet<>(Arrays.asList(roleId, unknownRole))));
+        assignments.put(unknownUser, Collections.singletonMap(project.getId(), Collections.singleton(roleId)));
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project);
+        ImportReport report = builder.addPolicies(assignments);
+        assertThat(report.getImportedCount(), is(1));
+        assertThat(new HashSet<>(report.getConflicts()), is(new HashSet<>(Arrays.asList(
+                new ImportReport.Conflict(unknownRole, ImportReport.Reason.UNKNOWN_ROLE),
+                new ImportReport.Conflict(unknownUser, ImportReport.Reason.UNKNOWN_USER)))));
+        ServerConfiguration config = builder.createServerConfiguration();
+        assertThat(config.getPolicyMap().get(user.getId()).get(project.getId()), is(Collections.singleton(roleId)));
+        assertThat(config.getPolicyMap().containsKey(unknownUser), is(false));
+    }
+
+    @Test
+    public void testAddPoliciesAllConflicting() throws Exception {
+        User user = TestUtils.getUser();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user);
+        ImportReport report = builder.addPolicies(Collections.singletonMap(user.getId(),
+                Collections.singletonMap(TestUtils.getProjectId(), Collections.singleton(TestUtils.getRoleId()))));
+        assertThat(report.getImportedCount(), is(0));
+        assertThat(builder.createServerConfiguration().getPolicyMap().containsKey(user.getId()), is(false));
+    }
+
+    @Test
+    public void testAddPoliciesOnProjectGroup() throws Exception {
+        User user = TestUtils.getUser();
+        ProjectGroup group = TestUtils.getProjectGroup();
+        ProjectId unknownProject = TestUtils.getProjectId();
+        RoleId roleId = ConfigurationUtils.getAdminRole().getId();
+        Map<ProjectId, Set<RoleId>> projectRoles = new HashMap<>();
+        projectRoles.put(group.getId(), Collections.singleton(roleId));
+        projectRoles.put(unknownProject, Collections.singleton(roleId));
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProjectGroup(group);
+        ImportReport report = builder.addPolicies(Collections.singletonMap(user.getId(), projectRoles));
+        assertThat(report.getImportedCount(), is(1));
+        assertThat(report.getConflicts(), is(Collections.singletonList(
+                new ImportReport.Conflict(unknownProject, ImportReport.Reason.UNKNOWN_PROJECT))));
+        assertThat(builder.createServerConfiguration().getPolicyMap().get(user.getId()).get(group.getId()), is(Collections.singleton(roleId)));
+    }
+
+    @Test
+    public void testTransactionRollback() throws Exception {
+        ServerConfiguration config = TestUtils.getServerConfiguration();
+        ConfigurationBuilder builder = new ConfigurationBuilder(config).beginTransaction();
+        User user = TestUtils.getUser(), userAlt = TestUtils.getUser();
+        builder.addUser(user);
+        ConfigurationBuilder.Savepoint savepoint = builder.setSavepoint();
+        builder.addUser(userAlt).setServerRoot("newRoot");
+        builder.rollbackTo(savepoint);
+        assertThat(builder.createServerConfiguration().containsUser(user), is(true));
+        assertThat(builder.createServerConfiguration().containsUser(userAlt), is(false));
+        assertThat(builder.createServerConfiguration().getServerRoot(), is(config.getServerRoot()));
+        builder.rollback();
+        assertThat(builder.isInTransaction(), is(false));
+        assertThat(builder.createServerConfiguration(), is(config));
+    }
+
+    @Test
+    public void testTransactionChangeLog() throws Exception {
+        ServerConfiguration config = TestUtils.getServerConfiguration();
+        Project project = TestUtils.getProject();
+        User user = TestUtils.getUser();
+        ConfigurationBuilder builder = new ConfigurationBuilder(config);
+        ConfigurationDelta changeLog = builder.inTransaction(b -> b.addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), ConfigurationUtils.getAdminRole().getId()));
+        assertThat(builder.isInTransaction(), is(false));
+        assertThat(changeLog.getUsers().getAdded(), is(Collections.singleton(user)));
+        assertThat(changeLog.applyTo(config), is(builder.createServerConfiguration()));
+    }
+
+    @Test
+    public void testFailedTransactionIsRolledBack() throws Exception {
+        ServerConfiguration config = TestUtils.getServerConfiguration();
+        ConfigurationBuilder builder = new ConfigurationBuilder(config);
+        User user = TestUtils.getUser();
+        try {
+            builder.inTransaction(b -> b.addUser(user).addUser(user));
+            assertThat("Expected the transaction to fail", false);
+        } catch (IdAlreadyInUseException e) {
+            assertThat(builder.isInTransaction(), is(false));
+            assertThat(builder.createServerConfiguration(), is(config));
+        }
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleasedSavepoint() throws Exception {
+        ConfigurationBuilder builder = new ConfigurationBuilder().beginTransaction();
+        ConfigurationBuilder.Savepoint first = builder.setSavepoint(), second = builder.setSavepoint();
+        builder.rollbackTo(first).rollbackTo(second);
+    }
+
+    @Test
+    public void testValidDefaultConfiguration() throws Exception {
+        ConfigurationBuilder builder = new ConfigurationBuilder();
+        ServerConfiguration config = builder.createServerConfiguration();
+        assertThat(builder.setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration(), is(config));
+        assertThat(builder.setValidationMode(ValidationMode.PRUNE).createServerConfiguration(), is(config));
+    }
+
+    @Test(expected = DanglingReferenceException.class)
+    public void testFailFastValidation() throws Exception {
+        User user = TestUtils.getUser();
+        new ConfigurationBuilder().addUser(user)
+                .addPolicy(user.getId(), ConfigurationUtils.getUniversalProjectId(), TestUtils.getRoleId())
+                .setValidationMode(ValidationMode.FAIL_FAST)
+                .createServerConfiguration();
+    }
+
+    @Test
+    public void testPruneValidation() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId roleId = ConfigurationUtils.getAdminRole().getId(), unknownRole = TestUtils.getRoleId();
+        UserId unknownUser = TestUtils.getUserId();
+        OperationId unknownOperation = TestUtils.getOperationId();
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), roleId, unknownRole)
+                .addPolicy(user.getId(), TestUtils.getProjectId(), roleId)
+                .addPolicy(unknownUser, project.getId(), roleId)
+                .addOperationToRole(roleId, unknownOperation)
+                .setValidationMode(ValidationMode.PRUNE)
+                .createServerConfiguration();
+        assertThat(config.getPolicyMap().get(user.getId()), is(Collections.singletonMap(project.getId(), Collections.singleton(roleId))));
+        assertThat(config.getPolicyMap().containsKey(unknownUser), is(false));
+        assertThat(config.getRole(roleId).getOperations().contains(unknownOperation), is(false));
+        assertThat(config.getRole(roleId).getOperations(), is(ConfigurationUtils.getAdminRole().getOperations()));
+    }
+
+    @Test
+    public void testPruneDropsEmptiedScopes() throws Exception {
+        User user = TestUtils.getUser(), userAlt = TestUtils.getUser();
+        Project project = TestUtils.getProject(), projectAlt = TestUtils.getProject();
+        RoleId roleId = ConfigurationUtils.getAdminRole().getId();
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        Map<ProjectId, Set<RoleId>> assignments = new HashMap<>();
+        assignments.put(project.getId(), Collections.singleton(roleId));
+        assignments.put(projectAlt.getId(), Collections.singleton(TestUtils.getRoleId()));
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addUser(userAlt).addProject(project).addProject(projectAlt)
+                .addPolicy(user.getId(), project.getId(), roleId)
+                .addPolicy(user.getId(), projectAlt.getId(), TestUtils.getRoleId())
+                .addPolicy(userAlt.getId(), project.getId(), TestUtils.getRoleId())
+                .addUserGroup(TestUtils.getUserGroup(groupId, Collections.emptySet(), Collections.emptySet(), assignments))
+                .setValidationMode(ValidationMode.PRUNE)
+                .createServerConfiguration();
+        assertThat(config.getPolicyMap().get(user.getId()), is(Collections.singletonMap(project.getId(), Collections.singleton(roleId))));
+        assertThat(config.getPolicyMap().containsKey(userAlt.getId()), is(false));
+        assertThat(config.getUserGroup(groupId).getAssignments(), is(Collections.singletonMap(project.getId(), Collections.singleton(roleId))));
+        assertThat(config.getProjects(userAlt.getId()).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testUserGroups() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        OperationId operationId = ConfigurationUtils.getAdminRole().getOperations().iterator().next();
+        UserGroupId parentId = TestUtils.getUserGroupId(), childId = TestUtils.getUserGroupId();
+        UserGroup parent = TestUtils.getUserGroup(parentId, Collections.emptySet(), Collections.singleton(childId), Collections.emptyMap());
+        UserGroup child = TestUtils.getUserGroup(childId, Collections.emptySet(), Collections.emptySet(), Collections.emptyMap());
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addUserGroup(parent).addUserGroup(child)
+                .addUserToGroup(childId, user.getId())
+                .addGroupPolicy(parentId, project.getId(), ConfigurationUtils.getAdminRole().getId());
+        ServerConfiguration config = builder.setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getUserGroups(user.getId()), is(new HashSet<>(Arrays.asList(config.getUserGroup(parentId), config.getUserGroup(childId)))));
+        assertThat(config.isOperationAllowed(operationId, project.getId(), user.getId()), is(true));
+        assertThat(config.hasRole(user.getId(), project.getId(), ConfigurationUtils.getAdminRole().getId()), is(true));
+        assertThat(config.getPolicyMap().containsKey(user.getId()), is(false));
+
+        config = builder.removeUserFromGroup(childId, user.getId()).createServerConfiguration();
+        assertThat(config.getUserGroups(user.getId()).isEmpty(), is(true));
+        assertThat(config.isOperationAllowed(operationId, project.getId(), user.getId()), is(false));
+    }
+
+    @Test(expected = IdAlreadyInUseException.class)
+    public void testAddDuplicateUserGroup() throws Exception {
+        UserGroup group = TestUtils.getUserGroup();
+        new ConfigurationBuilder().addUserGroup(group).addUserGroup(group);
+    }
+
+    @Test
+    public void testPruneUserGroupValidation() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId roleId = ConfigurationUtils.getAdminRole().getId();
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        Map<ProjectId, Set<RoleId>> assignments = new HashMap<>();
+        assignments.put(project.getId(), new HashSet<>(Arrays.asList(roleId, TestUtils.getRoleId())));
+        assignments.put(TestUtils.getProjectId(), Collections.singleton(roleId));
+        UserGroup group = TestUtils.getUserGroup(groupId, TestUtils.getUserIdSet(user.getId(), TestUtils.getUserId()),
+                Collections.singleton(TestUtils.getUserGroupId()), assignments);
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addProject(project).addUserGroup(group)
+                .setValidationMode(ValidationMode.PRUNE)
+                .createServerConfiguration();
+        UserGroup pruned = config.getUserGroup(groupId);
+        assertThat(pruned.getMembers(), is(Collections.singleton(user.getId())));
+        assertThat(pruned.getSubgroups().isEmpty(), is(true));
+        assertThat(pruned.getAssignments(), is(Collections.singletonMap(project.getId(), Collections.singleton(roleId))));
+    }
+
+    @Test
+    public void testDenyRules() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        Role admin = ConfigurationUtils.getAdminRole();
+        OperationId denied = admin.getOperations().iterator().next();
+        DenyRule rule = factory.getUserDenyRule(user.getId(), project.getId(), Collections.singleton(denied));
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), ConfigurationUtils.getUniversalProjectId(), admin.getId())
+                .addDenyRule(rule);
+        ServerConfiguration config = builder.setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getDenyRules(), is(Collections.singleton(rule)));
+        assertThat(config.isOperationAllowed(denied, project.getId(), user.getId()), is(false));
+        assertThat(config.isOperationAllowed(denied, TestUtils.getProjectId(), user.getId()), is(true));
+        assertThat(config.getOperations(user.getId(), project.getId(), GlobalPermissions.INCLUDED).contains(config.getOperation(denied)), is(false));
+
+        config = builder.removeDenyRule(rule).createServerConfiguration();
+        assertThat(config.isOperationAllowed(denied, project.getId(), user.getId()), is(true));
+    }
+
+    @Test
+    public void testPruneDenyRuleValidation() throws Exception {
+        User user = TestUtils.getUser();
+        OperationId operationId = ConfigurationUtils.getAdminRole().getOperations().iterator().next();
+        Set<OperationId> operations = new HashSet<>(Arrays.asList(operationId, TestUtils.getOperationId()));
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user)
+                .addDenyRule(factory.getUserDenyRule(user.getId(), ConfigurationUtils.getUniversalProjectId(), operations))
+                .addDenyRule(factory.getUserDenyRule(TestUtils.getUserId(), ConfigurationUtils.getUniversalProjectId(), operations))
+                .addDenyRule(factory.getProjectDenyRule(TestUtils.getProjectId(), operations))
+                .setValidationMode(ValidationMode.PRUNE)
+                .createServerConfiguration();
+        assertThat(config.getDenyRules(), is(Collections.singleton(
+                factory.getUserDenyRule(user.getId(), ConfigurationUtils.getUniversalProjectId(), Collections.singleton(operationId)))));
+    }
+
+    @Test
+    public void testProjectGroups() throws Exception {
+        User user = TestUtils.getUser();
+        Project listed = TestUtils.getProject(), matched = TestUtils.getProject(TestUtils.getProjectId("onto/anatomy"), TestUtils.getName(),
+                TestUtils.getDescription(), user.getId(), Optional.empty());
+        Role admin = ConfigurationUtils.getAdminRole();
+        OperationId operationId = admin.getOperations().iterator().next();
+        ProjectId groupId = TestUtils.getProjectGroupId();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(listed).addProject(matched)
+                .addProjectGroup(TestUtils.getProjectGroup(groupId, Collections.emptySet(), Collections.singleton("onto/")))
+                .addProjectToGroup(groupId, listed.getId())
+                .addPolicy(user.getId(), groupId, admin.getId());
+        ServerConfiguration config = builder.setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getProjectGroups(matched.getId()), is(Collections.singleton(config.getProjectGroup(groupId))));
+        assertThat(config.isOperationAllowed(operationId, listed.getId(), user.getId()), is(true));
+        assertThat(config.isOperationAllowed(operationId, matched.getId(), user.getId()), is(true));
+        assertThat(config.hasRole(user.getId(), matched.getId(), admin.getId()), is(true));
+        assertThat(config.getProjects(user.getId()), is(new HashSet<>(Arrays.asList(listed, matched))));
+
+        config = builder.removeProjectFromGroup(groupId, listed.getId()).createServerConfiguration();
+        assertThat(config.isOperationAllowed(operationId, listed.getId(), user.getId()), is(false));
+        assertThat(config.isOperationAllowed(operationId, matched.getId(), user.getId()), is(true));
+    }
+
+    @Test
+    public void testBrowseGroupAssignments() throws Exception {
+        User user = TestUtils.getUser(), userAlt = TestUtils.getUser();
+        Project direct = TestUtils.getProject(), matched = TestUtils.getProject(TestUtils.getProjectId("onto/anatomy"), TestUtils.getName(),
+                TestUtils.getDescription(), user.getId(), Optional.empty());
+        RoleId admin = ConfigurationUtils.getAdminRole().getId(), guest = ConfigurationUtils.getGuestRole().getId();
+        UserGroupId userGroupId = TestUtils.getUserGroupId();
+        ProjectId projectGroupId = TestUtils.getProjectGroupId();
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addUser(userAlt).addProject(direct).addProject(matched)
+                .addProjectGroup(TestUtils.getProjectGroup(projectGroupId, Collections.emptySet(), Collections.singleton("onto/")))
+                .addUserGroup(TestUtils.getUserGroup(userGroupId, Collections.singleton(user.getId()), Collections.emptySet(), Collections.emptyMap()))
+                .addGroupPolicy(userGroupId, projectGroupId, guest)
+                .addPolicy(user.getId(), direct.getId(), admin)
+                .addPolicy(userAlt.getId(), matched.getId(), admin)
+                .setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        Map<ProjectId, Set<RoleId>> roleMap = new HashMap<>();
+        roleMap.put(direct.getId(), Collections.singleton(admin));
+        roleMap.put(matched.getId(), Collections.singleton(guest));
+        assertThat(config.getUserRoleMap(user.getId()), is(roleMap));
+        assertThat(config.getProjectIds(user.getId()), is(roleMap.keySet()));
+        assertThat(config.getProjects(user.getId()), is(new HashSet<>(Arrays.asList(direct, matched))));
+        assertThat(config.hasRole(user.getId(), matched.getId()), is(true));
+        assertThat(config.getUserIds(matched.getId()), is(new HashSet<>(Arrays.asList(user.getId(), userAlt.getId()))));
+        assertThat(config.getUserIds(direct.getId()), is(Collections.singleton(user.getId())));
+        assertThat(config.hasRole(userAlt.getId(), direct.getId()), is(false));
+    }
+
+    @Test
+    public void testProjectPages() throws Exception {
+        Project first = TestUtils.getProject(), second = TestUtils.getProject();
+        ServerConfiguration config = new ConfigurationBuilder().setProjects(new HashSet<>(Arrays.asList(first, second))).createServerConfiguration();
+        Page<Project> page = config.getProjects(SortOrder.ID, Optional.empty(), 1);
+        assertThat(page.getItems().size(), is(1));
+        Page<Project> next = config.getProjects(SortOrder.ID, page.getNextCursor(), 1);
+        assertThat(next.getNextCursor().isPresent(), is(false));
+        assertThat(new HashSet<>(Arrays.asList(page.getItems().get(0), next.getItems().get(0))), is(new HashSet<>(Arrays.asList(first, second))));
+    }
+
+    @Test(expected = IdAlreadyInUseException.class)
+    public void testAddProjectGroupWithProjectId() throws Exception {
+        Project project = TestUtils.getProject();
+        new ConfigurationBuilder().addProject(project)
+                .addProjectGroup(TestUtils.getProjectGroup(project.getId(), Collections.emptySet(), Collections.emptySet()));
+    }
+
+    @Test
+    public void testPruneProjectGroupValidation() throws Exception {
+        Project project = TestUtils.getProject();
+        ProjectId groupId = TestUtils.getProjectGroupId();
+        ServerConfiguration config = new ConfigurationBuilder().addProject(project)
+                .addProjectGroup(TestUtils.getProjectGroup(groupId, new HashSet<>(Arrays.asList(project.getId(), TestUtils.getProjectId())),
+                        Collections.emptySet()))
+                .setValidationMode(ValidationMode.PRUNE)
+                .createServerConfiguration();
+        assertThat(config.getProjectGroup(groupId).getProjects(), is(Collections.singleton(project.getId())));
+    }
+
+    @Test
+    public void testTimedAssignments() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId admin = ConfigurationUtils.getAdminRole().getId(), guest = ConfigurationUtils.getGuestRole().getId();
+        long now = System.currentTimeMillis();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), now - 1000, now + 60000, admin)
+                .addPolicy(user.getId(), project.getId(), now + 60000, now + 120000, guest);
+        ServerConfiguration config = builder.setValidationMode(ValidationMode.FAIL_FAST).createServerConfiguration();
+        assertThat(config.getTimedAssignments().size(), is(2));
+        assertThat(config.hasRole(user.getId(), project.getId(), admin), is(true));
+        assertThat(config.hasRole(user.getId(), project.getId(), guest), is(false));
+
+        config = builder.applyTimedAssignments(now + 60000).createServerConfiguration();
+        assertThat(config.hasRole(user.getId(), project.getId(), admin), is(false));
+        assertThat(config.hasRole(user.getId(), project.getId(), guest), is(true));
+        assertThat(config.getTimedAssignments().size(), is(1));
+
+        config = builder.addPolicy(user.getId(), project.getId(), guest).applyTimedAssignments(now + 120000).createServerConfiguration();
+        assertThat(config.hasRole(user.getId(), project.getId(), guest), is(true));
+        assertThat(config.getTimedAssignments().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRemovePolicyRemovesTimedAssignments() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId admin = ConfigurationUtils.getAdminRole().getId();
+        long now = System.currentTimeMillis();
+        ServerConfiguration config = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), now + 60000, now + 120000, admin)
+                .removePolicy(user.getId())
+                .createServerConfiguration();
+        assertThat(config.getTimedAssignments().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testRemovePolicyCancelsPendingWindow() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId admin = ConfigurationUtils.getAdminRole().getId();
+        long now = System.currentTimeMillis();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), now + 60000, now + 120000, admin)
+                .removePolicy(user.getId(), project.getId(), admin);
+        assertThat(builder.createServerConfiguration().getTimedAssignments().isEmpty(), is(true));
+        assertThat(builder.createServerConfiguration().getPolicyMap().containsKey(user.getId()), is(false));
+
+        builder.addPolicy(user.getId(), project.getId(), now + 60000, now + 120000, admin).removePolicy(user.getId(), project.getId());
+        assertThat(builder.createServerConfiguration().getTimedAssignments().isEmpty(), is(true));
+        assertThat(builder.createServerConfiguration().getPolicyMap().containsKey(user.getId()), is(false));
+    }
+
+    @Test
+    public void testAddPoliciesSupersedesWindow() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId admin = ConfigurationUtils.getAdminRole().getId();
+        long now = System.currentTimeMillis();
+        ConfigurationBuilder builder = new ConfigurationBuilder().addUser(user).addProject(project)
+                .addPolicy(user.getId(), project.getId(), now - 1000, now + 60000, admin);
+        builder.addPolicies(Collections.singletonMap(user.getId(), Collections.singletonMap(project.getId(), Collections.singleton(admin))));
+        ServerConfiguration config = builder.applyTimedAssignments(now + 60000).createServerConfiguration();
+        assertThat(config.getTimedAssignments().isEmpty(), is(true));
+        assertThat(config.hasRole(user.getId(), project.getId(), admin), is(true));
+    }
+
+    @Test(expected = DanglingReferenceException.class)
+    public void testTimedAssignmentValidation() throws Exception {
+        new ConfigurationBuilder().setTimedAssignments(Collections.singleton(TestUtils.getTimedAssignment()))
+                .setValidationMode(ValidationMode.FAIL_FAST)
+                .createServerConfiguration();
+    }
+}
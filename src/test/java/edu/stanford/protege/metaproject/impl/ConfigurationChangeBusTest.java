@@ -0,0 +1,101 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationChangeBusTest {
+    private ServerConfiguration config;
+    private LiveConfiguration live;
+    private List<Runnable> tasks;
+    private ConfigurationChangeBus bus;
+
+    @Before
+    public void setUp() {
+        config = TestUtils.getServerConfiguration();
+        live = new LiveConfiguration(config);
+        tasks = new ArrayList<>();
+        bus = new ConfigurationChangeBus(live, tasks::add);
+    }
+
+    private void runTasks() {
+        List<Runnable> queued = new ArrayList<>(tasks);
+        tasks.clear();
+        queued.forEach(Runnable::run);
+    }
+
+    @Test
+    public void testCoalescedNotification() throws Exception {
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        bus.addListener(events::add);
+        User user = TestUtils.getUser();
+        live.commit(new ConfigurationBuilder(config).addUser(user).createServerConfiguration());
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).addProperty("key", "value").createServerConfiguration());
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).setServerRoot("newRoot").createServerConfiguration());
+        assertThat(events.isEmpty(), is(true));
+        assertThat(tasks.size(), is(1));
+        runTasks();
+        assertThat(events.size(), is(1));
+        ConfigurationChangeEvent event = events.get(0);
+        assertThat(event.getPrevious().getVersion(), is(0L));
+        assertThat(event.getCurrent().getVersion(), is(3L));
+        assertThat(event.getTypes(), is(EnumSet.of(ConfigurationChangeEvent.Type.USERS, ConfigurationChangeEvent.Type.PROPERTIES,
+                ConfigurationChangeEvent.Type.SERVER_ROOT)));
+        assertThat(event.getDelta().applyTo(config), is(live.getConfiguration()));
+    }
+
+    @Test
+    public void testTypeFilter() throws Exception {
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        bus.addListener(events::add, EnumSet.of(ConfigurationChangeEvent.Type.ROLES));
+        live.commit(new ConfigurationBuilder(config).addProperty("key", "value").createServerConfiguration());
+        runTasks();
+        assertThat(events.isEmpty(), is(true));
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).addRole(TestUtils.getRole()).createServerConfiguration());
+        runTasks();
+        assertThat(events.size(), is(1));
+        assertThat(events.get(0).getTypes(), is(EnumSet.of(ConfigurationChangeEvent.Type.ROLES)));
+    }
+
+    @Test
+    public void testRemoveListener() {
+        List<ConfigurationChangeEvent> events = new ArrayList<>();
+        ConfigurationChangeBus.ChangeListener listener = events::add;
+        bus.addListener(listener);
+        bus.removeListener(listener);
+        live.commit(new ConfigurationBuilder(config).addProperty("key", "value").createServerConfiguration());
+        runTasks();
+        assertThat(events.isEmpty(), is(true));
+        assertThat(bus.getListenerCount(), is(0));
+    }
+
+    @Test
+    public void testAsynchronousDelivery() throws Exception {
+        try (ConfigurationChangeBus asyncBus = new ConfigurationChangeBus(live)) {
+            CountDownLatch latch = new CountDownLatch(1);
+            List<Thread> threads = new ArrayList<>();
+            asyncBus.addListener(event -> {
+                threads.add(Thread.currentThread());
+                latch.countDown();
+            });
+            live.commit(new ConfigurationBuilder(config).addProperty("key", "value").createServerConfiguration());
+            assertThat(latch.await(5, TimeUnit.SECONDS), is(true));
+            assertThat(threads.get(0), is(not(Thread.currentThread())));
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationDeltaTest {
+    private ServerConfiguration config;
+
+    @Before
+    public void setUp() {
+        config = TestUtils.getServerConfiguration();
+    }
+
+    @Test
+    public void testEmptyDelta() {
+        ServerConfiguration copy = new ConfigurationBuilder(config).createServerConfiguration();
+        ConfigurationDelta delta = ConfigurationDelta.between(config, copy);
+        assertThat(delta.isEmpty(), is(true));
+        assertThat(delta, is(ConfigurationDelta.empty()));
+        assertThat(delta.applyTo(config), is(config));
+    }
+
+    @Test
+    public void testUserDelta() throws Exception {
+        User user = TestUtils.getUser();
+        ServerConfiguration configAlt = new ConfigurationBuilder(config).addUser(user).createServerConfiguration();
+        ConfigurationDelta delta = ConfigurationDelta.between(config, configAlt);
+        assertThat(delta.getUsers().getAdded(), is(TestUtils.getUserSet(user)));
+        assertThat(delta.getUsers().getRemoved().isEmpty(), is(true));
+        assertThat(delta.getProjects().isEmpty(), is(true));
+        assertThat(delta.applyTo(config), is(configAlt));
+    }
+
+    @Test
+    public void testPolicyDelta() {
+        UserId userId = config.getPolicyMap().keySet().iterator().next();
+        ProjectId projectId = TestUtils.getProjectId();
+        RoleId roleId = TestUtils.getRoleId();
+        ServerConfiguration configAlt = new ConfigurationBuilder(config).addPolicy(userId, projectId, roleId).createServerConfiguration();
+        assertThat(config.hasRole(userId, projectId, roleId), is(false));
+        ConfigurationDelta delta = ConfigurationDelta.between(config, configAlt);
+        assertThat(delta.getPolicy().getUpdated().keySet(), is(TestUtils.getUserIdSet(userId)));
+        assertThat(delta.applyTo(config), is(configAlt));
+        assertThat(delta.applyTo(config).hasRole(userId, projectId, roleId), is(true));
+    }
+
+    @Test
+    public void testRemovalDelta() {
+        UserId userId = config.getPolicyMap().keySet().iterator().next();
+        ServerConfiguration configAlt = new ConfigurationBuilder(config).removePolicy(userId).removeProperty(
+                config.getProperties().keySet().iterator().next()).createServerConfiguration();
+        ConfigurationDelta delta = ConfigurationDelta.between(config, configAlt);
+        assertThat(delta.getPolicy().getRemoved(), is(TestUtils.getUserIdSet(userId)));
+        assertThat(delta.getProperties().getRemoved().size(), is(1));
+        assertThat(delta.applyTo(config), is(configAlt));
+    }
+
+    @Test
+    public void testHostAndRootDelta() {
+        Host host = TestUtils.getHost();
+        ServerConfiguration configAlt = new ConfigurationBuilder(config).setHost(host).setServerRoot("newRoot").createServerConfiguration();
+        ConfigurationDelta delta = ConfigurationDelta.between(config, configAlt);
+        assertThat(delta.getHost().get(), is(host));
+        assertThat(delta.getServerRoot().get(), is("newRoot"));
+        assertThat(delta.applyTo(config), is(configAlt));
+    }
+}
@@ -0,0 +1,141 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.exception.IdAlreadyInUseException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationEditorTest {
+    private static final int THREADS = 8, EDITS = 50;
+    private LiveConfiguration live;
+    private ConfigurationEditor editor;
+
+    @Before
+    public void setUp() {
+        live = new LiveConfiguration(new ConfigurationBuilder().addProperty("counter", "0").createServerConfiguration());
+        editor = new ConfigurationEditor(live);
+    }
+
+    private void runConcurrently(Callable<Void> task) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        try {
+            List<Future<Void>> futures = executor.invokeAll(Collections.nCopies(THREADS, task));
+            for (Future<Void> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static void increment(ConfigurationBuilder builder) {
+        int counter = Integer.parseInt(builder.createServerConfiguration().getProperty("counter"));
+        builder.addProperty("counter", Integer.toString(counter + 1));
+    }
+
+    @Test
+    public void testNonOverlappingEdits() throws Exception {
+        Set<User> users = ConcurrentHashMap.newKeySet();
+        runConcurrently(() -> {
+            for (int i = 0; i < EDITS; i++) {
+                User user = TestUtils.getUser();
+                users.add(user);
+                editor.editIndependently(Collections.singleton(user.getId()), builder -> builder.addUser(user));
+            }
+            return null;
+        });
+        ServerConfiguration config = live.getConfiguration();
+        for (User user : users) {
+            assertThat(config.containsUser(user), is(true));
+        }
+        assertThat(live.getVersion(), is((long) THREADS * EDITS));
+    }
+
+    @Test
+    public void testConflictingEditsAreRerun() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < EDITS; i++) {
+                editor.edit(builder -> increment(builder));
+            }
+            return null;
+        });
+        assertThat(live.getConfiguration().getProperty("counter"), is(Integer.toString(THREADS * EDITS)));
+    }
+
+    @Test
+    public void testLockedEdits() throws Exception {
+        runConcurrently(() -> {
+            for (int i = 0; i < EDITS; i++) {
+                editor.edit(Collections.singleton("counter"), builder -> increment(builder));
+            }
+            return null;
+        });
+        assertThat(live.getConfiguration().getProperty("counter"), is(Integer.toString(THREADS * EDITS)));
+    }
+
+    @Test
+    public void testFailedEditIsNotCommitted() throws Exception {
+        User user = TestUtils.getUser();
+        editor.edit(builder -> builder.addUser(user));
+        long version = live.getVersion();
+        try {
+            editor.edit(builder -> builder.addProperty("key", "value").addUser(user));
+            assertThat("Expected the edit to fail", false);
+        } catch (IdAlreadyInUseException e) {
+            assertThat(live.getVersion(), is(version));
+            assertThat(live.getConfiguration().getProperties().containsKey("key"), is(false));
+        }
+    }
+
+    @Test
+    public void testEditReadingConcurrentlyChangedEntriesIsRerun() throws Exception {
+        UserId alice = TestUtils.getUserId(), bob = TestUtils.getUserId();
+        ProjectId project = TestUtils.getProjectId();
+        RoleId owner = TestUtils.getRoleId();
+        editor.edit(builder -> builder.addPolicy(alice, project, owner).addPolicy(bob, project, owner));
+        int[] runs = new int[1];
+        editor.edit(builder -> {
+            if (runs[0]++ == 0) {
+                editor.edit(other -> removeIfOtherOwns(other, alice, bob, project, owner));
+            }
+            removeIfOtherOwns(builder, bob, alice, project, owner);
+        });
+        ServerConfiguration config = live.getConfiguration();
+        assertThat(runs[0], is(2));
+        assertThat(config.hasRole(bob, project, owner), is(true));
+        assertThat(config.hasRole(alice, project, owner), is(false));
+    }
+
+    private static void removeIfOtherOwns(ConfigurationBuilder builder, UserId user, UserId other, ProjectId project, RoleId owner) {
+        if (builder.createServerConfiguration().hasRole(other, project, owner)) {
+            builder.removePolicy(user, project, owner);
+        }
+    }
+
+    @Test
+    public void testIndependentEditIsRebased() throws Exception {
+        User user = TestUtils.getUser(), other = TestUtils.getUser();
+        int[] runs = new int[1];
+        editor.editIndependently(Collections.singleton(user.getId()), builder -> {
+            if (runs[0]++ == 0) {
+                editor.edit(concurrent -> concurrent.addUser(other));
+            }
+            builder.addUser(user);
+        });
+        assertThat(runs[0], is(1));
+        assertThat(live.getConfiguration().containsUser(user), is(true));
+        assertThat(live.getConfiguration().containsUser(other), is(true));
+    }
+}
@@ -0,0 +1,93 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.exception.UnknownVersionException;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Instant;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationHistoryTest {
+    private ServerConfiguration config;
+    private LiveConfiguration live;
+    private ConfigurationHistory history;
+    private UserId userId;
+    private ProjectId projectId;
+    private OperationId operationId;
+    private Role role;
+
+    @Before
+    public void setUp() {
+        config = TestUtils.getServerConfiguration();
+        live = new LiveConfiguration(config);
+        history = new ConfigurationHistory(live, 3);
+        userId = TestUtils.getUserId();
+        projectId = TestUtils.getProjectId();
+        operationId = TestUtils.getOperationId();
+        role = TestUtils.getRole(operationId);
+    }
+
+    private ServerConfiguration grant(ServerConfiguration base) throws Exception {
+        return new ConfigurationBuilder(base).addRole(role).addPolicy(userId, projectId, role.getId()).createServerConfiguration();
+    }
+
+    @Test
+    public void testLatestVersion() {
+        assertThat(history.getLatestVersion(), is(0L));
+        assertThat(history.getOldestVersion(), is(0L));
+        assertThat(history.getSnapshot(0).get(), is(live.getSnapshot()));
+    }
+
+    @Test
+    public void testPreviousVersions() throws Exception {
+        ServerConfiguration granted = grant(config);
+        live.commit(granted);
+        live.commit(new ConfigurationBuilder(granted).removePolicy(userId).addProperty("key", "value").createServerConfiguration());
+        assertThat(history.getLatestVersion(), is(2L));
+        assertThat(history.getConfiguration(0), is(config));
+        assertThat(history.getConfiguration(1), is(granted));
+        assertThat(history.getConfiguration(2), is(live.getConfiguration()));
+        assertThat(history.isOperationAllowed(0, operationId, projectId, userId), is(false));
+        assertThat(history.isOperationAllowed(1, operationId, projectId, userId), is(true));
+        assertThat(history.isOperationAllowed(2, operationId, projectId, userId), is(false));
+    }
+
+    @Test
+    public void testTimeQueries() throws Exception {
+        long start = live.getSnapshot().getTimestamp();
+        ServerConfiguration granted = grant(config);
+        live.apply(1, start + 1000, ConfigurationDelta.between(config, granted));
+        live.apply(2, start + 2000, ConfigurationDelta.between(granted, config));
+        assertThat(history.getConfiguration(Instant.ofEpochMilli(start + 500)), is(config));
+        assertThat(history.getConfiguration(Instant.ofEpochMilli(start + 1500)), is(granted));
+        assertThat(history.isOperationAllowed(Instant.ofEpochMilli(start + 1000), operationId, projectId, userId), is(true));
+        assertThat(history.isOperationAllowed(Instant.ofEpochMilli(start + 2500), operationId, projectId, userId), is(false));
+        assertThat(history.getSnapshot(Instant.ofEpochMilli(start - 1)).isPresent(), is(false));
+    }
+
+    @Test
+    public void testEviction() throws Exception {
+        ServerConfiguration granted = grant(config);
+        live.commit(granted);
+        live.commit(config);
+        live.commit(granted);
+        assertThat(history.getOldestVersion(), is(1L));
+        assertThat(history.getSnapshot(0).isPresent(), is(false));
+        assertThat(history.getConfiguration(1), is(granted));
+        assertThat(history.getConfiguration(2), is(config));
+    }
+
+    @Test(expected = UnknownVersionException.class)
+    public void testUnknownVersion() throws Exception {
+        history.getConfiguration(5);
+    }
+}
@@ -0,0 +1,99 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationMergeTest {
+    private ServerConfiguration base;
+
+    @Before
+    public void setUp() {
+        base = TestUtils.getServerConfiguration();
+    }
+
+    @Test
+    public void testNonConflictingChanges() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        ServerConfiguration left = new ConfigurationBuilder(base).addUser(user).addProperty("left", "1").createServerConfiguration();
+        ServerConfiguration right = new ConfigurationBuilder(base).addProject(project).setServerRoot("newRoot")
+                .addProperty("right", "2").createServerConfiguration();
+        ConfigurationMerge merge = ConfigurationMerge.merge(base, left, right);
+        assertThat(merge.hasConflicts(), is(false));
+        ServerConfiguration expected = new ConfigurationBuilder(left).addProject(project).setServerRoot("newRoot")
+                .addProperty("right", "2").createServerConfiguration();
+        assertThat(merge.getMergedConfiguration(), is(expected));
+    }
+
+    @Test
+    public void testRoleAssignmentsAreCombined() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        RoleId role = TestUtils.getRoleId(), roleAlt = TestUtils.getRoleId(), roleOld = TestUtils.getRoleId();
+        ServerConfiguration start = new ConfigurationBuilder(base).addPolicy(user.getId(), project.getId(), roleOld).createServerConfiguration();
+        ServerConfiguration left = new ConfigurationBuilder(start).addPolicy(user.getId(), project.getId(), role).createServerConfiguration();
+        ServerConfiguration right = new ConfigurationBuilder(start).addPolicy(user.getId(), project.getId(), roleAlt)
+                .removePolicy(user.getId(), project.getId(), roleOld).createServerConfiguration();
+        ConfigurationMerge merge = ConfigurationMerge.merge(start, left, right);
+        assertThat(merge.hasConflicts(), is(false));
+        ServerConfiguration merged = merge.getMergedConfiguration();
+        assertThat(merged.hasRole(user.getId(), project.getId(), role), is(true));
+        assertThat(merged.hasRole(user.getId(), project.getId(), roleAlt), is(true));
+        assertThat(merged.hasRole(user.getId(), project.getId(), roleOld), is(false));
+    }
+
+    @Test
+    public void testConflictingUserEdits() throws Exception {
+        User user = TestUtils.getUser();
+        ServerConfiguration start = new ConfigurationBuilder(base).addUser(user).createServerConfiguration();
+        ServerConfiguration left = new ConfigurationBuilder(start).setUserName(user.getId(), TestUtils.getName("left")).createServerConfiguration();
+        ServerConfiguration right = new ConfigurationBuilder(start).setUserName(user.getId(), TestUtils.getName("right"))
+                .addProperty("key", "value").createServerConfiguration();
+        ConfigurationMerge merge = ConfigurationMerge.merge(start, left, right);
+        assertThat(merge.getConflicts().size(), is(1));
+        ConfigurationMerge.Conflict conflict = merge.getConflicts().get(0);
+        assertThat(conflict.getSection(), is(ConfigurationChangeEvent.Type.USERS));
+        assertThat(conflict.getKey(), is(user.getId()));
+        assertThat(conflict.getBase().get(), is(user));
+        assertThat(merge.getMergedConfiguration().getUser(user.getId()).getName(), is(TestUtils.getName("left")));
+        assertThat(merge.getMergedConfiguration().getProperty("key"), is("value"));
+    }
+
+    @Test
+    public void testRemovedAndEditedUser() throws Exception {
+        User user = TestUtils.getUser();
+        ServerConfiguration start = new ConfigurationBuilder(base).addUser(user).createServerConfiguration();
+        ServerConfiguration left = new ConfigurationBuilder(start).removeUser(user).createServerConfiguration();
+        ServerConfiguration right = new ConfigurationBuilder(start).setUserName(user.getId(), TestUtils.getName("right")).createServerConfiguration();
+        ConfigurationMerge merge = ConfigurationMerge.merge(start, left, right);
+        assertThat(merge.getConflicts().size(), is(1));
+        assertThat(merge.getConflicts().get(0).getLeft().isPresent(), is(false));
+        assertThat(merge.getMergedConfiguration().containsUser(user.getId()), is(false));
+    }
+
+    @Test
+    public void testRemovedRoleAssignedOnOtherSide() throws Exception {
+        User user = TestUtils.getUser();
+        Project project = TestUtils.getProject();
+        Role role = TestUtils.getRole();
+        ServerConfiguration start = new ConfigurationBuilder(base).addUser(user).addProject(project).addRole(role).createServerConfiguration();
+        ServerConfiguration left = new ConfigurationBuilder(start).removeRole(role).createServerConfiguration();
+        ServerConfiguration right = new ConfigurationBuilder(start).addPolicy(user.getId(), project.getId(), role.getId()).createServerConfiguration();
+        ConfigurationMerge merge = ConfigurationMerge.merge(start, left, right);
+        assertThat(merge.getConflicts().size(), is(1));
+        ConfigurationMerge.Conflict conflict = merge.getConflicts().get(0);
+        assertThat(conflict.getSection(), is(ConfigurationChangeEvent.Type.POLICY));
+        assertThat(conflict.getKey(), is(user.getId()));
+        assertThat(conflict.getRight().get(), is(right.getUserRoleMap(user.getId())));
+    }
+}
@@ -0,0 +1,125 @@
+package edu.stanford.protege.metaproject.impl;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PersistentHashMapTest {
+
+    @Test
+    public void testPlusAndMinus() {
+        PersistentHashMap<String,Integer> map = PersistentHashMap.empty();
+        PersistentHashMap<String,Integer> map2 = map.plus("a", 1).plus("b", 2);
+        assertThat(map.isEmpty(), is(true));
+        assertThat(map2.size(), is(2));
+        assertThat(map2.get("a"), is(1));
+        assertThat(map2.plus("a", 1), is(sameInstance(map2)));
+        assertThat(map2.plus("a", 3).get("a"), is(3));
+        assertThat(map2.minus("c"), is(sameInstance(map2)));
+        assertThat(map2.minus("a").containsKey("a"), is(false));
+        assertThat(map2.minus("a").minus("b"), is(sameInstance(PersistentHashMap.empty())));
+    }
+
+    @Test
+    public void testAgainstHashMap() {
+        Random random = new Random(7);
+        Map<Integer,Integer> expected = new HashMap<>();
+        PersistentHashMap<Integer,Integer> map = PersistentHashMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(5000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.minus(key);
+            } else {
+                expected.put(key, i);
+                map = map.plus(key, i);
+            }
+        }
+        assertThat(map.size(), is(expected.size()));
+        assertThat(map, is(expected));
+        assertThat(map.hashCode(), is(expected.hashCode()));
+        assertThat(new HashMap<>(map), is(expected));
+    }
+
+    @Test
+    public void testHashCollisions() {
+        PersistentHashMap<Colliding,String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 10; i++) {
+            map = map.plus(new Colliding(i), "v" + i);
+        }
+        assertThat(map.size(), is(10));
+        assertThat(map.get(new Colliding(4)), is("v4"));
+        map = map.minus(new Colliding(4));
+        assertThat(map.containsKey(new Colliding(4)), is(false));
+        assertThat(map.size(), is(9));
+        for (int i = 0; i < 10; i++) {
+            map = map.minus(new Colliding(i));
+        }
+        assertThat(map.isEmpty(), is(true));
+    }
+
+    @Test
+    public void testDiff() {
+        PersistentHashMap<Integer,String> map = PersistentHashMap.empty();
+        for (int i = 0; i < 1000; i++) {
+            map = map.plus(i, "v" + i);
+        }
+        PersistentHashMap<Integer,String> map2 = map.plus(1000, "new").plus(5, "changed").minus(7);
+        MapDelta<Integer,String> delta = MapDelta.between(map, map2);
+        Map<Integer,String> updated = new HashMap<>();
+        updated.put(1000, "new");
+        updated.put(5, "changed");
+        assertThat(delta.getUpdated(), is(updated));
+        assertThat(delta.getRemoved(), is(Collections.singleton(7)));
+        assertThat(delta.applyTo(map), is(map2));
+        assertThat(MapDelta.between(map, map).isEmpty(), is(true));
+    }
+
+    @Test
+    public void testPlusEntries() {
+        Random random = new Random(11);
+        Map<Object,Integer> expected = new HashMap<>();
+        PersistentHashMap<Object,Integer> map = PersistentHashMap.empty();
+        for (int round = 0; round < 20; round++) {
+            List<Map.Entry<Object,Integer>> batch = new ArrayList<>();
+            for (int i = 0; i < 300; i++) {
+                Object key = random.nextInt(4) == 0 ? new Colliding(random.nextInt(20)) : random.nextInt(3000);
+                batch.add(new AbstractMap.SimpleEntry<>(key, random.nextInt(5)));
+            }
+            PersistentHashMap<Object,Integer> previous = map;
+            Map<Object,Integer> snapshot = new HashMap<>(expected);
+            batch.forEach(entry -> expected.put(entry.getKey(), entry.getValue()));
+            map = map.plusEntries(batch);
+            assertThat(map.size(), is(expected.size()));
+            assertThat(map, is(expected));
+            assertThat(previous, is(snapshot));
+        }
+        assertThat(map.plusEntries(new ArrayList<>(expected.entrySet())), is(sameInstance(map)));
+    }
+
+    private static final class Colliding {
+        private final int id;
+
+        private Colliding(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Colliding && ((Colliding) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return 42;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PersistentHashSetTest {
+
+    @Test
+    public void testPlusAndMinus() {
+        PersistentHashSet<String> set = PersistentHashSet.copyOf(ImmutableSet.of("a", "b"));
+        assertThat(set, is(ImmutableSet.of("a", "b")));
+        assertThat(set.plus("a"), is(sameInstance(set)));
+        assertThat(set.plus("c").contains("c"), is(true));
+        assertThat(set.minus("a"), is(ImmutableSet.of("b")));
+        assertThat(PersistentHashSet.copyOf(set), is(sameInstance(set)));
+    }
+
+    @Test
+    public void testDiff() {
+        PersistentHashSet<Integer> set = PersistentHashSet.empty();
+        for (int i = 0; i < 500; i++) {
+            set = set.plus(i);
+        }
+        Set<Integer> added = new HashSet<>(), removed = new HashSet<>();
+        set.diff(set.plus(500).minus(3), added::add, removed::add);
+        assertThat(added, is(ImmutableSet.of(500)));
+        assertThat(removed, is(ImmutableSet.of(3)));
+    }
+
+    @Test
+    public void testDerivedConfigurationSharesStructure() throws Exception {
+        ServerConfigurationImpl config = ServerConfigurationImpl.from(TestUtils.getServerConfiguration());
+        ServerConfigurationImpl derived = ServerConfigurationImpl.from(
+                new ConfigurationBuilder(config).addUser(TestUtils.getUser()).createServerConfiguration());
+        assertThat(derived.persistentRoles(), is(sameInstance(config.persistentRoles())));
+        assertThat(derived.persistentPolicyMap(), is(sameInstance(config.persistentPolicyMap())));
+        assertThat(derived.persistentUsers().size(), is(config.persistentUsers().size() + 1));
+        assertThat(ConfigurationDelta.between(config, derived).getUsers().getAdded().size(), is(1));
+    }
+}
@@ -0,0 +1,120 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import edu.stanford.protege.metaproject.api.AuthorizationDecision.DenialReason;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PolicyExplainerTest {
+    private final PolicyFactory factory = ConfigurationManager.getFactory();
+    private final OperationId read = TestUtils.getOperationId(), write = TestUtils.getOperationId();
+    private final User user = TestUtils.getUser();
+    private final Project project = TestUtils.getProject();
+    private Role reader, writer;
+    private ConfigurationBuilder builder;
+
+    @Before
+    public void setUp() throws Exception {
+        reader = TestUtils.getRole(TestUtils.getRoleId(), Collections.singleton(read));
+        writer = TestUtils.getRole(TestUtils.getRoleId(), Collections.singleton(write), reader.getId());
+        builder = new ConfigurationBuilder().addUser(user).addProject(project).addRole(reader).addRole(writer);
+    }
+
+    @Test
+    public void testDirectGrant() {
+        ServerConfiguration config = builder.addPolicy(user.getId(), project.getId(), writer.getId()).createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(read, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(true));
+        assertThat(decision.getGrants().size(), is(1));
+        assertThat(decision.getGrants().get(0).getRoleId(), is(writer.getId()));
+        assertThat(decision.getGrants().get(0).getScope(), is(project.getId()));
+        assertThat(decision.getGrants().get(0).getUserGroupId(), is(Optional.empty()));
+        assertThat(decision.getDenialReasons().isEmpty(), is(true));
+    }
+
+    @Test
+    public void testGroupGrantInUniversalScope() throws Exception {
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        ServerConfiguration config = builder.addUserGroup(TestUtils.getUserGroup(groupId, Collections.singleton(user.getId()),
+                Collections.emptySet(), Collections.singletonMap(ConfigurationUtils.getUniversalProjectId(), Collections.singleton(reader.getId()))))
+                .createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(read, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(true));
+        assertThat(decision.getGrants().get(0).getScope(), is(ConfigurationUtils.getUniversalProjectId()));
+        assertThat(decision.getGrants().get(0).getUserGroupId(), is(Optional.of(groupId)));
+    }
+
+    @Test
+    public void testDeniedByRule() {
+        DenyRule rule = factory.getUserDenyRule(user.getId(), project.getId(), Collections.singleton(write));
+        ServerConfiguration config = builder.addPolicy(user.getId(), project.getId(), writer.getId()).addDenyRule(rule)
+                .createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(write, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getGrants().size(), is(1));
+        assertThat(decision.getDenyRules(), is(Collections.singletonList(rule)));
+        assertThat(decision.getDenialReasons(), is(EnumSet.of(DenialReason.DENIED_BY_RULE)));
+    }
+
+    @Test
+    public void testDenyRulesInProjectGroupScope() throws Exception {
+        Project other = TestUtils.getProject();
+        ProjectId groupId = TestUtils.getProjectGroupId();
+        DenyRule groupRule = factory.getProjectDenyRule(groupId, Collections.singleton(write)),
+                otherRule = factory.getUserDenyRule(user.getId(), other.getId(), Collections.singleton(write));
+        ServerConfiguration config = builder.addProject(other)
+                .addProjectGroup(TestUtils.getProjectGroup(groupId, Collections.singleton(project.getId()), Collections.emptySet()))
+                .addPolicy(user.getId(), ConfigurationUtils.getUniversalProjectId(), writer.getId())
+                .addDenyRule(groupRule).addDenyRule(otherRule).createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(write, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getDenyRules(), is(Collections.singletonList(groupRule)));
+    }
+
+    @Test
+    public void testNoRoleAllowsOperation() {
+        ServerConfiguration config = builder.addPolicy(user.getId(), project.getId(), reader.getId()).createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(write, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getDenialReasons(), is(EnumSet.of(DenialReason.NO_ROLE_ALLOWS_OPERATION)));
+    }
+
+    @Test
+    public void testNoUniversalGrant() {
+        ServerConfiguration config = builder.addPolicy(user.getId(), project.getId(), writer.getId()).createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(write, TestUtils.getProjectId(), user.getId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getDenialReasons(), is(EnumSet.of(DenialReason.NO_ROLE_ASSIGNED, DenialReason.NO_UNIVERSAL_GRANT)));
+    }
+
+    @Test
+    public void testUnknownRole() {
+        RoleId unknown = TestUtils.getRoleId();
+        ServerConfiguration config = builder.addPolicy(user.getId(), project.getId(), unknown).createServerConfiguration();
+        AuthorizationDecision decision = config.explainOperation(read, project.getId(), user.getId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getUnknownRoles(), is(Collections.singleton(unknown)));
+        assertThat(decision.getDenialReasons(), is(EnumSet.of(DenialReason.UNKNOWN_ROLE, DenialReason.NO_ROLE_ALLOWS_OPERATION)));
+    }
+
+    @Test
+    public void testUnknownUserAndOperation() {
+        AuthorizationDecision decision = builder.createServerConfiguration()
+                .explainOperation(TestUtils.getOperationId(), project.getId(), TestUtils.getUserId());
+        assertThat(decision.isAllowed(), is(false));
+        assertThat(decision.getDenialReasons(),
+                is(EnumSet.of(DenialReason.UNKNOWN_USER, DenialReason.UNKNOWN_OPERATION, DenialReason.NO_ROLE_ASSIGNED)));
+    }
+}
@@ -0,0 +1,182 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PolicyIndexTest {
+    private final OperationId read = TestUtils.getOperationId(), write = TestUtils.getOperationId(), admin = TestUtils.getOperationId();
+    private final RoleId reader = TestUtils.getRoleId(), writer = TestUtils.getRoleId(), manager = TestUtils.getRoleId();
+    private Map<RoleId, Role> roles;
+
+    @Before
+    public void setUp() {
+        roles = new HashMap<>();
+        add(TestUtils.getRole(reader, Collections.singleton(read)));
+        add(TestUtils.getRole(writer, Collections.singleton(write), reader));
+        add(TestUtils.getRole(manager, Collections.singleton(admin), writer, TestUtils.getRoleId()));
+    }
+
+    private void add(Role role) {
+        roles.put(role.getId(), role);
+    }
+
+    @Test
+    public void testTransitiveInclusion() {
+        PolicyIndex index = compile(Collections.emptyMap());
+        assertThat(index.isOperationAllowed(manager, read), is(true));
+        assertThat(index.isOperationAllowed(manager, write), is(true));
+        assertThat(index.isOperationAllowed(writer, read), is(true));
+        assertThat(index.isOperationAllowed(writer, admin), is(false));
+        assertThat(index.isOperationAllowed(reader, write), is(false));
+        assertThat(index.getOperationIds(roles.get(manager)), is(new HashSet<>(Arrays.asList(read, write, admin))));
+    }
+
+    @Test
+    public void testCyclicInclusion() {
+        add(TestUtils.getRole(reader, Collections.singleton(read), manager));
+        PolicyIndex index = compile(Collections.emptyMap());
+        for (RoleId roleId : roles.keySet()) {
+            assertThat(index.isOperationAllowed(roleId, read), is(true));
+            assertThat(index.isOperationAllowed(roleId, write), is(true));
+            assertThat(index.isOperationAllowed(roleId, admin), is(true));
+        }
+    }
+
+    @Test
+    public void testUnknownRolesAndOperations() {
+        PolicyIndex index = compile(Collections.emptyMap());
+        assertThat(index.isOperationAllowed(TestUtils.getRoleId(), read), is(false));
+        assertThat(index.isOperationAllowed(manager, TestUtils.getOperationId()), is(false));
+    }
+
+    @Test
+    public void testNestedGroups() {
+        UserId alice = TestUtils.getUserId(), bob = TestUtils.getUserId();
+        ProjectId project = TestUtils.getProjectId();
+        UserGroupId staffId = TestUtils.getUserGroupId(), editorsId = TestUtils.getUserGroupId();
+        UserGroup staff = TestUtils.getUserGroup(staffId, Collections.emptySet(), Collections.singleton(editorsId),
+                Collections.singletonMap(project, Collections.singleton(reader)));
+        UserGroup editors = TestUtils.getUserGroup(editorsId, Collections.singleton(alice), Collections.emptySet(),
+                Collections.singletonMap(ConfigurationUtils.getUniversalProjectId(), Collections.singleton(writer)));
+        Map<UserGroupId, UserGroup> groups = new HashMap<>();
+        groups.put(staffId, staff);
+        groups.put(editorsId, editors);
+        Map<ProjectId, Set<RoleId>> assignments = Collections.singletonMap(project, Collections.singleton(manager));
+        PolicyIndex index = PolicyIndex.compile(roles, Collections.singletonMap(bob, assignments), groups, Collections.emptySet(),
+                Collections.emptySet(), Collections.emptyMap());
+
+        assertThat(index.getUserGroups(alice), is(new HashSet<>(Arrays.asList(staffId, editorsId))));
+        assertThat(index.getUserGroups(bob).isEmpty(), is(true));
+        assertThat(index.isOperationAllowed(alice, TestUtils.getProjectId(), write), is(true));
+        assertThat(index.isOperationAllowed(alice, project, admin), is(false));
+        assertThat(index.isOperationAllowed(alice, admin), is(false));
+        assertThat(index.isOperationAllowed(bob, project, admin), is(true));
+        assertThat(index.isOperationAllowed(bob, TestUtils.getProjectId(), read), is(false));
+        assertThat(index.isOperationAllowed(bob, read), is(true));
+    }
+
+    @Test
+    public void testDenyRules() {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        UserId alice = TestUtils.getUserId(), bob = TestUtils.getUserId(), carol = TestUtils.getUserId();
+        ProjectId project = TestUtils.getProjectId(), other = TestUtils.getProjectId(), universal = ConfigurationUtils.getUniversalProjectId();
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        UserGroup group = TestUtils.getUserGroup(groupId, Collections.singleton(bob), Collections.emptySet(), Collections.emptyMap());
+        Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap = new HashMap<>();
+        policyMap.put(alice, Collections.singletonMap(universal, Collections.singleton(writer)));
+        policyMap.put(bob, Collections.singletonMap(project, Collections.singleton(manager)));
+        policyMap.put(carol, Collections.singletonMap(universal, Collections.singleton(reader)));
+        List<DenyRule> denyRules = Arrays.asList(
+                factory.getUserDenyRule(alice, project, Collections.singleton(write)),
+                factory.getUserGroupDenyRule(groupId, universal, Collections.singleton(admin)),
+                factory.getProjectDenyRule(other, Collections.singleton(read)),
+                factory.getUserDenyRule(carol, universal, Collections.singleton(read)));
+        PolicyIndex index = PolicyIndex.compile(roles, policyMap, Collections.singletonMap(groupId, group), denyRules,
+                Collections.emptySet(), Collections.emptyMap());
+
+        assertThat(index.isOperationAllowed(alice, project, write), is(false));
+        assertThat(index.isOperationAllowed(alice, project, read), is(true));
+        assertThat(index.isOperationAllowed(alice, TestUtils.getProjectId(), write), is(true));
+        assertThat(index.isOperationAllowed(alice, other, read), is(false));
+        assertThat(index.isOperationAllowed(alice, other, write), is(true));
+        assertThat(index.isOperationAllowed(alice, write), is(true));
+        assertThat(index.isOperationAllowed(bob, project, admin), is(false));
+        assertThat(index.isOperationAllowed(bob, project, write), is(true));
+        assertThat(index.isOperationAllowed(bob, admin), is(false));
+        assertThat(index.isOperationAllowed(carol, TestUtils.getProjectId(), read), is(false));
+        assertThat(index.isOperationAllowed(carol, read), is(false));
+    }
+
+    @Test
+    public void testProjectGroups() {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        UserId alice = TestUtils.getUserId(), bob = TestUtils.getUserId();
+        ProjectId listed = TestUtils.getProjectId(), matched = TestUtils.getProjectId("onto/anatomy"), other = TestUtils.getProjectId("ontology"),
+                groupId = TestUtils.getProjectGroupId();
+        ProjectGroup group = TestUtils.getProjectGroup(groupId, Collections.singleton(listed), Collections.singleton("onto/"));
+        Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap = new HashMap<>();
+        policyMap.put(alice, Collections.singletonMap(groupId, Collections.singleton(writer)));
+        policyMap.put(bob, Collections.singletonMap(ConfigurationUtils.getUniversalProjectId(), Collections.singleton(reader)));
+        List<DenyRule> denyRules = Collections.singletonList(factory.getUserDenyRule(alice, groupId, Collections.singleton(read)));
+        PolicyIndex index = PolicyIndex.compile(roles, policyMap, Collections.emptyMap(), denyRules,
+                Arrays.asList(listed, matched, other), Collections.singletonMap(groupId, group));
+
+        assertThat(index.getProjectGroups(listed), is(Collections.singleton(groupId)));
+        assertThat(index.getProjectGroups(matched), is(Collections.singleton(groupId)));
+        assertThat(index.getProjectGroups(other).isEmpty(), is(true));
+        assertThat(index.isOperationAllowed(alice, listed, write), is(true));
+        assertThat(index.isOperationAllowed(alice, matched, write), is(true));
+        assertThat(index.isOperationAllowed(alice, matched, read), is(false));
+        assertThat(index.isOperationAllowed(alice, other, write), is(false));
+        assertThat(index.isOperationAllowed(bob, matched, read), is(true));
+    }
+
+    @Test
+    public void testAllowedUsers() {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        UserId alice = TestUtils.getUserId(), bob = TestUtils.getUserId(), carol = TestUtils.getUserId();
+        ProjectId project = TestUtils.getProjectId(), other = TestUtils.getProjectId(), universal = ConfigurationUtils.getUniversalProjectId();
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        UserGroup group = TestUtils.getUserGroup(groupId, Collections.singleton(carol), Collections.emptySet(),
+                Collections.singletonMap(other, Collections.singleton(manager)));
+        Map<UserId, Map<ProjectId, Set<RoleId>>> policyMap = new HashMap<>();
+        policyMap.put(alice, Collections.singletonMap(universal, Collections.singleton(writer)));
+        policyMap.put(bob, Collections.singletonMap(project, Collections.singleton(reader)));
+        List<DenyRule> denyRules = Collections.singletonList(factory.getUserDenyRule(alice, project, Collections.singleton(write)));
+        PolicyIndex index = PolicyIndex.compile(roles, policyMap, Collections.singletonMap(groupId, group), denyRules,
+                Collections.emptySet(), Collections.emptyMap());
+
+        assertThat(index.getUserIds(write, project), is(Collections.emptySet()));
+        assertThat(index.getUserIds(write, other), is(new HashSet<>(Arrays.asList(alice, carol))));
+        assertThat(index.getUserIds(read, project), is(new HashSet<>(Arrays.asList(alice, bob))));
+        assertThat(index.getUserIds(admin), is(Collections.singleton(carol)));
+        assertThat(index.getUserIds(TestUtils.getOperationId(), project).isEmpty(), is(true));
+        for (OperationId operationId : Arrays.asList(read, write, admin)) {
+            for (ProjectId projectId : Arrays.asList(project, other, universal, TestUtils.getProjectId())) {
+                for (UserId userId : Arrays.asList(alice, bob, carol)) {
+                    assertThat(index.getUserIds(operationId, projectId).contains(userId), is(index.isOperationAllowed(userId, projectId, operationId)));
+                }
+            }
+            for (UserId userId : Arrays.asList(alice, bob, carol)) {
+                assertThat(index.getUserIds(operationId).contains(userId), is(index.isOperationAllowed(userId, operationId)));
+            }
+        }
+    }
+
+    private PolicyIndex compile(Map<UserGroupId, UserGroup> groups) {
+        return PolicyIndex.compile(roles, Collections.emptyMap(), groups, Collections.emptySet(), Collections.emptySet(), Collections.emptyMap());
+    }
+}
@@ -0,0 +1,91 @@
+package edu.stanford.protege.metaproject.impl;
+
+import com.google.common.collect.ImmutableSet;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.Optional;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PolicyQueryTest {
+    private final Operation operation = TestUtils.getCustomOperation();
+    private final User owner = TestUtils.getUser(), alice = TestUtils.getUser(), bob = TestUtils.getUser(), carol = TestUtils.getUser();
+    private final Project ownedProject = getProject(owner.getId()), otherOwnedProject = getProject(owner.getId()),
+            otherProject = getProject(alice.getId());
+    private final ProjectId universal = ConfigurationUtils.getUniversalProjectId();
+    private final UserGroupId groupId = TestUtils.getUserGroupId();
+    private Role editor, admin;
+    private ServerConfigurationImpl config;
+
+    @Before
+    public void setUp() throws Exception {
+        editor = TestUtils.getRole(TestUtils.getRoleId(), Collections.singleton(operation.getId()));
+        admin = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet());
+        config = (ServerConfigurationImpl) new ConfigurationBuilder().setPolicyMap(Collections.emptyMap())
+                .addUser(owner).addUser(alice).addUser(bob).addUser(carol)
+                .addProject(ownedProject).addProject(otherOwnedProject).addProject(otherProject)
+                .addOperation(operation).addRole(editor).addRole(admin)
+                .addPolicy(alice.getId(), ownedProject.getId(), editor.getId())
+                .addPolicy(bob.getId(), otherOwnedProject.getId(), editor.getId())
+                .addPolicy(bob.getId(), universal, admin.getId())
+                .addPolicy(carol.getId(), otherProject.getId(), editor.getId())
+                .addUserGroup(TestUtils.getUserGroup(groupId, Collections.singleton(carol.getId()), Collections.emptySet(),
+                        Collections.singletonMap(ownedProject.getId(), Collections.singleton(editor.getId()))))
+                .createServerConfiguration();
+    }
+
+    private static Project getProject(UserId owner) {
+        return TestUtils.getProject(TestUtils.getProjectId(), TestUtils.getName(), TestUtils.getDescription(), owner, Optional.empty());
+    }
+
+    @Test
+    public void testEditorsOfOwnedProjectsWithoutGlobalRole() {
+        String query = "has role \"" + editor.getId().get() + "\" on projects owned by \"" + owner.getId().get() +
+                "\" and not has any role globally";
+        assertThat(config.queryUsers(query), is(ImmutableSet.of(alice.getId(), carol.getId())));
+    }
+
+    @Test
+    public void testOperationsAndGroups() {
+        assertThat(config.queryUsers("can \"" + operation.getId().get() + "\" on project \"" + otherOwnedProject.getId().get() + "\""),
+                is(ImmutableSet.of(bob.getId())));
+        assertThat(config.queryUsers("in group \"" + groupId.get() + "\" or is \"" + owner.getId().get() + "\""),
+                is(ImmutableSet.of(owner.getId(), carol.getId())));
+    }
+
+    @Test
+    public void testProjects() {
+        assertThat(config.queryProjects("owned by \"" + owner.getId().get() + "\" and not has member \"" + alice.getId().get() + "\""),
+                is(ImmutableSet.of(otherOwnedProject.getId())));
+        assertThat(config.queryProjects("not (is \"" + ownedProject.getId().get() + "\" or is \"" + otherProject.getId().get() + "\")"),
+                is(ImmutableSet.of(otherOwnedProject.getId())));
+    }
+
+    @Test
+    public void testPlan() {
+        PolicyQuery<UserId> query = PolicyQuery.users(config.queryIndex(), "not not (has any role and (in group \"" + groupId.get() +
+                "\" and not has role \"" + admin.getId().get() + "\"))");
+        assertThat(query.getPlan(), is("and(group(" + groupId.get() + "), role(*), not role(" + admin.getId().get() + "))"));
+        assertThat(query.evaluate(), is(ImmutableSet.of(carol.getId())));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownRole() {
+        config.queryUsers("has role \"" + TestUtils.getRoleId().get() + "\"");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedQuery() {
+        config.queryUsers("has role");
+    }
+}
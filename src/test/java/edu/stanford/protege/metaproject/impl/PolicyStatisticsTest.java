@@ -0,0 +1,114 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class PolicyStatisticsTest {
+    private final Operation readOperation = TestUtils.getCustomOperation(), writeOperation = TestUtils.getCustomOperation();
+    private final OperationId read = readOperation.getId(), write = writeOperation.getId();
+    private final User alice = TestUtils.getUser(), bob = TestUtils.getUser();
+    private final Project project = TestUtils.getProject(), otherProject = TestUtils.getProject();
+    private Role reader, writer;
+    private ServerConfiguration config;
+
+    @Before
+    public void setUp() throws Exception {
+        reader = TestUtils.getRole(TestUtils.getRoleId(), Collections.singleton(read));
+        writer = TestUtils.getRole(TestUtils.getRoleId(), Collections.singleton(write));
+        config = new ConfigurationBuilder().setPolicyMap(Collections.emptyMap())
+                .addUser(alice).addUser(bob).addProject(project).addProject(otherProject)
+                .addOperation(readOperation).addOperation(writeOperation)
+                .addRole(reader).addRole(writer)
+                .addPolicy(alice.getId(), project.getId(), reader.getId(), writer.getId())
+                .addPolicy(bob.getId(), project.getId(), reader.getId())
+                .addPolicy(bob.getId(), otherProject.getId(), reader.getId())
+                .createServerConfiguration();
+    }
+
+    @Test
+    public void testCounts() {
+        PolicyStatistics statistics = config.getStatistics();
+        assertThat(statistics.getUserCount(reader.getId()), is(2));
+        assertThat(statistics.getUserCount(writer.getId()), is(1));
+        assertThat(statistics.getMemberCount(project.getId()), is(2));
+        assertThat(statistics.getMemberCount(otherProject.getId()), is(1));
+        assertThat(statistics.getUserCount(TestUtils.getRoleId()), is(0));
+    }
+
+    @Test
+    public void testUnusedRolesAndOperations() {
+        PolicyStatistics statistics = new ConfigurationBuilder(config).removePolicy(alice.getId(), project.getId(), writer.getId())
+                .createServerConfiguration().getStatistics();
+        assertThat(statistics.getUnusedRoles().contains(writer.getId()), is(true));
+        assertThat(statistics.getUnusedRoles().contains(reader.getId()), is(false));
+        assertThat(statistics.getUnperformableOperations().contains(write), is(true));
+        assertThat(statistics.getUnperformableOperations().contains(read), is(false));
+    }
+
+    @Test
+    public void testIncrementalUpdate() throws Exception {
+        LiveConfiguration live = new LiveConfiguration(config);
+        live.getConfiguration().getStatistics();
+        UserGroupId groupId = TestUtils.getUserGroupId();
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).removePolicy(bob.getId()).addUserGroup(
+                TestUtils.getUserGroup(groupId, Collections.singleton(bob.getId()), Collections.emptySet(),
+                        Collections.singletonMap(project.getId(), Collections.singleton(writer.getId()))))
+                .createServerConfiguration());
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).removePolicy(alice.getId(), project.getId(), writer.getId())
+                .createServerConfiguration());
+        ServerConfigurationImpl current = ServerConfigurationImpl.from(live.getConfiguration());
+        PolicyStatistics statistics = current.getStatistics();
+        assertThat(statistics, is(PolicyStatisticsImpl.compute(current)));
+        assertThat(statistics.getUserCount(reader.getId()), is(1));
+        assertThat(statistics.getUserCount(writer.getId()), is(1));
+        assertThat(statistics.getDirectUserCounts().containsKey(writer.getId()), is(false));
+        assertThat(statistics.getMemberCount(project.getId()), is(2));
+        assertThat(statistics.getDirectMemberCounts().get(project.getId()), is(1));
+        assertThat(statistics.getMemberCount(otherProject.getId()), is(0));
+        assertThat(statistics.getUnusedRoles().contains(writer.getId()), is(false));
+    }
+
+    @Test
+    public void testCountsThroughGroups() throws Exception {
+        User carol = TestUtils.getUser();
+        UserGroupId teamId = TestUtils.getUserGroupId(), departmentId = TestUtils.getUserGroupId();
+        ProjectId projectGroupId = TestUtils.getProjectGroupId();
+        ServerConfiguration grouped = new ConfigurationBuilder(config).addUser(carol)
+                .addProjectGroup(TestUtils.getProjectGroup(projectGroupId, Collections.singleton(otherProject.getId()), Collections.emptySet()))
+                .addUserGroup(TestUtils.getUserGroup(teamId, Collections.singleton(carol.getId()), Collections.emptySet(), Collections.emptyMap()))
+                .addUserGroup(TestUtils.getUserGroup(departmentId, Collections.singleton(alice.getId()), Collections.singleton(teamId),
+                        Collections.singletonMap(projectGroupId, Collections.singleton(writer.getId()))))
+                .createServerConfiguration();
+        PolicyStatistics statistics = grouped.getStatistics();
+        assertThat(statistics.getUserCount(writer.getId()), is(2));
+        assertThat(statistics.getUserCount(reader.getId()), is(2));
+        assertThat(statistics.getMemberCount(otherProject.getId()), is(3));
+        assertThat(statistics.getMemberCount(otherProject.getId()), is(grouped.getUserIds(otherProject.getId()).size()));
+        assertThat(statistics.getMemberCount(projectGroupId), is(0));
+        assertThat(statistics.getDirectUserCounts().get(writer.getId()), is(1));
+        assertThat(statistics.getDirectMemberCounts().get(otherProject.getId()), is(1));
+    }
+
+    @Test
+    public void testIncludedRolesAreUsed() throws Exception {
+        Role editor = TestUtils.getRole(TestUtils.getRoleId(), Collections.emptySet(), writer.getId());
+        PolicyStatistics statistics = new ConfigurationBuilder(config).removePolicy(alice.getId(), project.getId(), writer.getId())
+                .addRole(editor).addPolicy(alice.getId(), otherProject.getId(), editor.getId())
+                .createServerConfiguration().getStatistics();
+        assertThat(statistics.getUnusedRoles().contains(writer.getId()), is(false));
+        assertThat(statistics.getUnusedRoles().contains(editor.getId()), is(false));
+        assertThat(statistics.getUserCount(writer.getId()), is(0));
+    }
+}
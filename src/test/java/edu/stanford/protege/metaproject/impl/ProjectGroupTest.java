@@ -0,0 +1,73 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ProjectGroupTest {
+    private static final String groupIdStr = "testProjectGroupId1", otherIdStr = "testProjectGroupId2", toStringHead = ProjectGroup.class.getSimpleName();
+    private static final ProjectId groupId = TestUtils.getProjectId(groupIdStr), diffGroupId = TestUtils.getProjectId(otherIdStr);
+    private static final Set<ProjectId> projects = TestUtils.getProjectIdSet("testProjectId1", "testProjectId2");
+    private static final Set<String> prefixes = Collections.singleton("testPrefix/");
+
+    private static final PolicyFactory factory = ConfigurationManager.getFactory();
+    private static final Name groupName = TestUtils.getName("test project group name");
+    private static final Description groupDescription = TestUtils.getDescription("test project group description");
+
+    private ProjectGroup group, otherGroup, diffGroup;
+
+    @Before
+    public void setUp() {
+        group = factory.getProjectGroup(groupId, groupName, groupDescription, projects, prefixes);
+        otherGroup = factory.getProjectGroup(groupId, groupName, groupDescription, projects, prefixes);
+        diffGroup = factory.getProjectGroup(diffGroupId, groupName, groupDescription, projects, Collections.emptySet());
+    }
+
+    @Test
+    public void testGetId() {
+        assertThat(group.getId().get(), is(groupIdStr));
+    }
+
+    @Test
+    public void testGetProjects() {
+        assertThat(group.getProjects(), is(projects));
+    }
+
+    @Test
+    public void testGetPrefixes() {
+        assertThat(group.getPrefixes(), is(prefixes));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testEmptyPrefix() {
+        factory.getProjectGroup(groupId, groupName, groupDescription, projects, Collections.singleton(""));
+    }
+
+    @Test
+    public void testEquals() {
+        assertThat(group, is(otherGroup));
+        assertThat(group.hashCode(), is(otherGroup.hashCode()));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertThat(group, is(not(diffGroup)));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(group.toString(), startsWith(toStringHead));
+    }
+}
@@ -5,6 +5,7 @@ import edu.stanford.protege.metaproject.api.*;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
 import java.util.Set;
 
 import static org.hamcrest.CoreMatchers.*;
@@ -53,6 +54,14 @@ public class RoleTest {
         assertThat(role.getName().get(), is(roleNameStr));
     }
 
+    @Test
+    public void testGetIncludedRoles() {
+        assertThat(role.getIncludedRoles().isEmpty(), is(true));
+        Role including = TestUtils.getRole(diffRoleId, operations, roleId);
+        assertThat(including.getIncludedRoles(), is(Collections.singleton(roleId)));
+        assertThat(including, is(not(TestUtils.getRole(diffRoleId, operations))));
+    }
+
     @Test
     public void testGetDescription() {
         assertThat(role.getDescription().get(), is(roleDescriptionStr));
@@ -0,0 +1,67 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.User;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class SearchIndexTest {
+    private final User smith = user("jsmith", "John Smith", "john.smith@example.org"),
+            jones = user("jjones", "Jane Jones", "jane@stanford.edu"),
+            jose = user("jgarcia", "José  García", "jose@example.org");
+    private SearchIndex<User> index;
+
+    private static User user(String id, String name, String email) {
+        return TestUtils.getUser(TestUtils.getUserId(id), TestUtils.getName(name), TestUtils.getEmailAddress(email));
+    }
+
+    @Before
+    public void setUp() {
+        index = new SearchIndex<>(Arrays.asList(smith, jones, jose),
+                user -> Arrays.asList(user.getName().get(), user.getEmailAddress().get(), user.getId().get()));
+    }
+
+    @Test
+    public void testNamePrefix() {
+        assertThat(index.search("jo", 10), is(Arrays.asList(smith, jones, jose)));
+        assertThat(index.search("John Sm", 10), is(Collections.singletonList(smith)));
+    }
+
+    @Test
+    public void testWordPrefix() {
+        assertThat(index.search("smi", 10), is(Collections.singletonList(smith)));
+        assertThat(index.search("stanford", 10), is(Collections.singletonList(jones)));
+    }
+
+    @Test
+    public void testAccentsAndCase() {
+        assertThat(index.search("GARC", 10), is(Collections.singletonList(jose)));
+        assertThat(index.search("josé g", 10), is(Collections.singletonList(jose)));
+    }
+
+    @Test
+    public void testLimit() {
+        assertThat(index.search("j", 2).size(), is(2));
+        assertThat(index.search("example", 1).size(), is(1));
+    }
+
+    @Test
+    public void testNoMatch() {
+        assertThat(index.search("xyz", 10).isEmpty(), is(true));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveLimit() {
+        index.search("j", 0);
+    }
+}
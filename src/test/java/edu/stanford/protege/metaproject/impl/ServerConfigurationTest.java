@@ -9,6 +9,7 @@ import org.junit.Test;
 
 import java.io.File;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
@@ -167,6 +168,18 @@ public class ServerConfigurationTest {
         }
     }
 
+    @Test
+    public void testIsOperationAllowedWithUnknownRole() throws Exception {
+        UserId userId = users.iterator().next().getId();
+        ProjectId pid = policyMap.get(userId).keySet().iterator().next();
+        RoleId roleId = policyMap.get(userId).get(pid).iterator().next();
+        OperationId opid = config.getRole(roleId).getOperations().iterator().next();
+        ServerConfiguration dangling = new ConfigurationBuilder(config).addPolicy(userId, pid, TestUtils.getRoleId()).createServerConfiguration();
+        assertThat(dangling.isOperationAllowed(opid, pid, userId), is(true));
+        assertThat(dangling.isOperationAllowed(opid, userId), is(true));
+        assertThat(dangling.isOperationAllowed(TestUtils.getOperationId(), pid, TestUtils.getUserId()), is(false));
+    }
+
     @Test
     public void testGetUserRoleMap() throws Exception {
         UserId userId = policyMap.keySet().iterator().next();
@@ -193,6 +206,23 @@ public class ServerConfigurationTest {
         assertThat(config.getUser(factory.getUserId("testGetUserFail")), is(not(equalTo(null))));
     }
 
+    @Test
+    public void testFindUser() throws Exception {
+        User user1 = users.iterator().next();
+        assertThat(config.findUser(user1.getId()), is(Optional.of(user1)));
+        assertThat(config.findUser(TestUtils.getUserId()), is(Optional.empty()));
+    }
+
+    @Test
+    public void testUnknownUserExceptionIsStackless() throws Exception {
+        try {
+            config.getUser(TestUtils.getUserId());
+            assertThat("Expected the lookup to fail", false);
+        } catch (UnknownUserIdException e) {
+            assertThat(e.getStackTrace().length, is(0));
+        }
+    }
+
     @Test
     public void testGetUsersByName() throws Exception {
         User user1 = users.iterator().next();
@@ -205,6 +235,13 @@ public class ServerConfigurationTest {
         assertThat(config.getUsers(user1.getEmailAddress()).contains(user1), is(true));
     }
 
+    @Test
+    public void testStreamUsers() throws Exception {
+        User user1 = users.iterator().next();
+        assertThat(config.streamUsers(user1.getName()).anyMatch(user1::equals), is(true));
+        assertThat(config.streamUsers(user1.getEmailAddress()).collect(Collectors.toSet()), is(config.getUsers(user1.getEmailAddress())));
+    }
+
     @Test
     public void testContainsUser() throws Exception {
         User user1 = users.iterator().next();
@@ -237,6 +274,21 @@ public class ServerConfigurationTest {
         assertThat(config.getProject(project.getId()), is(project));
     }
 
+    @Test
+    public void testFindPolicyObjects() throws Exception {
+        Project project = projects.iterator().next();
+        Role role = roles.iterator().next();
+        Operation operation = operations.iterator().next();
+        assertThat(config.findProject(project.getId()), is(Optional.of(project)));
+        assertThat(config.findProject(ConfigurationUtils.getUniversalProjectId()), is(Optional.of(ConfigurationUtils.getUniversalProject())));
+        assertThat(config.findProject(TestUtils.getProjectId()), is(Optional.empty()));
+        assertThat(config.findRole(role.getId()), is(Optional.of(role)));
+        assertThat(config.findRole(TestUtils.getRoleId()), is(Optional.empty()));
+        assertThat(config.findOperation(operation.getId()), is(Optional.of(operation)));
+        assertThat(config.findOperation(TestUtils.getOperationId()), is(Optional.empty()));
+        assertThat(config.findAuthenticationDetails(TestUtils.getUserId()), is(Optional.empty()));
+    }
+
     @Test
     public void testGetProjectsByName() throws Exception {
         Project project = projects.iterator().next();
@@ -251,6 +303,12 @@ public class ServerConfigurationTest {
         assertThat(config.getProjects(userId).contains(project), is(true));
     }
 
+    @Test
+    public void testStreamProjectsByUser() throws Exception {
+        UserId userId = policyMap.keySet().iterator().next();
+        assertThat(config.streamProjects(userId).collect(Collectors.toSet()), is(config.getProjects(userId)));
+    }
+
     @Test
     public void testContainsProject() throws Exception {
         Project project = projects.iterator().next();
@@ -425,6 +483,27 @@ public class ServerConfigurationTest {
         assertThat(config.getOperations(roles), is(operations));
     }
 
+    @Test
+    public void testStreamRolesAndOperations() throws Exception {
+        for (UserId userId : policyMap.keySet()) {
+            for (GlobalPermissions permissions : GlobalPermissions.values()) {
+                List<Role> roles = config.streamRoles(userId, permissions).collect(Collectors.toList());
+                assertThat(new HashSet<>(roles), is(config.getRoles(userId, permissions)));
+                assertThat(roles.size(), is(config.getRoles(userId, permissions).size()));
+                List<Operation> operations = config.streamOperations(userId, permissions).collect(Collectors.toList());
+                assertThat(new HashSet<>(operations), is(config.getOperations(userId, permissions)));
+                assertThat(operations.size(), is(config.getOperations(userId, permissions).size()));
+                for (ProjectId projectId : policyMap.get(userId).keySet()) {
+                    assertThat(config.streamRoles(userId, projectId, permissions).collect(Collectors.toSet()),
+                            is(config.getRoles(userId, projectId, permissions)));
+                    assertThat(config.streamOperations(userId, projectId, permissions).count(),
+                            is((long) config.getOperations(userId, projectId, permissions).size()));
+                }
+            }
+        }
+        assertThat(config.streamOperations(new HashSet<>(roles)).count(), is((long) config.getOperations(new HashSet<>(roles)).size()));
+    }
+
     @Test
     public void testGetOperationsForRole() throws Exception {
         Role role = roles.iterator().next();
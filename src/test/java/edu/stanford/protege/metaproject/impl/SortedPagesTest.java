@@ -0,0 +1,75 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.Page;
+import edu.stanford.protege.metaproject.api.SortOrder;
+import edu.stanford.protege.metaproject.api.User;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class SortedPagesTest {
+    private final User carol = user("1", "carol"), alice = user("2", "alice"), bob = user("3", "bob"), otherAlice = user("4", "alice");
+
+    private static User user(String id, String name) {
+        return TestUtils.getUser(TestUtils.getUserId(id), TestUtils.getName(name), TestUtils.getEmailAddress());
+    }
+
+    private static List<User> pageThrough(SortedPages<User> pages, SortOrder order, int limit) {
+        List<User> users = new ArrayList<>();
+        Optional<String> cursor = Optional.empty();
+        do {
+            Page<User> page = pages.getPage(order, cursor, limit);
+            assertThat(page.getItems().size() <= limit, is(true));
+            users.addAll(page.getItems());
+            cursor = page.getNextCursor();
+        } while (cursor.isPresent());
+        return users;
+    }
+
+    @Test
+    public void testPageById() {
+        SortedPages<User> pages = new SortedPages<>(Arrays.asList(bob, otherAlice, carol, alice));
+        assertThat(pageThrough(pages, SortOrder.ID, 3), is(Arrays.asList(carol, alice, bob, otherAlice)));
+    }
+
+    @Test
+    public void testPageByName() {
+        SortedPages<User> pages = new SortedPages<>(Arrays.asList(bob, otherAlice, carol, alice));
+        assertThat(pageThrough(pages, SortOrder.NAME, 1), is(Arrays.asList(alice, otherAlice, bob, carol)));
+        assertThat(pageThrough(pages, SortOrder.NAME, 10), is(Arrays.asList(alice, otherAlice, bob, carol)));
+    }
+
+    @Test
+    public void testLastPageHasNoCursor() {
+        Page<User> page = new SortedPages<>(Arrays.asList(alice, bob)).getPage(SortOrder.ID, Optional.empty(), 2);
+        assertThat(page.getItems().size(), is(2));
+        assertThat(page.getNextCursor().isPresent(), is(false));
+    }
+
+    @Test
+    public void testCursorResumesOnLaterSnapshot() {
+        Page<User> first = new SortedPages<>(Arrays.asList(bob, otherAlice, carol, alice)).getPage(SortOrder.NAME, Optional.empty(), 2);
+        assertThat(first.getItems(), is(Arrays.asList(alice, otherAlice)));
+        Page<User> second = new SortedPages<>(Arrays.asList(carol, alice, bob)).getPage(SortOrder.NAME, first.getNextCursor(), 2);
+        assertThat(second.getItems(), is(Arrays.asList(bob, carol)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMalformedCursor() {
+        new SortedPages<>(Collections.singleton(alice)).getPage(SortOrder.NAME, Optional.of("!"), 1);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonPositiveLimit() {
+        new SortedPages<>(Collections.singleton(alice)).getPage(SortOrder.ID, Optional.empty(), 0);
+    }
+}
@@ -0,0 +1,273 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class TimedAssignmentSchedulerTest {
+    private static final long START = 1_000_000L;
+    private final User user = TestUtils.getUser();
+    private final Project project = TestUtils.getProject();
+    private final RoleId roleId = ConfigurationUtils.getAdminRole().getId();
+    private final ManualClock clock = new ManualClock(START);
+    private final ManualExecutor executor = new ManualExecutor(clock);
+    private ConfigurationBuilder builder;
+    private LiveConfiguration live;
+    private TimedAssignmentScheduler scheduler;
+
+    @Before
+    public void setUp() throws Exception {
+        builder = new ConfigurationBuilder().setClock(clock).addUser(user).addProject(project);
+    }
+
+    @After
+    public void tearDown() {
+        if (scheduler != null) {
+            scheduler.close();
+        }
+    }
+
+    private boolean hasRole() {
+        return live.getConfiguration().hasRole(user.getId(), project.getId(), roleId);
+    }
+
+    /**
+     * Move the clock forward by the given number of milliseconds, and run the timers that are then due
+     */
+    private void advance(long millis) {
+        clock.millis += millis;
+        executor.runDue();
+    }
+
+    @Test
+    public void testExpiry() throws Exception {
+        live = new LiveConfiguration(builder.addPolicy(user.getId(), project.getId(), START - 1000, START + 200, roleId).createServerConfiguration());
+        scheduler = new TimedAssignmentScheduler(live, executor, clock);
+        executor.runDue();
+        assertThat(hasRole(), is(true));
+        assertThat(scheduler.getNextBoundary(), is(START + 200));
+
+        advance(199);
+        assertThat(hasRole(), is(true));
+        advance(1);
+        assertThat(hasRole(), is(false));
+        assertThat(live.getConfiguration().getTimedAssignments().isEmpty(), is(true));
+        assertThat(live.getVersion(), is(1L));
+    }
+
+    @Test
+    public void testWindowOpensAndCloses() throws Exception {
+        live = new LiveConfiguration(builder.createServerConfiguration());
+        scheduler = new TimedAssignmentScheduler(live, executor, clock);
+        executor.runDue();
+        live.commit(new ConfigurationBuilder(live.getConfiguration()).setClock(clock)
+                .addPolicy(user.getId(), project.getId(), START + 200, START + 400, roleId).createServerConfiguration());
+        assertThat(hasRole(), is(false));
+        assertThat(scheduler.getNextBoundary(), is(START + 200));
+
+        advance(200);
+        assertThat(hasRole(), is(true));
+        assertThat(scheduler.getNextBoundary(), is(START + 400));
+        advance(200);
+        assertThat(hasRole(), is(false));
+        assertThat(scheduler.getNextBoundary(), is(Long.MAX_VALUE));
+    }
+
+    @Test
+    public void testLapsedWhileOffline() throws Exception {
+        TimedAssignment lapsed = ConfigurationManager.getFactory().getTimedAssignment(user.getId(), project.getId(), roleId, 0, 1);
+        live = new LiveConfiguration(builder.addPolicy(user.getId(), project.getId(), roleId)
+                .setTimedAssignments(Collections.singleton(lapsed)).createServerConfiguration());
+        assertThat(hasRole(), is(true));
+        scheduler = new TimedAssignmentScheduler(live, executor, clock);
+        executor.runDue();
+        assertThat(hasRole(), is(false));
+    }
+
+    @Test
+    public void testClosedSchedulerDoesNotFire() throws Exception {
+        live = new LiveConfiguration(builder.addPolicy(user.getId(), project.getId(), START - 1000, START + 200, roleId).createServerConfiguration());
+        scheduler = new TimedAssignmentScheduler(live, executor, clock);
+        executor.runDue();
+        scheduler.close();
+        advance(200);
+        assertThat(hasRole(), is(true));
+        assertThat(scheduler.getNextBoundary(), is(Long.MAX_VALUE));
+    }
+
+    /**
+     * A clock that only moves when told to
+     */
+    private static final class ManualClock extends Clock {
+        private long millis;
+
+        private ManualClock(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long millis() {
+            return millis;
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis);
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    /**
+     * A scheduled executor that runs its delayed tasks on the calling thread, when they are due according to a
+     * manual clock and {@link #runDue()} is called
+     */
+    private static final class ManualExecutor extends AbstractExecutorService implements ScheduledExecutorService {
+        private final ManualClock clock;
+        private final PriorityQueue<Task> tasks = new PriorityQueue<>();
+        private boolean shutdown;
+
+        private ManualExecutor(ManualClock clock) {
+            this.clock = clock;
+        }
+
+        private void runDue() {
+            while (!tasks.isEmpty() && tasks.peek().time <= clock.millis) {
+                Task task = tasks.poll();
+                if (!task.cancelled) {
+                    task.done = true;
+                    task.command.run();
+                }
+            }
+        }
+
+        @Override
+        public ScheduledFuture<?> schedule(Runnable command, long delay, TimeUnit unit) {
+            Task task = new Task(command, clock.millis + unit.toMillis(delay));
+            tasks.add(task);
+            return task;
+        }
+
+        @Override
+        public <V> ScheduledFuture<V> schedule(Callable<V> callable, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleAtFixedRate(Runnable command, long initialDelay, long period, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public ScheduledFuture<?> scheduleWithFixedDelay(Runnable command, long initialDelay, long delay, TimeUnit unit) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+
+        @Override
+        public void shutdown() {
+            shutdown = true;
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            shutdown = true;
+            return Collections.emptyList();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return shutdown;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return shutdown;
+        }
+
+        private final class Task implements ScheduledFuture<Object> {
+            private final Runnable command;
+            private final long time;
+            private boolean cancelled, done;
+
+            private Task(Runnable command, long time) {
+                this.command = command;
+                this.time = time;
+            }
+
+            @Override
+            public long getDelay(TimeUnit unit) {
+                return unit.convert(time - clock.millis, TimeUnit.MILLISECONDS);
+            }
+
+            @Override
+            public int compareTo(Delayed other) {
+                return Long.compare(getDelay(TimeUnit.MILLISECONDS), other.getDelay(TimeUnit.MILLISECONDS));
+            }
+
+            @Override
+            public boolean cancel(boolean mayInterruptIfRunning) {
+                if (done) {
+                    return false;
+                }
+                cancelled = true;
+                return true;
+            }
+
+            @Override
+            public boolean isCancelled() {
+                return cancelled;
+            }
+
+            @Override
+            public boolean isDone() {
+                return done || cancelled;
+            }
+
+            @Override
+            public Object get() {
+                return null;
+            }
+
+            @Override
+            public Object get(long timeout, TimeUnit unit) {
+                return null;
+            }
+        }
+    }
+}
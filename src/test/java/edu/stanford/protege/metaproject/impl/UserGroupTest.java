@@ -0,0 +1,82 @@
+package edu.stanford.protege.metaproject.impl;
+
+import edu.stanford.protege.metaproject.ConfigurationManager;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class UserGroupTest {
+    private static final String groupIdStr = "testGroupId1", otherIdStr = "testGroupId2", toStringHead = UserGroup.class.getSimpleName();
+    private static final UserGroupId groupId = TestUtils.getUserGroupId(groupIdStr), diffGroupId = TestUtils.getUserGroupId(otherIdStr);
+    private static final Set<UserId> members = TestUtils.getUserIdSet("testUserId1", "testUserId2");
+    private static final Set<UserGroupId> subgroups = Collections.singleton(diffGroupId);
+    private static final ProjectId projectId = TestUtils.getProjectId("testProjectId1");
+    private static final Map<ProjectId, Set<RoleId>> assignments = Collections.singletonMap(projectId, TestUtils.getRoleIdSet(3));
+
+    private static final PolicyFactory factory = ConfigurationManager.getFactory();
+    private static final Name groupName = TestUtils.getName("test group name");
+    private static final Description groupDescription = TestUtils.getDescription("test group description");
+
+    private UserGroup group, otherGroup, diffGroup;
+
+    @Before
+    public void setUp() {
+        group = factory.getUserGroup(groupId, groupName, groupDescription, members, subgroups, assignments);
+        otherGroup = factory.getUserGroup(groupId, groupName, groupDescription, members, subgroups, assignments);
+        diffGroup = factory.getUserGroup(diffGroupId, groupName, groupDescription, members, Collections.emptySet(), assignments);
+    }
+
+    @Test
+    public void testGetId() {
+        assertThat(group.getId().get(), is(groupIdStr));
+    }
+
+    @Test
+    public void testGetMembers() {
+        assertThat(group.getMembers(), is(members));
+    }
+
+    @Test
+    public void testGetSubgroups() {
+        assertThat(group.getSubgroups(), is(subgroups));
+    }
+
+    @Test
+    public void testGetAssignments() {
+        assertThat(group.getAssignments(), is(assignments));
+    }
+
+    @Test
+    public void testEmptyAssignmentsAreDropped() {
+        Map<ProjectId, Set<RoleId>> withEmpty = new HashMap<>(assignments);
+        withEmpty.put(TestUtils.getProjectId(), Collections.emptySet());
+        assertThat(TestUtils.getUserGroup(groupId, members, subgroups, withEmpty).getAssignments(), is(assignments));
+    }
+
+    @Test
+    public void testEquals() {
+        assertThat(group, is(otherGroup));
+        assertThat(group.hashCode(), is(otherGroup.hashCode()));
+    }
+
+    @Test
+    public void testNotEquals() {
+        assertThat(group, is(not(diffGroup)));
+    }
+
+    @Test
+    public void testToString() {
+        assertThat(group.toString(), startsWith(toStringHead));
+    }
+}
@@ -0,0 +1,96 @@
+package edu.stanford.protege.metaproject.replication;
+
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+import edu.stanford.protege.metaproject.api.User;
+import edu.stanford.protege.metaproject.impl.ConfigurationBuilder;
+import edu.stanford.protege.metaproject.impl.LiveConfiguration;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.CoreMatchers.is;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ReplicationTest {
+    private static final long TIMEOUT = 10;
+    private LiveConfiguration leaderConfig, followerConfig;
+    private ReplicationLeader leader;
+
+    @Before
+    public void setUp() {
+        leaderConfig = new LiveConfiguration(TestUtils.getServerConfiguration());
+        followerConfig = new LiveConfiguration(new ConfigurationBuilder().createServerConfiguration());
+        leader = new ReplicationLeader(leaderConfig, 2);
+    }
+
+    @After
+    public void tearDown() {
+        leader.close();
+    }
+
+    private ReplicationFollower connectInProcess() throws Exception {
+        InProcessChannel channel = new InProcessChannel();
+        leader.addFollower(channel);
+        ReplicationFollower follower = new ReplicationFollower(followerConfig, channel.getPeer());
+        follower.start();
+        return follower;
+    }
+
+    private long addUser() throws Exception {
+        User user = TestUtils.getUser();
+        ServerConfiguration config = new ConfigurationBuilder(leaderConfig.getConfiguration()).addUser(user).createServerConfiguration();
+        return leaderConfig.commit(config).getVersion();
+    }
+
+    @Test
+    public void testInitialSnapshot() throws Exception {
+        ReplicationFollower follower = connectInProcess();
+        assertThat(follower.awaitVersion(0, TIMEOUT, TimeUnit.SECONDS), is(true));
+        assertThat(followerConfig.getConfiguration(), is(leaderConfig.getConfiguration()));
+    }
+
+    @Test
+    public void testDeltaStreaming() throws Exception {
+        ReplicationFollower follower = connectInProcess();
+        assertThat(follower.awaitVersion(0, TIMEOUT, TimeUnit.SECONDS), is(true));
+        addUser();
+        long version = addUser();
+        assertThat(follower.awaitVersion(version, TIMEOUT, TimeUnit.SECONDS), is(true));
+        assertThat(followerConfig.getVersion(), is(leaderConfig.getVersion()));
+        assertThat(followerConfig.getConfiguration(), is(leaderConfig.getConfiguration()));
+    }
+
+    @Test
+    public void testCatchUpFromSnapshot() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            addUser();
+        }
+        ReplicationFollower follower = connectInProcess();
+        long version = leaderConfig.getVersion();
+        assertThat(follower.awaitVersion(version, TIMEOUT, TimeUnit.SECONDS), is(true));
+        assertThat(followerConfig.getConfiguration(), is(leaderConfig.getConfiguration()));
+    }
+
+    @Test
+    public void testSocketReplication() throws Exception {
+        try (SocketReplicationAcceptor acceptor = new SocketReplicationAcceptor(new ServerSocket(0, 50, InetAddress.getLoopbackAddress()), leader::addFollower);
+             ReplicationFollower follower = new ReplicationFollower(followerConfig,
+                     SocketReplicationChannel.connect(InetAddress.getLoopbackAddress().getHostAddress(), acceptor.getLocalPort()))) {
+            follower.start();
+            assertThat(follower.awaitVersion(0, TIMEOUT, TimeUnit.SECONDS), is(true));
+            long version = addUser();
+            assertThat(follower.awaitVersion(version, TIMEOUT, TimeUnit.SECONDS), is(true));
+            assertThat(followerConfig.getConfiguration(), is(leaderConfig.getConfiguration()));
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.Gson;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.ServerConfiguration;
+import edu.stanford.protege.metaproject.api.UserId;
+import edu.stanford.protege.metaproject.impl.ConfigurationBuilder;
+import edu.stanford.protege.metaproject.impl.ConfigurationDelta;
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ConfigurationDeltaSerializerTest {
+    private ServerConfiguration config, configAlt;
+    private ConfigurationDelta delta;
+    private String jsonDelta;
+    private Gson gson;
+
+    @Before
+    public void setUp() throws Exception {
+        gson = new DefaultJsonSerializer().getGson();
+        config = TestUtils.getServerConfiguration();
+        UserId userId = config.getPolicyMap().keySet().iterator().next();
+        configAlt = new ConfigurationBuilder(config)
+                .addUser(TestUtils.getUser())
+                .addRole(TestUtils.getRole())
+                .addProject(TestUtils.getProject())
+                .addOperation(TestUtils.getCustomOperation())
+                .registerUser(TestUtils.getUserId(), TestUtils.getSaltedPassword())
+                .addPolicy(TestUtils.getUserId(), TestUtils.getProjectId(), TestUtils.getRoleId())
+                .removePolicy(userId)
+                .addDenyRule(TestUtils.getDenyRule())
+                .setHost(TestUtils.getHost())
+                .addProperty("key", "value")
+                .createServerConfiguration();
+        delta = ConfigurationDelta.between(config, configAlt);
+        jsonDelta = gson.toJson(delta, ConfigurationDelta.class);
+    }
+
+    @Test
+    public void testNotNullSerialization() {
+        assertThat(jsonDelta, is(not(equalTo(null))));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertThat(gson.fromJson(jsonDelta, ConfigurationDelta.class), is(delta));
+    }
+
+    @Test
+    public void testApplyDeserializedDelta() {
+        assertThat(gson.fromJson(jsonDelta, ConfigurationDelta.class).applyTo(config), is(configAlt));
+    }
+}
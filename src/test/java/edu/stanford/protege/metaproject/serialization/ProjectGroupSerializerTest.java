@@ -0,0 +1,44 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class ProjectGroupSerializerTest {
+    private ProjectGroup group;
+    private String jsonGroup;
+    private Gson gson;
+
+    @Before
+    public void setUp() {
+        gson = new DefaultJsonSerializer().getGson();
+        group = TestUtils.getProjectGroup();
+        jsonGroup = gson.toJson(group);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertThat(gson.fromJson(jsonGroup, ProjectGroup.class), is(group));
+    }
+
+    @Test
+    public void testPrefixesAreOptional() {
+        ProjectGroup listed = TestUtils.getProjectGroup(TestUtils.getProjectGroupId(), TestUtils.getProjectIdSet(), Collections.emptySet());
+        JsonObject obj = gson.toJsonTree(listed).getAsJsonObject();
+        obj.remove("prefixes");
+        assertThat(gson.fromJson(obj, ProjectGroup.class), is(listed));
+    }
+}
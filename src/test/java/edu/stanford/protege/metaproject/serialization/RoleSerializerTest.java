@@ -1,6 +1,7 @@
 package edu.stanford.protege.metaproject.serialization;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
 import edu.stanford.protege.metaproject.TestUtils;
 import edu.stanford.protege.metaproject.api.*;
 import org.junit.Before;
@@ -92,6 +93,19 @@ public class RoleSerializerTest {
         assertThat(gson.fromJson(jsonRole, Role.class).getDescription(), is(roleDescription));
     }
 
+    @Test
+    public void testRoundTripWithIncludedRoles() {
+        Role including = TestUtils.getRole(diffRoleId, operations, roleId, TestUtils.getRoleId());
+        assertThat(gson.fromJson(gson.toJson(including), Role.class), is(including));
+    }
+
+    @Test
+    public void testDeserializationWithoutIncludedRoles() {
+        JsonObject obj = gson.toJsonTree(role).getAsJsonObject();
+        obj.remove("includedRoles");
+        assertThat(gson.fromJson(obj, Role.class), is(role));
+    }
+
     @Test
     public void testGetOperations() {
         assertThat(gson.fromJson(jsonRole, Role.class).getOperations(), is(operations));
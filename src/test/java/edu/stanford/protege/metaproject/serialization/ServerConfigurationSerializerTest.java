@@ -1,12 +1,16 @@
 package edu.stanford.protege.metaproject.serialization;
 
 import com.google.gson.Gson;
+import edu.stanford.protege.metaproject.ConfigurationManager;
 import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.PolicyFactory;
 import edu.stanford.protege.metaproject.api.ServerConfiguration;
 import edu.stanford.protege.metaproject.impl.ConfigurationBuilder;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.util.Collections;
+
 import static org.hamcrest.CoreMatchers.*;
 import static org.hamcrest.MatcherAssert.assertThat;
 
@@ -69,4 +73,35 @@ public class ServerConfigurationSerializerTest {
     public void testDeserializationOfDifferentObjects() {
         assertThat(gson.fromJson(jsonServerConfiguration, ServerConfiguration.class), is(not(gson.fromJson(jsonDiffServerConfiguration, ServerConfiguration.class))));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRoundTripWithUserGroups() throws Exception {
+        ServerConfiguration withGroups = new ConfigurationBuilder(config).addUserGroup(TestUtils.getUserGroup()).createServerConfiguration();
+        assertThat(gson.fromJson(gson.toJson(withGroups, ServerConfiguration.class), ServerConfiguration.class), is(withGroups));
+    }
+
+    @Test
+    public void testRoundTripWithProjectGroups() throws Exception {
+        ServerConfiguration withGroups = new ConfigurationBuilder(config).addProjectGroup(TestUtils.getProjectGroup()).createServerConfiguration();
+        assertThat(gson.fromJson(gson.toJson(withGroups, ServerConfiguration.class), ServerConfiguration.class), is(withGroups));
+    }
+
+    @Test
+    public void testRoundTripWithTimedAssignments() throws Exception {
+        ServerConfiguration withAssignments = new ConfigurationBuilder(config)
+                .setTimedAssignments(Collections.singleton(TestUtils.getTimedAssignment()))
+                .createServerConfiguration();
+        assertThat(gson.fromJson(gson.toJson(withAssignments, ServerConfiguration.class), ServerConfiguration.class), is(withAssignments));
+    }
+
+    @Test
+    public void testRoundTripWithDenyRules() throws Exception {
+        PolicyFactory factory = ConfigurationManager.getFactory();
+        ServerConfiguration withRules = new ConfigurationBuilder(config)
+                .addDenyRule(TestUtils.getDenyRule())
+                .addDenyRule(factory.getUserGroupDenyRule(TestUtils.getUserGroupId(), TestUtils.getProjectId(), TestUtils.getOperationIdSet()))
+                .addDenyRule(factory.getProjectDenyRule(TestUtils.getProjectId(), TestUtils.getOperationIdSet()))
+                .createServerConfiguration();
+        assertThat(gson.fromJson(gson.toJson(withRules, ServerConfiguration.class), ServerConfiguration.class), is(withRules));
+    }
+}
@@ -0,0 +1,41 @@
+package edu.stanford.protege.metaproject.serialization;
+
+import com.google.gson.Gson;
+import edu.stanford.protege.metaproject.TestUtils;
+import edu.stanford.protege.metaproject.api.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Collections;
+
+import static org.hamcrest.CoreMatchers.*;
+import static org.hamcrest.MatcherAssert.assertThat;
+
+/**
+ * @author Rafael Gonçalves <br>
+ * Center for Biomedical Informatics Research <br>
+ * Stanford University
+ */
+public class UserGroupSerializerTest {
+    private UserGroup group;
+    private String jsonGroup;
+    private Gson gson;
+
+    @Before
+    public void setUp() {
+        gson = new DefaultJsonSerializer().getGson();
+        group = TestUtils.getUserGroup(TestUtils.getUserGroupId(), TestUtils.getUserIdSet(), Collections.singleton(TestUtils.getUserGroupId()),
+                Collections.singletonMap(TestUtils.getProjectId(), TestUtils.getRoleIdSet()));
+        jsonGroup = gson.toJson(group);
+    }
+
+    @Test
+    public void testRoundTrip() {
+        assertThat(gson.fromJson(jsonGroup, UserGroup.class), is(group));
+    }
+
+    @Test
+    public void testIdsAreSerializedAsStrings() {
+        assertThat(gson.toJsonTree(group).getAsJsonObject().get("id").getAsString(), is(group.getId().get()));
+    }
+}